@@ -63,6 +63,8 @@ public class AIArticleClassifier implements ArticleClassifier {
   private String serviceUrl;
   private String thesaurus;
   private HttpClient httpClient;
+  // thread safe, and keeps its compiled expressions across calls
+  private final XPathUtil xPathUtil = new XPathUtil();
 
   @Required
   public void setServiceUrl(String serviceUrl) {
@@ -183,7 +185,6 @@ public class AIArticleClassifier implements ArticleClassifier {
    */
   boolean appendSectionIfExists(StringBuilder sb, Document dom, String... sectionTitles)
       throws XPathException {
-    XPathUtil xPathUtil = new XPathUtil();
     for (String title : sectionTitles) {
       Node node = xPathUtil.selectSingleNode(dom,
           String.format("/article/body/sec[title='%s']", title));
@@ -33,6 +33,7 @@ import org.ambraproject.models.Journal;
 import org.ambraproject.service.permission.PermissionsService;
 import org.ambraproject.service.hibernate.HibernateServiceImpl;
 import org.ambraproject.service.xml.XMLService;
+import org.ambraproject.views.CitationView;
 import org.apache.poi.hslf.model.Picture;
 import org.apache.poi.hslf.model.Slide;
 import org.apache.poi.hslf.model.TextBox;
@@ -286,8 +287,8 @@ public class ArticleAssetServiceImpl extends HibernateServiceImpl implements Art
     long startTime = Calendar.getInstance().getTimeInMillis();
     String title = "";
 
-    //get the article
-    Article article = articleService.getArticle(assetDoi.substring(0, assetDoi.lastIndexOf('.')), authId);
+    //get the article citation
+    CitationView article = articleService.getArticleCitation(assetDoi.substring(0, assetDoi.lastIndexOf('.')), authId);
 
     //get the article asset for "PNG_M"
     ArticleAsset articleAsset = getArticleAsset(assetDoi, "PNG_M", authId);
@@ -521,9 +522,9 @@ public class ArticleAssetServiceImpl extends HibernateServiceImpl implements Art
    * @param article
    * @return
    */
-  private StringBuilder getCitationInfo(Article article) {
+  private StringBuilder getCitationInfo(CitationView article) {
 
-    List<ArticleAuthor> articleAuthors = article.getAuthors();
+    List<ArticleAuthor> articleAuthors = article.getAuthorList();
     List<String> collabAuthors = article.getCollaborativeAuthors();
     List<String> authors = new ArrayList<String>(articleAuthors.size() + collabAuthors.size());
     for (Iterator<ArticleAuthor> it = articleAuthors.iterator(); it.hasNext();) {
@@ -549,7 +550,7 @@ public class ArticleAssetServiceImpl extends HibernateServiceImpl implements Art
     }
 
     //append the year, title, journal, volume, issue and eLocationId information
-    citation.append(" (").append(new SimpleDateFormat("yyyy").format(article.getDate())).append(") ")
+    citation.append(" (").append(new SimpleDateFormat("yyyy").format(article.getPublishedDate())).append(") ")
       .append(article.getTitle().replaceAll("<.*?>", "")).append(". ")
       .append(article.getJournal()).append(" ")
       .append(article.getVolume())
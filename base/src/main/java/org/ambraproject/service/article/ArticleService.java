@@ -23,6 +23,7 @@ import org.ambraproject.models.Article;
 import org.ambraproject.models.ArticleRelationship;
 import org.ambraproject.models.Category;
 import org.ambraproject.models.CitedArticle;
+import org.ambraproject.views.CitationView;
 import org.ambraproject.views.CitedArticleView;
 import org.ambraproject.views.SearchHit;
 import org.ambraproject.views.article.ArticleInfo;
@@ -188,6 +189,29 @@ public interface ArticleService {
   public Article getArticle(final Long articleID, final String authId)
       throws NoSuchArticleIdException;
 
+  /**
+   * Get the citation data of an article, without loading the article entity and its collections.
+   *
+   * @param articleDoi URI of the article
+   * @param authId the authorization ID of the current user
+   * @return the citation of the article
+   * @throws NoSuchArticleIdException if the article doesn't exist, or the user isn't allowed to see it
+   */
+  public CitationView getArticleCitation(final String articleDoi, final String authId)
+      throws NoSuchArticleIdException;
+
+  /**
+   * Get the IDs of the cited articles of an article, in the order they are cited, without loading the article
+   * entity and its collections.
+   *
+   * @param articleDoi URI of the article
+   * @param authId the authorization ID of the current user
+   * @return the IDs of the cited articles
+   * @throws NoSuchArticleIdException if the article doesn't exist, or the user isn't allowed to see it
+   */
+  public List<Long> getCitedArticleIDs(final String articleDoi, final String authId)
+      throws NoSuchArticleIdException;
+
   /**
    * Get articles based on a list of Article id's.
    *
@@ -20,6 +20,7 @@ package org.ambraproject.service.article;
 
 import org.ambraproject.ApplicationException;
 import org.ambraproject.util.XPathUtil;
+import org.ambraproject.views.CitationView;
 import org.ambraproject.views.CitedArticleView;
 import org.ambraproject.views.SearchHit;
 import org.ambraproject.views.UserProfileInfo;
@@ -72,11 +73,14 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -543,18 +547,23 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
   }
 
   private void checkArticleState(Article article, String authId) throws NoSuchArticleIdException {
+    checkArticleState(article.getDoi(), article.getState(), authId);
+  }
+
+  private void checkArticleState(String articleDoi, int articleState, String authId)
+      throws NoSuchArticleIdException {
     //If the article is unpublished, it should not be returned if the user is not an admin
-    if (article.getState() == Article.STATE_UNPUBLISHED) {
+    if (articleState == Article.STATE_UNPUBLISHED) {
       try {
         permissionsService.checkPermission(Permission.VIEW_UNPUBBED_ARTICLES, authId);
       } catch(SecurityException se) {
-        throw new NoSuchArticleIdException(article.getDoi());
+        throw new NoSuchArticleIdException(articleDoi);
       }
     }
 
     //If the article is disabled, don't display it ever
-    if (article.getState() == Article.STATE_DISABLED) {
-      throw new NoSuchArticleIdException(article.getDoi());
+    if (articleState == Article.STATE_DISABLED) {
+      throw new NoSuchArticleIdException(articleDoi);
     }
   }
 
@@ -563,8 +572,6 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
    */
   @Transactional(readOnly = true)
   public void checkArticleState(final String articleDoi, final String authId) throws NoSuchArticleIdException {
-    //If the article is unpublished, it should not be returned if the user is not an admin
-
     List<Integer> results = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(Article.class)
         .add(Restrictions.eq("doi", articleDoi))
         .setProjection(Projections.projectionList()
@@ -575,20 +582,79 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
       throw new NoSuchArticleIdException(articleDoi);
     }
 
-    Integer articleState = results.get(0);
+    checkArticleState(articleDoi, results.get(0), authId);
+  }
 
-    if (articleState == Article.STATE_UNPUBLISHED) {
-      try {
-        permissionsService.checkPermission(Permission.VIEW_UNPUBBED_ARTICLES, authId);
-      } catch(SecurityException se) {
-        throw new NoSuchArticleIdException(articleDoi);
-      }
-    }
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Transactional(readOnly = true)
+  @SuppressWarnings("unchecked")
+  public CitationView getArticleCitation(final String articleDoi, final String authId)
+      throws NoSuchArticleIdException {
+    if (articleDoi == null)
+      throw new IllegalArgumentException("articleDoi == null");
 
-    //If the article is disabled, don't display it ever
-    if (articleState == Article.STATE_DISABLED) {
+    List<Object[]> results = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(Article.class)
+        .add(Restrictions.eq("doi", articleDoi))
+        .setProjection(Projections.projectionList()
+            .add(Projections.id())
+            .add(Projections.property("state"))
+            .add(Projections.property("eLocationId"))
+            .add(Projections.property("url"))
+            .add(Projections.property("title"))
+            .add(Projections.property("journal"))
+            .add(Projections.property("volume"))
+            .add(Projections.property("issue"))
+            .add(Projections.property("description"))
+            .add(Projections.property("publisherName"))
+            .add(Projections.property("date")))
+        , 0, 1);
+
+    if (results.size() == 0) {
       throw new NoSuchArticleIdException(articleDoi);
     }
+
+    Object[] row = results.get(0);
+    checkArticleState(articleDoi, (Integer) row[1], authId);
+
+    List<ArticleAuthor> authors = hibernateTemplate.find(
+        "select author from Article as article join article.authors as author " +
+            "where article.id = ? order by index(author)", row[0]);
+    List<String> collabAuthors = hibernateTemplate.find(
+        "select collabAuthor from Article as article join article.collaborativeAuthors as collabAuthor " +
+            "where article.id = ? order by index(collabAuthor)", row[0]);
+
+    return CitationView.builder()
+        .setDoi(articleDoi)
+        .seteLocationId((String) row[2])
+        .setUrl((String) row[3])
+        .setTitle((String) row[4])
+        .setJournal((String) row[5])
+        .setVolume((String) row[6])
+        .setIssue((String) row[7])
+        .setSummary((String) row[8])
+        .setPublisherName((String) row[9])
+        .setPublishedDate((Date) row[10])
+        .setAuthorList(authors)
+        .setCollaborativeAuthors(collabAuthors)
+        .build();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Transactional(readOnly = true)
+  @SuppressWarnings("unchecked")
+  public List<Long> getCitedArticleIDs(final String articleDoi, final String authId)
+      throws NoSuchArticleIdException {
+    checkArticleState(articleDoi, authId);
+
+    return hibernateTemplate.find(
+        "select citedArticle.id from Article as article join article.citedArticles as citedArticle " +
+            "where article.doi = ? order by index(citedArticle)", articleDoi);
   }
 
   /**
@@ -608,35 +674,51 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
     if (articleDois == null)
       throw new IllegalArgumentException("articleDois == null");
 
-    List<Article> articles = new ArrayList<Article>();
-    if(!articleDois.isEmpty()) {
-      articles = hibernateTemplate.findByCriteria(
-      DetachedCriteria.forClass(Article.class)
-        .add(Restrictions.in("doi", articleDois)));
-    }
-
-    for(int a = 0; a < articles.size(); a++) {
-      try {
-        checkArticleState(articles.get(a), authId);
-      } catch(NoSuchArticleIdException ex) {
-        articles.remove(a);
-      }
-    }
+    Map<String, Article> articlesByDoi = getArticlesByDoi(articleDois, authId);
 
     //Make sure the list of returned articles is in the same order as the requesting list.
-    List<Article> articlesSorted = new ArrayList<Article>();
+    List<Article> articlesSorted = new ArrayList<Article>(articlesByDoi.size());
 
     for(String doi : articleDois) {
-      for(Article article : articles) {
-        if(article.getDoi().equals(doi)) {
-          articlesSorted.add(article);
-        }
+      Article article = articlesByDoi.get(doi);
+      if(article != null) {
+        articlesSorted.add(article);
       }
     }
 
     return articlesSorted;
   }
 
+  /**
+   * Load the articles with the given dois in one query, leaving out the ones the user doesn't have access to
+   *
+   * @param articleDois list of article doi's
+   * @param authId the authorization ID of the current user
+   * @return the articles, by doi
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, Article> getArticlesByDoi(Collection<String> articleDois, final String authId) {
+    Map<String, Article> articlesByDoi = new HashMap<String, Article>(articleDois.size());
+    if(articleDois.isEmpty()) {
+      return articlesByDoi;
+    }
+
+    List<Article> articles = hibernateTemplate.findByCriteria(
+        DetachedCriteria.forClass(Article.class)
+            .add(Restrictions.in("doi", articleDois)));
+
+    for(Article article : articles) {
+      try {
+        checkArticleState(article, authId);
+        articlesByDoi.put(article.getDoi(), article);
+      } catch(NoSuchArticleIdException ex) {
+        //exclude this article
+      }
+    }
+
+    return articlesByDoi;
+  }
+
   /**
    * Get a List of all of the Journal/Volume/Issue combinations that contain the <code>articleURI</code> which was
    * passed in. Each primary List element contains a secondary List of six Strings which are, in order: <ul>
@@ -728,16 +810,55 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
   public List<ArticleInfo> getArticleInfos(final List<String> articleDois, final String authId) {
 
     final List<Article> articles = getArticles(articleDois, authId);
-    List<ArticleInfo> articleInfos = new ArrayList<ArticleInfo>();
+    List<ArticleInfo> articleInfos = new ArrayList<ArticleInfo>(articles.size());
+
+    if (articles.isEmpty()) {
+      return articleInfos;
+    }
 
+    //Load what the article infos need from outside the articles themselves for all the articles at once, rather
+    //than once per article
+    List<Long> articleIDs = new ArrayList<Long>(articles.size());
+    Set<String> relatedArticleDois = new HashSet<String>();
     for(Article article : articles) {
-      articleInfos.add(createArticleInfo(article, authId));
+      articleIDs.add(article.getID());
+      for (ArticleRelationship relationship : article.getRelatedArticles()) {
+        if (relationship.getOtherArticleDoi() != null) {
+          relatedArticleDois.add(relationship.getOtherArticleDoi());
+        }
+      }
+    }
+
+    Map<Long, List<Long>> flaggedCategories = getFlaggedCategories(articleIDs, authId);
+    Map<String, Article> relatedArticles = getArticlesByDoi(relatedArticleDois, authId);
+
+    for(Article article : articles) {
+      List<Long> articleFlaggedCategories = flaggedCategories.get(article.getID());
+      articleInfos.add(createArticleInfo(article, authId,
+          articleFlaggedCategories == null ? Collections.<Long>emptyList() : articleFlaggedCategories,
+          relatedArticles));
     }
 
     return articleInfos;
   }
 
   private ArticleInfo createArticleInfo(Article article, final String authId) {
+    return createArticleInfo(article, authId, getFlaggedCategories(article.getID(), authId),
+        Collections.<String, Article>emptyMap());
+  }
+
+  /**
+   * Create the article info for an article
+   *
+   * @param article the article
+   * @param authId the authorization ID of the current user
+   * @param flaggedCategories the IDs of the categories of the article this user flagged
+   * @param relatedArticles related articles that have already been loaded, by doi.  Related articles that are not in
+   *                        the map are loaded (and checked for access) one by one.
+   * @return the article info
+   */
+  private ArticleInfo createArticleInfo(Article article, final String authId, List<Long> flaggedCategories,
+                                        Map<String, Article> relatedArticles) {
     final ArticleInfo articleInfo = new ArticleInfo();
 
     articleInfo.setId(article.getID());
@@ -774,10 +895,7 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
     Set<Category> categories = article.getCategories();
     Set<ArticleCategory> catViews = new HashSet<ArticleCategory>(categories.size());
 
-
     //See if the user flagged any of the existing categories
-    List<Long> flaggedCategories = getFlaggedCategories(article.getID(), authId);
-
     for(Category cat : categories) {
       catViews.add(
         ArticleCategory.builder()
@@ -828,7 +946,10 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
       if (relationship.getOtherArticleDoi() != null) {
         try {
           // related articles of the article itself
-          Article otherArticle = getArticle(relationship.getOtherArticleDoi(), authId);
+          Article otherArticle = relatedArticles.get(relationship.getOtherArticleDoi());
+          if (otherArticle == null) {
+            otherArticle = getArticle(relationship.getOtherArticleDoi(), authId);
+          }
           RelatedArticleInfo relatedArticleInfo = getRelatedArticleInfo(relationship, otherArticle);
 
           if (!articleInfo.getRelatedArticles().contains(relatedArticleInfo)) {
@@ -930,6 +1051,47 @@ public class ArticleServiceImpl extends HibernateServiceImpl implements ArticleS
     }
   }
 
+  /**
+   * Return the categories this user flagged for each of the given articles, in one query
+   *
+   * @param articleIDs the articleIDs
+   * @param authID the user's authorization ID
+   *
+   * @return lists of category IDs this user flagged, by articleID.  Articles without flagged categories are left out.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<Long, List<Long>> getFlaggedCategories(final List<Long> articleIDs, final String authID) {
+    final Map<Long, List<Long>> results = new HashMap<Long, List<Long>>();
+
+    if(authID != null && authID.length() > 0 && !articleIDs.isEmpty()) {
+      hibernateTemplate.execute(new HibernateCallback<Object>() {
+        public Object doInHibernate(Session session) throws HibernateException, SQLException {
+          List<Object[]> rows = session.createSQLQuery(
+            "select acf.articleID, acf.categoryID from articleCategoryFlagged acf " +
+              "join userProfile up on up.userProfileID = acf.userProfileID " +
+              "where up.authId = :authID and acf.articleID in (:articleIDs)")
+            .setString("authID", authID)
+            .setParameterList("articleIDs", articleIDs)
+            .list();
+
+          for(Object[] row : rows) {
+            Long articleID = ((Number) row[0]).longValue();
+            List<Long> categories = results.get(articleID);
+            if(categories == null) {
+              categories = new ArrayList<Long>();
+              results.put(articleID, categories);
+            }
+            categories.add(((Number) row[1]).longValue());
+          }
+
+          return null;
+        }
+      });
+    }
+
+    return results;
+  }
+
   /**
    * Returns ArticleInfo object with articleID, doi, title, authors, collaborativeAuthors and article type populated
    * @param articleIdentifier articleID or articleDoi
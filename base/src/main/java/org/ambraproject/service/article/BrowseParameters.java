@@ -38,6 +38,7 @@ public class BrowseParameters {
   private int pageSize;
   private String journalKey;
   private String sort;
+  private String cursor;
 
   /**
    * Set the field to sort by
@@ -133,4 +134,16 @@ public class BrowseParameters {
   public List<URI> getArticleTypes() {
     return articleTypes;
   }
+
+  /**
+   * Set the cursor token returned with the previous page, or null to page by offset
+   * @param cursor
+   */
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
 }
@@ -28,6 +28,7 @@ import org.ambraproject.models.Volume;
 import org.ambraproject.service.cache.Cache;
 import org.ambraproject.service.hibernate.HibernateServiceImpl;
 import org.ambraproject.service.journal.JournalService;
+import org.ambraproject.service.search.SolrCursor;
 import org.ambraproject.service.search.SolrServerFactory;
 import org.ambraproject.service.search.SolrServiceUtil;
 import org.ambraproject.views.BrowseResult;
@@ -100,6 +101,7 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
   private SolrServerFactory serverFactory;
 
   private int cacheTimeToLive = 15;
+  private int cursorStartPage = 5;
   private Boolean useCache = true;
 
   //We have two collections here, as list supports ordering
@@ -180,7 +182,7 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
       String cacheKey = DATE_LIST_KEY + journalKey;
 
       return browseSolrCache.get(cacheKey, this.cacheTimeToLive,
-          new Cache.SynchronizedLookup<Years, RuntimeException>(cacheKey.intern()) {
+          new Cache.SingleFlightLookup<Years, RuntimeException>(cacheKey) {
             @SuppressWarnings("synthetic-access")
             @Override
             public Years lookup() throws RuntimeException {
@@ -210,7 +212,7 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
         "-" + params.getPageNum() + "-" + params.getPageSize();
 
       result = browseSolrCache.get(cacheKey, this.cacheTimeToLive,
-          new Cache.SynchronizedLookup<BrowseResult, RuntimeException>(cacheKey.intern()) {
+          new Cache.SingleFlightLookup<BrowseResult, RuntimeException>(cacheKey) {
             @Override
             public BrowseResult lookup() throws RuntimeException {
               return getArticlesBySubjectViaSolr(params);
@@ -248,7 +250,7 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
       String cacheKey = ARTBYDATE_LIST_KEY + mod + "-" + params.getPageNum() + "-" + params.getPageSize();
 
       result = browseSolrCache.get(cacheKey, this.cacheTimeToLive,
-          new Cache.SynchronizedLookup<BrowseResult, RuntimeException>(cacheKey.intern()) {
+          new Cache.SingleFlightLookup<BrowseResult, RuntimeException>(cacheKey) {
             @Override
             public BrowseResult lookup() throws RuntimeException {
               return getArticlesByDateViaSolr(params);
@@ -273,7 +275,7 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
       final String cacheKey = ARTBYCAT_LIST_KEY + journalKey;
 
       return browseSolrCache.get(cacheKey, this.cacheTimeToLive,
-          new Cache.SynchronizedLookup<SortedMap<String, Long>, RuntimeException>(cacheKey.intern()) {
+          new Cache.SingleFlightLookup<SortedMap<String, Long>, RuntimeException>(cacheKey) {
             @Override
             public SortedMap<String, Long> lookup() throws RuntimeException {
               return getSubjectsForJournalViaSolr(journalKey);
@@ -629,6 +631,16 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
     this.serverFactory = serverFactory;
   }
 
+  /**
+   * Set the first page that is read with a cursor token, when there is one.  Earlier pages are cheap enough to read
+   * with an offset.
+   *
+   * @param cursorStartPage the page number (0 based)
+   */
+  public void setCursorStartPage(int cursorStartPage) {
+    this.cursorStartPage = cursorStartPage;
+  }
+
   @SuppressWarnings("unchecked")
   @Transactional(readOnly = true)
   private Volume getVolume(String volumeUri) {
@@ -721,10 +733,14 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
     query.setStart(params.getPageNum() * params.getPageSize());
     query.setRows(params.getPageSize());
 
+    String searchKey = getCursorSearchKey(query);
+    int skipped = applyCursor(query, searchKey, params);
+
     try {
       QueryResponse response = this.serverFactory.getServer().query(query);
       SolrDocumentList documentList = response.getResults();
-      total = documentList.getNumFound();
+      total = documentList.getNumFound() + skipped;
+      result.setNextCursor(createNextCursor(query, searchKey, params, documentList));
 
       for (SolrDocument document : documentList) {
         SearchHit sh = createArticleBrowseDisplay(document, query.toString());
@@ -789,6 +805,40 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
     query.addSortField("id", SolrQuery.ORDER.desc);
   }
 
+  /**
+   * Identifies a browse query apart from its page, for cursor tokens
+   */
+  private String getCursorSearchKey(SolrQuery query) {
+    return query.getQuery() + "|" + StringUtils.join(query.getFilterQueries(), "|");
+  }
+
+  /**
+   * Page a browse query with the cursor token from the previous page, if it's deep enough to be worth it.  The sort
+   * ends with <code>id</code>, so any sort on plain fields can be paged this way.
+   *
+   * @return the number of results skipped by the cursor, or 0 if the query is paged with <code>start</code>
+   */
+  private int applyCursor(SolrQuery query, String searchKey, BrowseParameters params) {
+    int skipped = -1;
+    if (params.getPageSize() > 0 && params.getPageNum() >= cursorStartPage) {
+      skipped = SolrCursor.apply(query, searchKey, params.getPageNum(), params.getCursor());
+    }
+    SolrCursor.addSortFields(query);
+    return Math.max(skipped, 0);
+  }
+
+  /**
+   * Create the cursor token for the page after a full page of results
+   */
+  private String createNextCursor(SolrQuery query, String searchKey, BrowseParameters params,
+      SolrDocumentList documentList) {
+    if (params.getPageSize() <= 0 || documentList.size() < params.getPageSize()) {
+      return null;
+    }
+    return SolrCursor.createToken(query, searchKey, params.getPageNum() + 1,
+        documentList.get(documentList.size() - 1));
+  }
+
   /**
    * Returns list of articles in a given date range, from newest to oldest
    * @param params the collection class of parameters.
@@ -841,12 +891,16 @@ public class BrowseServiceImpl extends HibernateServiceImpl implements BrowseSer
     query.setStart(params.getPageNum() * params.getPageSize());
     query.setRows(params.getPageSize());
 
+    String searchKey = getCursorSearchKey(query);
+    int skipped = applyCursor(query, searchKey, params);
+
     log.info("getArticlesByDate Solr Query:" + query.toString());
 
     try {
       QueryResponse response = this.serverFactory.getServer().query(query);
       SolrDocumentList documentList = response.getResults();
-      totalSize = documentList.getNumFound();
+      totalSize = documentList.getNumFound() + skipped;
+      result.setNextCursor(createNextCursor(query, searchKey, params, documentList));
 
       for (SolrDocument document : documentList) {
         SearchHit sh = createArticleBrowseDisplay(document, query.toString());
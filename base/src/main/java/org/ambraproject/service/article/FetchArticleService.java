@@ -20,10 +20,12 @@
 
 package org.ambraproject.service.article;
 
+import org.ambraproject.ApplicationException;
 import org.ambraproject.service.hibernate.HibernateService;
 import org.ambraproject.views.AuthorView;
 import org.ambraproject.views.CitationReference;
 import org.ambraproject.views.article.ArticleInfo;
+import org.ambraproject.views.article.ArticleMetadata;
 import org.w3c.dom.Document;
 
 import javax.xml.transform.TransformerException;
@@ -53,6 +55,19 @@ public interface FetchArticleService extends HibernateService {
    */
   public Document getArticleDocument(final ArticleInfo article);
 
+  /**
+   * Get the authors, affiliations, author notes, references and journal abbreviation of an article.  These are
+   * extracted from the article xml once per version of the article and cached, so this is much cheaper than parsing
+   * the document with {@link #getArticleDocument(ArticleInfo)} and calling the individual methods.
+   *
+   * @param article the article
+   * @return the article metadata
+   * @throws NoSuchArticleIdException if the article has no xml
+   * @throws org.ambraproject.ApplicationException if the xml could not be read
+   */
+  public ArticleMetadata getArticleMetadata(final ArticleInfo article)
+      throws ApplicationException, NoSuchArticleIdException;
+
   /**
    * Get the author affiliations for a given article
    *
@@ -28,6 +28,7 @@ import org.ambraproject.util.XPathUtil;
 import org.ambraproject.views.AuthorView;
 import org.ambraproject.views.CitationReference;
 import org.ambraproject.views.article.ArticleInfo;
+import org.ambraproject.views.article.ArticleMetadata;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Restrictions;
@@ -56,6 +57,7 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +73,7 @@ public class FetchArticleServiceImpl extends HibernateServiceImpl implements Fet
   private XMLService articleTransformService;
   private FileStoreService fileStoreService;
   private Cache articleHtmlCache;
+  private Cache articleMetadataCache;
   private String guestCrossRefUrl;
 
   /**
@@ -108,10 +111,10 @@ public class FetchArticleServiceImpl extends HibernateServiceImpl implements Fet
   @Override
   @Transactional(readOnly = true)
   public String getArticleAsHTML(final ArticleInfo article) throws Exception {
-    final Object lock = (ARTICLE_LOCK + article.getDoi()).intern(); //lock @ Article level
+    final Object lock = ARTICLE_LOCK + article.getDoi(); //lock @ Article level
 
     String content = articleHtmlCache.get(article.getDoi(),
-        new Cache.SynchronizedLookup<String, Exception>(lock) {
+        new Cache.SingleFlightLookup<String, Exception>(lock) {
           @Override
           public String lookup() throws Exception {
             return getTransformedArticle(article);
@@ -138,6 +141,19 @@ public class FetchArticleServiceImpl extends HibernateServiceImpl implements Fet
     if (fsid == null)
       throw new NoSuchArticleIdException(articleDoi);
 
+    return new ByteArrayDataSource(fileStoreService, fsid, getArticleXMLAsset(articleDoi));
+  }
+
+  /**
+   * For the articleDOI, get the asset row of the article XML
+   *
+   * @param articleDoi the article doi
+   *
+   * @return the XML asset
+   *
+   * @throws NoSuchArticleIdException
+   */
+  private ArticleAsset getArticleXMLAsset(final String articleDoi) throws NoSuchArticleIdException {
     List assets = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(ArticleAsset.class)
         .add(Restrictions.eq("doi", articleDoi))
         .add(Restrictions.eq("extension", "XML")));
@@ -145,7 +161,7 @@ public class FetchArticleServiceImpl extends HibernateServiceImpl implements Fet
     if (assets.size() == 0)
       throw new NoSuchArticleIdException(articleDoi);
 
-    return new ByteArrayDataSource(fileStoreService, fsid, (ArticleAsset) assets.get(0));
+    return (ArticleAsset) assets.get(0);
   }
 
   /**
@@ -184,6 +200,66 @@ public class FetchArticleServiceImpl extends HibernateServiceImpl implements Fet
     return doc;
   }
 
+  /**
+   * Get the metadata of an article, extracting it from the article xml if this version of the article isn't cached
+   * yet.  The cache key includes the last modified date of the xml asset, so republishing the article makes the
+   * old entry unreachable (it is then evicted by the cache's own expiry).
+   *
+   * @param article the article
+   * @return the article metadata
+   * @throws NoSuchArticleIdException if the article has no xml
+   * @throws ApplicationException if the xml could not be read
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public ArticleMetadata getArticleMetadata(final ArticleInfo article)
+      throws ApplicationException, NoSuchArticleIdException {
+    final String articleDoi = article.getDoi();
+    String fsid = FSIDMapper.doiTofsid(articleDoi, "XML");
+
+    if (fsid == null)
+      throw new NoSuchArticleIdException(articleDoi);
+
+    final ArticleAsset asset = getArticleXMLAsset(articleDoi);
+    Date lastModified = asset.getLastModified();
+    String key = articleDoi + "|" + (lastModified == null ? 0 : lastModified.getTime());
+    final DataSource content = new ByteArrayDataSource(fileStoreService, fsid, asset);
+
+    return articleMetadataCache.get(key,
+        new Cache.SingleFlightLookup<ArticleMetadata, ApplicationException>(key) {
+          @Override
+          public ArticleMetadata lookup() throws ApplicationException {
+            Document doc;
+            try {
+              doc = articleTransformService.createDocBuilder().parse(content.getInputStream());
+            } catch (Exception e) {
+              throw new ApplicationException("Error parsing the article xml for article " + articleDoi, e);
+            }
+            return extractArticleMetadata(doc);
+          }
+        });
+  }
+
+  /**
+   * Extract the article metadata out of the article xml
+   *
+   * @param doc article xml
+   * @return the article metadata
+   */
+  private ArticleMetadata extractArticleMetadata(Document doc) {
+    List<AuthorView> authors = getAuthors(doc);
+
+    return ArticleMetadata.builder()
+        .setAuthors(authors)
+        .setAuthorsByAffiliation(getAuthorsByAffiliation(doc, authors))
+        .setCorrespondingAuthors(getCorrespondingAuthors(doc))
+        .setAuthorContributions(getAuthorContributions(doc))
+        .setCompetingInterests(getAuthorCompetingInterests(doc))
+        .setReferences(getReferences(doc))
+        .setJournalAbbreviation(getJournalAbbreviation(doc))
+        .build();
+  }
+
   /**
    * Get the authors and some meta data for a given article.
    *
@@ -791,6 +867,14 @@ public class FetchArticleServiceImpl extends HibernateServiceImpl implements Fet
     this.articleHtmlCache = articleHtmlCache;
   }
 
+  /**
+   * @param articleMetadataCache The cache of metadata extracted from the article xml
+   */
+  @Required
+  public void setArticleMetadataCache(Cache articleMetadataCache) {
+    this.articleMetadataCache = articleMetadataCache;
+  }
+
   /**
    * @param fileStoreService The fileStoreService to use
    */
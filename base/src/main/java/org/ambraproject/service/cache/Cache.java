@@ -232,4 +232,36 @@ public interface Cache {
       }
     }
   }
+
+  /**
+   * A lookup implementation for Read-thru caches that lets only one thread populate a given key at a time, without
+   * holding any monitor. Threads that miss on a key while another thread is already looking it up wait for that
+   * lookup to finish and then read its value from the cache. Lookups of different keys never wait on each other.
+   * <p/>
+   * Unlike {@link SynchronizedLookup}, the key does not need to be interned; lookups are matched using
+   * <code>equals</code>. If a wait time is given, threads that have waited that long for another thread's lookup
+   * degrade to loading from the backing cache/store, like {@link LockedLookup}.
+   *
+   * @param <T> the type of value looked up
+   * @param <E> the type of exception to expect on lookup
+   */
+  public static abstract class SingleFlightLookup<T, E extends Exception> extends Lookup<T, E> {
+    private Object   key;
+    private long     timeWait;
+    private TimeUnit unit;
+
+    public SingleFlightLookup(Object key) {
+      this(key, -1, TimeUnit.MILLISECONDS);
+    }
+
+    public SingleFlightLookup(Object key, long timeWait, TimeUnit unit) {
+      this.key      = key;
+      this.timeWait = timeWait;
+      this.unit     = unit;
+    }
+
+    public Item execute(Operation operation) throws Exception {
+      return SingleFlight.execute(key, operation, timeWait, unit);
+    }
+  }
 }
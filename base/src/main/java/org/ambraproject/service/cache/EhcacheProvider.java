@@ -19,14 +19,28 @@
  */
 package org.ambraproject.service.cache;
 
+import org.ambraproject.util.DaemonExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * A cache implementation using Ehcache.
+ * <p/>
+ * Optionally the read-thru lookups can run in stale-while-revalidate mode (see {@link #setMaxStaleness(int)}).  In
+ * this mode entries are kept in ehcache for <code>maxStaleness</code> seconds past their time to live.  A read-thru
+ * lookup that finds such a stale entry returns it right away and queues one background refresh of the key on a
+ * bounded executor, instead of making the caller wait for the lookup.
  *
  * @author Pradeep Krishnan
  */
@@ -37,6 +51,18 @@ public class EhcacheProvider implements Cache {
   private final String       name;
   private final Boolean      allowNulls;
 
+  private int                maxStaleness      = 0;
+  private int                refreshThreads    = 2;
+  private int                refreshQueueSize  = 100;
+  private ExecutorService    refreshExecutor;
+
+  //keys with a background refresh queued or running
+  private final ConcurrentMap<Object, Boolean> refreshing      = new ConcurrentHashMap<Object, Boolean>();
+  private final AtomicLong                     staleHits       = new AtomicLong();
+  private final AtomicLong                     refreshes       = new AtomicLong();
+  private final AtomicLong                     refreshFailures = new AtomicLong();
+  private final AtomicLong                     refreshRejected = new AtomicLong();
+
   /**
    * Creates a new EhcacheProvider object.
    *
@@ -59,6 +85,43 @@ public class EhcacheProvider implements Cache {
     this.allowNulls   = allowNulls;
   }
 
+  /**
+   * Set how long, in seconds, an expired entry may still be served by read-thru lookups while it is refreshed in the
+   * background.  Zero (the default) turns stale-while-revalidate mode off.
+   *
+   * @param maxStaleness the maximum staleness in seconds
+   */
+  public void setMaxStaleness(int maxStaleness) {
+    this.maxStaleness = maxStaleness;
+  }
+
+  /**
+   * @param refreshThreads the number of threads refreshing stale entries in the background
+   */
+  public void setRefreshThreads(int refreshThreads) {
+    this.refreshThreads = refreshThreads;
+  }
+
+  /**
+   * @param refreshQueueSize the maximum number of background refreshes waiting for a thread.  Stale entries that
+   *                         can't be queued are served again and refreshed by a later request.
+   */
+  public void setRefreshQueueSize(int refreshQueueSize) {
+    this.refreshQueueSize = refreshQueueSize;
+  }
+
+  /**
+   * Stop the background refresh threads.  Called by Spring when the context is closed.
+   */
+  public void destroy() {
+    synchronized (this) {
+      if (refreshExecutor != null) {
+        refreshExecutor.shutdownNow();
+        refreshExecutor = null;
+      }
+    }
+  }
+
   /*
    * inherited javadoc
    */
@@ -66,6 +129,34 @@ public class EhcacheProvider implements Cache {
     return name;
   }
 
+  /**
+   * @return the number of read-thru lookups that were answered with a stale entry
+   */
+  public long getStaleHits() {
+    return staleHits.get();
+  }
+
+  /**
+   * @return the number of completed background refreshes
+   */
+  public long getRefreshes() {
+    return refreshes.get();
+  }
+
+  /**
+   * @return the number of background refreshes that failed.  The stale entry stays in the cache when this happens.
+   */
+  public long getRefreshFailures() {
+    return refreshFailures.get();
+  }
+
+  /**
+   * @return the number of background refreshes that were not run because the refresh queue was full
+   */
+  public long getRefreshRejected() {
+    return refreshRejected.get();
+  }
+
   /*
    * inherited javadoc
    */
@@ -75,7 +166,17 @@ public class EhcacheProvider implements Cache {
     Element e = cache.get(key);
 
     if (e != null) {
-      val = (e.getObjectValue() instanceof Item) ? (Item) val : new Item(e.getObjectValue());
+      Object value = e.getObjectValue();
+
+      if (value instanceof StaleableValue) {
+        //Only read-thru lookups serve stale entries
+        if (((StaleableValue) value).isStale()) {
+          return null;
+        }
+        value = ((StaleableValue) value).value;
+      }
+
+      val = (value instanceof Item) ? (Item) value : new Item(value);
     }
 
     return (Item)val;
@@ -97,6 +198,10 @@ public class EhcacheProvider implements Cache {
                                  throws E {
     Item val = get(key);
 
+    if ((val == null) && (lookup != null) && (maxStaleness > 0)) {
+      val = getStale(key, refresh, lookup);
+    }
+
     try {
       if ((val == null) && (lookup != null)) {
         val =
@@ -136,14 +241,91 @@ public class EhcacheProvider implements Cache {
    * inherited javadoc
    */
   public void put(final Object key, final Item val) {
-    Element e = new Element(key, val.getValue());
+    Element e;
 
-    if (val.getTtl() > 0)
-      e.setTimeToLive(val.getTtl());
+    if ((maxStaleness > 0) && (val.getTtl() > 0)) {
+      //keep the entry around past its time to live, so it can be served while it is being refreshed
+      e = new Element(key, new StaleableValue(val.getValue(),
+          System.currentTimeMillis() + val.getTtl() * 1000L));
+      e.setTimeToLive(val.getTtl() + maxStaleness);
+    } else {
+      e = new Element(key, val.getValue());
+
+      if (val.getTtl() > 0)
+        e.setTimeToLive(val.getTtl());
+    }
 
     cache.put(e);
   }
 
+  /**
+   * Look for a stale entry for the key. If there is one, queue a background refresh for it (unless one is already
+   * queued) and return it.
+   *
+   * @return the stale entry, or null if there is none
+   */
+  private <T, E extends Exception> Item getStale(final Object key, final int refresh, final Lookup<T, E> lookup) {
+    Element e = cache.get(key);
+
+    if ((e == null) || !(e.getObjectValue() instanceof StaleableValue))
+      return null;
+
+    staleHits.incrementAndGet();
+
+    if (refreshing.putIfAbsent(key, Boolean.TRUE) == null) {
+      try {
+        getRefreshExecutor().execute(new Runnable() {
+          public void run() {
+            try {
+              Object o = lookup.lookup();
+              if (allowNulls || (o != null))
+                put(key, new Item(o, refresh));
+              refreshes.incrementAndGet();
+            } catch (Exception ex) {
+              refreshFailures.incrementAndGet();
+              log.warn("Background refresh failed for key '" + key + "' in cache '" + getName() + "'", ex);
+            } finally {
+              refreshing.remove(key);
+            }
+          }
+        });
+      } catch (RejectedExecutionException ex) {
+        refreshing.remove(key);
+        refreshRejected.incrementAndGet();
+        log.debug("Refresh queue full, serving stale entry for key '{}' in cache '{}'", key, getName());
+      }
+    }
+
+    return new Item(((StaleableValue) e.getObjectValue()).value);
+  }
+
+  private synchronized ExecutorService getRefreshExecutor() {
+    if (refreshExecutor == null) {
+      refreshExecutor = DaemonExecutors.newBoundedPool(name + "-refresh", refreshThreads, refreshQueueSize,
+          new ThreadPoolExecutor.AbortPolicy());
+    }
+    return refreshExecutor;
+  }
+
+  /**
+   * The value stored in ehcache in stale-while-revalidate mode, along with the time it goes stale
+   */
+  private static class StaleableValue implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object value;
+    private final long   freshUntil;
+
+    private StaleableValue(Object value, long freshUntil) {
+      this.value      = value;
+      this.freshUntil = freshUntil;
+    }
+
+    private boolean isStale() {
+      return System.currentTimeMillis() > freshUntil;
+    }
+  }
+
   /*
    * inherited javadoc
    */
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ambraproject.service.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Table of read-thru cache operations currently in flight, used by {@link Cache.SingleFlightLookup}.
+ * <p/>
+ * The first thread to miss on a key registers a future for its operation and runs it.  Threads that miss on the same
+ * key while it is running wait for that future instead of running their own, and then execute their operation, which
+ * finds the value the first thread committed to the cache.  The table is a {@link ConcurrentHashMap}, so registering
+ * and finding operations is lock free for readers and striped for writers; threads working on different keys never
+ * wait on each other.
+ */
+final class SingleFlight {
+
+  private static final ConcurrentMap<Object, FutureTask<Cache.Item>> flights =
+      new ConcurrentHashMap<Object, FutureTask<Cache.Item>>(256, 0.75f, 64);
+
+  private SingleFlight() {
+  }
+
+  /**
+   * Execute the operation, or wait for a concurrent operation on the same key to finish first.
+   *
+   * @param key       the key of the lookup
+   * @param operation the cache operation to execute
+   * @param timeWait  maximum time to wait for a concurrent operation, or a negative number to wait indefinitely
+   * @param unit      unit of timeWait
+   * @return the value returned by the operation
+   * @throws Exception the exception thrown by the operation
+   */
+  static Cache.Item execute(Object key, final Cache.Lookup.Operation operation, long timeWait, TimeUnit unit)
+      throws Exception {
+    FutureTask<Cache.Item> task = new FutureTask<Cache.Item>(new Callable<Cache.Item>() {
+      public Cache.Item call() throws Exception {
+        return operation.execute(false);
+      }
+    });
+
+    FutureTask<Cache.Item> inFlight = flights.putIfAbsent(key, task);
+
+    if (inFlight == null) {
+      try {
+        task.run();
+      } finally {
+        flights.remove(key, task);
+      }
+      return getResult(task);
+    }
+
+    try {
+      if (timeWait < 0) {
+        inFlight.get();
+      } else {
+        inFlight.get(timeWait, unit);
+      }
+    } catch (TimeoutException e) {
+      return operation.execute(true);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return operation.execute(true);
+    } catch (ExecutionException e) {
+      //The other thread's lookup failed, ours will run again below and report its own error
+    }
+
+    //The value is in the cache now (unless the lookup failed), so this is normally just a cache read
+    return operation.execute(false);
+  }
+
+  /**
+   * @return the number of operations currently in flight
+   */
+  static int size() {
+    return flights.size();
+  }
+
+  private static Cache.Item getResult(FutureTask<Cache.Item> task) throws Exception {
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves entities in the background, so that requests don't wait on inserts of data nobody reads right away (e.g. the
+ * usage logging records).
+ * <p/>
+ * Entities are put on a bounded queue, and a daemon thread saves them in batches of up to <code>batchSize</code>, one
+ * transaction per batch.  The thread flushes every <code>flushInterval</code> milliseconds, or as soon as a full batch
+ * is queued.  What happens when the queue is full is set by the {@link OverflowPolicy}.  Whatever is still queued when
+ * the context is closed gets saved by {@link #destroy()}.
+ * <p/>
+ * Entities with a registered {@link BatchInsert} are written with JDBC batches.  Hibernate can't batch inserts of
+ * entities with generated identity ids, so the others are saved one statement at a time.  Ids are not set on entities
+ * written with a batch insert.
+ */
+public class AsyncEntityWriter extends HibernateServiceImpl {
+  private static final Logger log = LoggerFactory.getLogger(AsyncEntityWriter.class);
+
+  /**
+   * What to do with an entity when the queue is full
+   */
+  public static enum OverflowPolicy {
+    /**
+     * Drop the new entity
+     */
+    DROP,
+    /**
+     * Drop the oldest queued entity to make room for the new one
+     */
+    DROP_OLDEST,
+    /**
+     * Make the caller wait up to <code>blockTimeout</code> milliseconds for room, and drop the entity after that
+     */
+    BLOCK
+  }
+
+  /**
+   * Writes one type of entity with a JDBC batch
+   */
+  public static interface BatchInsert<T> {
+    /**
+     * @return the insert statement
+     */
+    public String getSql();
+
+    /**
+     * Set the parameters of the insert statement for one entity
+     *
+     * @param statement the insert statement
+     * @param entity    the entity to insert
+     * @throws SQLException if a parameter can't be set
+     */
+    public void bind(PreparedStatement statement, T entity) throws SQLException;
+  }
+
+  private int queueSize = 10000;
+  private int batchSize = 100;
+  private long flushInterval = 1000;
+  private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+  private long blockTimeout = 100;
+  private final Map<Class<?>, BatchInsert<?>> batchInserts = new HashMap<Class<?>, BatchInsert<?>>();
+
+  private BlockingQueue<Object> queue;
+  private TransactionTemplate transactionTemplate;
+  private Thread flusher;
+  private volatile boolean running;
+  private final Object flushLock = new Object();
+  private final Object flushSignal = new Object();
+
+  private final AtomicLong queued = new AtomicLong();
+  private final AtomicLong flushed = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  /**
+   * Start the flusher thread.  Called by Spring once the properties are set.
+   */
+  public void init() {
+    queue = new LinkedBlockingQueue<Object>(queueSize);
+    running = true;
+
+    flusher = new Thread("AsyncEntityWriter") {
+      @Override
+      public void run() {
+        while (running) {
+          synchronized (flushSignal) {
+            if (queue.size() < batchSize) {
+              try {
+                flushSignal.wait(flushInterval);
+              } catch (InterruptedException e) {
+                //woken up by destroy()
+              }
+            }
+          }
+          flush();
+        }
+      }
+    };
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Stop the flusher thread, and save whatever is still queued.  Called by Spring when the context is closed.
+   */
+  public void destroy() {
+    running = false;
+
+    if (flusher != null) {
+      flusher.interrupt();
+      try {
+        flusher.join(flushInterval * 10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      flusher = null;
+    }
+
+    flush();
+    log.info("Stopped; {} entities queued, {} flushed, {} dropped, {} failed",
+        new Object[]{queued.get(), flushed.get(), dropped.get(), failed.get()});
+  }
+
+  /**
+   * Queue an entity to be saved
+   *
+   * @param entity the entity to save
+   * @return false if the queue was full and the entity was dropped
+   */
+  public boolean write(Object entity) {
+    boolean accepted = queue.offer(entity);
+
+    if (!accepted) {
+      switch (overflowPolicy) {
+        case DROP_OLDEST:
+          while (!accepted) {
+            if (queue.poll() != null) {
+              dropped.incrementAndGet();
+            }
+            accepted = queue.offer(entity);
+          }
+          break;
+        case BLOCK:
+          try {
+            accepted = queue.offer(entity, blockTimeout, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (!accepted) {
+      //don't log every one, the queue is full because we're busy
+      if (dropped.incrementAndGet() % 1000 == 1) {
+        log.warn("Write queue is full, {} entities dropped so far", dropped.get());
+      }
+      return false;
+    }
+
+    queued.incrementAndGet();
+    if (queue.size() >= batchSize) {
+      synchronized (flushSignal) {
+        flushSignal.notify();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Save everything that is queued right now
+   *
+   * @return the number of entities that were saved
+   */
+  public int flush() {
+    int saved = 0;
+
+    synchronized (flushLock) {
+      List<Object> batch = new ArrayList<Object>(batchSize);
+      while (queue.drainTo(batch, batchSize) > 0) {
+        try {
+          save(batch);
+          saved += batch.size();
+          flushed.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+          failed.addAndGet(batch.size());
+          log.error("Failed to save " + batch.size() + " queued entities", e);
+        }
+        batch.clear();
+      }
+    }
+
+    return saved;
+  }
+
+  private void save(List<Object> batch) {
+    //keep the entities of each type together, so they can go in one JDBC batch
+    final Map<Class<?>, List<Object>> byType = new LinkedHashMap<Class<?>, List<Object>>();
+    for (Object entity : batch) {
+      List<Object> entities = byType.get(entity.getClass());
+      if (entities == null) {
+        entities = new ArrayList<Object>();
+        byType.put(entity.getClass(), entities);
+      }
+      entities.add(entity);
+    }
+
+    transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+      @Override
+      protected void doInTransactionWithoutResult(TransactionStatus status) {
+        hibernateTemplate.execute(new HibernateCallback<Void>() {
+          @Override
+          public Void doInHibernate(Session session) throws HibernateException, SQLException {
+            for (Map.Entry<Class<?>, List<Object>> entry : byType.entrySet()) {
+              BatchInsert<?> batchInsert = batchInserts.get(entry.getKey());
+              if (batchInsert != null) {
+                session.doWork(new BatchInsertWork(batchInsert, entry.getValue()));
+              } else {
+                for (Object entity : entry.getValue()) {
+                  session.save(entity);
+                }
+              }
+            }
+            return null;
+          }
+        });
+      }
+    });
+  }
+
+  private static class BatchInsertWork implements Work {
+    private final BatchInsert batchInsert;
+    private final List<Object> entities;
+
+    private BatchInsertWork(BatchInsert batchInsert, List<Object> entities) {
+      this.batchInsert = batchInsert;
+      this.entities = entities;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(Connection connection) throws SQLException {
+      PreparedStatement statement = connection.prepareStatement(batchInsert.getSql());
+      try {
+        for (Object entity : entities) {
+          batchInsert.bind(statement, entity);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      } finally {
+        statement.close();
+      }
+    }
+  }
+
+  /**
+   * Write entities of the given type with a JDBC batch
+   *
+   * @param type        the entity class
+   * @param batchInsert the insert for the type
+   */
+  public <T> void addBatchInsert(Class<T> type, BatchInsert<T> batchInsert) {
+    batchInserts.put(type, batchInsert);
+  }
+
+  /**
+   * @return the number of entities waiting to be saved
+   */
+  public int getQueueLength() {
+    return queue.size();
+  }
+
+  /**
+   * @return the number of entities that were accepted on the queue
+   */
+  public long getQueued() {
+    return queued.get();
+  }
+
+  /**
+   * @return the number of entities that were saved
+   */
+  public long getFlushed() {
+    return flushed.get();
+  }
+
+  /**
+   * @return the number of entities that were dropped because the queue was full
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of entities that were dropped because saving their batch failed
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * @param queueSize the maximum number of entities waiting to be saved
+   */
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  /**
+   * @param batchSize the maximum number of entities saved in one transaction
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param flushInterval how long, in milliseconds, entities may wait on the queue before they're saved
+   */
+  public void setFlushInterval(long flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
+  /**
+   * @param overflowPolicy what to do when the queue is full
+   */
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * @param blockTimeout how long, in milliseconds, callers wait for room on a full queue with the
+   *                     {@link OverflowPolicy#BLOCK} policy
+   */
+  public void setBlockTimeout(long blockTimeout) {
+    this.blockTimeout = blockTimeout;
+  }
+
+  @Required
+  public void setTransactionManager(PlatformTransactionManager transactionManager) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+}
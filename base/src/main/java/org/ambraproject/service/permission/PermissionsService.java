@@ -20,6 +20,8 @@
 package org.ambraproject.service.permission;
 
 import org.ambraproject.models.UserRole.Permission;
+import org.ambraproject.views.AuthPrincipal;
+
 import java.util.Set;
 
 /**
@@ -49,10 +51,27 @@ public interface PermissionsService {
    */
   public Set<Permission> getPermissions(final String authId);
 
+  /**
+   * Get the cached principal for the given authID, holding the user's roles and permissions
+   *
+   * @param authId the authID of the current user
+   *
+   * @return the principal of the user
+   * @throws SecurityException if there is no user with the given authID
+   */
+  public AuthPrincipal getPrincipal(final String authId) throws SecurityException;
+
   public void checkLogin(String authId) throws SecurityException;
 
   /**
    * Clear the cache of all roles
    */
   public void clearCache();
+
+  /**
+   * Clear the cached principal of one user.  Call this when the user's roles change.
+   *
+   * @param authId the authID of the user
+   */
+  public void clearCache(String authId);
 }
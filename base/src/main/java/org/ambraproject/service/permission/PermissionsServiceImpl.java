@@ -21,9 +21,9 @@ package org.ambraproject.service.permission;
 
 import org.ambraproject.service.cache.Cache;
 import org.ambraproject.models.UserProfile;
-import org.ambraproject.models.UserRole;
 import org.ambraproject.models.UserRole.Permission;
 import org.ambraproject.service.hibernate.HibernateServiceImpl;
+import org.ambraproject.views.AuthPrincipal;
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.criterion.DetachedCriteria;
@@ -34,13 +34,15 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * A simple role based permissions service, roles are cached keyed off of authID
+ * A simple role based permissions service.  The roles of each user are loaded in one query, and cached keyed off of
+ * authID as an immutable {@link AuthPrincipal}.
  *
  * @author Joe Osowski
  */
 public class PermissionsServiceImpl extends HibernateServiceImpl implements PermissionsService {
   private static final String ROLES_LOCK = "RolesCache-Lock-";
   private Cache rolesCache;
+  private int principalTtl = 600;
 
   /**
    * Does the user associated with the current security principle have the given permission?
@@ -49,59 +51,28 @@ public class PermissionsServiceImpl extends HibernateServiceImpl implements Perm
    *
    * @throws SecurityException if the user doesn't have the permission
    */
-  @SuppressWarnings("unchecked")
   public void checkPermission(final Permission permission, final String authId) throws SecurityException
   {
     if(authId == null || authId.trim().length() == 0) {
       throw new SecurityException("There is no current user.");
     }
 
-    Set<UserRole> roles = getRoles(authId);
-
-    if(roles.size() == 0) {
+    if(!getPrincipal(authId).hasPermission(permission)) {
       throw new SecurityException("Current user does not have the defined permission of " + permission.toString());
     }
-
-    for(UserRole role : roles) {
-      Set<Permission> perms = role.getPermissions();
-
-      if(perms == null) {
-        throw new SecurityException("Current user does not have the defined permission of " + permission.toString());
-      }
-
-      for(Permission p : perms) {
-        if(p.equals(permission)) {
-          return;
-        }
-      }
-    }
-
-    throw new SecurityException("Current user does not have the defined permission of " + permission.toString());
   }
 
   public Set<Permission> getPermissions(final String authId) {
-    Set<UserRole> roles = getRoles(authId);
-    Set<Permission> result = new HashSet<Permission>();
-
-    if(roles != null) {
-      for(UserRole role : roles) {
-        Set<Permission> perms = role.getPermissions();
-
-        if(perms != null) {
-          result.addAll(perms);
-        }
-      }
-    }
-
-    return result;
+    return new HashSet<Permission>(getPrincipal(authId).getPermissions());
   }
 
-  private Set<UserRole> getRoles(final String authId) {
-    final Object lock = (ROLES_LOCK + authId).intern(); //lock @ Article level
+  @SuppressWarnings("unchecked")
+  public AuthPrincipal getPrincipal(final String authId) throws SecurityException {
+    final Object lock = ROLES_LOCK + authId; //lock @ user level
 
-    return rolesCache.get(authId,
-      new Cache.SynchronizedLookup<Set<UserRole>, SecurityException>(lock) {
-        public Set<UserRole> lookup() throws SecurityException {
+    return rolesCache.get(authId, principalTtl,
+      new Cache.SingleFlightLookup<AuthPrincipal, SecurityException>(lock) {
+        public AuthPrincipal lookup() throws SecurityException {
           List<UserProfile> userProfiles =
             hibernateTemplate.findByCriteria(DetachedCriteria.forClass(UserProfile.class)
               .add(Restrictions.eq("authId", authId))
@@ -113,7 +84,7 @@ public class PermissionsServiceImpl extends HibernateServiceImpl implements Perm
             throw new SecurityException("No user found for authID: '" + authId + "'");
           }
 
-          return userProfiles.get(0).getRoles();
+          return new AuthPrincipal(userProfiles.get(0));
         }
     });
   }
@@ -134,6 +105,14 @@ public class PermissionsServiceImpl extends HibernateServiceImpl implements Perm
     this.rolesCache = rolesCache;
   }
 
+  /**
+   * @param principalTtl how long, in seconds, a cached principal is used before it is loaded again.  Changes made
+   *                     outside of this application (e.g. roles granted in the database) show up after this long.
+   */
+  public void setPrincipalTtl(int principalTtl) {
+    this.principalTtl = principalTtl;
+  }
+
   /**
    * @inheritDoc
    */
@@ -141,4 +120,14 @@ public class PermissionsServiceImpl extends HibernateServiceImpl implements Perm
   {
     this.rolesCache.removeAll();
   }
+
+  /**
+   * @inheritDoc
+   */
+  public void clearCache(String authId)
+  {
+    if (authId != null) {
+      this.rolesCache.remove(authId);
+    }
+  }
 }
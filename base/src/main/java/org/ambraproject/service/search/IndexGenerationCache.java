@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.search;
+
+import org.ambraproject.service.cache.Cache;
+
+import java.io.Serializable;
+
+/**
+ * A cache of results read from Solr, that keeps entries for as long as the Solr index doesn't change instead of for
+ * the time the callers ask for.
+ * <p/>
+ * Keys are stored along with the index generation they were read in, so entries from an older generation are never
+ * returned, and the backing cache is cleared as soon as a new generation is seen.  While the generation isn't known
+ * (e.g. Solr can't be reached), the time to live given by the callers is used as before, and entries put without a
+ * time to live aren't stored, since nothing would drop them.
+ */
+public class IndexGenerationCache implements Cache, SolrIndexGeneration.Listener {
+
+  private final Cache cache;
+  private final SolrIndexGeneration indexGeneration;
+
+  /**
+   * @param cache           the backing cache
+   * @param indexGeneration the generation of the index the cached values are read from
+   */
+  public IndexGenerationCache(Cache cache, SolrIndexGeneration indexGeneration) {
+    this.cache = cache;
+    this.indexGeneration = indexGeneration;
+    indexGeneration.addListener(this);
+  }
+
+  public void generationChanged(long oldGeneration, long newGeneration) {
+    cache.removeAll();
+  }
+
+  public Item get(Object key) {
+    return cache.get(new GenerationKey(indexGeneration.getGeneration(), key));
+  }
+
+  public <T, E extends Exception> T get(Object key, int refresh, Lookup<T, E> lookup) throws E {
+    long generation = indexGeneration.getGeneration();
+    return cache.get(new GenerationKey(generation, key),
+        generation == SolrIndexGeneration.UNKNOWN ? refresh : -1, lookup);
+  }
+
+  public <T, E extends Exception> T get(Object key, Lookup<T, E> lookup) throws E {
+    return get(key, -1, lookup);
+  }
+
+  public void put(Object key, Item val) {
+    long generation = indexGeneration.getGeneration();
+    if (generation == SolrIndexGeneration.UNKNOWN && val.getTtl() <= 0) {
+      return;
+    }
+    cache.put(new GenerationKey(generation, key), val);
+  }
+
+  public void remove(Object key) {
+    cache.remove(new GenerationKey(indexGeneration.getGeneration(), key));
+  }
+
+  public void removeAll() {
+    cache.removeAll();
+  }
+
+  /**
+   * A key of the backing cache
+   */
+  private static class GenerationKey implements Serializable {
+    private static final long serialVersionUID = 4187096433210157825L;
+
+    private final long generation;
+    private final Object key;
+
+    private GenerationKey(long generation, Object key) {
+      this.generation = generation;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GenerationKey)) {
+        return false;
+      }
+      GenerationKey that = (GenerationKey) o;
+      return generation == that.generation && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (int) (generation ^ (generation >>> 32)) + key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return key + "@" + generation;
+    }
+  }
+}
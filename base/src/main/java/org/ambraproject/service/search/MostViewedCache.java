@@ -40,6 +40,7 @@ public class MostViewedCache {
 
   private GregorianCalendar cacheDate;
   private List articles;
+  private long generation = SolrIndexGeneration.UNKNOWN;
   public static final int CACHE_TIME = 15;
   public static final int CACHE_TIME_UNITS = Calendar.MINUTE;
 
@@ -53,6 +54,15 @@ public class MostViewedCache {
     this.cacheDate = new GregorianCalendar();
   }
 
+  /**
+   * @param articles   the articles
+   * @param generation the generation of the Solr index the articles were read from
+   */
+  public MostViewedCache(List articles, long generation) {
+    this(articles);
+    this.generation = generation;
+  }
+
   /**
    * Get the date when these results were cached
    * @return - the cache date
@@ -97,4 +107,18 @@ public class MostViewedCache {
     return time.before(this.cacheDate) && articles != null;
   }
 
+  /**
+   * Check whether the cached results are still valid.  Results read from a known index generation stay valid for as
+   * long as the index doesn't change; otherwise they're valid for the cache time.
+   *
+   * @param currentGeneration the current generation of the Solr index
+   * @return - a boolean indicating whether the cached results can still be used
+   */
+  public boolean isValid(long currentGeneration) {
+    if (generation == SolrIndexGeneration.UNKNOWN || currentGeneration == SolrIndexGeneration.UNKNOWN) {
+      return isValid();
+    }
+    return generation == currentGeneration && articles != null;
+  }
+
 }
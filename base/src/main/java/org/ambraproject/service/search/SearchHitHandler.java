@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+/**
+ * Receives the results of a streamed search, one at a time, as they are read from the Solr response.
+ *
+ * @see SolrSearchService#streamSavedSearchAlerts
+ */
+public interface SearchHitHandler {
+
+  /**
+   * Handle one result
+   *
+   * @param hit the result.  The same instance is reused for every result, so it is only valid for the duration of
+   *            the call.
+   * @return true to keep reading results, false to skip the rest of them
+   */
+  public boolean handle(StreamedSearchHit hit);
+}
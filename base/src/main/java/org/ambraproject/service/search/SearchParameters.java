@@ -19,10 +19,12 @@
 package org.ambraproject.service.search;
 
 import java.io.Serializable;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
 
 /**
  * Manage all of the parameters for a search.
@@ -82,6 +84,9 @@ public class SearchParameters implements Serializable {
   private int           startPage = 0;
   private int           pageSize = 0;
 
+  // Continuation token from the previous page, see SolrCursor
+  private String        cursor                    = "";
+
   // indicator for list view vs figure view
   private String resultView = "";
 
@@ -293,6 +298,20 @@ public class SearchParameters implements Serializable {
     this.pageSize = pageSize;
   }
 
+  /**
+   * Get the cursor token for reading this page, as returned with the previous page.  It is only used if it was made
+   * for the same search and page; otherwise the page is read by offset.
+   *
+   * @return the cursor token, or an empty string
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = (cursor == null) ? "" : cursor.trim();
+  }
+
   public String getResultView() {
     return resultView;
   }
@@ -339,12 +358,67 @@ public class SearchParameters implements Serializable {
     sp.setSortValue(this.getSortValue());
     sp.setStartPage(this.getStartPage());
     sp.setPageSize(this.getPageSize());
+    sp.setCursor(this.getCursor());
     sp.setResultView(this.getResultView());
     sp.setFilterStartDate(this.getFilterStartDate());
     sp.setFilterEndDate(this.getFilterEndDate());
     return sp;
   }
 
+  /**
+   * Get a string that identifies the search these parameters describe, for use as a cache key.  Parameters that
+   * only differ in the order of filter values, in whitespace in the queries, or in the time of day of the filter
+   * dates (only the day is searched on) give the same string.  The result view and the cursor are left out, since
+   * they don't change the results.
+   *
+   * @return the canonical form of these parameters
+   */
+  public String toCanonicalString() {
+    StringBuilder key = new StringBuilder();
+    appendCanonical(key, "query", normalizeWhitespace(query));
+    appendCanonical(key, "unformattedQuery", normalizeWhitespace(unformattedQuery));
+    appendCanonical(key, "volume", volume);
+    appendCanonical(key, "eLocationId", eLocationId);
+    appendCanonical(key, "id", id);
+    appendCanonical(key, "filterSubjects", filterSubjects);
+    appendCanonical(key, "filterSubjectsDisjunction", filterSubjectsDisjunction);
+    appendCanonical(key, "filterAuthors", filterAuthors);
+    appendCanonical(key, "filterKeyword", filterKeyword);
+    appendCanonical(key, "filterArticleTypes", filterArticleTypes);
+    appendCanonical(key, "filterJournals", filterJournals);
+
+    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    appendCanonical(key, "filterStartDate", filterStartDate == null ? "" : dateFormat.format(filterStartDate));
+    appendCanonical(key, "filterEndDate", filterEndDate == null ? "" : dateFormat.format(filterEndDate));
+
+    appendCanonical(key, "sortKey", sortKey);
+    appendCanonical(key, "sortValue", sortValue);
+    appendCanonical(key, "startPage", String.valueOf(startPage));
+    appendCanonical(key, "pageSize", String.valueOf(pageSize));
+    return key.toString();
+  }
+
+  private static String normalizeWhitespace(String value) {
+    return value == null ? "" : value.trim().replaceAll("\\s+", " ");
+  }
+
+  private static void appendCanonical(StringBuilder key, String name, String[] values) {
+    String[] sorted = values == null ? new String[0] : values.clone();
+    Arrays.sort(sorted);
+    key.append(name).append('[').append(sorted.length).append(']');
+    for (String value : sorted) {
+      key.append(value.length()).append(':').append(value);
+    }
+    key.append(';');
+  }
+
+  //values are length prefixed so no value can be mistaken for a separator
+  private static void appendCanonical(StringBuilder key, String name, String value) {
+    String nonNull = value == null ? "" : value;
+    key.append(name).append('=').append(nonNull.length()).append(':').append(nonNull).append(';');
+  }
+
   @Override
   public String toString() {
     return "SearchParameters{" +
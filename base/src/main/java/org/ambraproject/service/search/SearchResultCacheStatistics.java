@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the hits and misses of the search result cache, by type of search.  Invalidations are counted by listening
+ * to the index generation the cache is kept against.
+ */
+public class SearchResultCacheStatistics implements SearchResultCacheStatisticsMBean, SolrIndexGeneration.Listener {
+
+  /**
+   * The types of search that are cached
+   */
+  public static enum SearchType {
+    SIMPLE,
+    ADVANCED,
+    FIND_AN_ARTICLE
+  }
+
+  private final AtomicLong[] hits = new AtomicLong[SearchType.values().length];
+  private final AtomicLong[] misses = new AtomicLong[SearchType.values().length];
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public SearchResultCacheStatistics() {
+    for (int i = 0; i < hits.length; i++) {
+      hits[i] = new AtomicLong();
+      misses[i] = new AtomicLong();
+    }
+  }
+
+  public void recordHit(SearchType type) {
+    hits[type.ordinal()].incrementAndGet();
+  }
+
+  public void recordMiss(SearchType type) {
+    misses[type.ordinal()].incrementAndGet();
+  }
+
+  public void recordInvalidation() {
+    invalidations.incrementAndGet();
+  }
+
+  /**
+   * @param indexGeneration the index generation the search result cache is kept against
+   */
+  public void setIndexGeneration(SolrIndexGeneration indexGeneration) {
+    indexGeneration.addListener(this);
+  }
+
+  public void generationChanged(long oldGeneration, long newGeneration) {
+    //the cache only held entries if the old generation was known
+    if (oldGeneration != SolrIndexGeneration.UNKNOWN) {
+      recordInvalidation();
+    }
+  }
+
+  public long getHits(SearchType type) {
+    return hits[type.ordinal()].get();
+  }
+
+  public long getMisses(SearchType type) {
+    return misses[type.ordinal()].get();
+  }
+
+  /**
+   * @param type the type of search
+   * @return the share of searches of that type that were answered from the cache, or 0 if there weren't any
+   */
+  public double getHitRatio(SearchType type) {
+    long hitCount = getHits(type);
+    long total = hitCount + getMisses(type);
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  public long getSimpleSearchHits() {
+    return getHits(SearchType.SIMPLE);
+  }
+
+  public long getSimpleSearchMisses() {
+    return getMisses(SearchType.SIMPLE);
+  }
+
+  public double getSimpleSearchHitRatio() {
+    return getHitRatio(SearchType.SIMPLE);
+  }
+
+  public long getAdvancedSearchHits() {
+    return getHits(SearchType.ADVANCED);
+  }
+
+  public long getAdvancedSearchMisses() {
+    return getMisses(SearchType.ADVANCED);
+  }
+
+  public double getAdvancedSearchHitRatio() {
+    return getHitRatio(SearchType.ADVANCED);
+  }
+
+  public long getFindAnArticleSearchHits() {
+    return getHits(SearchType.FIND_AN_ARTICLE);
+  }
+
+  public long getFindAnArticleSearchMisses() {
+    return getMisses(SearchType.FIND_AN_ARTICLE);
+  }
+
+  public double getFindAnArticleSearchHitRatio() {
+    return getHitRatio(SearchType.FIND_AN_ARTICLE);
+  }
+
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  public void reset() {
+    for (int i = 0; i < hits.length; i++) {
+      hits[i].set(0);
+      misses[i].set(0);
+    }
+    invalidations.set(0);
+  }
+}
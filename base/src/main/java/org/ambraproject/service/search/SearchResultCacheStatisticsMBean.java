@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.search;
+
+/**
+ * JMX view of the hits and misses of the search result cache, by type of search
+ */
+public interface SearchResultCacheStatisticsMBean {
+
+  long getSimpleSearchHits();
+
+  long getSimpleSearchMisses();
+
+  double getSimpleSearchHitRatio();
+
+  long getAdvancedSearchHits();
+
+  long getAdvancedSearchMisses();
+
+  double getAdvancedSearchHitRatio();
+
+  long getFindAnArticleSearchHits();
+
+  long getFindAnArticleSearchMisses();
+
+  double getFindAnArticleSearchHitRatio();
+
+  /**
+   * @return the number of times the cache was cleared because the index changed
+   */
+  long getInvalidations();
+
+  void reset();
+}
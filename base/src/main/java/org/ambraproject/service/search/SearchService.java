@@ -131,6 +131,23 @@ public interface SearchService {
    */
   List<SearchHit> savedSearchAlerts(SearchParameters sParams, Date lastSearchTime, Date currentSearchTime, int resultLimit) throws ApplicationException;
 
+  /**
+   * Returns the articles published between the last search time and the current search time for saved search alerts,
+   * one at a time as they are read from the search server.  Only the article id, title, authors and subjects are read.
+   *
+   * @param sParams The search params
+   * @param lastSearchTime the begin time of the search
+   * @param currentSearchTime the end time of the search
+   * @param resultLimit the maximum number of records to read
+   * @param handler receives each record
+   *
+   * @return the number of records read
+   *
+   * @throws ApplicationException
+   */
+  int streamSavedSearchAlerts(SearchParameters sParams, Date lastSearchTime, Date currentSearchTime, int resultLimit,
+                              SearchHitHandler handler) throws ApplicationException;
+
   /**
    * The map of sorts that are valid for this provider
    * @return
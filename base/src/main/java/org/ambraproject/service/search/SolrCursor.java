@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.search;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * Cursor (keyset) paging for Solr queries.
+ * <p/>
+ * Paging with <code>start</code> makes Solr collect and sort every result before the requested page, which gets slow
+ * for deep pages.  Instead, the sort values of the last result on a page are put into an opaque token, and the next
+ * page is read with a filter that only matches results sorting after those values, starting at 0.  The sort has to
+ * end with the unique <code>id</code> field so that the order is total.
+ * <p/>
+ * Solr 4.1 doesn't have <code>cursorMark</code>, so the filter is built here.  This only works for sorts on plain
+ * fields; queries sorted by score or by a function are paged with <code>start</code> as before.
+ * <p/>
+ * A token records the page it leads to and a hash of the search it was made for, so it is ignored when it's used
+ * with any other page, sort or search.
+ */
+public class SolrCursor {
+  private static final Logger log = LoggerFactory.getLogger(SolrCursor.class);
+
+  public static final String ID_FIELD = "id";
+
+  private static final String CURSOR_TAG = "cursor";
+
+  // split sort options on commas that aren't in a function
+  private static final Pattern SORT_OPTION_PATTERN = Pattern.compile(",(?![^\\(\\)]*\\))");
+
+  private SolrCursor() {
+  }
+
+  /**
+   * Get the fields a query is sorted on, if it can be paged with a cursor
+   *
+   * @param query the query
+   * @return the sort fields and their directions, or null if the query isn't sorted on plain fields ending with
+   *         <code>id</code>
+   */
+  static List<String[]> getSortFields(SolrQuery query) {
+    String sort = query.getSortField();
+    if (sort == null || sort.trim().length() == 0) {
+      return null;
+    }
+
+    List<String[]> fields = new ArrayList<String[]>();
+    for (String option : SORT_OPTION_PATTERN.split(sort)) {
+      String[] parts = option.trim().split("\\s+");
+      if (parts.length != 2 || parts[0].equals("score") || parts[0].contains("(")) {
+        return null;
+      }
+      fields.add(new String[]{parts[0], parts[1].toLowerCase()});
+    }
+
+    if (!fields.get(fields.size() - 1)[0].equals(ID_FIELD)) {
+      return null;
+    }
+    return fields;
+  }
+
+  /**
+   * Add the fields a query is sorted on to its field list, so the cursor values can be read from the results
+   *
+   * @param query the query
+   */
+  public static void addSortFields(SolrQuery query) {
+    List<String[]> sortFields = getSortFields(query);
+    if (sortFields == null || query.getFields() == null) {
+      return;
+    }
+
+    List<String> fields = new ArrayList<String>();
+    for (String field : query.getFields().split(",")) {
+      fields.add(field.trim());
+    }
+    for (String[] sortField : sortFields) {
+      if (!fields.contains(sortField[0])) {
+        query.addField(sortField[0]);
+      }
+    }
+  }
+
+  /**
+   * Page a query with a cursor token, if the token was made for this search and page
+   *
+   * @param query     the query, with its sort and page size already set
+   * @param searchKey identifies the search apart from the page
+   * @param page      the page requested (0 based)
+   * @param token     the cursor token, may be null
+   * @return the number of results skipped by the cursor, or -1 if the token can't be used and the query should be
+   *         paged with <code>start</code>
+   */
+  public static int apply(SolrQuery query, String searchKey, int page, String token) {
+    if (token == null || token.length() == 0) {
+      return -1;
+    }
+
+    List<String[]> sortFields = getSortFields(query);
+    if (sortFields == null) {
+      return -1;
+    }
+
+    List<String> values = readToken(token, page, fingerprint(searchKey, query));
+    if (values == null || values.size() != sortFields.size()) {
+      log.debug("Ignoring cursor token {} for page {}", token, page);
+      return -1;
+    }
+
+    //every cursor filter is different, so keep them out of the filter cache
+    query.addFilterQuery("{!cache=false tag=" + CURSOR_TAG + "}" + createFilter(sortFields, values));
+    query.setStart(0);
+
+    //facet counts are for the whole search, not just the results after the cursor
+    String[] facetFields = query.getFacetFields();
+    if (facetFields != null) {
+      for (String facetField : facetFields) {
+        query.removeFacetField(facetField);
+        if (facetField.startsWith("{!ex=")) {
+          query.addFacetField("{!ex=" + CURSOR_TAG + "," + facetField.substring("{!ex=".length()));
+        } else {
+          query.addFacetField("{!ex=" + CURSOR_TAG + "}" + facetField);
+        }
+      }
+    }
+
+    return page * query.getRows();
+  }
+
+  /**
+   * Create the token for the page after the one a query returned
+   *
+   * @param query     the query
+   * @param searchKey identifies the search apart from the page
+   * @param nextPage  the page the token leads to (0 based)
+   * @param lastDoc   the last result of the current page
+   * @return the token, or null if the query can't be paged with a cursor
+   */
+  public static String createToken(SolrQuery query, String searchKey, int nextPage, SolrDocument lastDoc) {
+    List<String[]> sortFields = getSortFields(query);
+    if (sortFields == null || lastDoc == null) {
+      return null;
+    }
+
+    List<String> values = new ArrayList<String>(sortFields.size());
+    for (String[] sortField : sortFields) {
+      Object value = lastDoc.getFirstValue(sortField[0]);
+      if (value == null) {
+        //results without a sort value can't be placed with a range filter
+        return null;
+      }
+      values.add(formatValue(value));
+    }
+
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(nextPage);
+      out.writeUTF(fingerprint(searchKey, query));
+      out.writeInt(values.size());
+      for (String value : values) {
+        out.writeUTF(value);
+      }
+      out.close();
+
+      return DatatypeConverter.printBase64Binary(bytes.toByteArray())
+          .replace('+', '-').replace('/', '_').replace("=", "");
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write a cursor token", e);
+    }
+  }
+
+  private static List<String> readToken(String token, int page, String fingerprint) {
+    try {
+      String base64 = token.replace('-', '+').replace('_', '/');
+      while (base64.length() % 4 != 0) {
+        base64 += "=";
+      }
+
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(DatatypeConverter.parseBase64Binary(base64)));
+      if (in.readInt() != page || !in.readUTF().equals(fingerprint)) {
+        return null;
+      }
+
+      int count = in.readInt();
+      if (count < 1 || count > 16) {
+        return null;
+      }
+      List<String> values = new ArrayList<String>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(in.readUTF());
+      }
+      return values;
+    } catch (IOException e) {
+      return null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Create a filter matching the results that sort after the given values.  For a sort on a, b and id this is
+   * <code>a after va OR (a = va AND b after vb) OR (a = va AND b = vb AND id after vid)</code>.
+   */
+  static String createFilter(List<String[]> sortFields, List<String> values) {
+    StringBuilder filter = new StringBuilder();
+    for (int i = 0; i < sortFields.size(); i++) {
+      if (i > 0) {
+        filter.append(" OR ");
+      }
+      filter.append('(');
+      for (int j = 0; j < i; j++) {
+        filter.append(sortFields.get(j)[0]).append(':').append(quote(values.get(j))).append(" AND ");
+      }
+
+      String field = sortFields.get(i)[0];
+      String value = quote(values.get(i));
+      if (sortFields.get(i)[1].equals("asc")) {
+        filter.append(field).append(":{").append(value).append(" TO *]");
+      } else {
+        filter.append(field).append(":[* TO ").append(value).append('}');
+      }
+      filter.append(')');
+    }
+    return filter.toString();
+  }
+
+  private static String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  private static String formatValue(Object value) {
+    if (value instanceof Date) {
+      SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+      format.setTimeZone(TimeZone.getTimeZone("UTC"));
+      return format.format((Date) value);
+    }
+    return String.valueOf(value);
+  }
+
+  private static String fingerprint(String searchKey, SolrQuery query) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      byte[] hash = digest.digest((searchKey + "|" + query.getSortField() + "|" + query.getRows()).getBytes("UTF-8"));
+      return DatatypeConverter.printHexBinary(hash).substring(0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
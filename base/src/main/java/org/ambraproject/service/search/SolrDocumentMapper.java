@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+/**
+ * Turns the documents of a Solr response into objects, as the response is read.
+ *
+ * @param <T> the type of object created for each document
+ * @see SolrHttpService#makeSolrRequest(java.util.Map, SolrDocumentMapper)
+ */
+public interface SolrDocumentMapper<T> {
+
+  /**
+   * Create an object out of one result document
+   *
+   * @param doc the fields of the document.  Only valid for the duration of the call.
+   * @return the object to add to the results, or null to leave this document out
+   */
+  public T map(SolrResultDocument doc);
+}
@@ -23,6 +23,7 @@ package org.ambraproject.service.search;
 
 import org.w3c.dom.Document;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -43,6 +44,16 @@ public interface SolrHttpService {
    */
   public Document makeSolrRequest(Map<String, String> params) throws SolrException;
 
+  /**
+   * Make a request to the Solr server and map each result document as the response is read, without building a DOM
+   * of it.  Prefer this to {@link #makeSolrRequest(java.util.Map)} when only the result documents are needed.
+   *
+   * @param params the params to pass to solr. these are URL encoded and passed as part of the get request
+   * @param mapper creates the results out of the documents
+   * @return the mapped result documents, in the order Solr returned them
+   */
+  public <T> List<T> makeSolrRequest(Map<String, String> params, SolrDocumentMapper<T> mapper) throws SolrException;
+
   public Document makeSolrRequestForRss(String queryString) throws SolrException;
 
   /**
@@ -23,7 +23,10 @@ package org.ambraproject.service.search;
 
 import org.ambraproject.util.XPathUtil;
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.multipart.ByteArrayPartSource;
 import org.apache.commons.httpclient.methods.multipart.FilePart;
@@ -38,19 +41,22 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 /**
- * Implementation of {@link org.ambraproject.service.search.SolrHttpService} that uses URL objects to make http requests to
- * the solr server.
+ * Implementation of {@link org.ambraproject.service.search.SolrHttpService} that makes http requests to the solr server
+ * through the injected (pooled, keep-alive) {@link HttpClient}.  Connect and read timeouts are those of the client's
+ * connection manager.  Responses are requested gzipped and parsed with {@link SolrXmlResponseParser}.
  * <p/>
  * This bean should be injected via spring to the action classes that make use of it, so there will only be one copy of
  * the bean per ambra instance
@@ -69,19 +75,50 @@ public class SolrHttpServiceImpl implements SolrHttpService {
 
   private static final String XML = "xml";
   private static final String URL_CONFIG_PARAM = "ambra.services.search.server.url";
+  private static final String POST_TIMEOUT_CONFIG_PARAM = "ambra.services.search.http.postReadTimeout";
   private static final String RETURN_TYPE_PARAM = "wt";
   private static final String Q_PARAM = "q";
+  private static final String FL_PARAM = "fl";
   private static final String NO_FILTER = "*:*";
+
+  private final SolrXmlResponseParser responseParser = new SolrXmlResponseParser();
+
   /**
-   * number of milliseconds to wait on a url connection to SOLR
+   * @inheritDoc
    */
-  private static final int CONNECTION_TIMEOUT = 100;
+  @Override
+  public Document makeSolrRequest(Map<String, String> params) throws SolrException {
+    final Set<String> fields = SolrXmlResponseParser.parseFieldList(params.get(FL_PARAM));
+    return executeGet(buildSelectUrl(params), new ResponseReader<Document>() {
+      @Override
+      public Document read(InputStream responseStream) throws XMLStreamException {
+        return responseParser.parse(responseStream, fields);
+      }
+    });
+  }
 
   /**
    * @inheritDoc
    */
   @Override
-  public Document makeSolrRequest(Map<String, String> params) throws SolrException {
+  public <T> List<T> makeSolrRequest(Map<String, String> params, final SolrDocumentMapper<T> mapper)
+      throws SolrException {
+    final Set<String> fields = SolrXmlResponseParser.parseFieldList(params.get(FL_PARAM));
+    return executeGet(buildSelectUrl(params), new ResponseReader<List<T>>() {
+      @Override
+      public List<T> read(InputStream responseStream) throws XMLStreamException {
+        return responseParser.parseDocuments(responseStream, fields, mapper);
+      }
+    });
+  }
+
+  /**
+   * Build the url of a select request, defaulting the parameters solr needs from us
+   *
+   * @param params the request parameters; the return type and query are added to it if missing
+   * @return the full url of the request
+   */
+  private String buildSelectUrl(Map<String, String> params) {
     if (solrUrl == null || solrUrl.isEmpty()) {
       setSolrUrl(config.getString(URL_CONFIG_PARAM));
     }
@@ -95,53 +132,24 @@ public class SolrHttpServiceImpl implements SolrHttpService {
       params.put(Q_PARAM, NO_FILTER);
     }
 
-    String queryString = "?";
-    for (String param : params.keySet()) {
-      String value = params.get(param);
-      if (queryString.length() > 1) {
-        queryString += "&";
-      }
-      queryString += (cleanInput(param) + "=" + cleanInput(value));
-    }
-
-    URL url;
-    String urlString = solrUrl + queryString;
-    log.debug("Making Solr http request to " + urlString);
-    try {
-      url = new URL(urlString);
-    } catch (MalformedURLException e) {
-      throw new SolrException("Bad Solr Url: " + urlString, e);
-    }
+    return solrUrl + buildQueryString(params);
+  }
 
-    InputStream urlStream = null;
-    Document doc = null;
-    try {
-      URLConnection connection = url.openConnection();
-      connection.setConnectTimeout(CONNECTION_TIMEOUT);
-      connection.connect();
-      urlStream = connection.getInputStream();
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      factory.setNamespaceAware(true);
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      doc = builder.parse(urlStream);
-    } catch (IOException e) {
-      throw new SolrException("Error connecting to the Solr server at " + solrUrl, e);
-    } catch (ParserConfigurationException e) {
-      throw new SolrException("Error configuring parser xml parser for solr response", e);
-    } catch (SAXException e) {
-      throw new SolrException("Solr Returned bad XML for url: " + urlString, e);
-    } finally {
-      //Close the input stream
-      if (urlStream != null) {
-        try {
-          urlStream.close();
-        } catch (IOException e) {
-          log.error("Error closing url stream to Solr", e);
-        }
+  /**
+   * Build a url query string, including the leading '?', out of a map of parameters
+   *
+   * @param params the parameters
+   * @return the encoded query string
+   */
+  private String buildQueryString(Map<String, String> params) {
+    StringBuilder queryString = new StringBuilder("?");
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      if (queryString.length() > 1) {
+        queryString.append('&');
       }
+      queryString.append(cleanInput(param.getKey())).append('=').append(cleanInput(param.getValue()));
     }
-
-    return doc;
+    return queryString.toString();
   }
 
   /**
@@ -158,64 +166,112 @@ public class SolrHttpServiceImpl implements SolrHttpService {
     }
   }
 
-  public void setSolrUrl(String solrUrl) {
-    if (solrUrl.contains("/select")) {
-      this.solrUrl = solrUrl;
-    } else {
-      this.solrUrl = solrUrl.endsWith("/") ? solrUrl + "select" : solrUrl + "/select";
+  /**
+   * Get the value of a parameter out of an encoded query string
+   *
+   * @param queryString the query string, without the leading '?'
+   * @param name        the name of the parameter
+   * @return the decoded value of the parameter, or null if it is not in the query string
+   */
+  private String getQueryStringParam(String queryString, String name) {
+    for (String pair : queryString.split("&")) {
+      int index = pair.indexOf('=');
+      if (index > 0 && pair.substring(0, index).equals(name)) {
+        try {
+          return URLDecoder.decode(pair.substring(index + 1), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+          return pair.substring(index + 1);
+        }
+      }
     }
-    this.solrUrl = this.solrUrl.replaceAll("\\?", "");
+    return null;
   }
 
   /**
-   * @inheritDoc
+   * Reads the body of a successful solr response
    */
-  public Document makeSolrRequestForRss(String queryString) throws SolrException {
-
-    if (solrUrl == null || solrUrl.isEmpty()) {
-      setSolrUrl(config.getString(URL_CONFIG_PARAM));
-    }
-
-    queryString = "?"+queryString ;
+  private interface ResponseReader<T> {
+    T read(InputStream responseStream) throws XMLStreamException;
+  }
 
-    URL url;
-    String urlString = solrUrl + queryString;
+  /**
+   * Make a GET request to solr over a pooled connection and read the response
+   *
+   * @param urlString the full url of the request
+   * @param reader    reads the (uncompressed) response body
+   * @return what the reader made of the response
+   * @throws SolrException if the request failed or solr returned something we can't parse
+   */
+  private <T> T executeGet(String urlString, ResponseReader<T> reader) throws SolrException {
     log.debug("Making Solr http request to " + urlString);
+
+    GetMethod get;
     try {
-      url = new URL(urlString);
-    } catch (MalformedURLException e) {
+      get = new GetMethod(urlString);
+    } catch (IllegalArgumentException e) {
+      throw new SolrException("Bad Solr Url: " + urlString, e);
+    } catch (IllegalStateException e) {
       throw new SolrException("Bad Solr Url: " + urlString, e);
     }
+    get.setRequestHeader("Accept-Encoding", "gzip");
 
-    InputStream urlStream = null;
-    Document doc = null;
+    InputStream responseStream = null;
     try {
-      URLConnection connection = url.openConnection();
-      connection.setConnectTimeout(CONNECTION_TIMEOUT);
-      connection.connect();
-      urlStream = connection.getInputStream();
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      factory.setNamespaceAware(true);
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      doc = builder.parse(urlStream);
+      int status = httpClient.executeMethod(get);
+      if (status != HttpStatus.SC_OK) {
+        throw new SolrException("Solr returned status " + status + " for url: " + urlString);
+      }
+
+      responseStream = get.getResponseBodyAsStream();
+      Header contentEncoding = get.getResponseHeader("Content-Encoding");
+      if (contentEncoding != null && contentEncoding.getValue().toLowerCase().contains("gzip")) {
+        responseStream = new GZIPInputStream(responseStream);
+      }
+
+      return reader.read(responseStream);
     } catch (IOException e) {
       throw new SolrException("Error connecting to the Solr server at " + solrUrl, e);
-    } catch (ParserConfigurationException e) {
-      throw new SolrException("Error configuring parser xml parser for solr response", e);
-    } catch (SAXException e) {
+    } catch (XMLStreamException e) {
       throw new SolrException("Solr Returned bad XML for url: " + urlString, e);
     } finally {
       //Close the input stream
-      if (urlStream != null) {
+      if (responseStream != null) {
         try {
-          urlStream.close();
+          responseStream.close();
         } catch (IOException e) {
           log.error("Error closing url stream to Solr", e);
         }
       }
+      //Return the connection to the pool
+      get.releaseConnection();
     }
+  }
 
-    return doc;
+  public void setSolrUrl(String solrUrl) {
+    if (solrUrl.contains("/select")) {
+      this.solrUrl = solrUrl;
+    } else {
+      this.solrUrl = solrUrl.endsWith("/") ? solrUrl + "select" : solrUrl + "/select";
+    }
+    this.solrUrl = this.solrUrl.replaceAll("\\?", "");
+  }
+
+  /**
+   * @inheritDoc
+   */
+  public Document makeSolrRequestForRss(String queryString) throws SolrException {
+
+    if (solrUrl == null || solrUrl.isEmpty()) {
+      setSolrUrl(config.getString(URL_CONFIG_PARAM));
+    }
+
+    final Set<String> fields = SolrXmlResponseParser.parseFieldList(getQueryStringParam(queryString, FL_PARAM));
+    return executeGet(solrUrl + "?" + queryString, new ResponseReader<Document>() {
+      @Override
+      public Document read(InputStream responseStream) throws XMLStreamException {
+        return responseParser.parse(responseStream, fields);
+      }
+    });
   }
 
   /**
@@ -225,14 +281,7 @@ public class SolrHttpServiceImpl implements SolrHttpService {
   public void makeSolrPostRequest(Map<String, String> params, String data, boolean isCSV) throws SolrException {
     String postUrl = config.getString(URL_CONFIG_PARAM);
 
-    String queryString = "?";
-    for (String param : params.keySet()) {
-      String value = params.get(param);
-      if (queryString.length() > 1) {
-        queryString += "&";
-      }
-      queryString += (cleanInput(param) + "=" + cleanInput(value));
-    }
+    String queryString = buildQueryString(params);
 
     String filename;
     String contentType;
@@ -250,6 +299,8 @@ public class SolrHttpServiceImpl implements SolrHttpService {
     log.debug("Making Solr http post request to " + postUrl);
 
     PostMethod filePost = new PostMethod(postUrl);
+    // updates and commits can take much longer than the pool's read timeout, which is meant for page requests
+    filePost.getParams().setSoTimeout(config.getInt(POST_TIMEOUT_CONFIG_PARAM, 0));
 
     try {
       filePost.setRequestEntity(
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.search;
+
+import org.ambraproject.util.DaemonExecutors;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the version of the Solr index, so that results read from Solr can be cached until the index changes
+ * instead of for a fixed time.
+ * <p/>
+ * The version is read from the Luke request handler.  Once {@link #start()} is called, a background thread polls it
+ * every <code>checkInterval</code> seconds and {@link #getGeneration()} just returns the last version read.  Before
+ * that (or if the poller isn't used), the version is checked when asked for, at most every
+ * <code>checkInterval</code> seconds.  Only one thread checks at a time; the others get the last known version
+ * meanwhile.
+ * <p/>
+ * {@link Listener}s are told when the version changes, so caches can drop their entries right away.
+ */
+public class SolrIndexGeneration {
+  private static final Logger log = LoggerFactory.getLogger(SolrIndexGeneration.class);
+
+  /**
+   * The generation returned while the index version isn't known.  Results should not be cached against it.
+   */
+  public static final long UNKNOWN = -1;
+
+  private SolrServerFactory serverFactory;
+  private int checkInterval = 10;
+
+  private volatile long generation = UNKNOWN;
+  private volatile long lastCheck = 0;
+  private final Object checkLock = new Object();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+  private volatile ScheduledExecutorService poller;
+
+  /**
+   * Gets told when the index generation changes
+   */
+  public static interface Listener {
+    /**
+     * Called on the thread that noticed the change, so implementations should be quick
+     *
+     * @param oldGeneration the previous generation, may be {@link SolrIndexGeneration#UNKNOWN}
+     * @param newGeneration the new generation, may be {@link SolrIndexGeneration#UNKNOWN} if the version couldn't be
+     *                      read
+     */
+    public void generationChanged(long oldGeneration, long newGeneration);
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Start polling the index version in the background.  Called by Spring when the bean is created.
+   */
+  public synchronized void start() {
+    if (poller == null) {
+      poller = Executors.newSingleThreadScheduledExecutor(DaemonExecutors.threadFactory("solr-index-generation"));
+      poller.scheduleWithFixedDelay(new Runnable() {
+        public void run() {
+          check();
+        }
+      }, 0, Math.max(checkInterval, 1), TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Stop the background poller.  Called by Spring when the context is closed.
+   */
+  public synchronized void stop() {
+    if (poller != null) {
+      poller.shutdownNow();
+      poller = null;
+    }
+  }
+
+  /**
+   * Get the current generation of the index, checking with Solr if the last check is older than the check interval
+   *
+   * @return the index version, or {@link #UNKNOWN} if it couldn't be read
+   */
+  public long getGeneration() {
+    if (poller == null && System.currentTimeMillis() - lastCheck >= checkInterval * 1000L) {
+      synchronized (checkLock) {
+        if (System.currentTimeMillis() - lastCheck >= checkInterval * 1000L) {
+          check();
+        }
+      }
+    }
+    return generation;
+  }
+
+  private void check() {
+    synchronized (checkLock) {
+      long oldGeneration = generation;
+      generation = readIndexVersion();
+      lastCheck = System.currentTimeMillis();
+
+      if (generation != oldGeneration) {
+        log.debug("Solr index generation changed from {} to {}", oldGeneration, generation);
+        for (Listener listener : listeners) {
+          try {
+            listener.generationChanged(oldGeneration, generation);
+          } catch (RuntimeException e) {
+            log.error("Error notifying a listener of a new index generation", e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the index version from the Luke request handler.  Only the index info is requested, so Solr doesn't have to
+   * look at the fields of the index.
+   *
+   * @return the index version, or {@link #UNKNOWN} if the request failed
+   */
+  @SuppressWarnings("unchecked")
+  protected long readIndexVersion() {
+    SolrServer server = serverFactory.getServer();
+    if (server == null) {
+      return UNKNOWN;
+    }
+
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set("numTerms", 0);
+    params.set("show", "index");
+    QueryRequest request = new QueryRequest(params);
+    request.setPath("/admin/luke");
+
+    try {
+      NamedList<Object> index = (NamedList<Object>) request.process(server).getResponse().get("index");
+      Object version = index == null ? null : index.get("version");
+      if (version instanceof Number) {
+        return ((Number) version).longValue();
+      }
+      log.warn("No index version in the Luke response");
+    } catch (Exception e) {
+      log.warn("Unable to read the Solr index version", e);
+    }
+    return UNKNOWN;
+  }
+
+  public void setServerFactory(SolrServerFactory serverFactory) {
+    this.serverFactory = serverFactory;
+  }
+
+  /**
+   * @param checkInterval how long, in seconds, a version read from Solr is used before checking it again.  Changes
+   *                      made once the poller is started have no effect.
+   */
+  public void setCheckInterval(int checkInterval) {
+    this.checkInterval = checkInterval;
+  }
+}
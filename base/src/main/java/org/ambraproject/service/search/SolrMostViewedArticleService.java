@@ -33,11 +33,7 @@ import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.beans.factory.annotation.Required;
 import org.springframework.transaction.annotation.Transactional;
-import org.w3c.dom.Document;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -54,6 +50,7 @@ import java.util.concurrent.ConcurrentMap;
 public class SolrMostViewedArticleService extends HibernateServiceImpl implements MostViewedArticleService {
   private SolrFieldConversion solrFieldConverter;
   private SolrHttpService solrHttpService;
+  private SolrIndexGeneration indexGeneration;
 
   /**
    * Cache for the most viewed results. This is a one-off caching implementation, but since this is a spring-injected
@@ -68,14 +65,51 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
   private static final String AUTHORS_ATTR = "author_display";
   private static final String ABSTRACT_ATTR = "abstract_primary_display";
 
+  /**
+   * Maps result documents to (doi, title) pairs
+   */
+  private static final SolrDocumentMapper<Pair<String, String>> ARTICLE_TITLE_MAPPER =
+      new SolrDocumentMapper<Pair<String, String>>() {
+        @Override
+        public Pair<String, String> map(SolrResultDocument doc) {
+          return new Pair<String, String>(getString(doc, DOI_ATTR), getString(doc, TITLE_ATTR));
+        }
+      };
+
+  /**
+   * Maps result documents to the article info shown on the home page
+   */
+  private static final SolrDocumentMapper<HomePageArticleInfo> ARTICLE_INFO_MAPPER =
+      new SolrDocumentMapper<HomePageArticleInfo>() {
+        @Override
+        public HomePageArticleInfo map(SolrResultDocument doc) {
+          HomePageArticleInfo article = new HomePageArticleInfo();
+          article.setDoi(getString(doc, DOI_ATTR));
+          article.setTitle(getString(doc, TITLE_ATTR));
+          article.setStrkImgURI(getString(doc, STRIKING_ATTR));
+          article.setAuthors(StringUtils.join(doc.getValues(AUTHORS_ATTR), ", "));
+          article.setDescription(getString(doc, ABSTRACT_ATTR));
+          return article;
+        }
+      };
+
+  /**
+   * Missing fields come back as empty strings, as they did when the response was read with xpath
+   */
+  private static String getString(SolrResultDocument doc, String field) {
+    return StringUtils.defaultString(doc.getFirstValue(field));
+  }
+
   @Override
   public List<Pair<String, String>> getMostViewedArticles(String journal, int limit, Integer numDays) throws SolrException {
     //check if we still have valid results in the cache
     MostViewedCache cache = cachedMostViewedResults.get(journal);
-    if (cache != null && cache.isValid()) {
+    if (cache != null && cache.isValid(getGeneration())) {
       return cache.getArticles();
     }
 
+    //read before the request, so results that race with a commit are read again next time
+    long generation = getGeneration();
     Map<String, String> params = new HashMap<String, String>();
     params.put("fl", DOI_ATTR + "," + TITLE_ATTR);
     params.put("fq", "doc_type:full AND !article_type_facet:\"Issue Image\" AND cross_published_journal_key:" + journal);
@@ -86,25 +120,10 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
         : solrFieldConverter.getAllTimeViewsField();
     params.put("sort", sortField + " desc");
 
-    Document doc = solrHttpService.makeSolrRequest(params);
-
-    List<Pair<String, String>> articles = new ArrayList<Pair<String, String>>(limit);
-
-    //get the children of the "result" node
-    XPath xPath = XPathFactory.newInstance().newXPath();
-    try {
-      Integer count = Integer.valueOf(xPath.evaluate("count(//result/doc)", doc));
-      for (int i = 1; i <= count; i++) {
-        String doi = xPath.evaluate("//result/doc[" + i + "]/str[@name = '" + DOI_ATTR + "']/text()", doc);
-        String title = xPath.evaluate("//result/doc[" + i + "]/str[@name = '" + TITLE_ATTR + "']/text()", doc);
-        articles.add(new Pair<String, String>(doi, title));
-      }
-    } catch (XPathExpressionException e) {
-      throw new SolrException("Error parsing solr xml response", e);
-    }
+    List<Pair<String, String>> articles = solrHttpService.makeSolrRequest(params, ARTICLE_TITLE_MAPPER);
 
     //cache the results
-    cachedMostViewedResults.put(journal, new MostViewedCache(articles));
+    cachedMostViewedResults.put(journal, new MostViewedCache(articles, generation));
     return articles;
   }
 
@@ -114,10 +133,11 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
     //check if we still have valid results in the cache
     String cacheIndex = journal + ":mostviewed" + String.valueOf(offset) + ":" + String.valueOf(limit);
     MostViewedCache cache = cachedMostViewedResults.get(cacheIndex);
-    if (cache != null && cache.isValid()) {
+    if (cache != null && cache.isValid(getGeneration())) {
       return cache.getArticleInfo();
     }
 
+    long generation = getGeneration();
     Map<String, String> params = new HashMap<String, String>();
     params.put("fl", DOI_ATTR + "," + TITLE_ATTR + "," + STRIKING_ATTR + "," + AUTHORS_ATTR + "," + ABSTRACT_ATTR);
     params.put("fq", "doc_type:full AND !article_type_facet:\"Issue Image\" AND cross_published_journal_key:" + journal);
@@ -128,10 +148,9 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
         : solrFieldConverter.getAllTimeViewsField();
     params.put("sort", sortField + " desc");
 
-    Document doc = solrHttpService.makeSolrRequest(params);
-    List<HomePageArticleInfo> articles = getArticleInfoFromSolrResponse(doc);
+    List<HomePageArticleInfo> articles = solrHttpService.makeSolrRequest(params, ARTICLE_INFO_MAPPER);
     //cache the results
-    cachedMostViewedResults.put(cacheIndex, new MostViewedCache(articles));
+    cachedMostViewedResults.put(cacheIndex, new MostViewedCache(articles, generation));
     return articles;
   }
 
@@ -140,9 +159,10 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
     //check if we still have valid results in the cache
     String cacheIndex = journal + ":recent:" + String.valueOf(offset) + ":" + String.valueOf(limit);
     MostViewedCache cache = cachedMostViewedResults.get(cacheIndex);
-    if (cache != null && cache.isValid()) {
+    if (cache != null && cache.isValid(getGeneration())) {
       return cache.getArticleInfo();
     }
+    long generation = getGeneration();
     Map<String, String> params = new HashMap<String, String>();
     params.put("fl", DOI_ATTR + "," + TITLE_ATTR + "," + STRIKING_ATTR + "," + AUTHORS_ATTR + "," + ABSTRACT_ATTR);
     params.put("fq", "doc_type:full AND !article_type_facet:\"Issue Image\" AND cross_published_journal_key:" + journal);
@@ -151,49 +171,9 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
     params.put("indent", "off");
     params.put("sort", "publication_date desc");
 
-    Document doc = solrHttpService.makeSolrRequest(params);
-    List<HomePageArticleInfo> articles = getArticleInfoFromSolrResponse(doc);
+    List<HomePageArticleInfo> articles = solrHttpService.makeSolrRequest(params, ARTICLE_INFO_MAPPER);
     //cache the results
-    cachedMostViewedResults.put(cacheIndex, new MostViewedCache(articles));
-    return articles;
-  }
-
-  private List<HomePageArticleInfo> getArticleInfoFromSolrResponse(Document doc) throws SolrException {
-    List<HomePageArticleInfo> articles = new ArrayList<HomePageArticleInfo>();
-
-    //get the children of the "result" node
-    XPath xPath = XPathFactory.newInstance().newXPath();
-    try {
-      Integer count = Integer.valueOf(xPath.evaluate("count(//result/doc)", doc));
-      for (int i = 1; i <= count; i++) {
-        String doi = xPath.evaluate("//result/doc[" + i + "]/str[@name = '" + DOI_ATTR + "']/text()", doc);
-        String title = xPath.evaluate("//result/doc[" + i + "]/str[@name = '" + TITLE_ATTR + "']/text()", doc);
-        String strkImg = xPath.evaluate("//result/doc[" + i + "]/str[@name = '" + STRIKING_ATTR + "']/text()", doc);
-        String description = xPath.evaluate("//result/doc[" + i + "]/str[@name = '" + ABSTRACT_ATTR + "']/text()", doc);
-
-        Integer authors_count = Integer.valueOf(xPath.evaluate("count(//result/doc[" + i + "]/arr[@name = '" + AUTHORS_ATTR + "']/str)", doc));
-
-        List<String> authors = new ArrayList<String>();
-
-        for(int j = 1; j <= authors_count; ++j) {
-          String authorName = xPath.evaluate("//result/doc[" + i + "]/arr[@name = '" + AUTHORS_ATTR + "']/str[" + j + "]/text()", doc);
-          authors.add(authorName);
-        }
-
-        String author = StringUtils.join(authors, ", ");
-
-        HomePageArticleInfo article = new HomePageArticleInfo();
-        article.setDoi(doi);
-        article.setTitle(title);
-        article.setStrkImgURI(strkImg);
-        article.setAuthors(author);
-        article.setDescription(description);
-
-        articles.add(article);
-      }
-    } catch (XPathExpressionException e) {
-      throw new SolrException("Error parsing solr xml response", e);
-    }
+    cachedMostViewedResults.put(cacheIndex, new MostViewedCache(articles, generation));
     return articles;
   }
 
@@ -252,6 +232,18 @@ public class SolrMostViewedArticleService extends HibernateServiceImpl implement
     this.solrFieldConverter = solrFieldConverter;
   }
 
+  /**
+   * @param indexGeneration if set, cached results are kept until the Solr index changes rather than for
+   *                        {@link MostViewedCache#CACHE_TIME} minutes
+   */
+  public void setIndexGeneration(SolrIndexGeneration indexGeneration) {
+    this.indexGeneration = indexGeneration;
+  }
+
+  private long getGeneration() {
+    return indexGeneration == null ? SolrIndexGeneration.UNKNOWN : indexGeneration.getGeneration();
+  }
+
   @Required
   public void setSolrHttpService(SolrHttpService solrHttpService) {
     this.solrHttpService = solrHttpService;
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of one <code>doc</code> element of a Solr XML response, as read by {@link SolrXmlResponseParser}.  All
+ * values are kept as the strings Solr returned; multi-valued (<code>arr</code>) fields have one value per element.
+ * <p/>
+ * The parser reuses a single instance for every document of a response, so {@link SolrDocumentMapper}s must copy out
+ * the values they need rather than keep a reference to it.
+ */
+public class SolrResultDocument {
+
+  private final Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+
+  /**
+   * @param name the field name
+   * @return the first value of the field, or null if the document doesn't have it
+   */
+  public String getFirstValue(String name) {
+    List<String> values = fields.get(name);
+    return (values == null || values.isEmpty()) ? null : values.get(0);
+  }
+
+  /**
+   * @param name the field name
+   * @return all the values of the field, or an empty list if the document doesn't have it
+   */
+  public List<String> getValues(String name) {
+    List<String> values = fields.get(name);
+    return (values == null) ? Collections.<String>emptyList() : Collections.unmodifiableList(values);
+  }
+
+  /**
+   * @return the names of the fields in the document, in the order Solr returned them
+   */
+  public Set<String> getFieldNames() {
+    return Collections.unmodifiableSet(fields.keySet());
+  }
+
+  void addValue(String name, String value) {
+    List<String> values = fields.get(name);
+    if (values == null) {
+      values = new ArrayList<String>(1);
+      fields.put(name, values);
+    }
+    values.add(value);
+  }
+
+  void clear() {
+    fields.clear();
+  }
+}
@@ -19,6 +19,8 @@ package org.ambraproject.service.search;
 
 import org.ambraproject.ApplicationException;
 import org.ambraproject.service.cache.Cache;
+import org.ambraproject.service.search.SearchResultCacheStatistics.SearchType;
+import org.ambraproject.util.DaemonExecutors;
 import org.ambraproject.util.Pair;
 import org.ambraproject.views.SearchHit;
 import org.ambraproject.views.SearchResultSinglePage;
@@ -27,6 +29,7 @@ import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.commons.lang.StringUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
 import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
@@ -35,6 +38,7 @@ import org.apache.solr.common.SolrException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,6 +51,11 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Pattern;
 
 /**
@@ -68,6 +77,22 @@ public class SolrSearchService implements SearchService {
   private static final int MAX_FACET_SIZE = 100;
   private static final int MIN_FACET_COUNT = 1;
 
+  //tags of the filters excluded from the journal and article type facets of a simple search
+  private static final String JOURNALS_TAG = "journals";
+  private static final String ARTICLE_TYPES_TAG = "articleTypes";
+
+  //the only fields saved search alerts use
+  private static final String[] SAVED_SEARCH_ALERT_FIELDS = {"id", "title_display", "author_display", "subject"};
+
+  private boolean singleRequestFacets = true;
+  private int cursorStartPage = 5;
+  private int searchThreads = 4;
+  private ExecutorService searchExecutor;
+
+  private Cache resultCache;
+  private SearchResultCacheStatistics resultCacheStatistics = new SearchResultCacheStatistics();
+  private int maxCachedHits = 100;
+
   // sort option possible values (sort direction is optional)
   // field desc|asc
   // sum(field1, field2) desc|asc
@@ -91,30 +116,52 @@ public class SolrSearchService implements SearchService {
    * @return One "page" of articles which contain the terms in <code>queryString</code>
    * @throws ApplicationException Thrown by a failed query attempt
    */
-  public SearchResultSinglePage simpleSearch(SearchParameters sParams) throws ApplicationException {
+  public SearchResultSinglePage simpleSearch(final SearchParameters sParams) throws ApplicationException {
+    return cachedSearch(SearchType.SIMPLE, sParams, new Cache.Lookup<SearchResultSinglePage, ApplicationException>() {
+      @Override
+      public SearchResultSinglePage lookup() throws ApplicationException {
+        return executeSimpleSearch(sParams);
+      }
+    });
+  }
+
+  private SearchResultSinglePage executeSimpleSearch(SearchParameters sParams) throws ApplicationException {
     sParams.setQuery(sParams.getQuery());
 
     log.debug("Simple Search performed on the String: " + sParams.getQuery());
 
-    //We query SOLR three times.
-    // 1 - The main 'big' query
-    // 2 - Make the cross journals facet
-    // 3 - (If applicable) the Keywords facet
+    //The main 'big' query returns the results along with the journal and article type facets.  The journal and
+    //article type filters are tagged, and each of those facets excludes its own filter, so the counts are the ones
+    //we'd get without that filter applied.
+    //The keyword facet (if applicable) searches partial documents with a different query, so it always needs a
+    //request of its own, and is run on the search executor while the main query runs.
+    //If single request facets are turned off, the journal and article type facets are queried separately, also on
+    //the search executor.
 
     SolrQuery query = createQuery(sParams.getQuery(),
         sParams.getStartPage(), sParams.getPageSize(), true);
 
-    //Notice: there is some code duplication here. note below
-    SolrQuery journalFacetsQuery = createFacetsQuery(sParams.getQuery(), "cross_published_journal_key", true);
-    SolrQuery articleTypeFacetsQuery = createFacetsQuery(sParams.getQuery(), "article_type_facet", true);
+    SolrQuery journalFacetsQuery = null;
+    SolrQuery articleTypeFacetsQuery = null;
 
-    //Set filters for the three queries,
-    setFilters(query, sParams, false, false);
+    if (singleRequestFacets) {
+      setFilters(query, sParams, false, false, true);
 
-    //The journals query doesn't get the journal filter and the articles query doesn't get the articles filter
-    //Notice: there is some code duplication here. note below
-    setFilters(journalFacetsQuery, sParams, true, false);
-    setFilters(articleTypeFacetsQuery, sParams, false, true);
+      query.removeFacetField("article_type_facet");
+      query.addFacetField("{!ex=" + ARTICLE_TYPES_TAG + "}article_type_facet");
+      query.addFacetField("{!ex=" + JOURNALS_TAG + "}cross_published_journal_key");
+    } else {
+      //Notice: there is some code duplication here. note below
+      journalFacetsQuery = createFacetsQuery(sParams.getQuery(), "cross_published_journal_key", true);
+      articleTypeFacetsQuery = createFacetsQuery(sParams.getQuery(), "article_type_facet", true);
+
+      setFilters(query, sParams, false, false);
+
+      //The journals query doesn't get the journal filter and the articles query doesn't get the articles filter
+      //Notice: there is some code duplication here. note below
+      setFilters(journalFacetsQuery, sParams, true, false);
+      setFilters(articleTypeFacetsQuery, sParams, false, true);
+    }
 
     //Set the sort ordering for results, if applicable.
     setSort(query, sParams);
@@ -133,27 +180,46 @@ public class SolrSearchService implements SearchService {
 
       //Set the field for dismax to use
       query.set("qf", fieldName);
-      journalFacetsQuery.set("qf", fieldName);
-      articleTypeFacetsQuery.set("qf", fieldName);
+      if (!singleRequestFacets) {
+        journalFacetsQuery.set("qf", fieldName);
+        articleTypeFacetsQuery.set("qf", fieldName);
+      }
     }
 
-    //Perform searches!
-    SearchResultSinglePage results = search(query);
+    //Perform searches!  Start the facet queries first so they run while the main query does.
+    Future<FacetField> journalsFuture = null;
+    Future<FacetField> articleTypesFuture = null;
+    Future<FacetField> keywordsFuture = null;
 
-    QueryResponse journalFacetsResponse = getSOLRResponse(journalFacetsQuery);
-    QueryResponse articleTypeFacetsResponse = getSOLRResponse(articleTypeFacetsQuery);
-    FacetField journals = journalFacetsResponse.getFacetField("cross_published_journal_key");
-    FacetField articleTypes = articleTypeFacetsResponse.getFacetField("article_type_facet");
-
-    results.setJournalFacet(facetCountsToHashMap(journals));
-    results.setArticleTypeFacet(facetCountsToHashMap(articleTypes));
+    if (!singleRequestFacets) {
+      journalsFuture = submitFacetSearch(journalFacetsQuery, "cross_published_journal_key");
+      articleTypesFuture = submitFacetSearch(articleTypeFacetsQuery, "article_type_facet");
+    }
 
     //Only execute the keyword search facet if the keyword wasn't specified
     if (sParams.getFilterKeyword().length() == 0) {
       SolrQuery keywordFacetQuery = createKeywordFacetQuery(sParams.getQuery());
       setFilters(keywordFacetQuery, sParams, false, false);
-      FacetField keywords = facetSearch(keywordFacetQuery, "doc_partial_type");
-      results.setKeywordFacet(facetCountsToHashMap(keywords));
+      keywordsFuture = submitFacetSearch(keywordFacetQuery, "doc_partial_type");
+    }
+
+    SearchResultSinglePage results;
+    try {
+      results = pagedSearch(query, sParams);
+
+      if (!singleRequestFacets) {
+        results.setJournalFacet(facetCountsToHashMap(getFacetResult(journalsFuture)));
+        results.setArticleTypeFacet(facetCountsToHashMap(getFacetResult(articleTypesFuture)));
+      }
+
+      if (keywordsFuture != null) {
+        results.setKeywordFacet(facetCountsToHashMap(getFacetResult(keywordsFuture)));
+      }
+    } finally {
+      //don't leave queries running for a search that failed
+      cancel(journalsFuture);
+      cancel(articleTypesFuture);
+      cancel(keywordsFuture);
     }
 
     return results;
@@ -171,7 +237,17 @@ public class SolrSearchService implements SearchService {
    *         parameter
    * @throws ApplicationException Thrown during failed interactions with the Solr Server
    */
-  public SearchResultSinglePage advancedSearch(SearchParameters searchParameters) throws ApplicationException {
+  public SearchResultSinglePage advancedSearch(final SearchParameters searchParameters) throws ApplicationException {
+    return cachedSearch(SearchType.ADVANCED, searchParameters,
+        new Cache.Lookup<SearchResultSinglePage, ApplicationException>() {
+          @Override
+          public SearchResultSinglePage lookup() throws ApplicationException {
+            return executeAdvancedSearch(searchParameters);
+          }
+        });
+  }
+
+  private SearchResultSinglePage executeAdvancedSearch(SearchParameters searchParameters) throws ApplicationException {
     SearchParameters sp = cleanStrings(searchParameters); // Does not impact unformattedQuery field.
     if (log.isDebugEnabled()) {
       log.debug("Solr Search performed on the unformattedSearch String: "
@@ -200,7 +276,7 @@ public class SolrSearchService implements SearchService {
     FacetField journals = journalFacetsResponse.getFacetField("cross_published_journal_key");
     FacetField articleTypes = articleTypeFacetsResponse.getFacetField("article_type_facet");
 
-    SearchResultSinglePage results = search(query.setQuery(searchParameters.getUnformattedQuery().trim()));
+    SearchResultSinglePage results = pagedSearch(query.setQuery(searchParameters.getUnformattedQuery().trim()), sp);
 
     results.setJournalFacet(facetCountsToHashMap(journals));
     results.setArticleTypeFacet(facetCountsToHashMap(articleTypes));
@@ -452,6 +528,38 @@ public class SolrSearchService implements SearchService {
     return getSOLRResponse(query);
   }
 
+  /**
+   * Run a search through the result cache.  The cache is an {@link IndexGenerationCache}, so results are kept for as
+   * long as the index doesn't change.  Pages with more than <code>maxCachedHits</code> hits aren't cached, so that the
+   * size of an entry stays bounded.
+   *
+   * @param type   the type of search, for the statistics
+   * @param sp     the search parameters
+   * @param search runs the search on Solr
+   * @return the results
+   * @throws ApplicationException if the search failed
+   */
+  private SearchResultSinglePage cachedSearch(SearchType type, SearchParameters sp,
+      Cache.Lookup<SearchResultSinglePage, ApplicationException> search) throws ApplicationException {
+    if (resultCache == null) {
+      return search.lookup();
+    }
+
+    String key = type + "|" + sp.toCanonicalString();
+    Cache.Item item = resultCache.get(key);
+    if (item != null) {
+      resultCacheStatistics.recordHit(type);
+      return (SearchResultSinglePage) item.getValue();
+    }
+
+    resultCacheStatistics.recordMiss(type);
+    SearchResultSinglePage results = search.lookup();
+    if (results.getHits().size() <= maxCachedHits) {
+      resultCache.put(key, new Cache.Item(results));
+    }
+    return results;
+  }
+
   /**
    * @enheritDoc
    */
@@ -459,9 +567,9 @@ public class SolrSearchService implements SearchService {
     if (cache == null) {
       return getTopSubjectsFromSOLR();
     } else {
-      String key = "topLevelCategoriesCacheKey".intern();
+      String key = "topLevelCategoriesCacheKey";
       return cache.get(key, CACHE_TTL,
-        new Cache.SynchronizedLookup<SortedMap<String, Long>, ApplicationException>(key) {
+        new Cache.SingleFlightLookup<SortedMap<String, Long>, ApplicationException>(key) {
           @Override
           public SortedMap<String, Long> lookup() throws ApplicationException {
             return getTopSubjectsFromSOLR();
@@ -538,6 +646,7 @@ public class SolrSearchService implements SearchService {
       }
 
       String[] sortOptions = SORT_OPTION_PATTERN.split(sortValue);
+      boolean sortedById = false;
       for (String sortOption : sortOptions) {
         sortOption = sortOption.trim();
         int index = sortOption.lastIndexOf(" ");
@@ -555,6 +664,12 @@ public class SolrSearchService implements SearchService {
         } else {
           query.addSortField(fieldName, SolrQuery.ORDER.asc);
         }
+        sortedById = sortedById || fieldName.equals(SolrCursor.ID_FIELD);
+      }
+
+      //If everything else is equal, order by id, so the order is stable and pages can be read with a cursor
+      if (!sortedById) {
+        query.addSortField(SolrCursor.ID_FIELD, SolrQuery.ORDER.desc);
       }
     }
 
@@ -583,7 +698,19 @@ public class SolrSearchService implements SearchService {
    *         parameter
    * @throws ApplicationException Thrown during failed interactions with the Solr Server
    */
-  public SearchResultSinglePage findAnArticleSearch(SearchParameters searchParameters) throws ApplicationException {
+  public SearchResultSinglePage findAnArticleSearch(final SearchParameters searchParameters)
+      throws ApplicationException {
+    return cachedSearch(SearchType.FIND_AN_ARTICLE, searchParameters,
+        new Cache.Lookup<SearchResultSinglePage, ApplicationException>() {
+          @Override
+          public SearchResultSinglePage lookup() throws ApplicationException {
+            return executeFindAnArticleSearch(searchParameters);
+          }
+        });
+  }
+
+  private SearchResultSinglePage executeFindAnArticleSearch(SearchParameters searchParameters)
+      throws ApplicationException {
     SearchParameters sp = cleanStrings(searchParameters); // Does not impact unformattedQuery field.
     if (log.isDebugEnabled()) {
       log.debug("Solr Search performed on the following selection of the SearchParameters properties: "
@@ -696,11 +823,77 @@ public class SolrSearchService implements SearchService {
     }
   }
 
+  /**
+   * @param singleRequestFacets whether simple searches get the journal and article type facets in the same request
+   *                            as the results (the default), rather than in separate requests
+   */
+  public void setSingleRequestFacets(boolean singleRequestFacets) {
+    this.singleRequestFacets = singleRequestFacets;
+  }
+
+  /**
+   * @param cursorStartPage the first page (0 based) that is read with a cursor token, if one is given.  Earlier pages
+   *                        are always read by offset.
+   */
+  public void setCursorStartPage(int cursorStartPage) {
+    this.cursorStartPage = cursorStartPage;
+  }
+
+  /**
+   * @param searchThreads the number of threads running the facet queries of simple searches
+   */
+  public void setSearchThreads(int searchThreads) {
+    this.searchThreads = searchThreads;
+  }
+
+  /**
+   * @param resultCache the cache for search results, an {@link IndexGenerationCache} so entries are dropped when the
+   *                    index changes.  If not set, search results aren't cached.
+   */
+  public void setResultCache(Cache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  public void setResultCacheStatistics(SearchResultCacheStatistics resultCacheStatistics) {
+    this.resultCacheStatistics = resultCacheStatistics;
+  }
+
+  /**
+   * @param maxCachedHits the largest number of hits on a page of search results that gets cached
+   */
+  public void setMaxCachedHits(int maxCachedHits) {
+    this.maxCachedHits = maxCachedHits;
+  }
+
+  /**
+   * Stop the search threads.  Called by Spring when the context is closed.
+   */
+  public synchronized void destroy() {
+    if (searchExecutor != null) {
+      searchExecutor.shutdownNow();
+      searchExecutor = null;
+    }
+  }
+
   public void setServerFactory(SolrServerFactory serverFactory) {
     this.serverFactory = serverFactory;
   }
 
   private void setFilters(SolrQuery query, SearchParameters sp, boolean ignoreJournals, boolean ignoreArticleTypes) {
+    setFilters(query, sp, ignoreJournals, ignoreArticleTypes, false);
+  }
+
+  /**
+   * Add the filters for the search parameters to a query
+   *
+   * @param query              the query
+   * @param sp                 the search parameters
+   * @param ignoreJournals     leave out the journals filter
+   * @param ignoreArticleTypes leave out the article types filter
+   * @param tagFilters         tag the journals and article types filters, so facets can exclude them
+   */
+  private void setFilters(SolrQuery query, SearchParameters sp, boolean ignoreJournals, boolean ignoreArticleTypes,
+                          boolean tagFilters) {
     //Related to JO: http://joborder.plos.org/view.php?id=17480
     //(for now) we don't want to search on Issue Images
     query.addFilterQuery(createFilterNoIssueImageDocuments());
@@ -708,14 +901,16 @@ public class SolrSearchService implements SearchService {
     // Form field description: "Journals".  Query Filter.
     if(!ignoreJournals) {
       if (sp.getFilterJournals() != null && sp.getFilterJournals().length > 0) {
-        query.addFilterQuery(createFilterLimitForJournals(sp.getFilterJournals()));
+        query.addFilterQuery((tagFilters ? "{!tag=" + JOURNALS_TAG + "}" : "")
+            + createFilterLimitForJournals(sp.getFilterJournals()));
       }
     }
 
     if(!ignoreArticleTypes) {
       // Form field description: "Article Types".  Query Filter.
       if (sp.getFilterArticleTypes() != null && sp.getFilterArticleTypes().length > 0) {
-        query.addFilterQuery(createFilterLimitForArticleTypes(sp.getFilterArticleTypes()));
+        query.addFilterQuery((tagFilters ? "{!tag=" + ARTICLE_TYPES_TAG + "}" : "")
+            + createFilterLimitForArticleTypes(sp.getFilterArticleTypes()));
       }
     }
 
@@ -835,7 +1030,34 @@ public class SolrSearchService implements SearchService {
   private SearchResultSinglePage search(SolrQuery query) throws ApplicationException {
     QueryResponse queryResponse = getSOLRResponse(query);
 
-    return readQueryResults(queryResponse, query);
+    return readQueryResults(queryResponse, query, 0);
+  }
+
+  /**
+   * Search for a page of results.  Deep pages requested with a cursor token from the previous page are read with the
+   * cursor instead of an offset, if the query's sort allows it, and a token for the next page is returned with the
+   * results.
+   */
+  private SearchResultSinglePage pagedSearch(SolrQuery query, SearchParameters sp) throws ApplicationException {
+    SearchParameters keyParameters = sp.copy();
+    keyParameters.setStartPage(0);
+    String searchKey = keyParameters.toCanonicalString();
+
+    int skipped = -1;
+    if (sp.getStartPage() >= cursorStartPage) {
+      skipped = SolrCursor.apply(query, searchKey, sp.getStartPage(), sp.getCursor());
+    }
+    SolrCursor.addSortFields(query);
+
+    QueryResponse queryResponse = getSOLRResponse(query);
+    SearchResultSinglePage results = readQueryResults(queryResponse, query, Math.max(skipped, 0));
+
+    SolrDocumentList documentList = queryResponse.getResults();
+    if (documentList.size() > 0 && documentList.size() == query.getRows()) {
+      results.setNextCursor(SolrCursor.createToken(query, searchKey, sp.getStartPage() + 1,
+          documentList.get(documentList.size() - 1)));
+    }
+    return results;
   }
 
   private FacetField facetSearch(SolrQuery query, String name) throws ApplicationException {
@@ -850,6 +1072,46 @@ public class SolrSearchService implements SearchService {
     return facet;
   }
 
+  /**
+   * Run a facet search on the search executor.  If all the search threads are busy the search runs right away, on the
+   * calling thread.
+   */
+  private Future<FacetField> submitFacetSearch(final SolrQuery query, final String name) {
+    return getSearchExecutor().submit(new Callable<FacetField>() {
+      public FacetField call() throws ApplicationException {
+        return facetSearch(query, name);
+      }
+    });
+  }
+
+  private FacetField getFacetResult(Future<FacetField> future) throws ApplicationException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApplicationException("Interrupted while waiting for a facet search", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ApplicationException) {
+        throw (ApplicationException) e.getCause();
+      }
+      throw new ApplicationException("Facet search failed", e);
+    }
+  }
+
+  private static void cancel(Future<?> future) {
+    if (future != null) {
+      future.cancel(true);
+    }
+  }
+
+  private synchronized ExecutorService getSearchExecutor() {
+    if (searchExecutor == null) {
+      searchExecutor = DaemonExecutors.newBoundedPool("solr-search", searchThreads, searchThreads * 2,
+          new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    return searchExecutor;
+  }
+
   private List<Map> facetCountsToHashMap(FacetField field) {
     List<FacetField.Count> counts = field.getValues();
     ArrayList<Map> result = new ArrayList<Map>();
@@ -940,7 +1202,7 @@ public class SolrSearchService implements SearchService {
   }
 
   @SuppressWarnings("unchecked")
-  private SearchResultSinglePage readQueryResults(QueryResponse queryResponse, SolrQuery query) {
+  private SearchResultSinglePage readQueryResults(QueryResponse queryResponse, SolrQuery query, int skipped) {
     SolrDocumentList documentList = queryResponse.getResults();
 
     if (log.isInfoEnabled()) {
@@ -1055,7 +1317,8 @@ public class SolrSearchService implements SearchService {
     }
 
     //here we assume that number of hits is always going to be withing range of int
-    SearchResultSinglePage results = new SearchResultSinglePage((int) documentList.getNumFound(), -1,
+    //results skipped by a cursor aren't counted by solr
+    SearchResultSinglePage results = new SearchResultSinglePage((int) documentList.getNumFound() + skipped, -1,
         searchResults, query.getQuery());
 
     if (queryResponse.getFacetField("subject_facet") != null) {
@@ -1114,6 +1377,80 @@ public class SolrSearchService implements SearchService {
    * @inheritDoc
    */
   public List savedSearchAlerts(SearchParameters sParams, Date lastSearchTime, Date currentSearchTime, int resultLimit) throws ApplicationException {
+    SolrQuery query = createSavedSearchQuery(sParams, lastSearchTime, currentSearchTime, resultLimit);
+
+    SearchResultSinglePage results = search(query);
+
+    return results.getHits();
+  }
+
+  /**
+   * Run a saved search, and hand its results to the handler one at a time as they are read from the response.  Only
+   * the fields alerts use (id, title, authors and subjects) are requested, and no list of results is built, so the
+   * memory used doesn't grow with the number of results.
+   *
+   * @param sParams           the search params
+   * @param lastSearchTime    the begin time of the search
+   * @param currentSearchTime the end time of the search
+   * @param resultLimit       the maximum number of results to read
+   * @param handler           receives the results, in the order Solr returns them
+   * @return the number of results read
+   * @throws ApplicationException if the search fails
+   */
+  public int streamSavedSearchAlerts(SearchParameters sParams, Date lastSearchTime, Date currentSearchTime,
+      int resultLimit, final SearchHitHandler handler) throws ApplicationException {
+    final SolrQuery query = createSavedSearchQuery(sParams, lastSearchTime, currentSearchTime, resultLimit);
+    query.setFields(SAVED_SEARCH_ALERT_FIELDS);
+
+    if (serverFactory.getServer() == null) {
+      throw new ApplicationException("Search server is not configured");
+    }
+
+    final StreamedSearchHit hit = new StreamedSearchHit();
+    final int[] count = new int[1];
+
+    try {
+      log.info("SOLR Query (streamed): " + query.toString());
+      serverFactory.getServer().queryAndStreamResponse(query, new StreamingResponseCallback() {
+        private boolean stopped = false;
+
+        @Override
+        public void streamSolrDocument(SolrDocument document) {
+          //the rest of the response still has to be read, but the documents are dropped right away
+          if (!stopped) {
+            readSavedSearchHit(document, hit, query);
+            count[0]++;
+            stopped = !handler.handle(hit);
+          }
+        }
+
+        @Override
+        public void streamDocListInfo(long numFound, long start, Float maxScore) {
+          log.debug("Streaming {} of {} saved search results", Math.min(numFound, query.getRows()), numFound);
+        }
+      });
+    } catch (SolrServerException e) {
+      throw new ApplicationException("Unable to execute a query on the Solr Server.", e);
+    } catch (IOException e) {
+      throw new ApplicationException("Unable to read the response of the Solr Server.", e);
+    }
+
+    return count[0];
+  }
+
+  private void readSavedSearchHit(SolrDocument document, StreamedSearchHit hit, SolrQuery query) {
+    String id = SolrServiceUtil.getFieldValue(document, "id", String.class, query.toString());
+    String message = id == null ? query.toString() : id;
+
+    hit.clear();
+    hit.setUri(id);
+    hit.setTitle(SolrServiceUtil.getFieldValue(document, "title_display", String.class, message));
+    hit.addCreators(SolrServiceUtil.getFieldMultiValue(document, "author_display", String.class, message));
+    hit.addSubjectsPolyhierarchy(SolrServiceUtil.getFieldMultiValue(document, "subject", String.class, message));
+  }
+
+  private SolrQuery createSavedSearchQuery(SearchParameters sParams, Date lastSearchTime, Date currentSearchTime,
+      int resultLimit) throws ApplicationException {
     SolrQuery query = null;
     SearchParameters sp = null;
 
@@ -1153,13 +1490,12 @@ public class SolrSearchService implements SearchService {
     }
 
     query.addFilterQuery(createFilterLimitForPublishDate(lastSearchTime, currentSearchTime));
+    //Alerts only use the hits
+    query.setFacet(false);
 
-    SearchResultSinglePage results = search(query);
-
-    return results.getHits();
+    return query;
   }
 
-
   /**
    * Remove dangerous and unwanted values from the Strings in selected fields in the SearchParameters parameter.
    * <p/>
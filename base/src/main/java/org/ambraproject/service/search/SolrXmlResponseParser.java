@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the XML response of a Solr select request with a streaming (StAX) parser, and builds a trimmed down DOM of
+ * it.
+ * <p/>
+ * The DOM has the same structure as the Solr response, so it can be used in place of a fully parsed response, but
+ * the fields of each result <code>doc</code> are limited to the ones that were asked for (the request's
+ * <code>fl</code> parameter), and whitespace between elements is dropped.
+ * <p/>
+ * Instances are thread safe.
+ */
+public class SolrXmlResponseParser {
+
+  private static final String RESULT = "result";
+  private static final String DOC = "doc";
+  private static final String NAME = "name";
+  private static final String ARR = "arr";
+
+  private final XMLInputFactory inputFactory;
+  private final DocumentBuilderFactory documentBuilderFactory;
+
+  private final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<DocumentBuilder>() {
+    @Override
+    protected DocumentBuilder initialValue() {
+      try {
+        return documentBuilderFactory.newDocumentBuilder();
+      } catch (ParserConfigurationException e) {
+        throw new IllegalStateException("Unable to create a document builder", e);
+      }
+    }
+  };
+
+  public SolrXmlResponseParser() {
+    inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+    documentBuilderFactory = DocumentBuilderFactory.newInstance();
+    documentBuilderFactory.setNamespaceAware(true);
+  }
+
+  /**
+   * Get the field names out of an <code>fl</code> parameter
+   *
+   * @param fl the value of the fl parameter, may be null
+   * @return the field names, or null if all fields were requested
+   */
+  public static Set<String> parseFieldList(String fl) {
+    if (fl == null || fl.trim().length() == 0) {
+      return null;
+    }
+
+    Set<String> fields = new HashSet<String>();
+    for (String field : fl.split("[,\\s]+")) {
+      if (field.equals("*")) {
+        return null;
+      }
+      if (field.length() > 0) {
+        fields.add(field);
+      }
+    }
+    return fields.isEmpty() ? null : Collections.unmodifiableSet(fields);
+  }
+
+  /**
+   * Parse a Solr XML response
+   *
+   * @param in     the response body.  The caller is responsible for closing it.
+   * @param fields the fields to keep in each result document, or null to keep all of them
+   * @return the trimmed response document
+   * @throws XMLStreamException if the response isn't well formed
+   */
+  public Document parse(InputStream in, Set<String> fields) throws XMLStreamException {
+    Document doc = documentBuilders.get().newDocument();
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+
+    try {
+      Deque<Node> parents = new ArrayDeque<Node>();
+      parents.push(doc);
+      //depth of elements being skipped, 0 if we're not in a skipped element
+      int skipDepth = 0;
+      boolean inResultDoc = false;
+
+      while (reader.hasNext()) {
+        int event = reader.next();
+
+        switch (event) {
+          case XMLStreamConstants.START_ELEMENT:
+            if (skipDepth > 0) {
+              skipDepth++;
+              break;
+            }
+
+            String localName = reader.getLocalName();
+            Node parent = parents.peek();
+
+            if (inResultDoc && parent.getNodeName().equals(DOC) && fields != null
+                && !fields.contains(reader.getAttributeValue(null, NAME))) {
+              skipDepth = 1;
+              break;
+            }
+
+            Element element = doc.createElement(localName);
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+            parent.appendChild(element);
+            parents.push(element);
+
+            if (localName.equals(DOC) && parent.getNodeName().equals(RESULT)) {
+              inResultDoc = true;
+            }
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            if (skipDepth > 0) {
+              skipDepth--;
+              break;
+            }
+
+            Node ended = parents.pop();
+            if (ended.getNodeName().equals(DOC) && ended.getParentNode().getNodeName().equals(RESULT)) {
+              inResultDoc = false;
+            }
+            break;
+
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+            if (skipDepth == 0 && !reader.isWhiteSpace() && parents.size() > 1) {
+              parents.peek().appendChild(doc.createTextNode(reader.getText()));
+            }
+            break;
+
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    return doc;
+  }
+
+  /**
+   * Read the result documents of a Solr XML response in a single pass, without building a DOM.  Each
+   * <code>result/doc</code> element is collected into a {@link SolrResultDocument} and handed to the mapper as soon as
+   * it ends.
+   *
+   * @param in     the response body.  The caller is responsible for closing it.
+   * @param fields the fields to read from each result document, or null to read all of them
+   * @param mapper creates the results out of the documents
+   * @return the mapped documents, in the order Solr returned them
+   * @throws XMLStreamException if the response isn't well formed
+   */
+  public <T> List<T> parseDocuments(InputStream in, Set<String> fields, SolrDocumentMapper<T> mapper)
+      throws XMLStreamException {
+    List<T> results = new ArrayList<T>();
+    SolrResultDocument current = new SolrResultDocument();
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+
+    try {
+      //depth below the response element: 1 for result, 2 for doc, 3 for fields
+      int depth = 0;
+      boolean inResult = false;
+      boolean inDoc = false;
+
+      while (reader.hasNext()) {
+        int event = reader.next();
+
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String localName = reader.getLocalName();
+
+          if (inDoc) {
+            //a field of the document; getElementText() and readArray() consume its end element
+            String name = reader.getAttributeValue(null, NAME);
+            if (fields != null && !fields.contains(name)) {
+              skipElement(reader);
+            } else if (ARR.equals(localName)) {
+              readArray(reader, name, current);
+            } else {
+              current.addValue(name, reader.getElementText());
+            }
+          } else if (inResult && DOC.equals(localName)) {
+            inDoc = true;
+            current.clear();
+            depth++;
+          } else {
+            if (depth == 1 && RESULT.equals(localName)) {
+              inResult = true;
+            }
+            depth++;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+          if (inDoc) {
+            inDoc = false;
+            T result = mapper.map(current);
+            if (result != null) {
+              results.add(result);
+            }
+          } else if (inResult && depth == 1) {
+            inResult = false;
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    return results;
+  }
+
+  private static void readArray(XMLStreamReader reader, String name, SolrResultDocument doc)
+      throws XMLStreamException {
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      doc.addValue(name, reader.getElementText());
+    }
+  }
+
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int skipDepth = 1;
+    while (skipDepth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        skipDepth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        skipDepth--;
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+import org.ambraproject.views.SavedSearchHit;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A search result read from a streamed Solr response, with just the fields saved search alerts use.
+ * <p/>
+ * One instance is filled in again for every result of a search, so large result sets don't create an object per
+ * result.  Use {@link #toSavedSearchHit()} to keep a result after it has been handled.
+ *
+ * @see SearchHitHandler
+ */
+public class StreamedSearchHit {
+
+  private String uri;
+  private String title;
+  private final List<String> creators = new ArrayList<String>();
+  private final Set<String> subjects = new HashSet<String>();
+  private final List<String> subjectsPolyhierarchy = new ArrayList<String>();
+
+  void clear() {
+    uri = null;
+    title = null;
+    creators.clear();
+    subjects.clear();
+    subjectsPolyhierarchy.clear();
+  }
+
+  void setUri(String uri) {
+    this.uri = uri;
+  }
+
+  void setTitle(String title) {
+    this.title = title;
+  }
+
+  void addCreators(Collection<String> creators) {
+    this.creators.addAll(creators);
+  }
+
+  /**
+   * Add the full paths of the subjects of the result.  Each of the terms in the paths is also added to the flattened
+   * subjects.
+   */
+  void addSubjectsPolyhierarchy(Collection<String> subjects) {
+    for (String subject : subjects) {
+      subjectsPolyhierarchy.add(subject);
+      for (String term : subject.split("/")) {
+        if (term.trim().length() > 0) {
+          this.subjects.add(term);
+        }
+      }
+    }
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * @return the authors of the result, separated by commas
+   */
+  public String getCreator() {
+    return StringUtils.join(creators, ", ");
+  }
+
+  /**
+   * @return the terms of all the subjects of the result
+   */
+  public Set<String> getSubjects() {
+    return Collections.unmodifiableSet(subjects);
+  }
+
+  /**
+   * @return the full paths of the subjects of the result
+   */
+  public List<String> getSubjectsPolyhierarchy() {
+    return Collections.unmodifiableList(subjectsPolyhierarchy);
+  }
+
+  /**
+   * Copy the result into a saved search hit, which stays valid after this instance is reused
+   *
+   * @return the hit
+   */
+  public SavedSearchHit toSavedSearchHit() {
+    return SavedSearchHit.builder()
+        .setUri(uri)
+        .setTitle(title)
+        .setCreator(getCreator())
+        .setSubjects(new HashSet<String>(subjects))
+        .setSubjectsPolyhierarchy(new ArrayList<String>(subjectsPolyhierarchy))
+        .build();
+  }
+}
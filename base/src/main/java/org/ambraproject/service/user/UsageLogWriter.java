@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.user;
+
+import org.ambraproject.models.ArticleView;
+import org.ambraproject.models.UserLogin;
+import org.ambraproject.models.UserSearch;
+import org.ambraproject.service.hibernate.AsyncEntityWriter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+/**
+ * Writes the usage logging records ({@link UserLogin}, {@link ArticleView} and {@link UserSearch}) in the background,
+ * with one JDBC batch per type.  The statements match the hibernate mappings of the entities.
+ */
+public class UsageLogWriter extends AsyncEntityWriter {
+
+  public UsageLogWriter() {
+    addBatchInsert(UserLogin.class, new BatchInsert<UserLogin>() {
+      @Override
+      public String getSql() {
+        return "insert into userLogin (created, userProfileID, sessionID, IP, userAgent) values (?, ?, ?, ?, ?)";
+      }
+
+      @Override
+      public void bind(PreparedStatement statement, UserLogin login) throws SQLException {
+        statement.setTimestamp(1, toTimestamp(login.getCreated()));
+        setLong(statement, 2, login.getUserProfileID());
+        statement.setString(3, login.getSessionId());
+        statement.setString(4, login.getIP());
+        statement.setString(5, login.getUserAgent());
+      }
+    });
+
+    addBatchInsert(ArticleView.class, new BatchInsert<ArticleView>() {
+      @Override
+      public String getSql() {
+        return "insert into userArticleView (created, articleID, userProfileID, type) values (?, ?, ?, ?)";
+      }
+
+      @Override
+      public void bind(PreparedStatement statement, ArticleView view) throws SQLException {
+        statement.setTimestamp(1, toTimestamp(view.getCreated()));
+        setLong(statement, 2, view.getArticleID());
+        setLong(statement, 3, view.getUserID());
+        statement.setString(4, view.getType() == null ? null : view.getType().name());
+      }
+    });
+
+    addBatchInsert(UserSearch.class, new BatchInsert<UserSearch>() {
+      @Override
+      public String getSql() {
+        return "insert into userSearch (created, userProfileID, searchString, searchTerms) values (?, ?, ?, ?)";
+      }
+
+      @Override
+      public void bind(PreparedStatement statement, UserSearch search) throws SQLException {
+        statement.setTimestamp(1, toTimestamp(search.getCreated()));
+        setLong(statement, 2, search.getUserProfileID());
+        statement.setString(3, search.getSearchParams());
+        statement.setString(4, search.getSearchTerms());
+      }
+    });
+  }
+
+  private static Timestamp toTimestamp(Date date) {
+    return new Timestamp(date == null ? System.currentTimeMillis() : date.getTime());
+  }
+
+  private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+    if (value == null) {
+      statement.setNull(index, Types.BIGINT);
+    } else {
+      statement.setLong(index, value);
+    }
+  }
+}
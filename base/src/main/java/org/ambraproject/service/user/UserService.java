@@ -216,7 +216,8 @@ public interface UserService {
    * @param userId the id of the user
    * @param articleId the id of the article
    * @param type the type of view (e.g. Article view, XML download, etc.)
-   * @return the id of the article view that was stored
+   * @return the id of the article view that was stored, or 0 if it was queued to be stored in the background or usage
+   *         logging is off
    */
   public Long recordArticleView(Long userId, Long articleId, ArticleView.Type type);
 
@@ -225,7 +226,8 @@ public interface UserService {
    * @param userProfileID the id of the user
    * @param searchTerms the search terms entered
    * @param searchParams all other parameters serialized
-   * @return the id of the log entry created
+   * @return the id of the log entry created, or 0 if it was queued to be stored in the background or usage logging is
+   *         off
    */
   public Long recordUserSearch(Long userProfileID, String searchTerms, String searchParams);
 
@@ -28,6 +28,7 @@ import org.ambraproject.models.UserLogin;
 import org.ambraproject.models.UserOrcid;
 import org.ambraproject.models.UserProfile;
 import org.ambraproject.models.UserSearch;
+import org.ambraproject.service.hibernate.AsyncEntityWriter;
 import org.ambraproject.service.hibernate.HibernateServiceImpl;
 import org.ambraproject.service.permission.PermissionsService;
 import org.ambraproject.service.search.SearchParameters;
@@ -78,6 +79,7 @@ public class UserServiceImpl extends HibernateServiceImpl implements UserService
   private static final String SUBJECT_FILTER = "ambra.userAlerts.subjectFilter";
 
   private PermissionsService permissionsService;
+  private AsyncEntityWriter usageLogWriter;
   private Configuration configuration;
   private boolean advancedLogging = false;
 
@@ -88,7 +90,11 @@ public class UserServiceImpl extends HibernateServiceImpl implements UserService
     UserProfile user = getUserByAuthId(authId);
     if (user != null && this.advancedLogging) {
       loginInfo.setUserProfileID(user.getID());
-      hibernateTemplate.save(loginInfo);
+      if (usageLogWriter != null) {
+        usageLogWriter.write(loginInfo);
+      } else {
+        hibernateTemplate.save(loginInfo);
+      }
     }
     return user;
   }
@@ -600,21 +606,31 @@ public class UserServiceImpl extends HibernateServiceImpl implements UserService
   @Override
   @Transactional
   public Long recordArticleView(Long userId, Long articleId, ArticleView.Type type) {
-    if (this.advancedLogging) {
-      return (Long) hibernateTemplate.save(new ArticleView(userId, articleId, type));
-    } else {
+    if (!this.advancedLogging) {
+      return 0L;
+    }
+
+    ArticleView view = new ArticleView(userId, articleId, type);
+    if (usageLogWriter != null) {
+      usageLogWriter.write(view);
       return 0L;
     }
+    return (Long) hibernateTemplate.save(view);
   }
 
   @Override
   @Transactional
   public Long recordUserSearch(Long userProfileID, String searchTerms, String searchParams) {
-    if (this.advancedLogging) {
-      return (Long) hibernateTemplate.save(new UserSearch(userProfileID, searchTerms, searchParams));
-    } else {
+    if (!this.advancedLogging) {
       return 0L;
     }
+
+    UserSearch search = new UserSearch(userProfileID, searchTerms, searchParams);
+    if (usageLogWriter != null) {
+      usageLogWriter.write(search);
+      return 0L;
+    }
+    return (Long) hibernateTemplate.save(search);
   }
 
   /**
@@ -694,6 +710,16 @@ public class UserServiceImpl extends HibernateServiceImpl implements UserService
     this.permissionsService = permissionsService;
   }
 
+  /**
+   * Setter for property 'usageLogWriter'.  When set, usage records are saved in the background instead of in the
+   * request's transaction.
+   *
+   * @param usageLogWriter Value to set for property 'usageLogWriter'.
+   */
+  public void setUsageLogWriter(AsyncEntityWriter usageLogWriter) {
+    this.usageLogWriter = usageLogWriter;
+  }
+
   @Required
   public void setConfiguration(Configuration configuration) {
     this.configuration = configuration;
@@ -40,7 +40,6 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.util.Map;
 
 /**
@@ -65,15 +64,22 @@ public class XMLServiceImpl implements XMLService {
    */
   private static final String NLM_DTD_URL = "http://dtd.nlm.nih.gov/publishing/3.0/journalpublishing3.dtd";
 
+  /**
+   * Registry key of the default template.  Documents without a DTD version, or with a version that has no template
+   * of its own, are transformed with it.
+   */
+  private static final String DEFAULT_TEMPLATE_KEY = "";
+
   private String xslDefaultTemplate;
   private Map<String, String> xslTemplateMap;
   private DocumentBuilderFactory factory;
   private String articleRep;
   private Map<String, String> xmlFactoryProperty;
   private boolean validateArticleXml = true;
+  private long xslReloadCheckInterval = 0;
 
   // designed for Singleton use, set in init(), then Templates are threadsafe for reuse
-  private Templates translet;             // initialized from xslTemplate, per bean property
+  private XslTemplatesRegistry templatesRegistry;
 
   /**
    * Initialization method called by Spring.
@@ -89,16 +95,21 @@ public class XMLServiceImpl implements XMLService {
     factory.setNamespaceAware(true);
     factory.setValidating(false);
 
-    // set the Templates
-    final TransformerFactory tFactory = TransformerFactory.newInstance();
-
     //Because we have XSL sheets with import statements.  I override the URI resolver
     //here so the factory knows to look inside the jar files for these files
-    tFactory.setURIResolver(new XMLServiceURIResolver());
+    templatesRegistry = new XslTemplatesRegistry(new XMLServiceURIResolver(), xslReloadCheckInterval);
 
+    // compile all the Templates up front, they are shared by every transform
     try {
       log.debug("Loading XSL: {}", xslDefaultTemplate);
-      translet = tFactory.newTemplates(getResourceAsStreamSource(xslDefaultTemplate));
+      templatesRegistry.register(DEFAULT_TEMPLATE_KEY, xslDefaultTemplate);
+
+      for (Map.Entry<String, String> entry : xslTemplateMap.entrySet()) {
+        if (!DEFAULT_TEMPLATE_KEY.equals(entry.getKey())) {
+          log.debug("Loading XSL for DTD version {}: {}", entry.getKey(), entry.getValue());
+          templatesRegistry.register(entry.getKey(), entry.getValue());
+        }
+      }
     } catch (TransformerConfigurationException ex) {
       throw new ApplicationException(ex.getMessage(), ex);
     } catch (IOException ex) {
@@ -144,11 +155,9 @@ public class XMLServiceImpl implements XMLService {
       if (log.isDebugEnabled())
         log.debug("Applying XSLT transform to the document...");
 
-      final DOMSource domSource = new DOMSource(doc);
-      final Transformer transformer = getTranslet(doc);
       final Writer writer = new StringWriter(1000);
 
-      transformer.transform(domSource, new StreamResult(writer));
+      transform(doc, new StreamResult(writer));
       transformedString = writer.toString();
     } catch (Exception e) {
       throw new ApplicationException(e);
@@ -161,11 +170,9 @@ public class XMLServiceImpl implements XMLService {
     try {
 
       Document doc = createDocBuilder().parse(new ByteArrayInputStream(xml));
-      Transformer transformer = this.getTranslet(doc);
-      DOMSource domSource = new DOMSource(doc);
 
       ByteArrayOutputStream bs = new ByteArrayOutputStream();
-      transformer.transform(domSource, new StreamResult(bs));
+      transform(doc, new StreamResult(bs));
       return bs.toByteArray();
     } catch (Exception e) {
       throw new ApplicationException(e);
@@ -178,9 +185,7 @@ public class XMLServiceImpl implements XMLService {
       final Writer writer = new StringWriter(1000);
 
       Document doc = createDocBuilder().parse(xml);
-      Transformer transformer = this.getTranslet(doc);
-      DOMSource domSource = new DOMSource(doc);
-      transformer.transform(domSource, new StreamResult(writer));
+      transform(doc, new StreamResult(writer));
       return new ByteArrayInputStream(writer.toString().getBytes("UTF-8"));
     } catch (Exception e) {
       throw new ApplicationException(e);
@@ -201,11 +206,9 @@ public class XMLServiceImpl implements XMLService {
     try {
       final DocumentBuilder builder = createDocBuilder();
       Document desc = builder.parse(new InputSource(new StringReader("<desc>" + description + "</desc>")));
-      final DOMSource domSource = new DOMSource(desc);
-      final Transformer transformer = getTranslet(desc);
       final Writer writer = new StringWriter();
 
-      transformer.transform(domSource,new StreamResult(writer));
+      transform(desc, new StreamResult(writer));
       transformedString = writer.toString();
     } catch (Exception e) {
       throw new ApplicationException(e);
@@ -233,40 +236,47 @@ public class XMLServiceImpl implements XMLService {
   }
 
   /**
-   * Get a translet, compiled stylesheet, for the xslTemplate. If the doc is null
+   * Transform the document with the compiled stylesheet for its DTD version, and record how long it took
+   *
+   * @param doc    the document to transform
+   * @param result where to write the transformed document
+   * @throws javax.xml.transform.TransformerException TransformerException.
+   */
+  private void transform(Document doc, Result result) throws TransformerException {
+    String key = getTemplateKey(doc);
+    Transformer transformer = templatesRegistry.getTemplates(key).newTransformer();
+    transformer.setParameter("pubAppContext", configuration.getString("ambra.platform.appContext", ""));
+
+    long start = System.nanoTime();
+    transformer.transform(new DOMSource(doc), result);
+    templatesRegistry.recordTransform(key, System.nanoTime() - start);
+  }
+
+  /**
+   * Get the registry key of the compiled stylesheet for the document. If the doc is null
    * use the default template. If the doc is not null then get the DTD version.
    * IF the DTD version does not exist use the default template else use the
    * template associated with that version.
    *
    * @param  doc  the dtd version of document
-   * @return Translet for the xslTemplate.
-   * @throws javax.xml.transform.TransformerException TransformerException.
+   * @return the key of the template to use
    */
-  private Transformer getTranslet(Document doc) throws TransformerException, URISyntaxException, IOException {
-    Transformer transformer;
+  private String getTemplateKey(Document doc) {
     // key is "" if the Attribute does not exist
     String key = (doc == null) ? "default" : doc.getDocumentElement().getAttribute("dtd-version").trim();
 
     if ((!xslTemplateMap.containsKey(key)) || (key.equalsIgnoreCase(""))) {
-      transformer = this.translet.newTransformer();
-    } else {
-      Templates translet;
-      String templateName = xslTemplateMap.get(key);
-
-      // set the Templates
-      final TransformerFactory tFactory = TransformerFactory.newInstance();
-      //Because we have XSL sheets with import statements.  I override the URI resolver
-      //here so the factory knows to look inside the jar files for these files
-      tFactory.setURIResolver(new XMLServiceURIResolver());
-
-      //TODO: (performace) We should cache the translets when this class is initialized.  We don't need
-      //to parse the XSLs for every transform.
-
-      translet = tFactory.newTemplates(getResourceAsStreamSource(templateName));
-      transformer = translet.newTransformer();
+      return DEFAULT_TEMPLATE_KEY;
     }
-    transformer.setParameter("pubAppContext", configuration.getString("ambra.platform.appContext", ""));
-    return transformer;
+    return key;
+  }
+
+  /**
+   * @return compile time and transform latency for each DTD version, keyed by version.  The default template is
+   *         under the empty string.
+   */
+  public Map<String, XslTemplatesRegistry.Statistics> getTransformStatistics() {
+    return templatesRegistry.getStatistics();
   }
 
   /**
@@ -330,6 +340,14 @@ public class XMLServiceImpl implements XMLService {
     this.validateArticleXml = validateArticleXml;
   }
 
+  /**
+   * @param xslReloadCheckInterval minimum number of milliseconds between checks for changes to the XSL files.  Changed
+   *     files are recompiled.  Zero (the default) disables reloading.
+   */
+  public void setXslReloadCheckInterval(long xslReloadCheckInterval) {
+    this.xslReloadCheckInterval = xslReloadCheckInterval;
+  }
+
   /**
    * @return Returns the articleRep.
    */
@@ -337,31 +355,6 @@ public class XMLServiceImpl implements XMLService {
     return articleRep;
   }
 
-  private StreamSource getResourceAsStreamSource(String filename) throws IOException {
-    log.debug("Loading: {}", filename);
-
-    URL loc = getClass().getClassLoader().getResource(filename);
-
-    //If Loading resource fails, try getting the physical file
-    if(loc == null) {
-      File xsl = new File(filename);
-
-      log.debug("Found File: {}", xsl.getPath());
-
-      return new StreamSource(xsl);
-    } else {
-      InputStream is = getClass().getClassLoader().getResourceAsStream(filename);
-      StreamSource source = new StreamSource(is);
-
-      log.debug("Found Resource: {}", loc.getFile());
-
-      //Note: http://stackoverflow.com/questions/7236291/saxon-error-with-xslt-import-statement
-      source.setSystemId(loc.getFile());
-
-      return source;
-    }
-  }
-
   class XMLServiceURIResolver implements URIResolver {
     @Override
     public Source resolve(String href, String base) throws TransformerException {
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.xml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of compiled XSL stylesheets, keyed by DTD version.
+ * <p/>
+ * Every stylesheet is compiled once when it is registered and the resulting {@link Templates} are shared between
+ * threads (Templates are thread safe, the Transformers created from them are not).  Versions that point to the same
+ * stylesheet share one compiled instance.
+ * <p/>
+ * If a reload check interval is set, the registry will look at the last modified time of the stylesheet at most once
+ * per interval and recompile it when it has changed.  If recompilation fails the previously compiled stylesheet stays
+ * in use.
+ */
+public class XslTemplatesRegistry {
+  private static final Logger log = LoggerFactory.getLogger(XslTemplatesRegistry.class);
+
+  private final URIResolver uriResolver;
+  private final long reloadCheckInterval;
+
+  //DTD version -> stylesheet file name
+  private final ConcurrentMap<String, String> fileNames = new ConcurrentHashMap<String, String>();
+  //stylesheet file name -> compiled stylesheet
+  private final ConcurrentMap<String, CompiledStylesheet> stylesheets = new ConcurrentHashMap<String, CompiledStylesheet>();
+  //DTD version -> transform statistics
+  private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+  /**
+   * @param uriResolver         resolver used for xsl:import and xsl:include statements
+   * @param reloadCheckInterval minimum number of milliseconds between checks of a stylesheet's last modified time.  A
+   *                            value less than or equal to zero disables reloading.
+   */
+  public XslTemplatesRegistry(URIResolver uriResolver, long reloadCheckInterval) {
+    this.uriResolver = uriResolver;
+    this.reloadCheckInterval = reloadCheckInterval;
+  }
+
+  /**
+   * Compile the given stylesheet (unless it was already compiled for another version) and register it for the given
+   * key
+   *
+   * @param key      the DTD version
+   * @param fileName the stylesheet, either a classpath resource or a file
+   * @throws TransformerConfigurationException if the stylesheet does not compile
+   * @throws IOException                       if the stylesheet can not be read
+   */
+  public void register(String key, String fileName) throws TransformerConfigurationException, IOException {
+    if (!stylesheets.containsKey(fileName)) {
+      stylesheets.put(fileName, compile(fileName));
+    }
+    fileNames.put(key, fileName);
+    if (!statistics.containsKey(key)) {
+      statistics.put(key, new Statistics(fileName));
+    }
+  }
+
+  /**
+   * @param key the DTD version
+   * @return true if a stylesheet is registered for the given version
+   */
+  public boolean contains(String key) {
+    return fileNames.containsKey(key);
+  }
+
+  /**
+   * Get the compiled stylesheet for the given key, reloading it first if it has changed on disk
+   *
+   * @param key the DTD version
+   * @return the compiled stylesheet, or null if no stylesheet is registered for the key
+   */
+  public Templates getTemplates(String key) {
+    String fileName = fileNames.get(key);
+    if (fileName == null) {
+      return null;
+    }
+
+    CompiledStylesheet stylesheet = stylesheets.get(fileName);
+    if (reloadCheckInterval > 0 && stylesheet.shouldCheck(reloadCheckInterval)) {
+      stylesheet = reloadIfModified(fileName, stylesheet);
+    }
+
+    return stylesheet.templates;
+  }
+
+  /**
+   * Record the time taken by a transform using the stylesheet registered for the given key
+   *
+   * @param key          the DTD version
+   * @param elapsedNanos the time taken by the transform
+   */
+  public void recordTransform(String key, long elapsedNanos) {
+    Statistics stats = statistics.get(key);
+    if (stats != null) {
+      stats.record(elapsedNanos);
+    }
+  }
+
+  /**
+   * @return transform statistics for each registered version, keyed by version
+   */
+  public Map<String, Statistics> getStatistics() {
+    for (Statistics stats : statistics.values()) {
+      CompiledStylesheet stylesheet = stylesheets.get(stats.fileName);
+      if (stylesheet != null) {
+        stats.compileTimeMillis = stylesheet.compileTimeMillis;
+      }
+    }
+    return Collections.unmodifiableMap(new TreeMap<String, Statistics>(statistics));
+  }
+
+  private CompiledStylesheet reloadIfModified(String fileName, CompiledStylesheet current) {
+    long lastModified = getLastModified(fileName);
+
+    if (lastModified <= 0 || lastModified == current.lastModified) {
+      return current;
+    }
+
+    log.info("Stylesheet {} has changed, recompiling", fileName);
+    try {
+      CompiledStylesheet reloaded = compile(fileName);
+      stylesheets.replace(fileName, current, reloaded);
+      return reloaded;
+    } catch (Exception e) {
+      log.error("Unable to recompile stylesheet " + fileName + ", continuing to use the previous version", e);
+      return current;
+    }
+  }
+
+  private CompiledStylesheet compile(String fileName) throws TransformerConfigurationException, IOException {
+    long lastModified = getLastModified(fileName);
+    long start = System.currentTimeMillis();
+
+    //TransformerFactory is not thread safe, and we only compile rarely, so use a fresh one every time
+    final TransformerFactory tFactory = TransformerFactory.newInstance();
+    if (uriResolver != null) {
+      tFactory.setURIResolver(uriResolver);
+    }
+
+    StreamSource source = getResourceAsStreamSource(fileName);
+    Templates templates;
+    try {
+      templates = tFactory.newTemplates(source);
+    } finally {
+      if (source.getInputStream() != null) {
+        source.getInputStream().close();
+      }
+    }
+
+    long compileTime = System.currentTimeMillis() - start;
+    log.info("Compiled stylesheet {} in {} ms", fileName, compileTime);
+
+    return new CompiledStylesheet(templates, lastModified, compileTime);
+  }
+
+  private long getLastModified(String fileName) {
+    URL loc = getClass().getClassLoader().getResource(fileName);
+
+    if (loc == null) {
+      return new File(fileName).lastModified();
+    }
+
+    try {
+      URLConnection connection = loc.openConnection();
+      connection.setUseCaches(false);
+      long lastModified = connection.getLastModified();
+      //Opening the connection may have opened a stream we don't need
+      connection.getInputStream().close();
+      return lastModified;
+    } catch (IOException e) {
+      log.warn("Unable to determine last modified time of " + fileName, e);
+      return 0;
+    }
+  }
+
+  private StreamSource getResourceAsStreamSource(String filename) throws IOException {
+    log.debug("Loading: {}", filename);
+
+    URL loc = getClass().getClassLoader().getResource(filename);
+
+    //If Loading resource fails, try getting the physical file
+    if (loc == null) {
+      File xsl = new File(filename);
+
+      log.debug("Found File: {}", xsl.getPath());
+
+      return new StreamSource(xsl);
+    } else {
+      URLConnection connection = loc.openConnection();
+      connection.setUseCaches(false);
+      InputStream is = connection.getInputStream();
+      StreamSource source = new StreamSource(is);
+
+      log.debug("Found Resource: {}", loc.getFile());
+
+      //Note: http://stackoverflow.com/questions/7236291/saxon-error-with-xslt-import-statement
+      source.setSystemId(loc.getFile());
+
+      return source;
+    }
+  }
+
+  private static class CompiledStylesheet {
+    private final Templates templates;
+    private final long lastModified;
+    private final long compileTimeMillis;
+    private final AtomicLong lastChecked;
+
+    private CompiledStylesheet(Templates templates, long lastModified, long compileTimeMillis) {
+      this.templates = templates;
+      this.lastModified = lastModified;
+      this.compileTimeMillis = compileTimeMillis;
+      this.lastChecked = new AtomicLong(System.currentTimeMillis());
+    }
+
+    /**
+     * @return true if the caller should check the stylesheet for modifications.  Only one caller per interval gets
+     *         true.
+     */
+    private boolean shouldCheck(long interval) {
+      long checked = lastChecked.get();
+      long now = System.currentTimeMillis();
+      return now - checked >= interval && lastChecked.compareAndSet(checked, now);
+    }
+  }
+
+  /**
+   * Compile time and transform latency of the stylesheet registered for one DTD version
+   */
+  public static class Statistics {
+    private final String fileName;
+    private final AtomicLong transformCount = new AtomicLong();
+    private final AtomicLong totalTransformNanos = new AtomicLong();
+    private final AtomicLong maxTransformNanos = new AtomicLong();
+    private volatile long compileTimeMillis;
+
+    private Statistics(String fileName) {
+      this.fileName = fileName;
+    }
+
+    private void record(long elapsedNanos) {
+      transformCount.incrementAndGet();
+      totalTransformNanos.addAndGet(elapsedNanos);
+
+      long max = maxTransformNanos.get();
+      while (elapsedNanos > max && !maxTransformNanos.compareAndSet(max, elapsedNanos)) {
+        max = maxTransformNanos.get();
+      }
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public long getCompileTimeMillis() {
+      return compileTimeMillis;
+    }
+
+    public long getTransformCount() {
+      return transformCount.get();
+    }
+
+    public double getAverageTransformMillis() {
+      long count = transformCount.get();
+      return count == 0 ? 0 : totalTransformNanos.get() / (count * 1000000.0);
+    }
+
+    public double getMaxTransformMillis() {
+      return maxTransformNanos.get() / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+      return "Statistics{" +
+          "fileName='" + fileName + '\'' +
+          ", compileTimeMillis=" + compileTimeMillis +
+          ", transformCount=" + getTransformCount() +
+          ", averageTransformMillis=" + getAverageTransformMillis() +
+          ", maxTransformMillis=" + getMaxTransformMillis() +
+          '}';
+    }
+  }
+}
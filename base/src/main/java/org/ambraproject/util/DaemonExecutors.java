@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the background thread pools of the services.  Their threads are daemons, so they never hold up a shutdown,
+ * and are named after the pool so they can be told apart in thread dumps.
+ */
+public class DaemonExecutors {
+
+  private DaemonExecutors() {
+  }
+
+  /**
+   * Create a factory of daemon threads named <code>namePrefix-1</code>, <code>namePrefix-2</code>, ...
+   *
+   * @param namePrefix the name of the pool
+   * @return the thread factory
+   */
+  public static ThreadFactory threadFactory(final String namePrefix) {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    return new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, namePrefix + "-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+
+  /**
+   * Create a pool of a fixed number of daemon threads with a bounded queue.  Idle threads go away after a minute, so
+   * a pool that's rarely used doesn't keep its threads.
+   *
+   * @param namePrefix the name of the pool
+   * @param threads    the number of threads
+   * @param queueSize  the number of tasks that can wait for a thread
+   * @param handler    what to do with a task when the queue is full
+   * @return the pool
+   */
+  public static ThreadPoolExecutor newBoundedPool(String namePrefix, int threads, int queueSize,
+      RejectedExecutionHandler handler) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(queueSize), threadFactory(namePrefix), handler);
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+}
@@ -43,10 +43,21 @@ import java.util.Map;
 public class XPathUtil implements XPathExtractor {
 
   /**
-   * The XPath instance used to create expressions
+   * Maximum number of compiled expressions kept per thread.  Callers mostly use a fixed set of expressions, so this is
+   * only a guard against expressions built out of data.
    */
-  private XPath xPath = XPathFactory.newInstance().newXPath();
+  private static final int MAX_STORED_EXPRESSIONS = 500;
 
+  /**
+   * The namespace context given to {@link #setNamespaceContext(String[])}, if any
+   */
+  private volatile NamespaceContext namespaceContext;
+
+  /**
+   * Compiled XPath expressions, stored for performance.  Neither XPath nor XPathExpression objects are thread safe, so
+   * each thread compiles and keeps its own.
+   */
+  private final ThreadLocal<StoredExpressions> storedExpressions = new ThreadLocal<StoredExpressions>();
 
   /**
    * Set the namespace context to be used by this instance of Xpath.  This enables the selection of namespaced
@@ -63,7 +74,7 @@ public class XPathUtil implements XPathExtractor {
    *                   you would pass in an array like <pre>{"xsi=http://www.w3.org/2001/XMLSchema-instance","web:http=//java.sun.com/xml/ns/javaee/web-app_2_5.xsd"}</pre>
    */
   public void setNamespaceContext(final String[] pairs) {
-    xPath.setNamespaceContext(new NamespaceContext() {
+    namespaceContext = new NamespaceContext() {
       @Override
       public String getNamespaceURI(String prefix) {
         for (String namespace : pairs) {
@@ -88,21 +99,46 @@ public class XPathUtil implements XPathExtractor {
       public Iterator getPrefixes(String namespaceURI) {
         return null;
       }
-    });
+    };
+  }
+
+  private XPathExpression getXPathExpression(String xpath) throws XPathExpressionException {
+    StoredExpressions expressions = storedExpressions.get();
+    NamespaceContext context = namespaceContext;
+
+    //expressions compiled before the namespace context was changed can't be used any more
+    if (expressions == null || expressions.namespaceContext != context) {
+      expressions = new StoredExpressions(context);
+      storedExpressions.set(expressions);
+    }
+
+    return expressions.get(xpath);
   }
 
   /**
-   * Stores compiled XPath expressions for performance.  To ensure thread safety, this is only accessed from {@link
-   * XPathUtil#getXPathExpression(String)}
+   * The XPath instance and compiled expressions of a single thread
    */
-  private Map<String, XPathExpression> storedExpressions = new HashMap<String, XPathExpression>();
-
-  private synchronized XPathExpression getXPathExpression(String xpath) throws XPathExpressionException {
-    if (storedExpressions.containsKey(xpath)) {
-      return storedExpressions.get(xpath);
-    } else {
-      XPathExpression expression = xPath.compile(xpath);
-      storedExpressions.put(xpath, expression);
+  private static class StoredExpressions {
+    private final NamespaceContext namespaceContext;
+    private final XPath xPath = XPathFactory.newInstance().newXPath();
+    private final Map<String, XPathExpression> expressions = new HashMap<String, XPathExpression>();
+
+    private StoredExpressions(NamespaceContext namespaceContext) {
+      this.namespaceContext = namespaceContext;
+      if (namespaceContext != null) {
+        xPath.setNamespaceContext(namespaceContext);
+      }
+    }
+
+    private XPathExpression get(String xpath) throws XPathExpressionException {
+      XPathExpression expression = expressions.get(xpath);
+      if (expression == null) {
+        if (expressions.size() >= MAX_STORED_EXPRESSIONS) {
+          expressions.clear();
+        }
+        expression = xPath.compile(xpath);
+        expressions.put(xpath, expression);
+      }
       return expression;
     }
   }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.views;
+
+import org.ambraproject.models.UserProfile;
+import org.ambraproject.models.UserRole;
+import org.ambraproject.models.UserRole.Permission;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * What we need to know about an authenticated user on every request: the roles and permissions of the user.
+ * <p/>
+ * Instances are immutable, so they can be cached per auth id and shared between requests.
+ */
+public class AuthPrincipal implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final String authId;
+  private final Set<String> roles;
+  private final Set<Permission> permissions;
+
+  public AuthPrincipal(String authId, Set<UserRole> userRoles) {
+    Set<String> roleNames = new HashSet<String>();
+    Set<Permission> perms = EnumSet.noneOf(Permission.class);
+
+    if (userRoles != null) {
+      for (UserRole role : userRoles) {
+        roleNames.add(role.getRoleName());
+        if (role.getPermissions() != null) {
+          perms.addAll(role.getPermissions());
+        }
+      }
+    }
+
+    this.authId = authId;
+    this.roles = Collections.unmodifiableSet(roleNames);
+    this.permissions = Collections.unmodifiableSet(perms);
+  }
+
+  public AuthPrincipal(UserProfile userProfile) {
+    this(userProfile.getAuthId(), userProfile.getRoles());
+  }
+
+  public String getAuthId() {
+    return authId;
+  }
+
+  /**
+   * @return the names of the user's roles
+   */
+  public Set<String> getRoles() {
+    return roles;
+  }
+
+  /**
+   * @return the permissions granted by all of the user's roles
+   */
+  public Set<Permission> getPermissions() {
+    return permissions;
+  }
+
+  public boolean hasPermission(Permission permission) {
+    return permissions.contains(permission);
+  }
+
+  @Override
+  public String toString() {
+    return "AuthPrincipal{" +
+        "authId='" + authId + '\'' +
+        ", roles=" + roles +
+        '}';
+  }
+}
@@ -36,6 +36,7 @@ public class BrowseResult implements Serializable {
   private long total;
   private ArrayList<SearchHit> articles;
   private Map<String, Long>subjectFacet;
+  private String nextCursor;
 
   public ArrayList<SearchHit> getArticles() {
     return articles;
@@ -61,4 +62,15 @@ public class BrowseResult implements Serializable {
   public void setTotal(long total) {
     this.total = total;
   }
+
+  /**
+   * @return the cursor token for reading the next page, or null if there is none
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
 }
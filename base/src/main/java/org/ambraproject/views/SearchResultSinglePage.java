@@ -51,6 +51,7 @@ public class SearchResultSinglePage implements Serializable {
   private List<Map> authorFacet;
   private List<Map> editorFacet;
   private List<Map> institutionFacet;
+  private String nextCursor;
 
   public SearchResultSinglePage(final int totalResults, final int pageSize,
                           final List<SearchHit> hits, String queryAsExecuted) {
@@ -149,6 +150,19 @@ public class SearchResultSinglePage implements Serializable {
     return pageSize;
   }
 
+  /**
+   * The cursor token for reading the next page, see {@link org.ambraproject.service.search.SolrCursor}
+   *
+   * @return the token, or null if the next page has to be read by offset
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
   /**
    * Getter for property 'totalNoOfResults'.
    * @return Value for property 'totalNoOfResults'.
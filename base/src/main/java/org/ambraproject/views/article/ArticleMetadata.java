@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.views.article;
+
+import org.ambraproject.views.AuthorView;
+import org.ambraproject.views.CitationReference;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metadata extracted from the xml of one version of an article: the authors and their affiliations, author notes,
+ * references and journal abbreviation shown on the article tabs.
+ * <p/>
+ * Instances are built once per article version and shared between requests, so they are immutable.
+ */
+public class ArticleMetadata {
+
+  private final List<AuthorView> authors;
+  private final Map<String, List<AuthorView>> authorsByAffiliation;
+  private final List<String> correspondingAuthors;
+  private final List<String> authorContributions;
+  private final List<String> competingInterests;
+  private final List<CitationReference> references;
+  private final String journalAbbreviation;
+
+  private ArticleMetadata(List<AuthorView> authors,
+                          Map<String, List<AuthorView>> authorsByAffiliation,
+                          List<String> correspondingAuthors,
+                          List<String> authorContributions,
+                          List<String> competingInterests,
+                          List<CitationReference> references,
+                          String journalAbbreviation) {
+    this.authors = unmodifiable(authors);
+    this.correspondingAuthors = unmodifiable(correspondingAuthors);
+    this.authorContributions = unmodifiable(authorContributions);
+    this.competingInterests = unmodifiable(competingInterests);
+    this.references = unmodifiable(references);
+    this.journalAbbreviation = (journalAbbreviation == null) ? "" : journalAbbreviation;
+
+    if (authorsByAffiliation == null) {
+      this.authorsByAffiliation = Collections.emptyMap();
+    } else {
+      Map<String, List<AuthorView>> copy = new LinkedHashMap<String, List<AuthorView>>(authorsByAffiliation.size());
+      for (Map.Entry<String, List<AuthorView>> entry : authorsByAffiliation.entrySet()) {
+        copy.put(entry.getKey(), unmodifiable(entry.getValue()));
+      }
+      this.authorsByAffiliation = Collections.unmodifiableMap(copy);
+    }
+  }
+
+  private static <T> List<T> unmodifiable(List<T> list) {
+    return (list == null) ? Collections.<T>emptyList() : Collections.unmodifiableList(list);
+  }
+
+  public List<AuthorView> getAuthors() {
+    return authors;
+  }
+
+  /**
+   * @return the authors grouped by affiliation, in the order of the affiliations in the xml
+   */
+  public Map<String, List<AuthorView>> getAuthorsByAffiliation() {
+    return authorsByAffiliation;
+  }
+
+  public List<String> getCorrespondingAuthors() {
+    return correspondingAuthors;
+  }
+
+  public List<String> getAuthorContributions() {
+    return authorContributions;
+  }
+
+  public List<String> getCompetingInterests() {
+    return competingInterests;
+  }
+
+  public List<CitationReference> getReferences() {
+    return references;
+  }
+
+  public String getJournalAbbreviation() {
+    return journalAbbreviation;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private Builder() {
+      super();
+    }
+
+    private List<AuthorView> authors;
+    private Map<String, List<AuthorView>> authorsByAffiliation;
+    private List<String> correspondingAuthors;
+    private List<String> authorContributions;
+    private List<String> competingInterests;
+    private List<CitationReference> references;
+    private String journalAbbreviation;
+
+    public Builder setAuthors(List<AuthorView> authors) {
+      this.authors = authors;
+      return this;
+    }
+
+    public Builder setAuthorsByAffiliation(Map<String, List<AuthorView>> authorsByAffiliation) {
+      this.authorsByAffiliation = authorsByAffiliation;
+      return this;
+    }
+
+    public Builder setCorrespondingAuthors(List<String> correspondingAuthors) {
+      this.correspondingAuthors = correspondingAuthors;
+      return this;
+    }
+
+    public Builder setAuthorContributions(List<String> authorContributions) {
+      this.authorContributions = authorContributions;
+      return this;
+    }
+
+    public Builder setCompetingInterests(List<String> competingInterests) {
+      this.competingInterests = competingInterests;
+      return this;
+    }
+
+    public Builder setReferences(List<CitationReference> references) {
+      this.references = references;
+      return this;
+    }
+
+    public Builder setJournalAbbreviation(String journalAbbreviation) {
+      this.journalAbbreviation = journalAbbreviation;
+      return this;
+    }
+
+    public ArticleMetadata build() {
+      return new ArticleMetadata(
+          authors,
+          authorsByAffiliation,
+          correspondingAuthors,
+          authorContributions,
+          competingInterests,
+          references,
+          journalAbbreviation);
+    }
+  }
+}
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
@@ -34,6 +35,9 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -76,6 +80,19 @@ public class HttpResourceServer {
    */
   private static final String MIME_SEPARATION = "AMBRA_MIME_BOUNDARY";
 
+  /**
+   * Request attributes used to hand files over to the container (see {@link #checkSendfile})
+   */
+  private static final String SENDFILE_SUPPORTED_ATTR  = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME_ATTR   = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_FILE_END_ATTR   = "org.apache.tomcat.sendfile.end";
+
+  /**
+   * Minimum number of bytes for which sendfile is used.
+   */
+  private static final long SENDFILE_SIZE = 49152;
+
   /**
    * Serve the specified resource, optionally including the data content.
    *
@@ -106,10 +123,17 @@ public class HttpResourceServer {
                      throws IOException {
 
     InputStream resourceInputStream = null;
+    FileChannel resourceChannel     = null;
+
+    // Files are only opened once we know what has to be sent, and with random access when it's
+    // being sent to the output stream.  Other resources may hand over a stream that is already
+    // open, so get it up front to be sure that it's closed whatever the outcome.
+    FileResource fileResource = (resource instanceof FileResource) ? (FileResource) resource : null;
 
     try {
 
-      resourceInputStream = resource.streamContent();
+      if (fileResource == null)
+        resourceInputStream = resource.streamContent();
 
       // Check if the conditions specified in the optional If headers are satisfied.
       if (!checkIfHeaders(request, response, resource))
@@ -145,6 +169,9 @@ public class HttpResourceServer {
             throw e;
           }
         }
+
+        if (fileResource != null && writer != null)
+          resourceInputStream = fileResource.streamContent();
       }
 
       if ((((ranges == null) || (ranges.isEmpty())) && (request.getHeader("Range") == null))
@@ -156,17 +183,30 @@ public class HttpResourceServer {
 
         // Copy the input stream to our output stream (if requested)
         if (content) {
-          if (ostream != null) {
+          if (fileResource != null && ostream != null) {
+            Range range  = new Range();
+            range.start  = 0;
+            range.end    = contentLength - 1;
+            range.length = contentLength;
+
+            if (!checkSendfile(request, response, fileResource, range)) {
+              resourceChannel = fileResource.openChannel();
+              IOException exception = copyRange(resourceChannel, ostream, range.start, range.end);
+
+              // As with streams, failures here are nearly always the client going away
+              if (exception != null)
+                log.warn("Failure while attempting to copy a File Channel to an Output Stream.",
+                         exception);
+            }
+          } else if (ostream != null) {
             copy(resource.getContent(), resourceInputStream, ostream);
           } else {
             copy(resourceInputStream, writer);
           }
         }
       } else {
-        if ((ranges == null) || (ranges.isEmpty()))// {
-          //resource.streamContent().close();
+        if ((ranges == null) || (ranges.isEmpty()))
           return;
-        //}
 
         if (log.isDebugEnabled())
           log.debug("Partial content response for " + resource);
@@ -183,7 +223,12 @@ public class HttpResourceServer {
           setOutputHeaders(response, contentType, length, content);
 
           if (content) {
-            if (ostream != null) {
+            if (fileResource != null && ostream != null) {
+              if (!checkSendfile(request, response, fileResource, range)) {
+                resourceChannel = fileResource.openChannel();
+                copy(resourceChannel, ostream, range);
+              }
+            } else if (ostream != null) {
               copy(resourceInputStream, ostream, range);
             } else {
               copy(resourceInputStream, writer, range);
@@ -199,7 +244,10 @@ public class HttpResourceServer {
               // Silent catch
             }
 
-            if (ostream != null) {
+            if (fileResource != null && ostream != null) {
+              resourceChannel = fileResource.openChannel();
+              copy(resourceChannel, ostream, ranges.iterator(), contentType);
+            } else if (ostream != null) {
               copy(resourceInputStream, ostream, ranges.iterator(), contentType);
             } else {
               copy(resourceInputStream, writer, ranges.iterator(), contentType);
@@ -211,9 +259,49 @@ public class HttpResourceServer {
     } finally {
       if (resourceInputStream != null)
         resourceInputStream.close();
+      if (resourceChannel != null)
+        resourceChannel.close();
     }
   }
 
+  /**
+   * Hand a file range over to the container to send, if it is able to send files without
+   * copying them through the JVM.  This is the sendfile support of Tomcat's NIO and APR
+   * connectors, which is advertised with a request attribute.  Small ranges are cheaper to
+   * write directly.
+   * <p/>
+   * The container sends the file straight to the socket, past any filter that wraps the
+   * response (e.g. to compress the output), so sendfile is only used when this is writing to
+   * the container's own, unencoded response.  Request wrappers don't matter, since the
+   * attributes are passed through to the container's request.
+   *
+   * @param request The servlet request we are processing
+   * @param response The servlet response we are creating
+   * @param resource The file being served
+   * @param range The part of the file to send
+   *
+   * @return true if the container will send the range, false if it has to be copied
+   */
+  protected boolean checkSendfile(HttpServletRequest request, HttpServletResponse response,
+                                  FileResource resource, Range range) {
+    if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))
+        || (range.end - range.start + 1) < SENDFILE_SIZE)
+      return false;
+
+    if ((response instanceof ServletResponseWrapper) || response.containsHeader("Content-Encoding"))
+      return false;
+
+    if (log.isDebugEnabled())
+      log.debug("Using sendfile for bytes " + range.start + "-" + range.end + " of " + resource);
+
+    request.setAttribute(SENDFILE_FILENAME_ATTR, resource.getFile().getAbsolutePath());
+    request.setAttribute(SENDFILE_FILE_START_ATTR, range.start);
+    // the end attribute is exclusive
+    request.setAttribute(SENDFILE_FILE_END_ATTR, range.end + 1);
+
+    return true;
+  }
+
   /**
    * Set the headers before streaming out content.
    *
@@ -459,13 +547,18 @@ public class HttpResourceServer {
   }
 
   /**
-   * Get the ETag associated with a file.
+   * Get the ETag associated with a file.  This is the resource's own ETag if it has one, and a
+   * weak ETag made of its length and modification time otherwise.
    *
    * @param resource The resource information
    *
    * @return the ETag
    */
   protected String getETag(Resource resource) {
+    String eTag = resource.getETag();
+    if (eTag != null)
+      return eTag;
+
     return "W/\"" + resource.getContentLength() + "-" + resource.getLastModified() + "\"";
   }
 
@@ -855,6 +948,67 @@ public class HttpResourceServer {
       throw exception;
   }
 
+  /**
+   * Copy a range of the specified file channel to the specified output stream.
+   *
+   * @param channel The channel of the file being served
+   * @param ostream The output stream to write to
+   * @param range Range the client wanted to retrieve
+   *
+   * @exception IOException if an input/output error occurs
+   */
+  protected void copy(FileChannel channel, ServletOutputStream ostream, Range range)
+               throws IOException {
+    IOException exception = copyRange(channel, ostream, range.start, range.end);
+
+    // Rethrow any exception that has occurred
+    if (exception != null)
+      throw exception;
+  }
+
+  /**
+   * Copy the specified ranges of the file channel to the specified output stream as a multipart
+   * response.  Each range is read from its own position in the file, whatever order the client
+   * asked for them in.
+   *
+   * @param channel The channel of the file being served
+   * @param ostream The output stream to write to
+   * @param ranges Enumeration of the ranges the client wanted to retrieve
+   * @param contentType Content type of the resource
+   *
+   * @exception IOException if an input/output error occurs
+   */
+  protected void copy(FileChannel channel, ServletOutputStream ostream, Iterator ranges,
+                      String contentType) throws IOException {
+    IOException exception = null;
+
+    while ((exception == null) && (ranges.hasNext())) {
+
+      Range       currentRange = (Range) ranges.next();
+
+      // Writing MIME header.
+      ostream.println();
+      ostream.println("--" + MIME_SEPARATION);
+
+      if (contentType != null)
+        ostream.println("Content-Type: " + contentType);
+
+      ostream.println("Content-Range: bytes " + currentRange.start + "-" + currentRange.end + "/"
+                      + currentRange.length);
+      ostream.println();
+
+      // Printing content
+      exception = copyRange(channel, ostream, currentRange.start, currentRange.end);
+    }
+
+    ostream.println();
+    ostream.print("--" + MIME_SEPARATION + "--");
+
+    // Rethrow any exception that has occurred
+    if (exception != null)
+      throw exception;
+  }
+
   /**
    * Copy the contents of the specified input stream to the specified output stream, and
    * ensure that both streams are closed before returning (even in the face of an exception).
@@ -975,6 +1129,47 @@ public class HttpResourceServer {
     return exception;
   }
 
+  /**
+   * Copy a range of the specified file channel to the specified output stream.  The channel is
+   * read from the start of the range without moving its position, so it can be shared by several
+   * ranges.  The servlet output stream isn't a channel, so the bytes are still copied through a
+   * buffer on their way out; only {@link #checkSendfile} avoids that copy.
+   *
+   * @param channel The channel to read from
+   * @param ostream The output stream to write to
+   * @param start Start of the range which will be copied
+   * @param end End of the range which will be copied
+   *
+   * @return Exception which occurred during processing
+   */
+  protected IOException copyRange(FileChannel channel, ServletOutputStream ostream, long start,
+                                  long end) {
+    if (log.isTraceEnabled())
+      log.trace("Serving bytes:" + start + "-" + end);
+
+    // not closed, since that would close the servlet output stream
+    WritableByteChannel target      = Channels.newChannel(ostream);
+    long                position    = start;
+    long                bytesToRead = end - start + 1;
+
+    try {
+      while (bytesToRead > 0) {
+        long len = channel.transferTo(position, bytesToRead, target);
+
+        // the file got shorter since we looked at it
+        if (len <= 0)
+          break;
+
+        position    += len;
+        bytesToRead -= len;
+      }
+    } catch (IOException e) {
+      return e;
+    }
+
+    return null;
+  }
+
   /**
    * Copy the contents of the specified input stream to the specified output stream, and
    * ensure that both streams are closed before returning (even in the face of an exception).
@@ -1084,6 +1279,16 @@ public class HttpResourceServer {
       return lastModifiedHttp;
     }
 
+    /**
+     * Get the ETag of this resource, for resources that can tell their content apart better than
+     * by length and modification time.
+     *
+     * @return a (quoted) ETag, or null to use the default weak one
+     */
+    public String getETag() {
+      return null;
+    }
+
     public String toString() {
       return "Resource[name=" + name +
              ", contentType=" + contentType +
@@ -1106,6 +1311,20 @@ public class HttpResourceServer {
       return new FileInputStream(file);
     }
 
+    /**
+     * Open the file for random access.  Closing the channel closes the file.
+     *
+     * @return a read only channel on the file
+     * @throws IOException if the file can't be opened
+     */
+    public FileChannel openChannel() throws IOException {
+      return new FileInputStream(file).getChannel();
+    }
+
+    public File getFile() {
+      return file;
+    }
+
     public byte[] getContent() {
       return null;
     }
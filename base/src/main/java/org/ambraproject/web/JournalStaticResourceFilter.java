@@ -41,6 +41,12 @@ import java.io.File;
  * override directory specified in ambra.virtualJournals.templateDir configuration parameter.</p>
  *
  * <p>It needs to be invoked after @see VirtualJournalMappingFilter and struts2 filter</p>
+ *
+ * <p>Small files are served from a {@link StaticResourceCache}, in gzip or deflate encoding if the client accepts it.
+ * Since it compresses the files itself, this filter has to come before any compressing filter (e.g. gzip) in the
+ * chain, or the files would be compressed twice.
+ * The cache can be tuned with the <code>cacheMaxSize</code> and <code>cacheMaxFileSize</code> init parameters (in
+ * bytes, a max size of 0 turns the cache off) and <code>cacheWatchInterval</code> (in seconds).</p>
  *  
  * @author Dragisa Krsmanovic
  */
@@ -48,14 +54,39 @@ public class JournalStaticResourceFilter implements Filter {
 
   private static final Logger log = LoggerFactory.getLogger(JournalStaticResourceFilter.class);
 
+  private static final long DEFAULT_CACHE_MAX_SIZE = 32 * 1024 * 1024;
+  private static final long DEFAULT_CACHE_MAX_FILE_SIZE = 1024 * 1024;
+  private static final long DEFAULT_CACHE_WATCH_INTERVAL = 10;
+
   private String templatePath = null;
   private HttpResourceServer server = null;
+  private StaticResourceCache resourceCache = null;
 
   public void init(FilterConfig filterConfig) throws ServletException {
     log.info("JournalStaticResourceFilter init");
     this.templatePath = ConfigurationStore.getInstance().getConfiguration()
         .getString(ConfigurationStore.JOURNAL_TEMPLATE_DIR, null);
     this.server = new HttpResourceServer();
+
+    long cacheMaxSize = getLongParameter(filterConfig, "cacheMaxSize", DEFAULT_CACHE_MAX_SIZE);
+    if (cacheMaxSize > 0) {
+      this.resourceCache = new StaticResourceCache(cacheMaxSize,
+          getLongParameter(filterConfig, "cacheMaxFileSize", DEFAULT_CACHE_MAX_FILE_SIZE),
+          getLongParameter(filterConfig, "cacheWatchInterval", DEFAULT_CACHE_WATCH_INTERVAL) * 1000);
+    }
+  }
+
+  private static long getLongParameter(FilterConfig filterConfig, String name, long defaultValue)
+      throws ServletException {
+    String value = filterConfig.getInitParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid value for " + name + ": " + value, e);
+    }
   }
 
   public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
@@ -66,8 +97,13 @@ public class JournalStaticResourceFilter implements Filter {
       HttpServletRequest request = (HttpServletRequest) servletRequest;
       String path = request.getPathInfo();
       if (path != null && path.startsWith(templatePath)) {
-        File file = new File(path);
-        if (file.isFile() && file.canRead()) {
+        StaticResourceCache.Entry entry = (resourceCache == null) ? null : resourceCache.get(path);
+        File file = (entry == null) ? new File(path) : null;
+
+        if (entry != null) {
+          serveCachedResource(request, (HttpServletResponse) servletResponse, entry);
+          callNext = false;
+        } else if (file.isFile() && file.canRead()) {
           server.serveResource(request, (HttpServletResponse)servletResponse,
               new HttpResourceServer.FileResource(file), null);
           callNext = false;
@@ -81,7 +117,29 @@ public class JournalStaticResourceFilter implements Filter {
       filterChain.doFilter(servletRequest, servletResponse);
   }
 
-  public void destroy() {
+  private void serveCachedResource(HttpServletRequest request, HttpServletResponse response,
+                                   StaticResourceCache.Entry entry) throws IOException {
+    String encoding = null;
+
+    if (entry.isCompressed()) {
+      response.setHeader("Vary", "Accept-Encoding");
+
+      // ranges are always served out of the file as it is
+      if (request.getHeader("Range") == null) {
+        encoding = entry.selectEncoding(request.getHeader("Accept-Encoding"));
+      }
+      if (encoding != null) {
+        response.setHeader("Content-Encoding", encoding);
+      }
+    }
+
+    server.serveResource(request, response, entry.getResource(encoding), null);
+  }
 
+  public void destroy() {
+    if (resourceCache != null) {
+      resourceCache.destroy();
+      resourceCache = null;
+    }
   }
 }
@@ -20,15 +20,18 @@
 package org.ambraproject.web;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.lang.management.ManagementFactory;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -46,20 +49,61 @@ import org.slf4j.LoggerFactory;
  * multiple times.  Incoming requests for the same URL within the same session are blocked until the
  * initial request completes.  Subsequent repeat requests will cause any blocked request to return
  * immediately, and will take it's place as the latest blocked request for that URL. Once the
- * original un-blocked request completes, it will remove the URL from the requestedURLSet and wake
- * any block thread on that URL. Once a block thread wakes to find the URL not in the set, it can
- * complete the request. If it wakes to find the URL still in the set, it assumes it was displaced
- * by another request and will return without performing work on the server. 
+ * original un-blocked request completes, it removes itself from the registry of requests in flight
+ * and wakes the blocked request, which then goes ahead. A blocked request that is displaced by a
+ * later one, or that waits longer than <code>maxWait</code> milliseconds, returns without
+ * performing work on the server.
+ * <p/>
+ * Requests without a session are never blocked, and no session is created for them.  At most
+ * <code>maxInFlight</code> requests are tracked at once; requests beyond that are let through.
+ * <p/>
+ * The counts of blocked and held back requests are exported over JMX as
+ * <code>org.ambraproject.web:name=MultipleRequestFilter</code>.
  * 
  * @author Alex Worden
  */
-public class MultipleRequestFilter implements Filter {
+public class MultipleRequestFilter implements Filter, MultipleRequestFilterMBean {
   private static final Logger log = LoggerFactory.getLogger(MultipleRequestFilter.class);
-  private static final String REQUEST_MAP = "REQUEST_MAP";
+  private static final String MBEAN_NAME = "org.ambraproject.web:name=MultipleRequestFilter";
+  private static final long DEFAULT_MAX_WAIT = 60000;
+  private static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+
   private List<Pattern> includePatterns;
+  private long maxWait = DEFAULT_MAX_WAIT;
+  private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+  /**
+   * Requests being processed, by session id and URL
+   */
+  private final ConcurrentMap<String, InFlightRequest> inFlight =
+      new ConcurrentHashMap<String, InFlightRequest>();
+
+  private final AtomicLong blockedRequests = new AtomicLong();
+  private final AtomicLong coalescedRequests = new AtomicLong();
+
+  /**
+   * The name this filter is exported under, or null if it isn't
+   */
+  private ObjectName mbeanName;
+
+  /**
+   * A request that is being processed, and the latest duplicate waiting for it to complete.  All
+   * fields are guarded by the object's monitor.
+   */
+  private static class InFlightRequest {
+    private boolean completed;
+    private Object waiter;
+  }
 
   public void destroy() {
-    // do nothing
+    if (mbeanName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+      } catch (Exception e) {
+        log.warn("Unable to unregister " + mbeanName, e);
+      }
+      mbeanName = null;
+    }
   }
 
   public void init(FilterConfig config) throws ServletException {
@@ -75,16 +119,38 @@ public class MultipleRequestFilter implements Filter {
         // compile the pattern only this once
         Pattern excludePattern = Pattern.compile(paramValue);
         includePatterns.add(excludePattern);
+      } else if (paramName.equals("maxWait")) {
+        maxWait = Long.parseLong(paramValue.trim());
+      } else if (paramName.equals("maxInFlight")) {
+        maxInFlight = Integer.parseInt(paramValue.trim());
       }
     }
+
+    registerMBean();
+  }
+
+  /**
+   * Export the counts over JMX, unless another instance of the filter already has
+   */
+  private void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (server.isRegistered(name)) {
+        log.debug(MBEAN_NAME + " is already registered");
+        return;
+      }
+      server.registerMBean(this, name);
+      mbeanName = name;
+    } catch (Exception e) {
+      log.warn("Unable to register " + MBEAN_NAME, e);
+    }
   }
 
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
       throws IOException, ServletException {
     HttpServletRequest httpRequest = (HttpServletRequest)request;
-    HttpSession session = httpRequest.getSession();
 
-    Set<String> requestedUrlSet = getRequestSet(session);
     StringBuilder buf = new StringBuilder();
     buf.append(httpRequest.getRequestURI());
     String queryString = httpRequest.getQueryString();
@@ -92,60 +158,122 @@ public class MultipleRequestFilter implements Filter {
       buf.append("?");
       buf.append(httpRequest.getQueryString());
     }
-    if (!isFilteredRequest(buf.toString())) {
+
+    // Anonymous requests can't be told apart, and aren't worth creating a session for
+    HttpSession session = httpRequest.getSession(false);
+    if (session == null || !isFilteredRequest(buf.toString())) {
       chain.doFilter(request, response);
       return;
     }
 
-    // Note, we have to add the session id since we're going to sync on this interned key. 
     buf.insert(0, session.getId());
-    String urlKey = (buf.toString()).intern();
+    String urlKey = buf.toString();
 
-    synchronized (urlKey) {
-      if (requestedUrlSet.contains(urlKey)) {
-        urlKey.notifyAll();
+    InFlightRequest current = new InFlightRequest();
+    InFlightRequest previous = register(urlKey, current);
 
+    while (previous != null) {
+      if (!awaitCompletion(previous, urlKey)) {
+        blockedRequests.incrementAndGet();
         if (log.isDebugEnabled())
-          log.debug("Waiting on URL=" + urlKey);
-        try {
-          urlKey.wait(60000); // Only wait a maximum of one minute
-        } catch (InterruptedException e) {
-          if (log.isDebugEnabled())
-            log.debug("Wait interrupted", e);
-        }
-
-        /* If we are woken up and the urlKey is not null, then we were not the latest
-         * request for this URL to be woken after the first request had completed, so
-         * just return and do nothing for this request. 
-         */
-        if (requestedUrlSet.contains(urlKey)) {
-          if (log.isDebugEnabled())
-            log.debug("Blocked (or timed out) Multiple Request to '" + urlKey + "' from '" +
-                      httpRequest.getRemoteAddr() + "'");
-          return;
-        }
-
-        if (log.isDebugEnabled())
-          log.debug("Woke from blocking URL as last request. Processing URL=" + urlKey);
+          log.debug("Blocked (or timed out) Multiple Request to '" + urlKey + "' from '" +
+                    httpRequest.getRemoteAddr() + "'");
+        return;
       }
 
-      requestedUrlSet.add(urlKey);
-    }
+      coalescedRequests.incrementAndGet();
+      if (log.isDebugEnabled())
+        log.debug("Woke from blocking URL as last request. Processing URL=" + urlKey);
 
+      // a newer duplicate may have gotten in first, in which case we wait for that one instead
+      previous = register(urlKey, current);
+    }
 
     try {
       chain.doFilter(request, response);
     } finally {
-      /* Upon completion of this request, remove the urlKey from the requestSet, then 
-       * wake any threads that are waiting on the key. 
+      /* Upon completion of this request, remove it from the registry, then wake any thread that
+       * is waiting on it.
        */
-      synchronized (urlKey) {
-        requestedUrlSet.remove(urlKey);
-        urlKey.notifyAll();
+      complete(urlKey, current);
+    }
+  }
+
+  /**
+   * Add a request to the registry of requests in flight
+   *
+   * @param urlKey the session and URL of the request
+   * @param request the request to add
+   * @return the request that's already in flight for the key, or null if the request was added or
+   *         the registry is full
+   */
+  private InFlightRequest register(String urlKey, InFlightRequest request) {
+    if (inFlight.size() >= maxInFlight) {
+      if (log.isDebugEnabled())
+        log.debug("Too many requests in flight, not checking for duplicates of " + urlKey);
+      return null;
+    }
+    return inFlight.putIfAbsent(urlKey, request);
+  }
+
+  private void complete(String urlKey, InFlightRequest request) {
+    inFlight.remove(urlKey, request);
+    synchronized (request) {
+      request.completed = true;
+      request.notifyAll();
+    }
+  }
+
+  /**
+   * Wait for a request to complete, displacing any other duplicate that was waiting for it
+   *
+   * @param request the request in flight
+   * @param urlKey the session and URL of the request
+   * @return true if the request completed, false if the wait timed out or another duplicate took
+   *         over the wait
+   */
+  private boolean awaitCompletion(InFlightRequest request, String urlKey) {
+    Object waiter = new Object();
+
+    synchronized (request) {
+      if (request.completed)
+        return true;
+
+      request.waiter = waiter;
+      request.notifyAll();
+
+      if (log.isDebugEnabled())
+        log.debug("Waiting on URL=" + urlKey);
+
+      long deadline = System.currentTimeMillis() + maxWait;
+      long remaining = maxWait;
+      try {
+        while (!request.completed && request.waiter == waiter && remaining > 0) {
+          request.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+      } catch (InterruptedException e) {
+        if (log.isDebugEnabled())
+          log.debug("Wait interrupted", e);
+        Thread.currentThread().interrupt();
       }
+
+      return request.completed && request.waiter == waiter;
     }
   }
 
+  public long getBlockedRequests() {
+    return blockedRequests.get();
+  }
+
+  public long getCoalescedRequests() {
+    return coalescedRequests.get();
+  }
+
+  public int getInFlightRequests() {
+    return inFlight.size();
+  }
+
   /**
    * Determine if this String matches one of the excludePattern init parameters defined in web.xml. 
    * 
@@ -164,16 +292,4 @@ public class MultipleRequestFilter implements Filter {
     }
     return false;
   }
-
-  @SuppressWarnings("unchecked")
-  private Set<String> getRequestSet(HttpSession session) {
-    Set<String> map;
-    synchronized (session) {
-      if ((map = (Set<String>) session.getAttribute(REQUEST_MAP)) == null) {
-        map = Collections.synchronizedSet(new HashSet<String>());
-        session.setAttribute(REQUEST_MAP, map);
-      }
-    }
-    return map;
-  }
 }
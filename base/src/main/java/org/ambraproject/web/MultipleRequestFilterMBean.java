@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.web;
+
+/**
+ * JMX view of the duplicate requests handled by {@link MultipleRequestFilter}
+ */
+public interface MultipleRequestFilterMBean {
+
+  /**
+   * @return the number of duplicate requests that returned without being processed
+   */
+  long getBlockedRequests();
+
+  /**
+   * @return the number of duplicate requests that waited for an earlier one and were then processed
+   */
+  long getCoalescedRequests();
+
+  /**
+   * @return the number of requests being tracked right now
+   */
+  int getInFlightRequests();
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.web;
+
+import org.ambraproject.util.TextUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the contents of small static files in memory, along with gzip and deflate encoded copies of the ones that
+ * compress well, so that they can be served without going to the file system.
+ * <p/>
+ * The cache is bounded by the total number of bytes it holds; files that are too big, or that don't fit any more, are
+ * simply not cached.  Since files are not looked at once they are cached, a timer checks the modification time of the
+ * cached files every so often and drops the ones that changed or went away.
+ * <p/>
+ * Instances are thread safe.
+ */
+public class StaticResourceCache {
+  private static final Logger log = LoggerFactory.getLogger(StaticResourceCache.class);
+
+  public static final String ENCODING_GZIP = "gzip";
+  public static final String ENCODING_DEFLATE = "deflate";
+
+  private final long maxSize;
+  private final long maxFileSize;
+  private final AtomicLong size = new AtomicLong();
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private final Timer watchTimer;
+
+  /**
+   * @param maxSize       the maximum number of bytes to keep in memory, counting encoded copies
+   * @param maxFileSize   the size of the largest file to cache
+   * @param watchInterval how often to check the cached files for changes, in milliseconds.  Files aren't checked if
+   *                      this isn't positive.
+   */
+  public StaticResourceCache(long maxSize, long maxFileSize, long watchInterval) {
+    this.maxSize = maxSize;
+    this.maxFileSize = maxFileSize;
+
+    if (watchInterval > 0) {
+      watchTimer = new Timer("static resource cache watcher", true);
+      watchTimer.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          checkFiles();
+        }
+      }, watchInterval, watchInterval);
+    } else {
+      watchTimer = null;
+    }
+  }
+
+  /**
+   * Get the cached copy of a file, reading it if it's not cached yet
+   *
+   * @param path the file system path of the file
+   * @return the cached file, or null if the file can't be read or isn't cached
+   */
+  public Entry get(String path) {
+    Entry entry = entries.get(path);
+    if (entry != null) {
+      return entry;
+    }
+
+    File file = new File(path);
+    if (!file.isFile() || !file.canRead() || file.length() > maxFileSize) {
+      return null;
+    }
+
+    try {
+      entry = new Entry(file);
+    } catch (IOException e) {
+      log.warn("Unable to cache " + path, e);
+      return null;
+    }
+
+    if (size.get() + entry.getSize() > maxSize) {
+      if (log.isDebugEnabled()) {
+        log.debug("Static resource cache is full, not caching " + path);
+      }
+      return null;
+    }
+
+    Entry existing = entries.putIfAbsent(path, entry);
+    if (existing != null) {
+      return existing;
+    }
+    size.addAndGet(entry.getSize());
+
+    return entry;
+  }
+
+  /**
+   * Drop the cached files that were modified or removed since they were read
+   */
+  void checkFiles() {
+    for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, Entry> mapEntry = it.next();
+      Entry entry = mapEntry.getValue();
+      File file = entry.file;
+
+      if (!file.isFile() || file.lastModified() != entry.lastModified || file.length() != entry.content.length) {
+        if (entries.remove(mapEntry.getKey(), entry)) {
+          size.addAndGet(-entry.getSize());
+          log.info("Static resource changed, dropping it from the cache: " + mapEntry.getKey());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of bytes held by the cache
+   */
+  public long getSize() {
+    return size.get();
+  }
+
+  /**
+   * Empty the cache
+   */
+  public void clear() {
+    for (String path : entries.keySet()) {
+      Entry entry = entries.remove(path);
+      if (entry != null) {
+        size.addAndGet(-entry.getSize());
+      }
+    }
+  }
+
+  /**
+   * Stop watching files and empty the cache
+   */
+  public void destroy() {
+    if (watchTimer != null) {
+      watchTimer.cancel();
+    }
+    clear();
+  }
+
+  /**
+   * Check whether an <code>Accept-Encoding</code> header allows a content encoding
+   *
+   * @param acceptEncoding the value of the header, may be null
+   * @param encoding       the content encoding
+   * @return true if the encoding is listed, or matched by <code>*</code>, with a non zero quality
+   */
+  static boolean isAccepted(String acceptEncoding, String encoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    boolean wildcard = false;
+    for (String token : acceptEncoding.split(",")) {
+      String[] parts = token.split(";");
+      String name = parts[0].trim();
+
+      boolean accepted = true;
+      for (int i = 1; i < parts.length; i++) {
+        String param = parts[i].trim();
+        if (param.startsWith("q=")) {
+          try {
+            accepted = Float.parseFloat(param.substring(2).trim()) > 0;
+          } catch (NumberFormatException e) {
+            accepted = false;
+          }
+        }
+      }
+
+      if (name.equalsIgnoreCase(encoding)) {
+        return accepted;
+      } else if (name.equals("*")) {
+        wildcard = accepted;
+      }
+    }
+
+    return wildcard;
+  }
+
+  private static boolean isCompressible(String contentType) {
+    return contentType != null && (contentType.startsWith("text/") || contentType.endsWith("javascript")
+        || contentType.endsWith("xml"));
+  }
+
+  private static byte[] encode(byte[] content, String encoding) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+
+    if (ENCODING_GZIP.equals(encoding)) {
+      OutputStream out = new GZIPOutputStream(bytes);
+      out.write(content);
+      out.close();
+    } else {
+      Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+      try {
+        OutputStream out = new DeflaterOutputStream(bytes, deflater);
+        out.write(content);
+        out.close();
+      } finally {
+        deflater.end();
+      }
+    }
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * A cached file.  The encoded copies are only kept if they are smaller than the file.
+   */
+  public static class Entry {
+    private final File file;
+    private final long lastModified;
+    private final byte[] content;
+    private final HttpResourceServer.Resource identity;
+    private final HttpResourceServer.Resource gzip;
+    private final HttpResourceServer.Resource deflate;
+
+    private Entry(File file) throws IOException {
+      this.file = file;
+      //read the modification time first, so that changes made while reading the file are seen by the watcher
+      this.lastModified = file.lastModified();
+      this.content = FileUtils.readFileToByteArray(file);
+
+      String contentType = HttpResourceServer.Resource.guessContentType(file.getName());
+      String eTag = TextUtils.createHash(content);
+
+      this.identity = createResource(contentType, content, "\"" + eTag + "\"");
+
+      if (isCompressible(contentType)) {
+        byte[] gzipped = encode(content, ENCODING_GZIP);
+        byte[] deflated = encode(content, ENCODING_DEFLATE);
+
+        this.gzip = gzipped.length < content.length
+            ? createResource(contentType, gzipped, "\"" + eTag + "-" + ENCODING_GZIP + "\"") : null;
+        this.deflate = deflated.length < content.length
+            ? createResource(contentType, deflated, "\"" + eTag + "-" + ENCODING_DEFLATE + "\"") : null;
+      } else {
+        this.gzip = null;
+        this.deflate = null;
+      }
+    }
+
+    private HttpResourceServer.Resource createResource(String contentType, final byte[] bytes, final String eTag) {
+      return new HttpResourceServer.Resource(file.getName(), contentType, bytes.length, lastModified) {
+        @Override
+        public InputStream streamContent() throws IOException {
+          return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public byte[] getContent() {
+          return bytes;
+        }
+
+        @Override
+        public String getETag() {
+          return eTag;
+        }
+      };
+    }
+
+    /**
+     * @return true if there is at least one encoded copy of the file
+     */
+    public boolean isCompressed() {
+      return gzip != null || deflate != null;
+    }
+
+    /**
+     * Pick the encoding to send the file with
+     *
+     * @param acceptEncoding the <code>Accept-Encoding</code> header of the request, may be null
+     * @return {@link #ENCODING_GZIP}, {@link #ENCODING_DEFLATE} or null to send the file as it is
+     */
+    public String selectEncoding(String acceptEncoding) {
+      if (gzip != null && isAccepted(acceptEncoding, ENCODING_GZIP)) {
+        return ENCODING_GZIP;
+      }
+      if (deflate != null && isAccepted(acceptEncoding, ENCODING_DEFLATE)) {
+        return ENCODING_DEFLATE;
+      }
+      return null;
+    }
+
+    /**
+     * Get the file in the given encoding
+     *
+     * @param encoding the encoding returned by {@link #selectEncoding(String)}
+     * @return a resource that can be served by {@link HttpResourceServer}
+     */
+    public HttpResourceServer.Resource getResource(String encoding) {
+      if (ENCODING_GZIP.equals(encoding) && gzip != null) {
+        return gzip;
+      } else if (ENCODING_DEFLATE.equals(encoding) && deflate != null) {
+        return deflate;
+      }
+      return identity;
+    }
+
+    long getSize() {
+      return identity.getContentLength()
+          + (gzip == null ? 0 : gzip.getContentLength())
+          + (deflate == null ? 0 : deflate.getContentLength());
+    }
+  }
+}
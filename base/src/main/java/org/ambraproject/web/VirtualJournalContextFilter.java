@@ -21,9 +21,6 @@
 package org.ambraproject.web;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -58,14 +55,14 @@ public class VirtualJournalContextFilter implements Filter {
   public static final String CONF_VIRTUALJOURNALS_DEFAULT  = CONF_VIRTUALJOURNALS + ".default";
   public static final String CONF_VIRTUALJOURNALS_JOURNALS = CONF_VIRTUALJOURNALS + ".journals";
 
-  private static final Configuration configuration = ConfigurationStore.getInstance().getConfiguration();
+  private volatile VirtualJournalRoutingTable routingTable;
 
   /*
    * @see javax.servlet.Filter#init
    */
   public void init(final FilterConfig filterConfig) throws ServletException {
     // settings & overrides are in the Configuration
-    if (configuration == null) {
+    if (ConfigurationStore.getInstance().getConfiguration() == null) {
       // should never happen
       final String errorMessage = "No Configuration is available to set Virtual Journal context";
       log.error(errorMessage);
@@ -77,7 +74,7 @@ public class VirtualJournalContextFilter implements Filter {
    * @see javax.servlet.Filter#destroy
    */
   public void destroy() {
-    // nothing to do
+    routingTable = null;
   }
 
   /*
@@ -86,12 +83,12 @@ public class VirtualJournalContextFilter implements Filter {
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
 
-    final Collection<String> virtualJournals = configuration.getList(CONF_VIRTUALJOURNALS_JOURNALS);
+    final VirtualJournalRoutingTable table = getRoutingTable();
 
-    String defaultJournal = configuration.getString(CONF_VIRTUALJOURNALS_DEFAULT);
+    String defaultJournal = table.getDefaultJournal();
 
     // need to do <rule> based processing
-    String journalName = findMatchingVirtualJournal(configuration, (HttpServletRequest) request);
+    String journalName = table.findMatchingJournal((HttpServletRequest) request);
 
     if (journalName != null) {
       if (log.isTraceEnabled()) {
@@ -129,7 +126,7 @@ public class VirtualJournalContextFilter implements Filter {
           request.getScheme(),
           request.getServerPort(),
           request.getServerName(),
-          ((HttpServletRequest) request).getContextPath(), virtualJournals));
+          ((HttpServletRequest) request).getContextPath(), table.getJournals()));
 
     /*
      * Establish a "Nested Diagnostic Context" for logging, e.g. prefix log entries w/journal name
@@ -148,61 +145,21 @@ public class VirtualJournalContextFilter implements Filter {
   }
 
   /**
-   * Process all &lt;${journal-name}&gt;&lt;rules&gt;&lt;${http-header-name}&gt;s looking for a match.
-   * This method is only used to fetch rules from configuration and find matching journal based on request.
+   * Get the routing rules of the current configuration.  They are compiled on first use, and again whenever the
+   * {@link ConfigurationStore} has loaded a new configuration.
    *
-   * @param configuration <code>Configuration</code> that contains the rules.
-   * @param request <code>HttpServletRequest</code> to apply the rules against.
-   * @return VirtualJournalContext.  May be <code>null</code>.
+   * @return the routing table
    */
-  private String findMatchingVirtualJournal(
-    Configuration configuration, HttpServletRequest request) {
-
-    String virtualJournal = null;
-
-    // process all <virtualjournal><journals> entries looking for a match
-    final List<String> journals = configuration.getList(CONF_VIRTUALJOURNALS_JOURNALS);
-    final Iterator<String> onJournal = journals.iterator();
-    while (onJournal.hasNext() && virtualJournal == null) {
-      final String journal = onJournal.next();
-
-      if (log.isTraceEnabled()) {
-        log.trace("processing virtual journal: " + journal);
-      }
-
-      // get the <rules> for this journal
-      final String rulesPrefix = CONF_VIRTUALJOURNALS + "." + journal + ".rules";
-      final Iterator rules = configuration.getKeys(rulesPrefix);
-      while (rules.hasNext()) {
-        final String rule       = (String) rules.next();
-        final String httpHeader = rule.substring(rulesPrefix.length() + 1);
-        final String httpValue  = configuration.getString(rule);
-
-        if (log.isTraceEnabled()) {
-          log.trace("processing rule: " + httpHeader + " = " + httpValue);
-        }
-
-        // test Request HTTP header value against match
-        final String reqHttpValue = request.getHeader(httpHeader);
-        if (log.isTraceEnabled()) {
-          log.trace("testing Request: " + httpHeader + "=" + reqHttpValue);
-        }
-        if (reqHttpValue == null) {
-          if (httpValue == null) {
-            virtualJournal = journal;
-            break;
-          }
-          continue;
-        }
-
-        if (reqHttpValue.matches(httpValue)) {
-          virtualJournal = journal;
-          break;
-        }
-      }
+  private VirtualJournalRoutingTable getRoutingTable() {
+    final Configuration configuration = ConfigurationStore.getInstance().getConfiguration();
+    VirtualJournalRoutingTable table = routingTable;
+
+    if (table == null || table.getConfiguration() != configuration) {
+      log.info("Compiling virtual journal rules");
+      table = new VirtualJournalRoutingTable(configuration);
+      routingTable = table;
     }
 
-    // return match or null
-    return virtualJournal;
+    return table;
   }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.web;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import static org.ambraproject.web.VirtualJournalContextFilter.CONF_VIRTUALJOURNALS;
+import static org.ambraproject.web.VirtualJournalContextFilter.CONF_VIRTUALJOURNALS_DEFAULT;
+import static org.ambraproject.web.VirtualJournalContextFilter.CONF_VIRTUALJOURNALS_JOURNALS;
+
+/**
+ * The virtual journal &lt;rules&gt; of a configuration, compiled once so that requests can be routed without going
+ * back to the configuration.
+ * <p/>
+ * A journal matches a request if any of its rules does: either the request header matches the rule's regular
+ * expression, or the rule has no value and the request doesn't have the header.  Journals are tried in the order they
+ * are configured, and the first match wins.
+ * <p/>
+ * Since the outcome only depends on the values of the headers named in the rules, it is remembered per combination of
+ * header values, up to {@link #MAX_MEMO_SIZE} combinations.  Instances are immutable apart from that memo, and are
+ * thread safe.
+ */
+final class VirtualJournalRoutingTable {
+  private static final Logger log = LoggerFactory.getLogger(VirtualJournalRoutingTable.class);
+
+  /**
+   * Number of header value combinations to remember.  Header values come from the client, so the memo is emptied when
+   * it fills up rather than being allowed to grow without limit.
+   */
+  static final int MAX_MEMO_SIZE = 1000;
+
+  //placeholder for "no journal matched", since the memo can't hold nulls
+  private static final String NO_MATCH = "";
+
+  private final Configuration configuration;
+  private final String defaultJournal;
+  private final List<String> journals;
+  private final List<JournalRules> rules;
+  private final String[] headerNames;
+  private final ConcurrentMap<List<String>, String> memo = new ConcurrentHashMap<List<String>, String>();
+
+  /**
+   * Compile the rules of the given configuration
+   *
+   * @param configuration the configuration to read the virtual journals from
+   */
+  @SuppressWarnings("unchecked")
+  VirtualJournalRoutingTable(Configuration configuration) {
+    this.configuration = configuration;
+    this.defaultJournal = configuration.getString(CONF_VIRTUALJOURNALS_DEFAULT);
+    this.journals = Collections.unmodifiableList(
+        new ArrayList<String>(configuration.getList(CONF_VIRTUALJOURNALS_JOURNALS)));
+
+    List<JournalRules> journalRules = new ArrayList<JournalRules>(journals.size());
+    List<String> headers = new ArrayList<String>();
+
+    for (String journal : journals) {
+      final String rulesPrefix = CONF_VIRTUALJOURNALS + "." + journal + ".rules";
+      List<Rule> compiled = new ArrayList<Rule>();
+
+      final Iterator<String> keys = configuration.getKeys(rulesPrefix);
+      while (keys.hasNext()) {
+        final String key = keys.next();
+        final String httpHeader = key.substring(rulesPrefix.length() + 1);
+        final String httpValue = configuration.getString(key);
+
+        if (log.isDebugEnabled()) {
+          log.debug("virtual journal " + journal + " rule: " + httpHeader + " = " + httpValue);
+        }
+        if (!headers.contains(httpHeader)) {
+          headers.add(httpHeader);
+        }
+        compiled.add(new Rule(httpHeader, headers.indexOf(httpHeader),
+            httpValue == null ? null : Pattern.compile(httpValue)));
+      }
+
+      if (!compiled.isEmpty()) {
+        journalRules.add(new JournalRules(journal, compiled));
+      }
+    }
+
+    this.rules = journalRules;
+    this.headerNames = headers.toArray(new String[headers.size()]);
+  }
+
+  /**
+   * @return the configuration these rules were compiled from
+   */
+  Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * @return the configured default journal, may be null
+   */
+  String getDefaultJournal() {
+    return defaultJournal;
+  }
+
+  /**
+   * @return all the configured journals
+   */
+  List<String> getJournals() {
+    return journals;
+  }
+
+  /**
+   * Find the first journal whose rules match the request
+   *
+   * @param request the request to route
+   * @return the journal name, or null if no rules matched
+   */
+  String findMatchingJournal(HttpServletRequest request) {
+    final String[] values = new String[headerNames.length];
+    for (int i = 0; i < headerNames.length; i++) {
+      values[i] = request.getHeader(headerNames[i]);
+    }
+    final List<String> key = Arrays.asList(values);
+
+    String journal = memo.get(key);
+    if (journal == null) {
+      journal = match(values);
+      if (memo.size() >= MAX_MEMO_SIZE) {
+        memo.clear();
+      }
+      memo.put(key, journal);
+    }
+
+    return journal == NO_MATCH ? null : journal;
+  }
+
+  private String match(String[] values) {
+    for (JournalRules journal : rules) {
+      for (Rule rule : journal.rules) {
+        final String value = values[rule.headerIndex];
+        if (value == null ? rule.pattern == null : rule.pattern != null && rule.pattern.matcher(value).matches()) {
+          if (log.isTraceEnabled()) {
+            log.trace("matched virtual journal " + journal.journal + " on " + rule.header + " = " + value);
+          }
+          return journal.journal;
+        }
+      }
+    }
+    return NO_MATCH;
+  }
+
+  private static final class Rule {
+    private final String header;
+    private final int headerIndex;
+    private final Pattern pattern;
+
+    private Rule(String header, int headerIndex, Pattern pattern) {
+      this.header = header;
+      this.headerIndex = headerIndex;
+      this.pattern = pattern;
+    }
+  }
+
+  private static final class JournalRules {
+    private final String journal;
+    private final List<Rule> rules;
+
+    private JournalRules(String journal, List<Rule> rules) {
+      this.journal = journal;
+      this.rules = rules;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+create table savedSearchRun (
+  savedSearchRunID bigint not null auto_increment,
+  frequency varchar(15) character set utf8 collate utf8_bin not null,
+  startTime datetime,
+  endTime datetime not null,
+  status varchar(15) character set utf8 collate utf8_bin not null,
+  jobCount int not null,
+  finished datetime,
+  lastModified datetime not null,
+  created datetime not null,
+  primary key (savedSearchRunID),
+  index(frequency, status)
+);
+create table savedSearchRunJob (
+  savedSearchRunJobID bigint not null auto_increment,
+  savedSearchRunID bigint not null,
+  savedSearchQueryID bigint not null,
+  searchType varchar(16) character set utf8 collate utf8_bin not null,
+  status varchar(15) character set utf8 collate utf8_bin not null,
+  hitCount int not null,
+  sentCount int not null,
+  failedCount int not null,
+  lastModified datetime not null,
+  created datetime not null,
+  primary key (savedSearchRunJobID),
+  constraint foreign key (savedSearchRunID) references savedSearchRun (savedSearchRunID),
+  unique (savedSearchRunID, savedSearchQueryID, searchType)
+);
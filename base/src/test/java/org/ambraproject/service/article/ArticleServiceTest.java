@@ -20,6 +20,7 @@
 package org.ambraproject.service.article;
 
 import org.ambraproject.action.BaseTest;
+import org.ambraproject.views.CitationView;
 import org.ambraproject.views.SearchHit;
 import org.ambraproject.views.article.ArticleInfo;
 import org.ambraproject.models.Article;
@@ -503,6 +504,37 @@ public class ArticleServiceTest extends BaseTest {
     compareArticles(article, expectedArticle);
   }
 
+  @Test(dataProvider = "savedArticlesURI")
+  public void testGetArticleCitation(String articleDoi, Article expectedArticle) throws NoSuchArticleIdException {
+    Article article = articleService.getArticle(articleDoi, DEFAULT_ADMIN_AUTHID);
+    CitationView citation = articleService.getArticleCitation(articleDoi, DEFAULT_ADMIN_AUTHID);
+
+    assertNotNull(citation, "returned null citation");
+    assertEquals(citation.getDoi(), articleDoi, "returned citation with incorrect DOI");
+    assertEquals(citation.getTitle(), article.getTitle(), "returned citation with incorrect title");
+    assertEquals(citation.getJournal(), article.getJournal(), "returned citation with incorrect journal");
+    assertEquals(citation.getVolume(), article.getVolume(), "returned citation with incorrect volume");
+    assertEquals(citation.getIssue(), article.getIssue(), "returned citation with incorrect issue");
+    assertEquals(citation.geteLocationId(), article.geteLocationId(),
+        "returned citation with incorrect eLocationId");
+    assertEquals(citation.getSummary(), article.getDescription(), "returned citation with incorrect summary");
+    assertEquals(citation.getAuthorList(), article.getAuthors(), "returned citation with incorrect authors");
+    assertEquals(citation.getCollaborativeAuthors(), article.getCollaborativeAuthors(),
+        "returned citation with incorrect collaborative authors");
+  }
+
+  @Test(dataProvider = "savedArticlesURI")
+  public void testGetCitedArticleIDs(String articleDoi, Article expectedArticle) throws NoSuchArticleIdException {
+    Article article = articleService.getArticle(articleDoi, DEFAULT_ADMIN_AUTHID);
+    List<Long> expectedIDs = new ArrayList<Long>(article.getCitedArticles().size());
+    for (CitedArticle citedArticle : article.getCitedArticles()) {
+      expectedIDs.add(citedArticle.getID());
+    }
+
+    assertEquals(articleService.getCitedArticleIDs(articleDoi, DEFAULT_ADMIN_AUTHID), expectedIDs,
+        "returned incorrect cited article IDs");
+  }
+
   @DataProvider(name = "savedArticlesStrikingImageURI")
   public Object[][] strikingImageURI() {
     log.debug("data-savedArticles");
@@ -809,6 +841,17 @@ public class ArticleServiceTest extends BaseTest {
         expectedRelatedArticles);
   }
 
+  @Test(dataProvider = "articleInfoDataProvider", dependsOnMethods = {"testGetArticle"})
+  public void testGetArticleInfos(String id, Article expectedArticle, String authId,
+                                  Article[] expectedRelatedArticles) {
+    List<ArticleInfo> results = articleService.getArticleInfos(Arrays.asList(id, "info:doi/fake-doi"), authId);
+    assertEquals(results.size(), 1, "returned incorrect number of article infos");
+
+    checkArticleInfo(results.get(0),
+        expectedArticle,
+        expectedRelatedArticles);
+  }
+
   @Test(dataProvider = "savedArticlesURI")
   public void testGetRandomRecentArticles(String DOI, Article article) throws Exception {
     String eIssn = article.geteIssn();
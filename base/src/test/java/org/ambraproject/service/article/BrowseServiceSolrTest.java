@@ -226,5 +226,60 @@ public class BrowseServiceSolrTest extends BaseTest {
     assertEqualsNoOrder(actualIds.toArray(), expectedIds, "didn't return correct articles");
   }
 
+  @DataProvider(name = "cursorPaging")
+  public Object[][] getCursorPaging() {
+    BrowseParameters byDate = new BrowseParameters();
+    Calendar startDate = Calendar.getInstance();
+    startDate.set(Calendar.YEAR, 2007);
+    byDate.setStartDate(startDate);
+    byDate.setEndDate(Calendar.getInstance());
 
+    BrowseParameters bySubject = new BrowseParameters();
+    bySubject.setSubjects(new String[] { CATEGORY_2_LEVEL_1 });
+
+    return new Object[][]{
+        {byDate, false},
+        {bySubject, true}
+    };
+  }
+
+  @Test(dataProvider = "cursorPaging")
+  public void testGetArticlesWithCursor(BrowseParameters params, boolean bySubject) {
+    //read every page with a cursor, when there is one
+    ((BrowseServiceImpl) browseService).setCursorStartPage(0);
+    try {
+      params.setJournalKey(JOURNAL_KEY);
+      params.setPageSize(1);
+      params.setPageNum(0);
+      params.setCursor(null);
+
+      BrowseResult firstPage = bySubject ? browseService.getArticlesBySubject(params) :
+          browseService.getArticlesByDate(params);
+      assertEquals(firstPage.getArticles().size(), 1, "returned incorrect number of results");
+      assertEquals(firstPage.getArticles().get(0).getUri(), DOI2, "first page had incorrect article");
+      assertEquals(firstPage.getTotal(), 2, "first page had incorrect total");
+      assertNotNull(firstPage.getNextCursor(), "first page didn't have a cursor for the next page");
+
+      params.setPageNum(1);
+      params.setCursor(firstPage.getNextCursor());
+
+      BrowseResult secondPage = bySubject ? browseService.getArticlesBySubject(params) :
+          browseService.getArticlesByDate(params);
+      assertEquals(secondPage.getArticles().size(), 1, "returned incorrect number of results");
+      assertEquals(secondPage.getArticles().get(0).getUri(), DOI1, "second page had incorrect article");
+      assertEquals(secondPage.getTotal(), 2, "second page had incorrect total");
+
+      //a cursor for another page is ignored, and the page is read with an offset
+      params.setPageNum(0);
+      params.setCursor(firstPage.getNextCursor());
+
+      BrowseResult offsetPage = bySubject ? browseService.getArticlesBySubject(params) :
+          browseService.getArticlesByDate(params);
+      assertEquals(offsetPage.getArticles().size(), 1, "returned incorrect number of results");
+      assertEquals(offsetPage.getArticles().get(0).getUri(), DOI2, "didn't fall back to offset paging");
+      assertEquals(offsetPage.getTotal(), 2, "offset page had incorrect total");
+    } finally {
+      ((BrowseServiceImpl) browseService).setCursorStartPage(5);
+    }
+  }
 }
@@ -23,6 +23,7 @@ import org.ambraproject.models.CitedArticleAuthor;
 import org.ambraproject.service.xml.XMLService;
 import org.ambraproject.views.AuthorView;
 import org.ambraproject.views.article.ArticleInfo;
+import org.ambraproject.views.article.ArticleMetadata;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -909,6 +910,34 @@ public class FetchArticleServiceTest extends BaseTest {
     }
   }
 
+  @Test(dataProvider = "articleInfos")
+  public void testGetArticleMetadata(ArticleInfo articleInfo) throws Exception {
+    String fsid = FSIDMapper.doiTofsid(articleInfo.getDoi(), "XML");
+    InputStream fs = fileStoreService.getFileInStream(fsid);
+    org.w3c.dom.Document dom = xmlService.createDocBuilder().parse(fs);
+
+    ArticleMetadata metadata = fetchArticleService.getArticleMetadata(articleInfo);
+
+    assertNotNull(metadata, "returned null metadata");
+    assertEquals(metadata.getAuthors(), fetchArticleService.getAuthors(dom), "incorrect authors");
+    assertEquals(metadata.getCorrespondingAuthors(), fetchArticleService.getCorrespondingAuthors(dom),
+        "incorrect corresponding authors");
+    assertEquals(metadata.getAuthorContributions(), fetchArticleService.getAuthorContributions(dom),
+        "incorrect author contributions");
+    assertEquals(metadata.getCompetingInterests(), fetchArticleService.getAuthorCompetingInterests(dom),
+        "incorrect competing interests");
+    assertEquals(metadata.getReferences().size(), fetchArticleService.getReferences(dom).size(),
+        "incorrect number of references");
+    assertEquals(metadata.getJournalAbbreviation(), fetchArticleService.getJournalAbbreviation(dom),
+        "incorrect journal abbreviation");
+    assertEquals(metadata.getAuthorsByAffiliation(),
+        fetchArticleService.getAuthorsByAffiliation(dom, fetchArticleService.getAuthors(dom)),
+        "incorrect authors by affiliation");
+
+    assertTrue(fetchArticleService.getArticleMetadata(articleInfo) == metadata,
+        "metadata should have been cached");
+  }
+
   @Test(dataProvider = "articlesForCorrespondingTest")
   public void testCorrespondingAuthors(ArticleInfo article, List<String> authors) throws Exception {
     String fsid = FSIDMapper.doiTofsid(article.getDoi(), "XML");
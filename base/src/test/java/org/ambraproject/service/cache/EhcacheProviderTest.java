@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ambraproject.service.cache;
+
+import net.sf.ehcache.CacheManager;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class EhcacheProviderTest {
+
+  private CacheManager cacheManager;
+
+  @BeforeClass
+  public void setUp() {
+    cacheManager = new CacheManager();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    cacheManager.shutdown();
+  }
+
+  private EhcacheProvider createCache(String name) {
+    net.sf.ehcache.Cache ehcache = new net.sf.ehcache.Cache(name, 100, false, false, 3600, 0);
+    cacheManager.addCache(ehcache);
+    return new EhcacheProvider(ehcache);
+  }
+
+  private static class CountingLookup extends Cache.Lookup<String, RuntimeException> {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public String lookup() {
+      return "value" + count.incrementAndGet();
+    }
+  }
+
+  @Test
+  public void testReadThru() {
+    EhcacheProvider cache = createCache("readThru");
+    CountingLookup lookup = new CountingLookup();
+
+    assertEquals(cache.get("key", 60, lookup), "value1");
+    assertEquals(cache.get("key", 60, lookup), "value1");
+    assertEquals(cache.get("key").getValue(), "value1");
+    assertEquals(lookup.count.get(), 1);
+  }
+
+  @Test
+  public void testStaleWhileRevalidate() throws Exception {
+    EhcacheProvider cache = createCache("staleWhileRevalidate");
+    cache.setMaxStaleness(60);
+    CountingLookup lookup = new CountingLookup();
+
+    try {
+      assertEquals(cache.get("key", 1, lookup), "value1");
+
+      Thread.sleep(1100);
+      assertNull(cache.get("key"), "Plain gets should not return stale entries");
+      assertEquals(cache.get("key", 1, lookup), "value1", "Stale entry should have been served");
+      assertEquals(cache.getStaleHits(), 1);
+
+      for (int i = 0; i < 50 && cache.getRefreshes() == 0; i++) {
+        Thread.sleep(20);
+      }
+      assertEquals(cache.getRefreshes(), 1);
+      assertEquals(cache.get("key", 1, lookup), "value2", "Entry should have been refreshed in the background");
+      assertEquals(lookup.count.get(), 2);
+    } finally {
+      cache.destroy();
+    }
+  }
+
+  @Test
+  public void testStalenessLimit() throws Exception {
+    EhcacheProvider cache = createCache("stalenessLimit");
+    CountingLookup lookup = new CountingLookup();
+
+    assertEquals(cache.get("key", 1, lookup), "value1");
+    Thread.sleep(1100);
+
+    //without a staleness window, expired entries are looked up again right away
+    assertEquals(cache.get("key", 1, lookup), "value2");
+    assertEquals(cache.getStaleHits(), 0);
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ambraproject.service.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SingleFlightLookupTest {
+
+  /**
+   * Minimal read-thru cache, mirroring what the Cache implementations do with a lookup
+   */
+  private static class MapCache {
+    private final ConcurrentMap<Object, Cache.Item> map = new ConcurrentHashMap<Object, Cache.Item>();
+    private final AtomicInteger degradedCount = new AtomicInteger();
+
+    public Object get(final Object key, final Cache.Lookup<String, Exception> lookup) throws Exception {
+      Cache.Item item = map.get(key);
+      if (item == null) {
+        item = lookup.execute(new Cache.Lookup.Operation() {
+          public Cache.Item execute(boolean degradedMode) throws Exception {
+            if (degradedMode) {
+              degradedCount.incrementAndGet();
+            }
+            Cache.Item val = map.get(key);
+            if (val == null) {
+              val = new Cache.Item(lookup.lookup());
+              map.put(key, val);
+            }
+            return val;
+          }
+        });
+      }
+      return item.getValue();
+    }
+  }
+
+  private static List<Future<Object>> runConcurrently(ExecutorService executor, int threads,
+                                                      final MapCache cache, final Object key,
+                                                      final Cache.Lookup<String, Exception> lookup) {
+    List<Future<Object>> results = new ArrayList<Future<Object>>();
+    for (int i = 0; i < threads; i++) {
+      results.add(executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          return cache.get(key, lookup);
+        }
+      }));
+    }
+    return results;
+  }
+
+  @Test
+  public void testConcurrentMissesShareOneLookup() throws Exception {
+    final AtomicInteger lookups = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    MapCache cache = new MapCache();
+    ExecutorService executor = Executors.newFixedThreadPool(10);
+
+    try {
+      //New string instance every time, to make sure the key doesn't need to be interned
+      List<Future<Object>> results = runConcurrently(executor, 10, cache, new String("key"),
+          new Cache.SingleFlightLookup<String, Exception>(new String("key")) {
+            @Override
+            public String lookup() throws Exception {
+              lookups.incrementAndGet();
+              release.await(5, TimeUnit.SECONDS);
+              return "value";
+            }
+          });
+
+      Thread.sleep(100);
+      release.countDown();
+
+      for (Future<Object> result : results) {
+        assertEquals(result.get(), "value");
+      }
+      assertEquals(lookups.get(), 1, "Lookup should have been executed only once");
+      assertEquals(cache.degradedCount.get(), 0);
+      assertEquals(SingleFlight.size(), 0, "Finished lookups should be removed from the table");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testDifferentKeysDoNotWait() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    MapCache cache = new MapCache();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      Future<Object> slow = runConcurrently(executor, 1, cache, "slow",
+          new Cache.SingleFlightLookup<String, Exception>("slow") {
+            @Override
+            public String lookup() throws Exception {
+              release.await(5, TimeUnit.SECONDS);
+              return "slow";
+            }
+          }).get(0);
+
+      Object fast = cache.get("fast", new Cache.SingleFlightLookup<String, Exception>("fast") {
+        @Override
+        public String lookup() throws Exception {
+          return "fast";
+        }
+      });
+
+      assertEquals(fast, "fast");
+      assertTrue(!slow.isDone(), "The slow lookup should still be running");
+      release.countDown();
+      assertEquals(slow.get(), "slow");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTimeoutDegrades() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger lookups = new AtomicInteger();
+    MapCache cache = new MapCache();
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+
+    try {
+      Cache.Lookup<String, Exception> lookup =
+          new Cache.SingleFlightLookup<String, Exception>("timeout", 10, TimeUnit.MILLISECONDS) {
+            @Override
+            public String lookup() throws Exception {
+              if (lookups.incrementAndGet() == 1) {
+                release.await(5, TimeUnit.SECONDS);
+              }
+              return "value";
+            }
+          };
+
+      Future<Object> first = runConcurrently(executor, 1, cache, "timeout", lookup).get(0);
+      Thread.sleep(50);
+
+      assertEquals(cache.get("timeout", lookup), "value");
+      assertEquals(cache.degradedCount.get(), 1, "Waiting thread should have timed out");
+
+      release.countDown();
+      assertEquals(first.get(), "value");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailedLookupIsRetried() throws Exception {
+    final AtomicInteger lookups = new AtomicInteger();
+    MapCache cache = new MapCache();
+    Cache.Lookup<String, Exception> lookup = new Cache.SingleFlightLookup<String, Exception>("failing") {
+      @Override
+      public String lookup() throws Exception {
+        if (lookups.incrementAndGet() == 1) {
+          throw new IllegalStateException("first lookup fails");
+        }
+        return "value";
+      }
+    };
+
+    try {
+      cache.get("failing", lookup);
+    } catch (IllegalStateException e) {
+      //expected
+    }
+    assertEquals(SingleFlight.size(), 0, "Failed lookups should be removed from the table");
+    assertEquals(cache.get("failing", lookup), "value");
+  }
+}
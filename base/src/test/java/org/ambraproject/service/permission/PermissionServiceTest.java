@@ -16,10 +16,15 @@ package org.ambraproject.service.permission;
 import org.ambraproject.action.BaseTest;
 import org.ambraproject.models.UserRole.Permission;
 import org.ambraproject.service.user.UserService;
+import org.ambraproject.views.AuthPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 
@@ -88,6 +93,26 @@ public class PermissionServiceTest extends BaseTest {
     permissionsService.checkPermission(Permission.VIEW_UNPUBBED_ARTICLES, DEFAULT_USER_AUTHID);
   }
 
+  @Test
+  public void testGetPrincipal() {
+    AuthPrincipal principal = permissionsService.getPrincipal(DEFAULT_ADMIN_AUTHID);
+
+    assertEquals(principal.getAuthId(), DEFAULT_ADMIN_AUTHID, "principal had incorrect auth id");
+    assertTrue(principal.hasPermission(Permission.ACCESS_ADMIN), "admin principal didn't have admin permission");
+    assertEquals(principal.getPermissions(), permissionsService.getPermissions(DEFAULT_ADMIN_AUTHID));
+    assertSame(permissionsService.getPrincipal(DEFAULT_ADMIN_AUTHID), principal, "principal wasn't cached");
+
+    permissionsService.clearCache(DEFAULT_ADMIN_AUTHID);
+    AuthPrincipal reloaded = permissionsService.getPrincipal(DEFAULT_ADMIN_AUTHID);
+    assertFalse(reloaded == principal, "principal wasn't cleared from the cache");
+    assertEquals(reloaded.getPermissions(), principal.getPermissions());
+  }
+
+  @Test(expectedExceptions = {SecurityException.class})
+  public void testGetPrincipalForNonexistentUser() {
+    permissionsService.getPrincipal("this-isnot-areal-authid");
+  }
+
   @Test
   public void testCheckLogin() {
     try {
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.search;
+
+import net.sf.ehcache.CacheManager;
+import org.ambraproject.service.cache.Cache;
+import org.ambraproject.service.cache.EhcacheProvider;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class IndexGenerationCacheTest {
+
+  private CacheManager cacheManager;
+
+  @BeforeClass
+  public void setUp() {
+    cacheManager = new CacheManager();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    cacheManager.shutdown();
+  }
+
+  /**
+   * Index generation that reads its version from a field instead of Solr
+   */
+  private static class TestIndexGeneration extends SolrIndexGeneration {
+    private volatile long version = 1;
+
+    private TestIndexGeneration() {
+      setCheckInterval(0);
+    }
+
+    @Override
+    protected long readIndexVersion() {
+      return version;
+    }
+  }
+
+  private static class CountingLookup extends Cache.Lookup<String, RuntimeException> {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public String lookup() {
+      return "value" + count.incrementAndGet();
+    }
+  }
+
+  private IndexGenerationCache createCache(String name, SolrIndexGeneration indexGeneration) {
+    net.sf.ehcache.Cache ehcache = new net.sf.ehcache.Cache(name, 100, false, false, 3600, 0);
+    cacheManager.addCache(ehcache);
+    return new IndexGenerationCache(new EhcacheProvider(ehcache), indexGeneration);
+  }
+
+  @Test
+  public void testEntriesLastUntilIndexChanges() throws Exception {
+    TestIndexGeneration indexGeneration = new TestIndexGeneration();
+    IndexGenerationCache cache = createCache("untilIndexChanges", indexGeneration);
+    CountingLookup lookup = new CountingLookup();
+
+    assertEquals(cache.get("key", 1, lookup), "value1");
+    Thread.sleep(1100);
+    assertEquals(cache.get("key", 1, lookup), "value1", "Entry should not expire while the index is unchanged");
+
+    indexGeneration.version = 2;
+    assertEquals(cache.get("key", 1, lookup), "value2", "Entry should have been dropped after the index changed");
+    assertEquals(cache.get("key", 1, lookup), "value2");
+    assertEquals(lookup.count.get(), 2);
+  }
+
+  @Test
+  public void testListenerClearsCache() {
+    TestIndexGeneration indexGeneration = new TestIndexGeneration();
+    IndexGenerationCache cache = createCache("listenerClearsCache", indexGeneration);
+
+    cache.put("key", new Cache.Item("value"));
+    assertEquals(cache.get("key").getValue(), "value");
+
+    cache.generationChanged(1, 2);
+    indexGeneration.version = 2;
+    assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void testUnknownGenerationUsesTtl() throws Exception {
+    TestIndexGeneration indexGeneration = new TestIndexGeneration();
+    indexGeneration.version = SolrIndexGeneration.UNKNOWN;
+    IndexGenerationCache cache = createCache("unknownGeneration", indexGeneration);
+    CountingLookup lookup = new CountingLookup();
+
+    assertEquals(cache.get("key", 1, lookup), "value1");
+    Thread.sleep(1100);
+    assertEquals(cache.get("key", 1, lookup), "value2", "Without a known generation entries should expire");
+  }
+
+  @Test
+  public void testUnknownGenerationDoesNotStoreEntriesWithoutTtl() {
+    TestIndexGeneration indexGeneration = new TestIndexGeneration();
+    indexGeneration.version = SolrIndexGeneration.UNKNOWN;
+    IndexGenerationCache cache = createCache("unknownGenerationPut", indexGeneration);
+
+    cache.put("key", new Cache.Item("value"));
+    assertNull(cache.get("key"), "Nothing would drop an entry without a ttl");
+
+    cache.put("key", new Cache.Item("value", 60));
+    assertEquals(cache.get("key").getValue(), "value");
+  }
+}
@@ -65,4 +65,19 @@ public class MostViewedCacheTest {
   public void test(MostViewedCache cacheEntry, boolean isValid) {
     assertEquals(isValid, cacheEntry.isValid());
   }
+
+  @Test
+  public void testGeneration() {
+    List<Pair<String, String>> dummyArticles = new ArrayList<Pair<String, String>>();
+    GregorianCalendar lastYear = new GregorianCalendar();
+    lastYear.add(Calendar.YEAR, -1);
+
+    MostViewedCache cacheEntry = new MostViewedCache(dummyArticles, 5);
+    assertEquals(true, cacheEntry.isValid(5));
+    assertEquals(false, cacheEntry.isValid(6));
+    assertEquals(true, cacheEntry.isValid(SolrIndexGeneration.UNKNOWN));
+
+    //entries without a generation fall back to the cache time
+    assertEquals(false, new MostViewedCache(lastYear, dummyArticles).isValid(5));
+  }
 }
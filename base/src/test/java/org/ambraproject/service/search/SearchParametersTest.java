@@ -24,6 +24,7 @@ package org.ambraproject.service.search;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import java.util.Date;
 import java.util.SimpleTimeZone;
 
 import static org.testng.Assert.assertEquals;
@@ -279,4 +280,38 @@ public class SearchParametersTest {
         " pageSize=216," +
         " resultView='fig'}");
   }
+
+  @Test
+  public void testCanonicalString() throws Exception {
+    SearchParameters sp1 = new SearchParameters();
+    sp1.setQuery("  spleen   yak ");
+    sp1.setFilterJournals(new String[]{"PLoSONE", "PLoSBiology"});
+    sp1.setFilterSubjects(new String[]{"Category2", "Category1"});
+    sp1.setFilterStartDate(new Date(1213315200000L));       // 2008-06-13T00:00:00Z
+    sp1.setFilterEndDate(new Date(1213920000000L));         // 2008-06-20T00:00:00Z
+    sp1.setPageSize(10);
+    sp1.setResultView("fig");
+
+    SearchParameters sp2 = new SearchParameters();
+    sp2.setQuery("spleen yak");
+    sp2.setFilterJournals(new String[]{"PLoSBiology", "PLoSONE"});
+    sp2.setFilterSubjects(new String[]{"Category1", "Category2"});
+    sp2.setFilterStartDate(new Date(1213315200000L + 3600000L));
+    sp2.setFilterEndDate(new Date(1213920000000L + 7200000L));
+    sp2.setPageSize(10);
+
+    assertEquals(sp1.toCanonicalString(), sp2.toCanonicalString());
+    assertEquals(sp1.getFilterJournals()[0], "PLoSONE", "Canonical string should not reorder the filters");
+
+    sp2.setStartPage(1);
+    assertFalse(sp1.toCanonicalString().equals(sp2.toCanonicalString()), "Pages should have different strings");
+
+    //values can't run into each other
+    SearchParameters sp3 = new SearchParameters();
+    sp3.setFilterAuthors(new String[]{"a;filterKeyword=1:b"});
+    SearchParameters sp4 = new SearchParameters();
+    sp4.setFilterAuthors(new String[]{"a"});
+    sp4.setFilterKeyword("b");
+    assertFalse(sp3.toCanonicalString().equals(sp4.toCanonicalString()));
+  }
 }
@@ -12,6 +12,9 @@
 
 package org.ambraproject.service.search;
 
+import net.sf.ehcache.CacheManager;
+import org.ambraproject.service.cache.EhcacheProvider;
+import org.ambraproject.views.SavedSearchHit;
 import org.ambraproject.views.SearchHit;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,9 +27,19 @@ import org.ambraproject.action.BaseTest;
 import org.ambraproject.testutils.EmbeddedSolrServerFactory;
 import org.ambraproject.views.SearchResultSinglePage;
 
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 /**
  * @author Scott Sterling
@@ -177,6 +190,173 @@ public class SearchServiceTest extends BaseTest {
             + " articles, but it should have returned " + numberOfHits + " articles");
   }
 
+  @DataProvider(name = "singleRequestFacets")
+  public Object[][] getSingleRequestFacets() {
+    return new Object[][]{
+        {true},
+        {false}
+    };
+  }
+
+  @Test(dataProvider = "singleRequestFacets")
+  public void testSimpleSearchFacetsIgnoreOwnFilter(boolean singleRequestFacets) throws Exception {
+    SolrSearchService solrSearchService = (SolrSearchService) searchService;
+    solrSearchService.setSingleRequestFacets(singleRequestFacets);
+
+    try {
+      SearchParameters searchParameters = getSearchParameters();
+      searchParameters.setQuery("delta");
+      searchParameters.setFilterJournals(new String[]{JOURNAL_KEY_1});
+      SearchResultSinglePage resultSinglePage = searchService.simpleSearch(searchParameters);
+
+      Assert.isTrue(resultSinglePage.getHits().size() == 1,
+          "Simple Search for 'delta' in journal " + JOURNAL_KEY_1 + " returned "
+              + resultSinglePage.getHits().size() + " articles, but it should have returned 1 article");
+      Assert.isTrue(resultSinglePage.getJournalFacet().size() == 2,
+          "Journal facet should not be limited by the journal filter, but it had "
+              + resultSinglePage.getJournalFacet().size() + " journals");
+      Assert.isTrue(resultSinglePage.getArticleTypeFacet().size() == 1,
+          "Expected 1 Article Type Facet but, instead, received " + resultSinglePage.getArticleTypeFacet().size());
+      Assert.notNull(resultSinglePage.getKeywordFacet(), "Keyword facet should have been set");
+    } finally {
+      solrSearchService.setSingleRequestFacets(true);
+    }
+  }
+
+  @Test
+  public void testResultCache() throws Exception {
+    SolrSearchService solrSearchService = (SolrSearchService) searchService;
+    CacheManager cacheManager = new CacheManager();
+    net.sf.ehcache.Cache ehcache = new net.sf.ehcache.Cache("searchResultCacheTest", 100, false, true, 0, 0);
+    cacheManager.addCache(ehcache);
+
+    SolrIndexGeneration indexGeneration = new SolrIndexGeneration();
+    indexGeneration.setServerFactory(solrServerFactory);
+    indexGeneration.setCheckInterval(0);
+    SearchResultCacheStatistics statistics = new SearchResultCacheStatistics();
+    statistics.setIndexGeneration(indexGeneration);
+
+    solrSearchService.setResultCache(new IndexGenerationCache(new EhcacheProvider(ehcache), indexGeneration));
+    solrSearchService.setResultCacheStatistics(statistics);
+
+    try {
+      SearchParameters searchParameters = getSearchParameters();
+      searchParameters.setQuery("yak");
+      searchParameters.setFilterJournals(new String[]{JOURNAL_KEY_1, JOURNAL_KEY_2});
+      assertEquals(searchService.simpleSearch(searchParameters).getHits().size(), 2);
+
+      searchParameters = getSearchParameters();
+      searchParameters.setQuery("yak");
+      searchParameters.setFilterJournals(new String[]{JOURNAL_KEY_2, JOURNAL_KEY_1});
+      assertEquals(searchService.simpleSearch(searchParameters).getHits().size(), 2);
+      assertEquals(statistics.getSimpleSearchMisses(), 1);
+      assertEquals(statistics.getSimpleSearchHits(), 1, "Repeated search should have been answered from the cache");
+      assertEquals(statistics.getSimpleSearchHitRatio(), 0.5);
+
+      //a commit changes the index generation, so the cached results are dropped
+      Map<String, String[]> document = new HashMap<String, String[]>();
+      document.put("id", new String[]{"10.1371/journal.pbio.1000102"});
+      document.put("title", new String[]{"The Fourth Title, with Yak"});
+      document.put("everything", new String[]{"fourth title with yak"});
+      document.put("doc_type", new String[]{"full"});
+      document.put("publication_date", new String[]{"2008-06-23T00:00:00Z"});
+      document.put("cross_published_journal_key", new String[]{JOURNAL_KEY_2});
+      document.put("article_type_facet", new String[]{"Not an issue image"});
+      solrServerFactory.addDocument(document);
+
+      assertEquals(searchService.simpleSearch(searchParameters).getHits().size(), 3,
+          "Cached results should have been dropped after the index changed");
+      assertEquals(statistics.getSimpleSearchMisses(), 2);
+      assertEquals(statistics.getInvalidations(), 1);
+    } finally {
+      solrSearchService.setResultCache(null);
+      cacheManager.shutdown();
+    }
+  }
+
+  @Test
+  public void testCursorPaging() throws Exception {
+    SolrSearchService solrSearchService = (SolrSearchService) searchService;
+    solrSearchService.setCursorStartPage(1);
+
+    try {
+      SearchParameters searchParameters = getSearchParameters();
+      searchParameters.setUnformattedQuery("*:*");
+      searchParameters.setSortValue("publication_date desc");
+      searchParameters.setPageSize(1);
+
+      SearchResultSinglePage page = searchService.advancedSearch(searchParameters);
+      assertEquals(page.getHits().get(0).getUri(), DOI_3);
+      String cursor = page.getNextCursor();
+      assertNotNull(cursor, "A full page sorted on plain fields should return a cursor");
+
+      for (String doi : new String[]{DOI_2, DOI_1}) {
+        searchParameters.setStartPage(searchParameters.getStartPage() + 1);
+        searchParameters.setCursor(cursor);
+        page = searchService.advancedSearch(searchParameters);
+
+        assertEquals(page.getHits().size(), 1);
+        assertEquals(page.getHits().get(0).getUri(), doi);
+        assertEquals(page.getTotalNoOfResults(), 3, "Total should count the results before the cursor");
+        cursor = page.getNextCursor();
+      }
+
+      //a cursor for another page is ignored, and the page is read by offset
+      searchParameters.setStartPage(1);
+      page = searchService.advancedSearch(searchParameters);
+      assertEquals(page.getHits().get(0).getUri(), DOI_2);
+
+      //searches sorted by score are always read by offset
+      searchParameters.setSortValue("");
+      searchParameters.setCursor(null);
+      assertNull(searchService.advancedSearch(searchParameters).getNextCursor());
+    } finally {
+      solrSearchService.setCursorStartPage(5);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testStreamSavedSearchAlerts() throws Exception {
+    SearchParameters searchParameters = getSearchParameters();
+    searchParameters.setUnformattedQuery("everything:title");
+    Date start = new GregorianCalendar(2008, Calendar.JANUARY, 1).getTime();
+    Date end = new GregorianCalendar(2009, Calendar.JANUARY, 1).getTime();
+
+    List<SearchHit> expected = searchService.savedSearchAlerts(searchParameters, start, end, 10);
+    assertEquals(expected.size(), 3);
+
+    final List<SavedSearchHit> streamed = new ArrayList<SavedSearchHit>();
+    final Set<StreamedSearchHit> holders = new HashSet<StreamedSearchHit>();
+    int read = searchService.streamSavedSearchAlerts(searchParameters, start, end, 10, new SearchHitHandler() {
+      @Override
+      public boolean handle(StreamedSearchHit hit) {
+        holders.add(hit);
+        streamed.add(hit.toSavedSearchHit());
+        return true;
+      }
+    });
+
+    assertEquals(read, 3);
+    assertEquals(holders.size(), 1, "The same holder should be used for every hit");
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(streamed.get(i).getUri(), expected.get(i).getUri());
+      assertEquals(streamed.get(i).getTitle(), expected.get(i).getTitle());
+      assertEquals(streamed.get(i).getCreator(), expected.get(i).getCreator());
+      assertEquals(new HashSet<String>(streamed.get(i).getSubjects()),
+          new HashSet<String>(expected.get(i).getSubjects()));
+    }
+
+    //handlers can stop reading early
+    read = searchService.streamSavedSearchAlerts(searchParameters, start, end, 10, new SearchHitHandler() {
+      @Override
+      public boolean handle(StreamedSearchHit hit) {
+        return false;
+      }
+    });
+    assertEquals(read, 1);
+  }
+
   @Test(dataProvider = "queryAndHitNumberForUnformattedQuery")
   public void testAdvancedSearch(String query, int numberOfHits) throws Exception {
     SearchParameters searchParameters = getSearchParameters();
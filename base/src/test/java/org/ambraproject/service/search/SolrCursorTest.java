@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocument;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class SolrCursorTest {
+
+  private static SolrQuery createQuery() {
+    SolrQuery query = new SolrQuery("everything:yak");
+    query.setFields("id", "title_display");
+    query.addSortField("publication_date", SolrQuery.ORDER.desc);
+    query.addSortField("id", SolrQuery.ORDER.desc);
+    query.setRows(10);
+    query.setStart(60);
+    query.addFacetField("subject_facet");
+    return query;
+  }
+
+  private static SolrDocument createLastDoc() {
+    SolrDocument doc = new SolrDocument();
+    doc.addField("id", "10.1371/journal.pone.0000060");
+    //2013-03-01T12:00:00Z
+    doc.addField("publication_date", new Date(1362139200000L));
+    return doc;
+  }
+
+  @Test
+  public void testGetSortFields() {
+    assertEquals(SolrCursor.getSortFields(createQuery()).size(), 2);
+
+    SolrQuery query = new SolrQuery("*:*");
+    assertNull(SolrCursor.getSortFields(query), "Unsorted queries can't be paged with a cursor");
+    query.addSortField("score", SolrQuery.ORDER.desc);
+    query.addSortField("id", SolrQuery.ORDER.desc);
+    assertNull(SolrCursor.getSortFields(query), "Sorts on score can't be paged with a cursor");
+
+    query = new SolrQuery("*:*");
+    query.addSortField("publication_date", SolrQuery.ORDER.desc);
+    assertNull(SolrCursor.getSortFields(query), "Sorts without an id tiebreaker can't be paged with a cursor");
+  }
+
+  @Test
+  public void testCreateFilter() {
+    String filter = SolrCursor.createFilter(
+        Arrays.asList(new String[]{"publication_date", "desc"}, new String[]{"title", "asc"},
+            new String[]{"id", "desc"}),
+        Arrays.asList("2013-03-01T12:00:00.000Z", "A \"quoted\" title", "10.1371/journal.pone.0000060"));
+
+    assertEquals(filter, "(publication_date:[* TO \"2013-03-01T12:00:00.000Z\"}) OR " +
+        "(publication_date:\"2013-03-01T12:00:00.000Z\" AND title:{\"A \\\"quoted\\\" title\" TO *]) OR " +
+        "(publication_date:\"2013-03-01T12:00:00.000Z\" AND title:\"A \\\"quoted\\\" title\" AND " +
+        "id:[* TO \"10.1371/journal.pone.0000060\"})");
+  }
+
+  @Test
+  public void testApplyToken() {
+    String token = SolrCursor.createToken(createQuery(), "search", 6, createLastDoc());
+    assertNotNull(token);
+    assertTrue(token.matches("[A-Za-z0-9_-]+"), "Token should be safe to use in a URL: " + token);
+
+    SolrQuery query = createQuery();
+    assertEquals(SolrCursor.apply(query, "search", 6, token), 60);
+    assertEquals(query.getStart(), Integer.valueOf(0));
+    assertEquals(query.getFilterQueries().length, 1);
+    assertTrue(query.getFilterQueries()[0].startsWith("{!cache=false tag=cursor}(publication_date:[* TO "
+        + "\"2013-03-01T12:00:00.000Z\"})"), query.getFilterQueries()[0]);
+    assertEquals(query.getFacetFields(), new String[]{"{!ex=cursor}subject_facet"});
+  }
+
+  @Test
+  public void testIgnoresMismatchedToken() {
+    String token = SolrCursor.createToken(createQuery(), "search", 6, createLastDoc());
+
+    assertEquals(SolrCursor.apply(createQuery(), "search", 7, token), -1, "Token is for another page");
+    assertEquals(SolrCursor.apply(createQuery(), "another search", 6, token), -1, "Token is for another search");
+    assertEquals(SolrCursor.apply(createQuery(), "search", 6, "not a token"), -1);
+    assertEquals(SolrCursor.apply(createQuery(), "search", 6, null), -1);
+
+    SolrQuery query = createQuery();
+    query.setRows(20);
+    assertEquals(SolrCursor.apply(query, "search", 6, token), -1, "Token is for another page size");
+    assertNull(query.getFilterQueries());
+    assertEquals(query.getStart(), Integer.valueOf(60));
+  }
+
+  @Test
+  public void testAddSortFields() {
+    SolrQuery query = createQuery();
+    SolrCursor.addSortFields(query);
+    assertEquals(query.getFields(), "id,title_display,publication_date");
+
+    SolrDocument doc = new SolrDocument();
+    doc.addField("id", "10.1371/journal.pone.0000060");
+    assertNull(SolrCursor.createToken(query, "search", 6, doc), "Results without a sort value have no token");
+  }
+}
@@ -25,6 +25,7 @@ import org.ambraproject.action.BaseHttpTest;
 import org.w3c.dom.Document;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.testng.Assert.*;
@@ -77,4 +78,27 @@ public class SolrHttpServiceTest extends BaseHttpTest {
     assertEquals(result.getElementsByTagName("doc").getLength(), 10,
         "didn't parse xml for correct number of result nodes");
   }
+
+  @Test
+  public void testMakeRequestWithMapper() throws SolrException {
+    httpEndpoint.whenAnyExchangeReceived(new Processor() {
+      @Override
+      public void process(Exchange exchange) throws Exception {
+        exchange.getOut().setBody(testSolrXml);
+      }
+    });
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("fl", "id");
+
+    List<String> ids = solrHttpService.makeSolrRequest(params, new SolrDocumentMapper<String>() {
+      @Override
+      public String map(SolrResultDocument doc) {
+        return doc.getFirstValue("id");
+      }
+    });
+    assertEquals(ids.size(), 10, "didn't map the correct number of result documents");
+    for (String id : ids) {
+      assertNotNull(id, "didn't read id of result document");
+    }
+  }
 }
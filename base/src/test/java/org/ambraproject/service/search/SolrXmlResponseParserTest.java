@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.search;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class SolrXmlResponseParserTest {
+
+  private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+      "<response>\n" +
+      "  <lst name=\"responseHeader\"><int name=\"status\">0</int><int name=\"QTime\">3</int></lst>\n" +
+      "  <result name=\"response\" numFound=\"2\" start=\"0\">\n" +
+      "    <doc>\n" +
+      "      <str name=\"id\">10.1371/journal.pone.0000001</str>\n" +
+      "      <str name=\"title_display\">First &amp; foremost</str>\n" +
+      "      <arr name=\"author_display\"><str>Alice</str><str>Bob</str></arr>\n" +
+      "      <str name=\"body\">A very long body that nobody asked for</str>\n" +
+      "    </doc>\n" +
+      "    <doc>\n" +
+      "      <str name=\"id\">10.1371/journal.pone.0000002</str>\n" +
+      "      <str name=\"title_display\">Second</str>\n" +
+      "      <arr name=\"author_display\"><str>Carol</str></arr>\n" +
+      "      <str name=\"body\">Another long body</str>\n" +
+      "    </doc>\n" +
+      "  </result>\n" +
+      "</response>";
+
+  private static Document parse(Set<String> fields) throws Exception {
+    return new SolrXmlResponseParser().parse(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")), fields);
+  }
+
+  @Test
+  public void testParseFieldList() {
+    assertNull(SolrXmlResponseParser.parseFieldList(null));
+    assertNull(SolrXmlResponseParser.parseFieldList(" "));
+    assertNull(SolrXmlResponseParser.parseFieldList("id,*"));
+
+    Set<String> fields = SolrXmlResponseParser.parseFieldList("id, title_display author_display");
+    assertEquals(fields.size(), 3);
+    assertTrue(fields.contains("id"));
+    assertTrue(fields.contains("title_display"));
+    assertTrue(fields.contains("author_display"));
+  }
+
+  @Test
+  public void testKeepsRequestedFields() throws Exception {
+    Document doc = parse(SolrXmlResponseParser.parseFieldList("id,title_display,author_display"));
+
+    NodeList docs = doc.getElementsByTagName("doc");
+    assertEquals(docs.getLength(), 2);
+    assertEquals(doc.getElementsByTagName("arr").getLength(), 2);
+    assertEquals(((Element) docs.item(0)).getElementsByTagName("str").getLength(), 4,
+        "id, title and two authors should be kept");
+
+    for (int i = 0; i < docs.getLength(); i++) {
+      NodeList children = docs.item(i).getChildNodes();
+      for (int j = 0; j < children.getLength(); j++) {
+        assertTrue(!"body".equals(((Element) children.item(j)).getAttribute("name")), "body should be dropped");
+      }
+    }
+
+    assertEquals(XPathFactory.newInstance().newXPath()
+        .evaluate("//result/doc[1]/str[@name = 'title_display']/text()", doc), "First & foremost");
+    assertEquals(XPathFactory.newInstance().newXPath()
+        .evaluate("//result/doc[2]/arr[@name = 'author_display']/str[1]/text()", doc), "Carol");
+    assertEquals(XPathFactory.newInstance().newXPath()
+        .evaluate("//lst[@name = 'responseHeader']/int[@name = 'status']", doc), "0");
+    assertEquals(((Element) doc.getElementsByTagName("result").item(0)).getAttribute("numFound"), "2");
+  }
+
+  @Test
+  public void testKeepsAllFields() throws Exception {
+    Document doc = parse(null);
+
+    assertEquals(doc.getElementsByTagName("doc").getLength(), 2);
+    assertEquals(XPathFactory.newInstance().newXPath()
+        .evaluate("//result/doc[2]/str[@name = 'body']/text()", doc), "Another long body");
+  }
+
+  @Test
+  public void testParseDocuments() throws Exception {
+    List<String> titles = new SolrXmlResponseParser().parseDocuments(
+        new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")),
+        SolrXmlResponseParser.parseFieldList("id,title_display,author_display"),
+        new SolrDocumentMapper<String>() {
+          @Override
+          public String map(SolrResultDocument doc) {
+            assertTrue(!doc.getFieldNames().contains("body"), "body should be skipped");
+            assertNull(doc.getFirstValue("body"));
+            return doc.getFirstValue("id") + ": " + doc.getFirstValue("title_display") + " by "
+                + doc.getValues("author_display");
+          }
+        });
+
+    assertEquals(titles.size(), 2);
+    assertEquals(titles.get(0), "10.1371/journal.pone.0000001: First & foremost by [Alice, Bob]");
+    assertEquals(titles.get(1), "10.1371/journal.pone.0000002: Second by [Carol]");
+  }
+
+  @Test
+  public void testParseDocumentsSkipsNullResults() throws Exception {
+    List<String> bodies = new SolrXmlResponseParser().parseDocuments(
+        new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")), null,
+        new SolrDocumentMapper<String>() {
+          @Override
+          public String map(SolrResultDocument doc) {
+            return doc.getFirstValue("id").endsWith("1") ? null : doc.getFirstValue("body");
+          }
+        });
+
+    assertEquals(bodies.size(), 1);
+    assertEquals(bodies.get(0), "Another long body");
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.service.user;
+
+import org.ambraproject.action.BaseTest;
+import org.ambraproject.models.ArticleView;
+import org.ambraproject.models.UserLogin;
+import org.ambraproject.models.UserSearch;
+import org.ambraproject.service.hibernate.AsyncEntityWriter;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class UsageLogWriterTest extends BaseTest {
+
+  @Autowired
+  protected SessionFactory sessionFactory;
+  @Autowired
+  protected PlatformTransactionManager transactionManager;
+
+  private UsageLogWriter createWriter(int queueSize, AsyncEntityWriter.OverflowPolicy policy) {
+    UsageLogWriter writer = new UsageLogWriter();
+    writer.setSessionFactory(sessionFactory);
+    writer.setTransactionManager(transactionManager);
+    writer.setQueueSize(queueSize);
+    writer.setBatchSize(2);
+    //long enough that the tests flush before the background thread does
+    writer.setFlushInterval(60000);
+    writer.setOverflowPolicy(policy);
+    writer.setBlockTimeout(10);
+    writer.init();
+    return writer;
+  }
+
+  @Test
+  public void testBatchInserts() {
+    dummyDataStore.deleteAll(UserLogin.class);
+    dummyDataStore.deleteAll(ArticleView.class);
+    dummyDataStore.deleteAll(UserSearch.class);
+
+    UsageLogWriter writer = createWriter(100, AsyncEntityWriter.OverflowPolicy.DROP);
+    try {
+      assertTrue(writer.write(new UserSearch(7L, "batch terms", "batch params")));
+      UserLogin login = new UserLogin("batchSession", "127.0.0.1", "batchAgent");
+      login.setUserProfileID(7L);
+      assertTrue(writer.write(login));
+      assertTrue(writer.write(new ArticleView(7L, 11L, ArticleView.Type.PDF_DOWNLOAD)));
+      assertTrue(writer.write(new ArticleView(7L, 12L, ArticleView.Type.XML_DOWNLOAD)));
+
+      assertEquals(writer.flush(), 4);
+      assertEquals(writer.getQueued(), 4);
+      assertEquals(writer.getFlushed(), 4);
+      assertEquals(writer.getDropped(), 0);
+      assertEquals(writer.getFailed(), 0);
+    } finally {
+      writer.destroy();
+    }
+
+    List<UserLogin> logins = dummyDataStore.getAll(UserLogin.class);
+    assertEquals(logins.size(), 1);
+    assertEquals(logins.get(0).getUserProfileID().longValue(), 7L);
+    assertEquals(logins.get(0).getSessionId(), "batchSession");
+    assertEquals(logins.get(0).getIP(), "127.0.0.1");
+    assertEquals(logins.get(0).getUserAgent(), "batchAgent");
+
+    List<ArticleView> views = dummyDataStore.getAll(ArticleView.class);
+    assertEquals(views.size(), 2);
+    for (ArticleView view : views) {
+      assertEquals(view.getUserID().longValue(), 7L);
+      assertEquals(view.getType(), view.getArticleID() == 11L
+          ? ArticleView.Type.PDF_DOWNLOAD : ArticleView.Type.XML_DOWNLOAD);
+    }
+
+    List<UserSearch> searches = dummyDataStore.getAll(UserSearch.class);
+    assertEquals(searches.size(), 1);
+    assertEquals(searches.get(0).getSearchTerms(), "batch terms");
+    assertEquals(searches.get(0).getSearchParams(), "batch params");
+  }
+
+  @Test
+  public void testDropPolicy() {
+    UsageLogWriter writer = createWriter(2, AsyncEntityWriter.OverflowPolicy.DROP);
+    try {
+      assertTrue(writer.write(new UserSearch(8L, "drop 1", null)));
+      assertTrue(writer.write(new UserSearch(8L, "drop 2", null)));
+      assertFalse(writer.write(new UserSearch(8L, "drop 3", null)), "Write to a full queue wasn't dropped");
+
+      assertEquals(writer.getQueued(), 2);
+      assertEquals(writer.getDropped(), 1);
+      assertEquals(writer.getQueueLength(), 2);
+    } finally {
+      writer.destroy();
+    }
+    assertEquals(writer.getFlushed(), 2, "Queued records weren't saved on destroy");
+  }
+
+  @Test
+  public void testDropOldestPolicy() {
+    dummyDataStore.deleteAll(UserSearch.class);
+
+    UsageLogWriter writer = createWriter(2, AsyncEntityWriter.OverflowPolicy.DROP_OLDEST);
+    try {
+      assertTrue(writer.write(new UserSearch(9L, "oldest 1", null)));
+      assertTrue(writer.write(new UserSearch(9L, "oldest 2", null)));
+      assertTrue(writer.write(new UserSearch(9L, "oldest 3", null)));
+
+      assertEquals(writer.getDropped(), 1);
+      assertEquals(writer.flush(), 2);
+    } finally {
+      writer.destroy();
+    }
+
+    List<UserSearch> searches = dummyDataStore.getAll(UserSearch.class);
+    assertEquals(searches.size(), 2);
+    for (UserSearch search : searches) {
+      assertFalse(search.getSearchTerms().equals("oldest 1"), "Oldest record wasn't the one dropped");
+    }
+  }
+
+  @Test
+  public void testBlockPolicy() {
+    UsageLogWriter writer = createWriter(1, AsyncEntityWriter.OverflowPolicy.BLOCK);
+    try {
+      assertTrue(writer.write(new UserSearch(10L, "block 1", null)));
+
+      long start = System.currentTimeMillis();
+      assertFalse(writer.write(new UserSearch(10L, "block 2", null)), "Write to a full queue wasn't dropped");
+      assertTrue(System.currentTimeMillis() - start >= 10, "Write to a full queue didn't wait");
+      assertEquals(writer.getDropped(), 1);
+    } finally {
+      writer.destroy();
+    }
+  }
+}
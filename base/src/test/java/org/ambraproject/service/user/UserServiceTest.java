@@ -50,6 +50,8 @@ public class UserServiceTest extends BaseTest {
 
   @Autowired
   protected UserService userService;
+  @Autowired
+  protected UsageLogWriter usageLogWriter;
 
   @DataProvider(name = "userProfile")
   private Object[][] getUserProfile() {
@@ -137,6 +139,7 @@ public class UserServiceTest extends BaseTest {
     UserLogin login = new UserLogin("sessionId", "IP", "userAgent");
     int numLogins = getUserLogins(id).size();
     userService.login(userProfile.getAuthId(), login);
+    usageLogWriter.flush();
 
     List<UserLogin> storedLogins = getUserLogins(id);
     assertEquals(storedLogins.size(), numLogins + 1, "login didn't get stored to the database");
@@ -243,9 +246,15 @@ public class UserServiceTest extends BaseTest {
     article.setDoi("id:test-article-to-record-viewing");
     Long articleID = Long.valueOf(dummyDataStore.store(article));
 
-    Long viewId = userService.recordArticleView(userId, articleID, ArticleView.Type.ARTICLE_VIEW);
-    assertNotNull(viewId, "returned null view id");
-    ArticleView storedView = dummyDataStore.get(ArticleView.class, viewId);
+    userService.recordArticleView(userId, articleID, ArticleView.Type.ARTICLE_VIEW);
+    usageLogWriter.flush();
+
+    ArticleView storedView = null;
+    for (ArticleView view : dummyDataStore.getAll(ArticleView.class)) {
+      if (view.getArticleID().equals(articleID)) {
+        storedView = view;
+      }
+    }
     assertNotNull(storedView, "didn't store article view");
     assertEquals(storedView.getType(), ArticleView.Type.ARTICLE_VIEW, "Stored view had incorrect type");
     assertEquals(storedView.getArticleID(), articleID, "Stored view had incorrect article id");
@@ -254,7 +263,9 @@ public class UserServiceTest extends BaseTest {
 
   @Test
   public void testLogSearchTerms() {
+    dummyDataStore.deleteAll(UserSearch.class);
     userService.recordUserSearch(5L, "search terms", "search params");
+    usageLogWriter.flush();
 
     List<UserSearch> allSearches = dummyDataStore.getAll(UserSearch.class);
 
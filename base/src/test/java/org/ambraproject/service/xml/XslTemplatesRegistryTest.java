@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.service.xml;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class XslTemplatesRegistryTest {
+
+  private static String stylesheet(String output) {
+    return "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+        "<xsl:output method=\"text\"/>" +
+        "<xsl:template match=\"/\">" + output + "</xsl:template>" +
+        "</xsl:stylesheet>";
+  }
+
+  private static String transform(Templates templates) throws Exception {
+    StringWriter writer = new StringWriter();
+    templates.newTransformer().transform(new StreamSource(new StringReader("<doc/>")), new StreamResult(writer));
+    return writer.toString();
+  }
+
+  @Test
+  public void testCompiledOnceAndShared() throws Exception {
+    File xsl = File.createTempFile("registry-test", ".xsl");
+    xsl.deleteOnExit();
+    FileUtils.writeStringToFile(xsl, stylesheet("first"));
+
+    XslTemplatesRegistry registry = new XslTemplatesRegistry(null, 0);
+    registry.register("", xsl.getAbsolutePath());
+    registry.register("3.0", xsl.getAbsolutePath());
+
+    assertTrue(registry.contains("3.0"));
+    assertFalse(registry.contains("2.0"));
+    assertNull(registry.getTemplates("2.0"));
+
+    Templates templates = registry.getTemplates("3.0");
+    assertSame(registry.getTemplates(""), templates, "versions with the same stylesheet should share templates");
+    assertSame(registry.getTemplates("3.0"), templates, "templates should not be recompiled");
+    assertEquals(transform(templates), "first");
+  }
+
+  @Test
+  public void testReload() throws Exception {
+    File xsl = File.createTempFile("registry-test", ".xsl");
+    xsl.deleteOnExit();
+    FileUtils.writeStringToFile(xsl, stylesheet("first"));
+
+    XslTemplatesRegistry registry = new XslTemplatesRegistry(null, 1);
+    registry.register("3.0", xsl.getAbsolutePath());
+    assertEquals(transform(registry.getTemplates("3.0")), "first");
+
+    FileUtils.writeStringToFile(xsl, stylesheet("second"));
+    //make sure the modification time changes regardless of file system granularity
+    assertTrue(xsl.setLastModified(xsl.lastModified() + 10000));
+    Thread.sleep(5);
+
+    assertEquals(transform(registry.getTemplates("3.0")), "second");
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    File xsl = File.createTempFile("registry-test", ".xsl");
+    xsl.deleteOnExit();
+    FileUtils.writeStringToFile(xsl, stylesheet("first"));
+
+    XslTemplatesRegistry registry = new XslTemplatesRegistry(null, 0);
+    registry.register("3.0", xsl.getAbsolutePath());
+    registry.recordTransform("3.0", 2000000);
+    registry.recordTransform("3.0", 4000000);
+    registry.recordTransform("unknown", 4000000);
+
+    Map<String, XslTemplatesRegistry.Statistics> statistics = registry.getStatistics();
+    assertEquals(statistics.size(), 1);
+    XslTemplatesRegistry.Statistics stats = statistics.get("3.0");
+    assertEquals(stats.getTransformCount(), 2);
+    assertEquals(stats.getAverageTransformMillis(), 3.0, 0.0001);
+    assertEquals(stats.getMaxTransformMillis(), 4.0, 0.0001);
+  }
+}
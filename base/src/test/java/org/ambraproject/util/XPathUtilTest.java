@@ -36,6 +36,13 @@ import javax.xml.xpath.XPathExpressionException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.testng.Assert.*;
 
@@ -170,5 +177,45 @@ public class XPathUtilTest {
     }
   }
 
+  @Test
+  public void testConcurrentEvaluation() throws Exception {
+    final Object[][] expressions = getExpressions();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int i = 0; i < 64; i++) {
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            for (int j = 0; j < 200; j++) {
+              for (Object[] expression : expressions) {
+                if (!expression[1].equals(xPathUtil.evaluate(testXml, (String) expression[0]))) {
+                  return false;
+                }
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get(), "Concurrent evaluation returned an incorrect result");
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testNamespaceContext() throws Exception {
+    Document document = DocumentBuilderFactoryCreator.createFactory().newDocumentBuilder().parse(new InputSource(
+        new StringReader("<root xmlns:x=\"http://example.org/x\"><x:child>namespaced</x:child></root>")));
+    XPathUtil util = new XPathUtil();
 
+    //compile some expressions before the context is set
+    assertEquals(util.evaluate(document, "count(/root/*)"), "1");
+
+    util.setNamespaceContext(new String[]{"x=http://example.org/x"});
+    assertEquals(util.evaluate(document, "/root/x:child/text()"), "namespaced");
+  }
 }
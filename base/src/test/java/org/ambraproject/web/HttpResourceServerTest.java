@@ -25,14 +25,23 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.testng.annotations.Test;
 import org.testng.annotations.BeforeClass;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import org.custommonkey.xmlunit.Diff;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.xml.sax.SAXException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.net.URL;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * @author Dragisa Krsmanovic
@@ -126,4 +135,151 @@ public class HttpResourceServerTest {
     assertEquals(responseMock.getContentLength(), EXPECTED_TEXT.length(),
         "Wrong content length");
   }
+
+  private HttpResourceServer.FileResource createFileResource() throws Exception {
+    return new HttpResourceServer.FileResource(new File(txtUrl.toURI())) {
+      @Override
+      public InputStream streamContent() throws IOException {
+        throw new AssertionError("File should be read through its channel");
+      }
+    };
+  }
+
+  @Test
+  public void testServeFileResource() throws Exception {
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    HttpResourceServer server = new HttpResourceServer();
+    server.serveResource(requestMock, responseMock, true, createFileResource());
+    assertEquals(responseMock.getContentAsString(), EXPECTED_TEXT, "Wrong content served");
+    assertEquals(responseMock.getContentType(), "text/plain", "Wrong content type");
+    assertEquals(responseMock.getContentLength(), EXPECTED_TEXT.length(),
+        "Wrong content length");
+  }
+
+  @Test
+  public void testServeFileRange() throws Exception {
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    requestMock.addHeader("Range", "bytes=6-10");
+    HttpResourceServer server = new HttpResourceServer();
+    server.serveResource(requestMock, responseMock, true, createFileResource());
+    assertEquals(responseMock.getStatus(), HttpServletResponse.SC_PARTIAL_CONTENT, "Wrong status");
+    assertEquals(responseMock.getHeader("Content-Range"), "bytes 6-10/" + EXPECTED_TEXT.length(),
+        "Wrong content range");
+    assertEquals(responseMock.getContentAsString(), "World", "Wrong content served");
+    assertEquals(responseMock.getContentLength(), 5, "Wrong content length");
+  }
+
+  @Test
+  public void testServeFileRanges() throws Exception {
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    requestMock.addHeader("Range", "bytes=6-10,0-4");
+    HttpResourceServer server = new HttpResourceServer();
+    server.serveResource(requestMock, responseMock, true, createFileResource());
+    assertEquals(responseMock.getStatus(), HttpServletResponse.SC_PARTIAL_CONTENT, "Wrong status");
+
+    String content = responseMock.getContentAsString();
+    int world = content.indexOf("Content-Range: bytes 6-10/" + EXPECTED_TEXT.length());
+    int hello = content.indexOf("Content-Range: bytes 0-4/" + EXPECTED_TEXT.length());
+    assertTrue(world >= 0 && hello > world, "Ranges should be sent in the requested order");
+    assertTrue(content.substring(world, hello).contains("World"), "Wrong content for first range");
+    assertTrue(content.substring(hello).contains("Hello"), "Wrong content for second range");
+  }
+
+  @Test
+  public void testNotModifiedFileIsNotOpened() throws Exception {
+    HttpResourceServer.FileResource resource = new HttpResourceServer.FileResource(new File(txtUrl.toURI())) {
+      @Override
+      public InputStream streamContent() throws IOException {
+        throw new AssertionError("File should not be opened");
+      }
+
+      @Override
+      public FileChannel openChannel() throws IOException {
+        throw new AssertionError("File should not be opened");
+      }
+    };
+
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    HttpResourceServer server = new HttpResourceServer();
+    requestMock.addHeader("If-None-Match", server.getETag(resource));
+    server.serveResource(requestMock, responseMock, true, resource);
+    assertEquals(responseMock.getStatus(), HttpServletResponse.SC_NOT_MODIFIED, "Wrong status");
+    assertEquals(responseMock.getContentAsString(), "", "Content is not empty");
+  }
+
+  private File createLargeFile() throws IOException {
+    File file = File.createTempFile("HttpResourceServerTest", ".txt");
+    file.deleteOnExit();
+    byte[] data = new byte[100000];
+    Arrays.fill(data, (byte) 'a');
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void testServeFileWithSendfile() throws Exception {
+    File file = createLargeFile();
+
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    requestMock.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+    requestMock.addHeader("Range", "bytes=1000-");
+    HttpResourceServer server = new HttpResourceServer();
+    server.serveResource(requestMock, responseMock, true, new HttpResourceServer.FileResource(file));
+
+    assertEquals(responseMock.getStatus(), HttpServletResponse.SC_PARTIAL_CONTENT, "Wrong status");
+    assertEquals(responseMock.getContentLength(), 99000, "Wrong content length");
+    assertEquals(responseMock.getContentAsByteArray().length, 0, "Content should be left to the container");
+    assertEquals(requestMock.getAttribute("org.apache.tomcat.sendfile.filename"), file.getAbsolutePath());
+    assertEquals(requestMock.getAttribute("org.apache.tomcat.sendfile.start"), 1000L);
+    assertEquals(requestMock.getAttribute("org.apache.tomcat.sendfile.end"), 100000L);
+  }
+
+  @Test
+  public void testNoSendfileForWrappedResponse() throws Exception {
+    File file = createLargeFile();
+
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    requestMock.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+    requestMock.addHeader("Range", "bytes=1000-");
+    HttpResourceServer server = new HttpResourceServer();
+    //e.g. a compressing filter, which would never see a body sent by the container
+    server.serveResource(requestMock, new HttpServletResponseWrapper(responseMock), true,
+        new HttpResourceServer.FileResource(file));
+
+    assertEquals(responseMock.getStatus(), HttpServletResponse.SC_PARTIAL_CONTENT, "Wrong status");
+    assertEquals(responseMock.getContentAsByteArray().length, 99000, "Content should be written through the wrapper");
+    assertNull(requestMock.getAttribute("org.apache.tomcat.sendfile.filename"),
+        "Sendfile should not be used for a wrapped response");
+  }
+
+  @Test
+  public void testSendfileForWrappedJournalRequest() throws Exception {
+    File file = createLargeFile();
+
+    MockHttpServletResponse responseMock = new MockHttpServletResponse();
+    MockHttpServletRequest requestMock = new MockHttpServletRequest();
+    requestMock.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+    //journal static resources are always served through a wrapped request
+    HttpServletRequest journalRequest = VirtualJournalContext.wrapRequest(requestMock,
+        new String[] {"", "", "/journals/test/webapp/test.pdf", "/journals/test/webapp/test.pdf"});
+    HttpResourceServer server = new HttpResourceServer();
+    server.serveResource(journalRequest, responseMock, true, new HttpResourceServer.FileResource(file));
+
+    assertEquals(responseMock.getStatus(), HttpServletResponse.SC_OK, "Wrong status");
+    assertEquals(responseMock.getContentAsByteArray().length, 0, "Content should be left to the container");
+    assertEquals(requestMock.getAttribute("org.apache.tomcat.sendfile.filename"), file.getAbsolutePath());
+    assertEquals(requestMock.getAttribute("org.apache.tomcat.sendfile.start"), 0L);
+    assertEquals(requestMock.getAttribute("org.apache.tomcat.sendfile.end"), 100000L);
+  }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.web;
+
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class MultipleRequestFilterTest {
+
+  /**
+   * Counts the requests that got through, optionally holding them up until released
+   */
+  private static class CountingChain implements FilterChain {
+    private final AtomicInteger count = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release;
+
+    private CountingChain(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+      count.incrementAndGet();
+      started.countDown();
+      if (release != null) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new ServletException(e);
+        }
+      }
+    }
+  }
+
+  private static MultipleRequestFilter createFilter() throws ServletException {
+    MockFilterConfig config = new MockFilterConfig();
+    config.addInitParameter("includePattern_fetchArticle", ".*/article/info.*");
+    config.addInitParameter("maxWait", "5000");
+    MultipleRequestFilter filter = new MultipleRequestFilter();
+    filter.init(config);
+    return filter;
+  }
+
+  private static MockHttpServletRequest createRequest(MockHttpSession session) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/article/info%3Adoi%2F10.1371%2Fjournal.pone.0000001");
+    request.setSession(session);
+    return request;
+  }
+
+  @Test
+  public void testAnonymousRequestsArePassedThrough() throws Exception {
+    MultipleRequestFilter filter = createFilter();
+    CountingChain chain = new CountingChain(null);
+
+    MockHttpServletRequest request = createRequest(null);
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    assertEquals(chain.count.get(), 2);
+    assertNull(request.getSession(false), "A session shouldn't have been created");
+  }
+
+  @Test
+  public void testDuplicateRequests() throws Exception {
+    final MultipleRequestFilter filter = createFilter();
+    final MockHttpSession session = new MockHttpSession();
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountingChain chain = new CountingChain(release);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Runnable request = new Runnable() {
+        @Override
+        public void run() {
+          try {
+            filter.doFilter(createRequest(session), new MockHttpServletResponse(), chain);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+
+      Future<?> first = executor.submit(request);
+      chain.started.await(5, TimeUnit.SECONDS);
+
+      //the second request waits for the first one, and is displaced by the third
+      Future<?> second = executor.submit(request);
+      Thread.sleep(200);
+      Future<?> third = executor.submit(request);
+      second.get(5, TimeUnit.SECONDS);
+      assertEquals(filter.getBlockedRequests(), 1);
+
+      //a different session isn't held up
+      filter.doFilter(createRequest(new MockHttpSession()), new MockHttpServletResponse(), new CountingChain(null));
+
+      release.countDown();
+      first.get(5, TimeUnit.SECONDS);
+      third.get(5, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(chain.count.get(), 2, "The first and the latest request should have been processed");
+    assertEquals(filter.getBlockedRequests(), 1);
+    assertEquals(filter.getCoalescedRequests(), 1);
+  }
+
+  @Test
+  public void testCountsAreExportedOverJmx() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.ambraproject.web:name=MultipleRequestFilter");
+    //filters from the other tests aren't destroyed
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+
+    MultipleRequestFilter filter = createFilter();
+    try {
+      assertTrue(server.isRegistered(name), "The filter wasn't exported");
+      assertEquals(server.getAttribute(name, "BlockedRequests"), 0L);
+      assertEquals(server.getAttribute(name, "CoalescedRequests"), 0L);
+      assertEquals(server.getAttribute(name, "InFlightRequests"), 0);
+    } finally {
+      filter.destroy();
+    }
+    assertFalse(server.isRegistered(name), "The filter wasn't unregistered when destroyed");
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.web;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class StaticResourceCacheTest {
+
+  private static final String CSS = "body { margin: 0; padding: 0; }\n" +
+      "#header { margin: 0; padding: 0; }\n" +
+      "#footer { margin: 0; padding: 0; }\n";
+
+  private static File createFile(String suffix, String content) throws IOException {
+    File file = File.createTempFile("StaticResourceCacheTest", suffix);
+    file.deleteOnExit();
+    FileUtils.writeStringToFile(file, content, "UTF-8");
+    return file;
+  }
+
+  @Test
+  public void testIsAccepted() {
+    assertFalse(StaticResourceCache.isAccepted(null, "gzip"));
+    assertTrue(StaticResourceCache.isAccepted("gzip, deflate", "gzip"));
+    assertTrue(StaticResourceCache.isAccepted("gzip, deflate", "deflate"));
+    assertTrue(StaticResourceCache.isAccepted("GZIP;q=0.5", "gzip"));
+    assertFalse(StaticResourceCache.isAccepted("gzip;q=0, deflate", "gzip"));
+    assertFalse(StaticResourceCache.isAccepted("identity", "gzip"));
+    assertTrue(StaticResourceCache.isAccepted("*", "deflate"));
+    assertFalse(StaticResourceCache.isAccepted("*, gzip;q=0", "gzip"));
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    File file = createFile(".css", CSS);
+    StaticResourceCache cache = new StaticResourceCache(1024 * 1024, 1024, 0);
+
+    StaticResourceCache.Entry entry = cache.get(file.getPath());
+    assertNotNull(entry);
+    assertTrue(entry == cache.get(file.getPath()), "File wasn't cached");
+    assertTrue(cache.getSize() > 0);
+
+    HttpResourceServer.Resource resource = entry.getResource(null);
+    assertEquals(new String(resource.getContent(), "UTF-8"), CSS);
+    assertEquals(resource.getContentType(), "text/css");
+    assertEquals(resource.getLastModified(), file.lastModified());
+    assertTrue(resource.getETag().startsWith("\""), "ETag should be strong");
+
+    assertTrue(entry.isCompressed());
+    assertEquals(entry.selectEncoding("deflate, gzip"), StaticResourceCache.ENCODING_GZIP);
+    assertEquals(entry.selectEncoding("deflate"), StaticResourceCache.ENCODING_DEFLATE);
+    assertNull(entry.selectEncoding(null));
+
+    HttpResourceServer.Resource gzip = entry.getResource(StaticResourceCache.ENCODING_GZIP);
+    assertEquals(IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(gzip.getContent())), "UTF-8"), CSS);
+    assertTrue(!gzip.getETag().equals(resource.getETag()), "Encodings should have their own ETag");
+
+    HttpResourceServer.Resource deflate = entry.getResource(StaticResourceCache.ENCODING_DEFLATE);
+    assertEquals(IOUtils.toString(new InflaterInputStream(new ByteArrayInputStream(deflate.getContent())), "UTF-8"),
+        CSS);
+  }
+
+  @Test
+  public void testUncompressedTypes() throws Exception {
+    File file = createFile(".png", CSS);
+    StaticResourceCache cache = new StaticResourceCache(1024 * 1024, 1024, 0);
+
+    StaticResourceCache.Entry entry = cache.get(file.getPath());
+    assertFalse(entry.isCompressed());
+    assertNull(entry.selectEncoding("gzip"));
+    assertEquals(entry.getResource(StaticResourceCache.ENCODING_GZIP).getContent().length, CSS.length());
+  }
+
+  @Test
+  public void testLimits() throws Exception {
+    File file = createFile(".css", CSS);
+    File otherFile = createFile(".js", CSS);
+
+    assertNull(new StaticResourceCache(1024 * 1024, 10, 0).get(file.getPath()), "File is too big to be cached");
+    assertNull(new StaticResourceCache(1024 * 1024, 1024, 0).get(file.getPath() + ".missing"));
+
+    StaticResourceCache cache = new StaticResourceCache(CSS.length() * 3, 1024, 0);
+    assertNotNull(cache.get(file.getPath()));
+    assertNull(cache.get(otherFile.getPath()), "Cache should be full");
+    assertTrue(cache.getSize() <= CSS.length() * 3);
+  }
+
+  @Test
+  public void testCheckFiles() throws Exception {
+    File file = createFile(".css", CSS);
+    StaticResourceCache cache = new StaticResourceCache(1024 * 1024, 1024, 0);
+
+    StaticResourceCache.Entry entry = cache.get(file.getPath());
+    cache.checkFiles();
+    assertTrue(entry == cache.get(file.getPath()), "Unchanged file should stay cached");
+
+    FileUtils.writeStringToFile(file, "p { color: red; }", "UTF-8");
+    assertTrue(file.setLastModified(file.lastModified() + 5000));
+    cache.checkFiles();
+
+    StaticResourceCache.Entry changed = cache.get(file.getPath());
+    assertTrue(entry != changed, "Changed file should have been dropped");
+    assertEquals(new String(changed.getResource(null).getContent(), "UTF-8"), "p { color: red; }");
+
+    assertTrue(file.delete());
+    cache.checkFiles();
+    assertNull(cache.get(file.getPath()));
+    assertEquals(cache.getSize(), 0);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.web;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class VirtualJournalRoutingTableTest {
+
+  private static Configuration createConfiguration() {
+    Configuration configuration = new BaseConfiguration();
+    configuration.addProperty(VirtualJournalContextFilter.CONF_VIRTUALJOURNALS_DEFAULT, "PLoSOne");
+    configuration.addProperty(VirtualJournalContextFilter.CONF_VIRTUALJOURNALS_JOURNALS, "OverlayJournal");
+    configuration.addProperty(VirtualJournalContextFilter.CONF_VIRTUALJOURNALS_JOURNALS, "PLoSOne");
+    configuration.addProperty(VirtualJournalContextFilter.CONF_VIRTUALJOURNALS_JOURNALS, "NoRules");
+    configuration.addProperty("ambra.virtualJournals.OverlayJournal.rules.host", ".*overlay.*");
+    configuration.addProperty("ambra.virtualJournals.OverlayJournal.rules.plosJournal", "OverlayJournal");
+    configuration.addProperty("ambra.virtualJournals.PLoSOne.rules.host", ".*one.*");
+    configuration.addProperty("ambra.virtualJournals.PLoSOne.rules.plosJournal", "PLoSOne");
+    return configuration;
+  }
+
+  private static MockHttpServletRequest createRequest(String host, String plosJournal) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    if (host != null) {
+      request.addHeader("host", host);
+    }
+    if (plosJournal != null) {
+      request.addHeader("plosJournal", plosJournal);
+    }
+    return request;
+  }
+
+  @DataProvider(name = "requests")
+  public Object[][] getRequests() {
+    return new Object[][]{
+        {"overlay.example.org", null, "OverlayJournal"},
+        {"one.example.org", null, "PLoSOne"},
+        {"one.example.org", "OverlayJournal", "OverlayJournal"},
+        {"www.example.org", "PLoSOne", "PLoSOne"},
+        //rules have to match the whole header value
+        {"www.example.org", "PLoSOneExtra", null},
+        {"www.example.org", null, null},
+        {null, null, null}
+    };
+  }
+
+  @Test(dataProvider = "requests")
+  public void testFindMatchingJournal(String host, String plosJournal, String expectedJournal) {
+    VirtualJournalRoutingTable table = new VirtualJournalRoutingTable(createConfiguration());
+
+    assertEquals(table.findMatchingJournal(createRequest(host, plosJournal)), expectedJournal);
+    assertEquals(table.findMatchingJournal(createRequest(host, plosJournal)), expectedJournal,
+        "Remembered match was different");
+  }
+
+  @Test
+  public void testJournals() {
+    VirtualJournalRoutingTable table = new VirtualJournalRoutingTable(createConfiguration());
+
+    assertEquals(table.getDefaultJournal(), "PLoSOne");
+    assertEquals(table.getJournals(), Arrays.asList("OverlayJournal", "PLoSOne", "NoRules"));
+  }
+
+  @Test
+  public void testMemoIsBounded() {
+    VirtualJournalRoutingTable table = new VirtualJournalRoutingTable(createConfiguration());
+
+    for (int i = 0; i < VirtualJournalRoutingTable.MAX_MEMO_SIZE * 2; i++) {
+      assertNull(table.findMatchingJournal(createRequest("host" + i + ".example.org", null)));
+    }
+    assertEquals(table.findMatchingJournal(createRequest("overlay.example.org", null)), "OverlayJournal");
+    assertEquals(table.findMatchingJournal(createRequest("one.example.org", null)), "PLoSOne");
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2006-2014 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ambraproject.email;
+
+/**
+ * One message of a batch sent with {@link TemplateMailer#mail(java.util.List, String, java.util.Map,
+ * javax.mail.Multipart)}.  Messages are compared by identity, so the same address may appear more than once in a
+ * batch.
+ */
+public class MailMessage {
+  private final String toEmailAddress;
+  private final String subject;
+
+  public MailMessage(String toEmailAddress, String subject) {
+    this.toEmailAddress = toEmailAddress;
+    this.subject = subject;
+  }
+
+  public String getToEmailAddress() {
+    return toEmailAddress;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  @Override
+  public String toString() {
+    return "MailMessage{" +
+        "toEmailAddress='" + toEmailAddress + '\'' +
+        ", subject='" + subject + '\'' +
+        '}';
+  }
+}
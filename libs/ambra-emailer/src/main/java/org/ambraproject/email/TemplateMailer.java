@@ -22,6 +22,7 @@ import freemarker.template.Template;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -69,6 +70,19 @@ public interface TemplateMailer {
   void mail(final String toEmailAddress, final String fromEmailAddress, final String subject,
             final Map<String, Object> context, final Multipart content);
 
+  /**
+   * Send a batch of mails with the same content over a single connection to the mail server.  A message that can't
+   * be sent does not keep the rest of the batch from going out.
+   *
+   * @param messages the recipient and subject of each mail
+   * @param fromEmailAddress fromEmailAddress
+   * @param context a {@link java.util.Map} of objects to expose to the template engine
+   * @param content the content of the messages to send
+   * @return the messages that could not be sent, mapped to the cause of the failure.  Empty if all of them were sent.
+   */
+  Map<MailMessage, Exception> mail(final List<MailMessage> messages, final String fromEmailAddress,
+                                   final Map<String, Object> context, final Multipart content);
+
   /**
    * Send a mail with both a text and a HTML version.
    * @param toEmailAddress the email address where to send the email
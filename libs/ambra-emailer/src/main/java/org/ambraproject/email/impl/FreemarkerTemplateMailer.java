@@ -27,6 +27,8 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import freemarker.template.Configuration;
@@ -35,11 +37,14 @@ import freemarker.template.TemplateException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
+import org.springframework.mail.MailException;
 import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
+import org.ambraproject.email.MailMessage;
 import org.ambraproject.email.TemplateMailer;
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
@@ -106,13 +111,7 @@ public class FreemarkerTemplateMailer implements TemplateMailer {
       final String toEmailAddress = emailTokens.nextToken();
       MimeMessagePreparator preparator = new MimeMessagePreparator() {
         public void prepare(final MimeMessage mimeMessage) throws MessagingException, IOException {
-          final MimeMessageHelper message = new MimeMessageHelper(mimeMessage, true,
-            configuration.getDefaultEncoding());
-          message.setTo(new InternetAddress(toEmailAddress));
-          message.setFrom(new InternetAddress(fromEmailAddress, (String) context.get(USER_NAME_KEY)));
-          message.setSubject(subject);
-
-          mimeMessage.setContent(content);
+          prepareMessage(mimeMessage, toEmailAddress, fromEmailAddress, subject, context, content);
         }
       };
 
@@ -122,6 +121,61 @@ public class FreemarkerTemplateMailer implements TemplateMailer {
     }
   }
 
+  public Map<MailMessage, Exception> mail(final List<MailMessage> messages, final String fromEmailAddress,
+                                          final Map<String, Object> context, final Multipart content) {
+    final Map<MailMessage, Exception> failures = new LinkedHashMap<MailMessage, Exception>();
+    final Map<MimeMessage, MailMessage> prepared = new LinkedHashMap<MimeMessage, MailMessage>(messages.size());
+
+    for (MailMessage message : messages) {
+      try {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        prepareMessage(mimeMessage, message.getToEmailAddress(), fromEmailAddress, message.getSubject(),
+          context, content);
+        prepared.put(mimeMessage, message);
+      } catch (MessagingException ex) {
+        failures.put(message, ex);
+      } catch (IOException ex) {
+        failures.put(message, ex);
+      }
+    }
+
+    if (prepared.isEmpty()) {
+      return failures;
+    }
+
+    try {
+      //JavaMailSender sends an array of messages over one connection
+      mailSender.send(prepared.keySet().toArray(new MimeMessage[prepared.size()]));
+    } catch (MailSendException ex) {
+      //The failed messages are keyed by the MimeMessage we handed in
+      for (Map.Entry<Object, Exception> failed : ex.getFailedMessages().entrySet()) {
+        failures.put(prepared.get(failed.getKey()), failed.getValue());
+      }
+    } catch (MailException ex) {
+      //Couldn't connect or authenticate, so none of them went out
+      for (MailMessage message : prepared.values()) {
+        failures.put(message, ex);
+      }
+    }
+
+    log.debug("Batch of {} mails sent, {} failed", messages.size(), failures.size());
+
+    return failures;
+  }
+
+  private void prepareMessage(final MimeMessage mimeMessage, final String toEmailAddress,
+                              final String fromEmailAddress, final String subject,
+                              final Map<String, Object> context, final Multipart content)
+    throws MessagingException, IOException {
+    final MimeMessageHelper message = new MimeMessageHelper(mimeMessage, true,
+      configuration.getDefaultEncoding());
+    message.setTo(new InternetAddress(toEmailAddress));
+    message.setFrom(new InternetAddress(fromEmailAddress, (String) context.get(USER_NAME_KEY)));
+    message.setSubject(subject);
+
+    mimeMessage.setContent(content);
+  }
+
   /**
    * @inheritDoc
    */
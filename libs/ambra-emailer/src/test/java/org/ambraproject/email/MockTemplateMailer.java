@@ -26,6 +26,8 @@ import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @Deprecated
@@ -55,6 +57,12 @@ public class MockTemplateMailer implements TemplateMailer {
 
   }
 
+  public Map<MailMessage, Exception> mail(final List<MailMessage> messages, final String fromEmailAddress,
+                                          final Map<String, Object> context, final Multipart content)
+  {
+    return Collections.emptyMap();
+  }
+
   public void mail(final String toEmailAddress, final String fromEmailAddress, final String subject,
                    final Map<String, Object> context, final String textTemplateFilename,
                    final String htmlTemplateFilename) {
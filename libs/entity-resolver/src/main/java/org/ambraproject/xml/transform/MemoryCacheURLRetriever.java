@@ -20,26 +20,44 @@
 package org.ambraproject.xml.transform;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.HashMap;
-import java.lang.ref.SoftReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Look up the URL in an in-memory cache. If the URL is not cached, then look it up
- * via the delegate and store it in the cache for later use. Cached entities are
- * <code>SoftReference</code>s such that the garbage collector can re-claim them if
- * memory is low.
+ * via the delegate and store it in the cache for later use.
+ *
+ * <p>Lookups don't lock the cache, and an entity that is requested by several threads at once
+ * is only fetched once, by the first of them. The cache holds on to the entities it fetched
+ * until their total size reaches a limit, after which new entities are still fetched but no
+ * longer cached. Entities without an id are never cached.
  *
  * @author Ronald Tschalär
  * @version $Id$
  */
 public class MemoryCacheURLRetriever implements URLRetriever {
   private static final Logger   log = LoggerFactory.getLogger(MemoryCacheURLRetriever.class);
-  private final Map             cache = new HashMap();
+
+  /**
+   * The default maximum number of bytes to cache; enough for all the DTDs that are shipped
+   * with this library.
+   */
+  public static final long      DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+  private final ConcurrentMap<String, FutureTask<byte[]>> cache =
+      new ConcurrentHashMap<String, FutureTask<byte[]>>();
   private final URLRetriever    delegate;
+  private final long            maxSize;
+  private final AtomicLong      size   = new AtomicLong();
+  private final AtomicLong      hits   = new AtomicLong();
+  private final AtomicLong      misses = new AtomicLong();
 
   /**
    * Create a <code>URLRetriever</code> that will cache content fetched by its delegate.
@@ -47,7 +65,18 @@ public class MemoryCacheURLRetriever implements URLRetriever {
    * @param delegate the <code>URLRetriever</code> to use on a cache-miss.
    */
   public MemoryCacheURLRetriever(URLRetriever delegate) {
+    this(delegate, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Create a <code>URLRetriever</code> that will cache content fetched by its delegate.
+   *
+   * @param delegate the <code>URLRetriever</code> to use on a cache-miss.
+   * @param maxSize  the maximum number of bytes to cache
+   */
+  public MemoryCacheURLRetriever(URLRetriever delegate, long maxSize) {
     this.delegate = delegate;
+    this.maxSize  = maxSize;
   }
 
   /**
@@ -59,25 +88,111 @@ public class MemoryCacheURLRetriever implements URLRetriever {
    * @return the contents, or null if not found
    * @throws IOException if an error occurred retrieving the contents (other than not-found)
    */
-  public synchronized byte[] retrieve(String url, String id) throws IOException {
-    SoftReference ref = (SoftReference) cache.get(id);
-    byte[] res = (ref != null) ? (byte[]) ref.get() : null;
+  public byte[] retrieve(final String url, final String id) throws IOException {
+    if (delegate == null)
+      return null;
 
-    if (log.isDebugEnabled())
-      log.debug("Memory cache('" + id + "'): " +
-                (res != null ? "found" : ref != null ? "expired" : "not found"));
+    if (id == null) {
+      misses.incrementAndGet();
+      return delegate.retrieve(url, id);
+    }
 
-    if (res != null || delegate == null)
-      return res;
+    FutureTask<byte[]> task = cache.get(id);
+    boolean found = task != null;
 
-    res = delegate.retrieve(url, id);
-    if (res == null)
-      return null;
+    if (task == null) {
+      FutureTask<byte[]> newTask = new FutureTask<byte[]>(new Callable<byte[]>() {
+        public byte[] call() throws IOException {
+          return delegate.retrieve(url, id);
+        }
+      });
+
+      task = cache.putIfAbsent(id, newTask);
+      if (task == null) {
+        task = newTask;
+        task.run();
+      } else {
+        found = true;
+      }
+    }
+
+    if (found)
+      hits.incrementAndGet();
+    else
+      misses.incrementAndGet();
 
     if (log.isDebugEnabled())
-      log.debug("Caching '" + id + "'");
+      log.debug("Memory cache('" + id + "'): " + (found ? "found" : "not found"));
+
+    byte[] res;
+    try {
+      res = task.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw (IOException) new IOException("Interrupted while waiting for '" + id + "'").initCause(ie);
+    } catch (ExecutionException ee) {
+      // don't cache failures, so the next lookup tries again
+      cache.remove(id, task);
+      if (ee.getCause() instanceof IOException)
+        throw (IOException) ee.getCause();
+      if (ee.getCause() instanceof RuntimeException)
+        throw (RuntimeException) ee.getCause();
+      throw (IOException) new IOException("Error retrieving '" + id + "'").initCause(ee.getCause());
+    }
+
+    if (!found) {
+      if (res == null || size.addAndGet(res.length) > maxSize) {
+        // not found, or no room for it: fetch it again next time
+        if (res != null) {
+          size.addAndGet(-res.length);
+          log.debug("Memory cache is full, not caching '" + id + "'");
+        }
+        cache.remove(id, task);
+      } else if (log.isDebugEnabled()) {
+        log.debug("Caching '" + id + "'");
+      }
+    }
 
-    cache.put(id, new SoftReference(res));
     return res;
   }
+
+  /**
+   * Load entities into the cache ahead of time. Failures are logged and otherwise ignored.
+   *
+   * @param ids the ids of the entities to load
+   */
+  public void preload(Iterable<String> ids) {
+    int count = 0;
+    for (String id : ids) {
+      try {
+        if (retrieve(null, id) != null)
+          count++;
+      } catch (IOException ioe) {
+        log.warn("Unable to preload '" + id + "'", ioe);
+      }
+    }
+
+    log.info("Preloaded " + count + " entities, " + size.get() + " bytes");
+  }
+
+  /**
+   * @return the number of lookups that were answered from the cache (or by a concurrent fetch)
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of lookups that had to go to the delegate
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of bytes held by the cache
+   */
+  public long getSize() {
+    return size.get();
+  }
 }
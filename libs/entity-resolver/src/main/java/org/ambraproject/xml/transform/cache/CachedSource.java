@@ -55,12 +55,20 @@ import org.ambraproject.xml.transform.CustomEntityResolver;
 public class CachedSource extends EntityResolvingSource implements Source {
   private static final Logger         log = LoggerFactory.getLogger(CachedSource.class);
   private static final String         DEF_MAP  = "url_rsrc_map.properties";
+
+  /**
+   * System property that, when set to <code>true</code>, makes all the entities in the url-map
+   * get loaded into memory when this class is initialized, rather than on first use.
+   */
+  public static final String          PRELOAD_PROPERTY = "ambra.entityResolver.preload";
+
+  private static final MemoryCacheURLRetriever cache;
   private static final CustomEntityResolver resolver;
 
   static {
     URLRetriever r = new NetworkURLRetriever();
+    Properties  urlMap = new Properties();
     try {
-      Properties  urlMap = new Properties();
       InputStream is = CachedSource.class.getResourceAsStream(DEF_MAP);
       if (is != null) {
         urlMap.load(is);
@@ -70,7 +78,11 @@ public class CachedSource extends EntityResolvingSource implements Source {
     } catch (IOException ioe) {
       log.error("Error loading entity-cache map - continuing without it", ioe);
     }
-    resolver = new CustomEntityResolver(new MemoryCacheURLRetriever(r));
+    cache = new MemoryCacheURLRetriever(r);
+    resolver = new CustomEntityResolver(cache);
+
+    if (Boolean.getBoolean(PRELOAD_PROPERTY))
+      cache.preload(urlMap.stringPropertyNames());
   }
 
   /**
@@ -83,6 +95,14 @@ public class CachedSource extends EntityResolvingSource implements Source {
     super(src, resolver);
   }
 
+  /**
+   * @return the in-memory entity cache shared by all CachedSources, e.g. to look at its hit and
+   *         miss counts
+   */
+  public static MemoryCacheURLRetriever getCache() {
+    return cache;
+  }
+
   /**
    * @param entityUrlsToIgnore URLs that the resolver should not attempt to load; instead
    *     an empty String will be returned if one of these is encountered
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.xml.transform;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+public class MemoryCacheURLRetrieverTest {
+
+  /**
+   * Returns the id as content, counting the calls.  Ids starting with "missing" aren't found, and ids starting with
+   * "broken" fail.
+   */
+  private static class CountingRetriever implements URLRetriever {
+    private final AtomicInteger count = new AtomicInteger();
+    private final CountDownLatch release;
+
+    private CountingRetriever(CountDownLatch release) {
+      this.release = release;
+    }
+
+    public byte[] retrieve(String url, String id) throws IOException {
+      count.incrementAndGet();
+      if (release != null) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e.getMessage());
+        }
+      }
+      if (id != null && id.startsWith("missing")) {
+        return null;
+      }
+      if (id != null && id.startsWith("broken")) {
+        throw new IOException("broken");
+      }
+      return String.valueOf(id).getBytes("UTF-8");
+    }
+  }
+
+  @Test
+  public void testRetrieve() throws Exception {
+    CountingRetriever delegate = new CountingRetriever(null);
+    MemoryCacheURLRetriever retriever = new MemoryCacheURLRetriever(delegate);
+
+    assertEquals(new String(retriever.retrieve("http://example.org/a.dtd", "a"), "UTF-8"), "a");
+    assertEquals(new String(retriever.retrieve("http://example.org/a.dtd", "a"), "UTF-8"), "a");
+    assertEquals(delegate.count.get(), 1);
+    assertEquals(retriever.getHitCount(), 1);
+    assertEquals(retriever.getMissCount(), 1);
+    assertEquals(retriever.getSize(), 1);
+
+    assertNull(retriever.retrieve("http://example.org/missing.dtd", "missing"));
+    assertNull(retriever.retrieve("http://example.org/missing.dtd", "missing"));
+    assertEquals(delegate.count.get(), 3, "Entities that weren't found shouldn't be cached");
+
+    retriever.retrieve("http://example.org/b.dtd", null);
+    retriever.retrieve("http://example.org/c.dtd", null);
+    assertEquals(delegate.count.get(), 5, "Entities without an id shouldn't be cached");
+  }
+
+  @Test
+  public void testFailuresAreNotCached() throws Exception {
+    CountingRetriever delegate = new CountingRetriever(null);
+    MemoryCacheURLRetriever retriever = new MemoryCacheURLRetriever(delegate);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        retriever.retrieve("http://example.org/broken.dtd", "broken");
+        fail("Expected an IOException");
+      } catch (IOException e) {
+        assertEquals(e.getMessage(), "broken");
+      }
+    }
+    assertEquals(delegate.count.get(), 2);
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    CountingRetriever delegate = new CountingRetriever(null);
+    MemoryCacheURLRetriever retriever = new MemoryCacheURLRetriever(delegate, 5);
+
+    retriever.retrieve(null, "abc");
+    retriever.retrieve(null, "def");
+    retriever.retrieve(null, "def");
+    assertEquals(delegate.count.get(), 3, "Second entity shouldn't fit");
+    assertEquals(retriever.getSize(), 3);
+
+    retriever.retrieve(null, "abc");
+    assertEquals(delegate.count.get(), 3);
+  }
+
+  @Test
+  public void testSingleFlight() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    CountingRetriever delegate = new CountingRetriever(release);
+    final MemoryCacheURLRetriever retriever = new MemoryCacheURLRetriever(delegate);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          public byte[] call() throws Exception {
+            return retriever.retrieve("http://example.org/a.dtd", "a");
+          }
+        }));
+      }
+
+      for (int i = 0; i < 50 && retriever.getHitCount() + retriever.getMissCount() < 4; i++) {
+        Thread.sleep(20);
+      }
+      release.countDown();
+
+      for (Future<byte[]> result : results) {
+        assertEquals(new String(result.get(), "UTF-8"), "a");
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(delegate.count.get(), 1, "Concurrent lookups should have shared a single fetch");
+    assertEquals(retriever.getMissCount(), 1);
+    assertEquals(retriever.getHitCount(), 3);
+  }
+
+  @Test
+  public void testPreload() throws Exception {
+    CountingRetriever delegate = new CountingRetriever(null);
+    MemoryCacheURLRetriever retriever = new MemoryCacheURLRetriever(delegate);
+
+    retriever.preload(Arrays.asList("a", "b", "missing", "broken"));
+    assertEquals(delegate.count.get(), 4);
+    assertEquals(retriever.getSize(), 2);
+
+    retriever.retrieve(null, "a");
+    retriever.retrieve(null, "b");
+    assertEquals(delegate.count.get(), 4);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2006-2012 by Public Library of Science http://plos.org http://ambraproject.org
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.models;
+
+import java.util.Date;
+
+/**
+ * One run of the weekly or monthly saved search alerts.  The jobs of the run are tracked in {@link SavedSearchRunJob},
+ * so that a run that was cut short can be picked up where it stopped.
+ */
+public class SavedSearchRun extends AmbraEntity {
+
+  public static final String RUNNING = "RUNNING";
+  public static final String COMPLETE = "COMPLETE";
+  public static final String ABANDONED = "ABANDONED";
+
+  private String frequency;
+  private Date startTime;
+  private Date endTime;
+  private String status;
+  private int jobCount;
+  private Date finished;
+
+  public SavedSearchRun() {
+    super();
+  }
+
+  public SavedSearchRun(String frequency, Date startTime, Date endTime) {
+    this();
+    this.frequency = frequency;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.status = RUNNING;
+  }
+
+  public String getFrequency() {
+    return frequency;
+  }
+
+  public void setFrequency(String frequency) {
+    this.frequency = frequency;
+  }
+
+  /**
+   * @return the start of the window the searches of this run look at
+   */
+  public Date getStartTime() {
+    return startTime;
+  }
+
+  public void setStartTime(Date startTime) {
+    this.startTime = startTime;
+  }
+
+  /**
+   * @return the end of the window the searches of this run look at
+   */
+  public Date getEndTime() {
+    return endTime;
+  }
+
+  public void setEndTime(Date endTime) {
+    this.endTime = endTime;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public int getJobCount() {
+    return jobCount;
+  }
+
+  public void setJobCount(int jobCount) {
+    this.jobCount = jobCount;
+  }
+
+  public Date getFinished() {
+    return finished;
+  }
+
+  public void setFinished(Date finished) {
+    this.finished = finished;
+  }
+
+  @Override
+  public String toString() {
+    return "SavedSearchRun{" +
+      "id=" + getID() +
+      ", frequency='" + frequency + '\'' +
+      ", startTime=" + startTime +
+      ", endTime=" + endTime +
+      ", status='" + status + '\'' +
+      ", jobCount=" + jobCount +
+      '}';
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2006-2012 by Public Library of Science http://plos.org http://ambraproject.org
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.models;
+
+/**
+ * The state of one saved search query within a {@link SavedSearchRun}
+ */
+public class SavedSearchRunJob extends AmbraEntity {
+
+  public static final String PENDING = "PENDING";
+  public static final String SENT = "SENT";
+  public static final String FAILED = "FAILED";
+
+  private Long runID;
+  private Long savedSearchQueryID;
+  private SavedSearchType searchType;
+  private String status;
+  private int hitCount;
+  private int sentCount;
+  private int failedCount;
+
+  public SavedSearchRunJob() {
+    super();
+  }
+
+  public SavedSearchRunJob(Long runID, Long savedSearchQueryID, SavedSearchType searchType) {
+    this();
+    this.runID = runID;
+    this.savedSearchQueryID = savedSearchQueryID;
+    this.searchType = searchType;
+    this.status = PENDING;
+  }
+
+  public Long getRunID() {
+    return runID;
+  }
+
+  public void setRunID(Long runID) {
+    this.runID = runID;
+  }
+
+  public Long getSavedSearchQueryID() {
+    return savedSearchQueryID;
+  }
+
+  public void setSavedSearchQueryID(Long savedSearchQueryID) {
+    this.savedSearchQueryID = savedSearchQueryID;
+  }
+
+  public SavedSearchType getSearchType() {
+    return searchType;
+  }
+
+  public void setSearchType(SavedSearchType searchType) {
+    this.searchType = searchType;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  public void setHitCount(int hitCount) {
+    this.hitCount = hitCount;
+  }
+
+  public int getSentCount() {
+    return sentCount;
+  }
+
+  public void setSentCount(int sentCount) {
+    this.sentCount = sentCount;
+  }
+
+  public int getFailedCount() {
+    return failedCount;
+  }
+
+  public void setFailedCount(int failedCount) {
+    this.failedCount = failedCount;
+  }
+
+  @Override
+  public String toString() {
+    return "SavedSearchRunJob{" +
+      "id=" + getID() +
+      ", runID=" + runID +
+      ", savedSearchQueryID=" + savedSearchQueryID +
+      ", searchType=" + searchType +
+      ", status='" + status + '\'' +
+      '}';
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science http://plos.org http://ambraproject.org
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.models;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class SavedSearchRunTest extends BaseHibernateTest {
+
+  @Test
+  public void testSaveRun() {
+    Date endTime = new Date();
+    SavedSearchRun run = new SavedSearchRun("WEEKLY", null, endTime);
+    run.setJobCount(2);
+
+    Serializable runID = hibernateTemplate.save(run);
+
+    SavedSearchRun storedRun = (SavedSearchRun) hibernateTemplate.get(SavedSearchRun.class, runID);
+    assertEquals(storedRun.getFrequency(), "WEEKLY");
+    assertNull(storedRun.getStartTime());
+    assertEquals(storedRun.getEndTime().getTime(), endTime.getTime());
+    assertEquals(storedRun.getStatus(), SavedSearchRun.RUNNING);
+    assertEquals(storedRun.getJobCount(), 2);
+    assertNull(storedRun.getFinished());
+
+    SavedSearchRunJob job = new SavedSearchRunJob((Long) runID, 5L, SavedSearchType.JOURNAL_ALERT);
+    Serializable jobID = hibernateTemplate.save(job);
+
+    job.setStatus(SavedSearchRunJob.SENT);
+    job.setHitCount(10);
+    job.setSentCount(3);
+    job.setFailedCount(1);
+    hibernateTemplate.update(job);
+
+    SavedSearchRunJob storedJob = (SavedSearchRunJob) hibernateTemplate.get(SavedSearchRunJob.class, jobID);
+    assertEquals(storedJob.getRunID(), runID);
+    assertEquals(storedJob.getSavedSearchQueryID(), Long.valueOf(5));
+    assertEquals(storedJob.getSearchType(), SavedSearchType.JOURNAL_ALERT);
+    assertEquals(storedJob.getStatus(), SavedSearchRunJob.SENT);
+    assertEquals(storedJob.getHitCount(), 10);
+    assertEquals(storedJob.getSentCount(), 3);
+    assertEquals(storedJob.getFailedCount(), 1);
+  }
+
+  @Test(expectedExceptions = {DataIntegrityViolationException.class})
+  public void testSaveJobWithoutRun() {
+    hibernateTemplate.save(new SavedSearchRunJob(null, 5L, SavedSearchType.USER_DEFINED));
+  }
+}
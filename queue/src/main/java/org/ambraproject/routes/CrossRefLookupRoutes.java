@@ -10,15 +10,9 @@
  */
 package org.ambraproject.routes;
 
-import org.ambraproject.models.Article;
-import org.ambraproject.models.CitedArticle;
-import org.apache.camel.Exchange;
-import org.apache.camel.Processor;
 import org.apache.camel.spring.SpringRouteBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * @author Joe Osowski
@@ -43,21 +37,7 @@ public class CrossRefLookupRoutes extends SpringRouteBuilder {
     //Route for updating all the citedArticles for an article
     //Requires articleDoi as the body and authId set on the header
     from(UPDATE_CITED_ARTICLES_QUEUE)
-      .to("bean:articleService?method=getArticle(${body}, ${headers." + HEADER_AUTH_ID + "})")
-      .process(new Processor() {
-        @Override
-        public void process(Exchange exchange) throws Exception {
-          //All we care about is the citedArticle IDs list
-          List<CitedArticle> citedArticles = exchange.getIn().getBody(Article.class).getCitedArticles();
-          List<Long> ids = new ArrayList<Long>();
-
-          for(CitedArticle ca : citedArticles) {
-            ids.add(ca.getID());
-          }
-
-          exchange.getOut().setBody(ids);
-        }
-      })
+      .to("bean:articleService?method=getCitedArticleIDs(${body}, ${headers." + HEADER_AUTH_ID + "})")
       .split().body() //Create a job for each CitedArticle
       .to(UPDATE_CITED_ARTICLE_QUEUE);
 
@@ -33,6 +33,7 @@ public class SavedSearchEmailRoutes extends SpringRouteBuilder {
   private String weeklyCron;
   private String monthlyCron;
   private int threadCount;
+  private boolean resumeRuns = true;
 
   public static final String SEARCH_ALERTS_QUEUE = "activemq:ambra.searchAlerts";
   public static final String HEADER_STARTTIME = "ambra.searchAlerts.header.startTime";
@@ -55,16 +56,29 @@ public class SavedSearchEmailRoutes extends SpringRouteBuilder {
       .setBody(constant(SavedSearchRetriever.AlertType.MONTHLY))
       .to(SEARCH_ALERTS_QUEUE);
 
+    //The ledger records the run, or resumes one that was cut short.
+    //Searches that can share a solr query are sent on as one group
     from(SEARCH_ALERTS_QUEUE)
-      .split().method("savedSearchRetriever","retrieveSearchAlerts(${body}," +
+      .setBody().method("savedSearchLedger","startRun(${body}," +
         "${headers." + HEADER_STARTTIME + "}," +
         "${headers." + HEADER_ENDTIME + "})")
+      .split().method("savedSearchRunner", "planSavedSearches")
       .to("seda:runInParallel");
 
     from("seda:runInParallel?concurrentConsumers=" + threadCount)
-      .to("bean:savedSearchRunner?method=runSavedSearch")
+      .to("bean:savedSearchRunner?method=runSavedSearches")
+      .split(body())
       .to("bean:savedSearchSender");
 
+    if(resumeRuns) {
+      //Pick up the runs that were cut short when the queue went down
+      log.info("Setting Route for resuming unfinished saved search runs");
+
+      from("timer:resumeSavedSearchRuns?repeatCount=1")
+        .split().method("savedSearchLedger", "getUnfinishedRuns")
+        .to(SEARCH_ALERTS_QUEUE);
+    }
+
     //Register type converter for Dates to Strings
     //Assume the format is "MM/dd/yyyy"
     getContext().getTypeConverterRegistry().addTypeConverter(Date.class, String.class, new TypeConverterSupport() {
@@ -96,4 +110,11 @@ public class SavedSearchEmailRoutes extends SpringRouteBuilder {
   public void setThreadCount(int threadCount) {
     this.threadCount = threadCount;
   }
+
+  /**
+   * @param resumeRuns whether to resume unfinished saved search runs when the routes start
+   */
+  public void setResumeRuns(boolean resumeRuns) {
+    this.resumeRuns = resumeRuns;
+  }
 }
@@ -22,6 +22,7 @@ public class SavedSearchJob {
   private Date startDate;
   private Date endDate;
   private List<SavedSearchHit> searchHitList;
+  private Long runID;
 
   public SavedSearchJob(Long savedSearchQueryID, String searchString, String hash, SavedSearchType type, String frequency) {
     this.savedSearchQueryID = savedSearchQueryID;
@@ -111,6 +112,18 @@ public class SavedSearchJob {
     this.searchHitList = searchHitList;
   }
 
+  /**
+   * @return the ID of the {@link org.ambraproject.models.SavedSearchRun} this job is part of, or null if it isn't
+   * tracked
+   */
+  public Long getRunID() {
+    return runID;
+  }
+
+  public void setRunID(Long runID) {
+    this.runID = runID;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -128,6 +141,7 @@ public class SavedSearchJob {
     private Date startDate;
     private Date endDate;
     private List<SavedSearchHit> searchHitList;
+    private Long runID;
 
     private Builder() {
       super();
@@ -142,6 +156,7 @@ public class SavedSearchJob {
       this.type = job.getType();
       this.frequency = job.getFrequency();
       this.searchHitList = job.getSearchHitList();
+      this.runID = job.getRunID();
     }
 
     public Builder setSavedSearchQueryID(Long savedSearchQueryID) {
@@ -184,8 +199,13 @@ public class SavedSearchJob {
       return this;
     }
 
+    public Builder setRunID(Long runID) {
+      this.runID = runID;
+      return this;
+    }
+
     public SavedSearchJob build() {
-      return new SavedSearchJob(
+      SavedSearchJob job = new SavedSearchJob(
         this.savedSearchQueryID,
         this.searchString,
         this.hash,
@@ -194,6 +214,8 @@ public class SavedSearchJob {
         this.startDate,
         this.endDate,
         this.searchHitList);
+      job.setRunID(this.runID);
+      return job;
     }
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.search;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Records runs of the saved search alerts, and the state of each of their jobs, so that a run that was cut short can
+ * be resumed where it stopped.
+ */
+public interface SavedSearchLedger {
+
+  /**
+   * Start a run of saved search alerts.  If the last run of the same type didn't finish, and the window asked for
+   * is unset or the same as that run's, the run is resumed and only its jobs that weren't sent are returned.
+   * Otherwise a new run is recorded, with the window fixed so that resuming it later looks at the same articles.
+   *
+   * @param alertType the alertType
+   * @param startTime the start of the search window.  Can be null to use the default for the alert type.
+   * @param endTime the end of the search window.  Can be null to use the current time.
+   * @return the jobs of the run, tagged with the run's ID
+   */
+  public List<SavedSearchJob> startRun(SavedSearchRetriever.AlertType alertType, Date startTime, Date endTime);
+
+  /**
+   * Record that a job of a run was sent.  The run is finished once none of its jobs are left pending.  Jobs that are
+   * not part of a run are ignored.
+   *
+   * @param searchJob the job
+   * @param sent the number of mails sent
+   * @param failed the number of mails that could not be sent
+   */
+  public void recordJob(SavedSearchJob searchJob, int sent, int failed);
+
+  /**
+   * @return the alert types that have a run that didn't finish and is recent enough to be resumed
+   */
+  public List<SavedSearchRetriever.AlertType> getUnfinishedRuns();
+}
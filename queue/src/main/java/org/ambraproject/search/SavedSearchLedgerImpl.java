@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.search;
+
+import org.ambraproject.models.SavedSearchRun;
+import org.ambraproject.models.SavedSearchRunJob;
+import org.ambraproject.service.hibernate.HibernateServiceImpl;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @inheritDoc
+ */
+public class SavedSearchLedgerImpl extends HibernateServiceImpl implements SavedSearchLedger {
+  private static final Logger log = LoggerFactory.getLogger(SavedSearchLedgerImpl.class);
+
+  private SavedSearchRetriever savedSearchRetriever;
+  private SavedSearchMetrics metrics;
+  private int maxResumeAge = 24;
+
+  /**
+   * @inheritDoc
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<SavedSearchJob> startRun(SavedSearchRetriever.AlertType alertType, Date startTime, Date endTime) {
+    SavedSearchRun run = getUnfinishedRun(alertType);
+
+    if(run != null && (startTime == null || startTime.equals(run.getStartTime()))
+      && (endTime == null || endTime.equals(run.getEndTime()))) {
+      return resumeRun(alertType, run);
+    }
+
+    //A new run supersedes any unfinished one of the same type
+    int abandoned = hibernateTemplate.bulkUpdate("update versioned SavedSearchRun set status = ?, finished = ? " +
+      "where frequency = ? and status = ?",
+      new Object[] { SavedSearchRun.ABANDONED, new Date(), alertType.name(), SavedSearchRun.RUNNING });
+
+    if(abandoned > 0) {
+      log.warn("Abandoned {} unfinished {} saved search run(s)", abandoned, alertType);
+    }
+
+    if(startTime == null) {
+      startTime = alertType.getDefaultStartTime();
+    }
+
+    if(endTime == null) {
+      endTime = Calendar.getInstance().getTime();
+    }
+
+    List<SavedSearchJob> searchJobs = savedSearchRetriever.retrieveSearchAlerts(alertType, startTime, endTime);
+
+    run = new SavedSearchRun(alertType.name(), startTime, endTime);
+    run.setJobCount(searchJobs.size());
+    if(searchJobs.isEmpty()) {
+      run.setStatus(SavedSearchRun.COMPLETE);
+      run.setFinished(new Date());
+    }
+    hibernateTemplate.save(run);
+
+    List<SavedSearchRunJob> runJobs = new ArrayList<SavedSearchRunJob>(searchJobs.size());
+    for(SavedSearchJob searchJob : searchJobs) {
+      searchJob.setRunID(run.getID());
+      runJobs.add(new SavedSearchRunJob(run.getID(), searchJob.getSavedSearchQueryID(), searchJob.getType()));
+    }
+    hibernateTemplate.saveOrUpdateAll(runJobs);
+
+    if(metrics != null) {
+      metrics.recordRun(false);
+    }
+
+    log.info("Started {} saved search run {} with {} job(s)", new Object[] { alertType, run.getID(), searchJobs.size() });
+
+    return searchJobs;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<SavedSearchJob> resumeRun(SavedSearchRetriever.AlertType alertType, SavedSearchRun run) {
+    List<SavedSearchJob> searchJobs = savedSearchRetriever.retrieveSearchAlerts(alertType,
+      run.getStartTime(), run.getEndTime());
+
+    List<SavedSearchRunJob> runJobs = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(SavedSearchRunJob.class)
+      .add(Restrictions.eq("runID", run.getID())));
+
+    Map<String, SavedSearchRunJob> recorded = new HashMap<String, SavedSearchRunJob>(runJobs.size());
+    for(SavedSearchRunJob runJob : runJobs) {
+      recorded.put(runJob.getSavedSearchQueryID() + "|" + runJob.getSearchType(), runJob);
+    }
+
+    List<SavedSearchJob> remaining = new ArrayList<SavedSearchJob>();
+    List<SavedSearchRunJob> added = new ArrayList<SavedSearchRunJob>();
+
+    for(SavedSearchJob searchJob : searchJobs) {
+      SavedSearchRunJob runJob = recorded.get(searchJob.getSavedSearchQueryID() + "|" + searchJob.getType());
+
+      if(runJob == null) {
+        //Saved since the run started
+        added.add(new SavedSearchRunJob(run.getID(), searchJob.getSavedSearchQueryID(), searchJob.getType()));
+      } else if(SavedSearchRunJob.SENT.equals(runJob.getStatus())) {
+        continue;
+      }
+
+      searchJob.setRunID(run.getID());
+      remaining.add(searchJob);
+    }
+
+    if(!added.isEmpty()) {
+      hibernateTemplate.saveOrUpdateAll(added);
+      run.setJobCount(run.getJobCount() + added.size());
+      hibernateTemplate.update(run);
+    }
+
+    if(metrics != null) {
+      metrics.recordRun(true);
+    }
+
+    log.info("Resuming {} saved search run {} with {} of {} job(s) left",
+      new Object[] { alertType, run.getID(), remaining.size(), run.getJobCount() });
+
+    return remaining;
+  }
+
+  /**
+   * @inheritDoc
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void recordJob(SavedSearchJob searchJob, int sent, int failed) {
+    if(searchJob.getRunID() == null) {
+      return;
+    }
+
+    List<SavedSearchRunJob> runJobs = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(SavedSearchRunJob.class)
+      .add(Restrictions.eq("runID", searchJob.getRunID()))
+      .add(Restrictions.eq("savedSearchQueryID", searchJob.getSavedSearchQueryID()))
+      .add(Restrictions.eq("searchType", searchJob.getType())));
+
+    if(runJobs.isEmpty()) {
+      log.warn("Saved search ID: {} is not part of run {}", searchJob.getSavedSearchQueryID(), searchJob.getRunID());
+      return;
+    }
+
+    SavedSearchRunJob runJob = runJobs.get(0);
+    runJob.setStatus(failed > 0 ? SavedSearchRunJob.FAILED : SavedSearchRunJob.SENT);
+    runJob.setHitCount(searchJob.getSearchHitList() == null ? 0 : searchJob.getSearchHitList().size());
+    //A retried job only goes to the users that were missed
+    runJob.setSentCount(runJob.getSentCount() + sent);
+    runJob.setFailedCount(failed);
+    hibernateTemplate.update(runJob);
+
+    Number pending = (Number) hibernateTemplate.findByCriteria(DetachedCriteria.forClass(SavedSearchRunJob.class)
+      .add(Restrictions.eq("runID", searchJob.getRunID()))
+      .add(Restrictions.eq("status", SavedSearchRunJob.PENDING))
+      .setProjection(Projections.rowCount())).get(0);
+
+    if(pending.longValue() == 0) {
+      finishRun(searchJob.getRunID());
+    }
+  }
+
+  private void finishRun(Long runID) {
+    SavedSearchRun run = hibernateTemplate.get(SavedSearchRun.class, runID);
+
+    if(run == null || !SavedSearchRun.RUNNING.equals(run.getStatus())) {
+      return;
+    }
+
+    run.setStatus(SavedSearchRun.COMPLETE);
+    run.setFinished(new Date());
+
+    try {
+      hibernateTemplate.update(run);
+      log.info("Finished {} saved search run {}", run.getFrequency(), runID);
+    } catch(OptimisticLockingFailureException ex) {
+      //The last jobs finished at the same time, and another thread got here first
+      log.debug("Run {} was already finished", runID);
+    }
+  }
+
+  /**
+   * @inheritDoc
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<SavedSearchRetriever.AlertType> getUnfinishedRuns() {
+    List<String> frequencies = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(SavedSearchRun.class)
+      .add(Restrictions.eq("status", SavedSearchRun.RUNNING))
+      .add(Restrictions.gt("created", getResumeCutoff()))
+      .setProjection(Projections.distinct(Projections.property("frequency"))));
+
+    List<SavedSearchRetriever.AlertType> alertTypes = new ArrayList<SavedSearchRetriever.AlertType>(frequencies.size());
+    for(String frequency : frequencies) {
+      alertTypes.add(SavedSearchRetriever.AlertType.valueOf(frequency));
+    }
+
+    log.debug("Unfinished saved search runs: {}", alertTypes);
+
+    return alertTypes;
+  }
+
+  @SuppressWarnings("unchecked")
+  private SavedSearchRun getUnfinishedRun(SavedSearchRetriever.AlertType alertType) {
+    List<SavedSearchRun> runs = hibernateTemplate.findByCriteria(DetachedCriteria.forClass(SavedSearchRun.class)
+      .add(Restrictions.eq("frequency", alertType.name()))
+      .add(Restrictions.eq("status", SavedSearchRun.RUNNING))
+      .add(Restrictions.gt("created", getResumeCutoff()))
+      .addOrder(Order.desc("created")), 0, 1);
+
+    return runs.isEmpty() ? null : runs.get(0);
+  }
+
+  private Date getResumeCutoff() {
+    Calendar cutoff = Calendar.getInstance();
+    cutoff.add(Calendar.HOUR_OF_DAY, -maxResumeAge);
+    return cutoff.getTime();
+  }
+
+  @Required
+  public void setSavedSearchRetriever(SavedSearchRetriever savedSearchRetriever) {
+    this.savedSearchRetriever = savedSearchRetriever;
+  }
+
+  public void setMetrics(SavedSearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @param maxResumeAge the age in hours after which an unfinished run is no longer resumed.  The next run of the
+   *                     same type starts over instead.
+   */
+  public void setMaxResumeAge(int maxResumeAge) {
+    this.maxResumeAge = maxResumeAge;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the work done by the saved search alert routes.  The runner times solr queries, the sender times mail
+ * batches and counts jobs, and the ledger counts runs.
+ * <p/>
+ * Instances are thread safe.
+ */
+public class SavedSearchMetrics implements SavedSearchMetricsMBean {
+
+  private static final int WINDOW_SECONDS = 60;
+
+  private final AtomicLong jobsCompleted = new AtomicLong();
+  private final AtomicLong jobsFailed = new AtomicLong();
+  private final AtomicLong mailsSent = new AtomicLong();
+  private final AtomicLong mailsFailed = new AtomicLong();
+  private final AtomicLong solrQueries = new AtomicLong();
+  private final AtomicLong solrQueryMillis = new AtomicLong();
+  private final AtomicLong maxSolrQueryMillis = new AtomicLong();
+  private final AtomicLong mailBatches = new AtomicLong();
+  private final AtomicLong mailBatchMillis = new AtomicLong();
+  private final AtomicLong maxMailBatchMillis = new AtomicLong();
+  private final AtomicLong runsStarted = new AtomicLong();
+  private final AtomicLong runsResumed = new AtomicLong();
+
+  //jobs finished per second over the last minute, indexed by second modulo the window
+  private final long[] jobSeconds = new long[WINDOW_SECONDS];
+  private final int[] jobCounts = new int[WINDOW_SECONDS];
+
+  public void recordSolrQuery(long millis) {
+    solrQueries.incrementAndGet();
+    solrQueryMillis.addAndGet(millis);
+    updateMax(maxSolrQueryMillis, millis);
+  }
+
+  public void recordMailBatch(long millis) {
+    mailBatches.incrementAndGet();
+    mailBatchMillis.addAndGet(millis);
+    updateMax(maxMailBatchMillis, millis);
+  }
+
+  /**
+   * Count a finished job
+   *
+   * @param sent   the number of mails sent for it
+   * @param failed the number of mails that could not be sent
+   */
+  public void recordJob(int sent, int failed) {
+    if (failed > 0) {
+      jobsFailed.incrementAndGet();
+    } else {
+      jobsCompleted.incrementAndGet();
+    }
+    mailsSent.addAndGet(sent);
+    mailsFailed.addAndGet(failed);
+
+    long second = System.currentTimeMillis() / 1000;
+    int bucket = (int) (second % WINDOW_SECONDS);
+    synchronized (jobSeconds) {
+      if (jobSeconds[bucket] != second) {
+        jobSeconds[bucket] = second;
+        jobCounts[bucket] = 0;
+      }
+      jobCounts[bucket]++;
+    }
+  }
+
+  public void recordRun(boolean resumed) {
+    if (resumed) {
+      runsResumed.incrementAndGet();
+    } else {
+      runsStarted.incrementAndGet();
+    }
+  }
+
+  @Override
+  public int getJobsPerMinute() {
+    long second = System.currentTimeMillis() / 1000;
+    int jobs = 0;
+    synchronized (jobSeconds) {
+      for (int i = 0; i < WINDOW_SECONDS; i++) {
+        if (second - jobSeconds[i] < WINDOW_SECONDS) {
+          jobs += jobCounts[i];
+        }
+      }
+    }
+    return jobs;
+  }
+
+  @Override
+  public long getJobsCompleted() {
+    return jobsCompleted.get();
+  }
+
+  @Override
+  public long getJobsFailed() {
+    return jobsFailed.get();
+  }
+
+  @Override
+  public long getMailsSent() {
+    return mailsSent.get();
+  }
+
+  @Override
+  public long getMailsFailed() {
+    return mailsFailed.get();
+  }
+
+  @Override
+  public long getSolrQueries() {
+    return solrQueries.get();
+  }
+
+  @Override
+  public double getAverageSolrQueryMillis() {
+    return average(solrQueryMillis.get(), solrQueries.get());
+  }
+
+  @Override
+  public long getMaxSolrQueryMillis() {
+    return maxSolrQueryMillis.get();
+  }
+
+  @Override
+  public long getMailBatches() {
+    return mailBatches.get();
+  }
+
+  @Override
+  public double getAverageMailBatchMillis() {
+    return average(mailBatchMillis.get(), mailBatches.get());
+  }
+
+  @Override
+  public long getMaxMailBatchMillis() {
+    return maxMailBatchMillis.get();
+  }
+
+  @Override
+  public long getRunsStarted() {
+    return runsStarted.get();
+  }
+
+  @Override
+  public long getRunsResumed() {
+    return runsResumed.get();
+  }
+
+  @Override
+  public void reset() {
+    for (AtomicLong counter : new AtomicLong[]{jobsCompleted, jobsFailed, mailsSent, mailsFailed, solrQueries,
+        solrQueryMillis, maxSolrQueryMillis, mailBatches, mailBatchMillis, maxMailBatchMillis, runsStarted,
+        runsResumed}) {
+      counter.set(0);
+    }
+    synchronized (jobSeconds) {
+      for (int i = 0; i < WINDOW_SECONDS; i++) {
+        jobSeconds[i] = 0;
+        jobCounts[i] = 0;
+      }
+    }
+  }
+
+  private static double average(long total, long count) {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  private static void updateMax(AtomicLong max, long value) {
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.search;
+
+/**
+ * Throughput of the saved search alert routes, exposed over JMX
+ */
+public interface SavedSearchMetricsMBean {
+
+  /**
+   * @return the number of saved search jobs finished in the last minute
+   */
+  int getJobsPerMinute();
+
+  long getJobsCompleted();
+
+  long getJobsFailed();
+
+  long getMailsSent();
+
+  long getMailsFailed();
+
+  long getSolrQueries();
+
+  double getAverageSolrQueryMillis();
+
+  long getMaxSolrQueryMillis();
+
+  /**
+   * @return the number of batches of mail handed to the mail server, each over one connection
+   */
+  long getMailBatches();
+
+  double getAverageMailBatchMillis();
+
+  long getMaxMailBatchMillis();
+
+  long getRunsStarted();
+
+  long getRunsResumed();
+
+  /**
+   * Start counting from zero
+   */
+  void reset();
+}
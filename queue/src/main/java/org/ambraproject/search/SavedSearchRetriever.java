@@ -16,6 +16,7 @@ import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.PropertyProjection;
 import org.hibernate.criterion.Restrictions;
 
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
@@ -46,6 +47,28 @@ public interface SavedSearchRetriever {
     PropertyProjection getTypeProjection(){
       return typeProjection;
     }
+
+    /**
+     * @return the default start of the search window, a week or a month before the start of today
+     */
+    public Date getDefaultStartTime() {
+      Calendar date = Calendar.getInstance();
+
+      //We really should just start only using Calendar objects
+      //But until that day... remove all time parts to avoid UTC / PST problems
+      date.set(Calendar.HOUR_OF_DAY, 0);
+      date.set(Calendar.MINUTE, 0);
+      date.set(Calendar.SECOND, 0);
+      date.set(Calendar.MILLISECOND, 0);
+
+      if(this == WEEKLY) {
+        date.add(Calendar.DAY_OF_MONTH, -7);
+      } else {
+        date.add(Calendar.MONTH, -1);
+      }
+
+      return date.getTime();
+    }
   };
 
   /**
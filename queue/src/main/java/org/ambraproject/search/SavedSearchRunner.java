@@ -13,6 +13,8 @@ package org.ambraproject.search;
 
 import org.ambraproject.ApplicationException;
 
+import java.util.List;
+
 /**
  * Execute the saved queries
  *
@@ -31,4 +33,25 @@ public interface SavedSearchRunner {
    * @throws ApplicationException
    */
   public SavedSearchJob runSavedSearch(SavedSearchJob savedSearchJob) throws ApplicationException;
+
+  /**
+   * Group saved searches that can be answered by one Solr query.  Searches that only differ in their subject filters,
+   * and run over the same date window, share a query without the subject filter, and their hits are filtered locally.
+   *
+   * @param savedSearchJobs the searches to run
+   *
+   * @return the searches, grouped by the query that answers them
+   */
+  public List<List<SavedSearchJob>> planSavedSearches(List<SavedSearchJob> savedSearchJobs);
+
+  /**
+   * Run a group of saved searches made by {@link #planSavedSearches(java.util.List)}
+   *
+   * @param savedSearchJobs the searches to run
+   *
+   * @return the searches, populated with results
+   *
+   * @throws ApplicationException
+   */
+  public List<SavedSearchJob> runSavedSearches(List<SavedSearchJob> savedSearchJobs) throws ApplicationException;
 }
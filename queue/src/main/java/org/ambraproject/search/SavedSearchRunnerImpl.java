@@ -11,17 +11,28 @@
 
 package org.ambraproject.search;
 
+import com.google.gson.Gson;
 import org.ambraproject.ApplicationException;
+import org.ambraproject.service.search.SearchHitHandler;
+import org.ambraproject.service.search.SearchParameters;
 import org.ambraproject.service.search.SolrSearchService;
+import org.ambraproject.service.search.StreamedSearchHit;
 import org.ambraproject.views.SavedSearchHit;
-import org.ambraproject.views.SearchHit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 /**
  * @inheritDoc
@@ -30,6 +41,9 @@ public class SavedSearchRunnerImpl implements SavedSearchRunner {
 
   private SolrSearchService searchService;
   private int resultLimit;
+  private int planResultLimit = 5000;
+  private Semaphore queryPermits = new Semaphore(2, true);
+  private SavedSearchMetrics metrics;
 
   private static final Logger log = LoggerFactory.getLogger(SavedSearchRunnerImpl.class);
 
@@ -37,69 +51,202 @@ public class SavedSearchRunnerImpl implements SavedSearchRunner {
    * @inheritDoc
    */
   @Override
-  @SuppressWarnings("unchecked")
   public SavedSearchJob runSavedSearch(SavedSearchJob searchJob) throws ApplicationException {
     log.debug("Received thread Name: {}", Thread.currentThread().getName());
     log.debug("Running Saved Search for the search query ID : {}, {}" ,
       searchJob.getSavedSearchQueryID(), searchJob.getFrequency());
 
-    if(searchJob.getStartDate() == null) {
-      if(searchJob.getFrequency().equals("WEEKLY")) {
-        //7 days into the past
-        Calendar date = Calendar.getInstance();
-
-        //We really should just start only using Calendar objects
-        //But until that day... remove all time parts to avoid UTC / PST problems
-        date.set(Calendar.HOUR_OF_DAY, 0);
-        date.set(Calendar.MINUTE, 0);
-        date.set(Calendar.SECOND, 0);
-        date.set(Calendar.MILLISECOND, 0);
-
-        date.add(Calendar.DAY_OF_MONTH, -7);
-
-        searchJob.setStartDate(date.getTime());
-      } else {
-        //30 days into the past
-        Calendar date = Calendar.getInstance();
-
-        //We really should just start only using Calendar objects
-        //But until that day... remove all time parts to avoid UTC / PST problems
-        date.set(Calendar.HOUR_OF_DAY, 0);
-        date.set(Calendar.MINUTE, 0);
-        date.set(Calendar.SECOND, 0);
-        date.set(Calendar.MILLISECOND, 0);
-
-        date.add(Calendar.MONTH, -1);
-
-        searchJob.setStartDate(date.getTime());
+    setSearchWindow(searchJob);
+
+    final List<SavedSearchHit> hits = new ArrayList<SavedSearchHit>();
+    search(searchJob.getSearchParams(), searchJob.getStartDate(), searchJob.getEndDate(), resultLimit,
+      new SearchHitHandler() {
+        @Override
+        public boolean handle(StreamedSearchHit hit) {
+          hits.add(hit.toSavedSearchHit());
+          return true;
+        }
+      });
+
+    log.debug("Search hits : {}", hits.size());
+
+    searchJob.setSearchHitList(hits);
+
+    return searchJob;
+  }
+
+  /**
+   * @inheritDoc
+   */
+  @Override
+  public List<List<SavedSearchJob>> planSavedSearches(List<SavedSearchJob> searchJobs) {
+    List<List<SavedSearchJob>> plan = new ArrayList<List<SavedSearchJob>>();
+    Map<String, List<SavedSearchJob>> groups = new LinkedHashMap<String, List<SavedSearchJob>>();
+
+    for(SavedSearchJob searchJob : searchJobs) {
+      SearchParameters searchParams = searchJob.getSearchParams();
+
+      if(searchParams.getFilterSubjectsDisjunction().length == 0) {
+        //Nothing to filter locally, this one gets its own query
+        List<SavedSearchJob> group = new ArrayList<SavedSearchJob>(1);
+        group.add(searchJob);
+        plan.add(group);
+        continue;
+      }
+
+      String key = searchJob.getFrequency() + "|" + searchJob.getStartDate() + "|" + searchJob.getEndDate() + "|"
+        + new Gson().toJson(getBaseParameters(searchParams));
+
+      List<SavedSearchJob> group = groups.get(key);
+      if(group == null) {
+        group = new ArrayList<SavedSearchJob>();
+        groups.put(key, group);
       }
+      group.add(searchJob);
     }
 
-    if(searchJob.getEndDate() == null) {
-      searchJob.setEndDate(Calendar.getInstance().getTime());
+    plan.addAll(groups.values());
+
+    log.info("Planned {} saved search(es) as {} queries", searchJobs.size(), plan.size());
+
+    return plan;
+  }
+
+  /**
+   * @inheritDoc
+   */
+  @Override
+  public List<SavedSearchJob> runSavedSearches(List<SavedSearchJob> searchJobs) throws ApplicationException {
+    if(searchJobs.size() == 1) {
+      runSavedSearch(searchJobs.get(0));
+      return searchJobs;
     }
 
-    List<SearchHit> results = searchService.savedSearchAlerts(searchJob.getSearchParams(),
-      searchJob.getStartDate(), searchJob.getEndDate(), resultLimit);
-    List<SavedSearchHit> finalHitList = new ArrayList<SavedSearchHit>();
-
-    log.debug("Search hits : {}", results.size());
-
-    if(results.size() > 0) {
-      for(SearchHit hit :results){
-        finalHitList.add(SavedSearchHit.builder()
-          .setUri(hit.getUri())
-          .setTitle(hit.getTitle())
-          .setCreator(hit.getCreator())
-          .setSubjects(hit.getSubjects())
-          .setSubjectsPolyhierarchy(hit.getSubjectsPolyhierarchy())
-          .build());
+    //All the searches of a group share the window, so make sure they agree on the defaults too
+    SavedSearchJob first = searchJobs.get(0);
+    setSearchWindow(first);
+    for(SavedSearchJob searchJob : searchJobs) {
+      searchJob.setStartDate(first.getStartDate());
+      searchJob.setEndDate(first.getEndDate());
+    }
+
+    final List<Set<String>> subjects = new ArrayList<Set<String>>(searchJobs.size());
+    final List<List<SavedSearchHit>> hits = new ArrayList<List<SavedSearchHit>>(searchJobs.size());
+    for(SavedSearchJob searchJob : searchJobs) {
+      subjects.add(normalizeSubjects(Arrays.asList(searchJob.getSearchParams().getFilterSubjectsDisjunction())));
+      hits.add(new ArrayList<SavedSearchHit>());
+    }
+
+    //Filter queries don't affect scores, so the hits stay in the order solr would have returned them in.
+    //Hits are filtered as they are read, so only the ones that some search keeps are held on to.
+    int results = search(getBaseParameters(first.getSearchParams()),
+      first.getStartDate(), first.getEndDate(), planResultLimit, new SearchHitHandler() {
+        @Override
+        public boolean handle(StreamedSearchHit hit) {
+          SavedSearchHit savedHit = null;
+          Set<String> hitSubjects = normalizeSubjects(hit.getSubjects());
+          boolean full = true;
+          for(int i = 0; i < subjects.size(); i++) {
+            if(hits.get(i).size() < resultLimit && containsAny(hitSubjects, subjects.get(i))) {
+              if(savedHit == null) {
+                savedHit = hit.toSavedSearchHit();
+              }
+              hits.get(i).add(savedHit);
+            }
+            full = full && hits.get(i).size() == resultLimit;
+          }
+          //Once every search has all its hits, the rest of the results don't matter
+          return !full;
+        }
+      });
+
+    if(results >= planResultLimit) {
+      //The shared query may have missed hits of some of the searches, run them one at a time
+      log.warn("Shared query for {} saved searches hit the limit of {} results, running them separately",
+        searchJobs.size(), planResultLimit);
+
+      for(SavedSearchJob searchJob : searchJobs) {
+        runSavedSearch(searchJob);
       }
+      return searchJobs;
     }
 
-    searchJob.setSearchHitList(finalHitList);
+    log.debug("Shared query for {} saved searches, hits : {}", searchJobs.size(), results);
 
-    return searchJob;
+    for(int i = 0; i < searchJobs.size(); i++) {
+      searchJobs.get(i).setSearchHitList(hits.get(i));
+    }
+
+    return searchJobs;
+  }
+
+  /**
+   * Get the parameters of the query that is shared by searches that only differ in their subject filters
+   */
+  private static SearchParameters getBaseParameters(SearchParameters searchParams) {
+    SearchParameters baseParams = searchParams.copy();
+    baseParams.setFilterSubjectsDisjunction(null);
+    //not used by saved searches
+    baseParams.setStartPage(0);
+    baseParams.setPageSize(0);
+    return baseParams;
+  }
+
+  private static boolean containsAny(Set<String> hitSubjects, Set<String> subjects) {
+    for(String subject : subjects) {
+      if(hitSubjects.contains(subject)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Put subjects in the form solr matches the subject field in: trimmed and lower case
+   */
+  private static Set<String> normalizeSubjects(Collection<String> subjects) {
+    Set<String> normalized = new HashSet<String>();
+    if(subjects != null) {
+      for(String subject : subjects) {
+        normalized.add(subject.trim().toLowerCase());
+      }
+    }
+    return normalized;
+  }
+
+
+  private int search(SearchParameters searchParams, Date startDate, Date endDate,
+                     int limit, SearchHitHandler handler) throws ApplicationException {
+    //Don't run more queries at once than solr can take, no matter how many threads send alerts
+    try {
+      queryPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApplicationException("Interrupted while waiting to run a saved search", e);
+    }
+
+    long start = System.currentTimeMillis();
+    try {
+      return searchService.streamSavedSearchAlerts(searchParams, startDate, endDate, limit, handler);
+    } finally {
+      queryPermits.release();
+      if(metrics != null) {
+        metrics.recordSolrQuery(System.currentTimeMillis() - start);
+      }
+    }
+  }
+
+  /**
+   * Default the date window of the search to the last week or month
+   */
+  private static void setSearchWindow(SavedSearchJob searchJob) {
+    if(searchJob.getStartDate() == null) {
+      searchJob.setStartDate(SavedSearchRetriever.AlertType.valueOf(searchJob.getFrequency()).getDefaultStartTime());
+    }
+
+    if(searchJob.getEndDate() == null) {
+      searchJob.setEndDate(Calendar.getInstance().getTime());
+    }
   }
 
   @Required
@@ -111,4 +258,23 @@ public class SavedSearchRunnerImpl implements SavedSearchRunner {
   public void setResultLimit(int resultLimit) {
     this.resultLimit = resultLimit;
   }
+
+  /**
+   * @param planResultLimit the maximum number of results of a query shared by several saved searches.  Searches whose
+   *                        shared query hits this limit are run one at a time.
+   */
+  public void setPlanResultLimit(int planResultLimit) {
+    this.planResultLimit = planResultLimit;
+  }
+
+  public void setMetrics(SavedSearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @param maxConcurrentQueries the maximum number of saved search queries sent to solr at once
+   */
+  public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+    this.queryPermits = new Semaphore(maxConcurrentQueries, true);
+  }
 }
@@ -18,7 +18,9 @@ import org.ambraproject.ApplicationException;
  */
 public interface SavedSearchSender {
   /**
-   * Send the saved search to all the users that are associated with it.
+   * Send the saved search to all the users that are associated with it.  Mail goes out in batches, and the users
+   * it was sent to are marked as having run the search up to the job's end date, so sending the same job again only
+   * goes to the users that were missed.
    *
    * @param searchJob
    *
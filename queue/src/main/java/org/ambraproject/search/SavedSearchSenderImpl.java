@@ -23,20 +23,34 @@ import org.ambraproject.models.SavedSearchType;
 import org.ambraproject.models.UserProfile;
 import org.ambraproject.service.hibernate.HibernateServiceImpl;
 import org.ambraproject.service.journal.JournalService;
+import org.ambraproject.util.DaemonExecutors;
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.ambraproject.email.MailMessage;
 import org.ambraproject.email.TemplateMailer;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Send saved searches
@@ -61,6 +75,15 @@ public class SavedSearchSenderImpl extends HibernateServiceImpl implements Saved
   protected String savedSearchTextEmail;
   protected String imagePath;
   protected int resultLimit;
+  protected int senderThreads = 4;
+  protected int batchSize = 50;
+  protected int maxAttempts = 3;
+
+  protected SavedSearchLedger ledger;
+  protected SavedSearchMetrics metrics;
+
+  private static final int MAX_IDS_PER_UPDATE = 1000;
+  private ExecutorService senderPool;
 
   /**
    * @inheritDoc
@@ -79,99 +102,232 @@ public class SavedSearchSenderImpl extends HibernateServiceImpl implements Saved
     context.put("imagePath", this.imagePath);
     context.put("resultLimit", this.resultLimit);
 
-    //Create message
-    Multipart content = createContent(context, searchJob.getType());
-
-    List<Object[]> searchDetails = getSavedSearchDetails(searchJob.getSavedSearchQueryID(), searchJob.getFrequency());
+    //Searches already marked as run up to the end date were sent by an earlier attempt at this job
+    List<Object[]> searchDetails = getSavedSearchDetails(searchJob.getSavedSearchQueryID(),
+      searchJob.getFrequency(), searchJob.getEndDate());
 
     String fromAddress = this.mailFromAddress;
+    String alertSubject = null;
 
-    for(int a = 0; a < searchDetails.size(); a++) {
-      String toAddress = (String)searchDetails.get(a)[1];
-      String subject;
-
-      if(searchJob.getType().equals(SavedSearchType.USER_DEFINED)) {
-        subject = "Search Alert - " + searchDetails.get(a)[2];
+    if(searchJob.getType().equals(SavedSearchType.JOURNAL_ALERT) && searchDetails.size() > 0) {
+      String[] journals = searchJob.getSearchParams().getFilterJournals();
 
-        log.debug("Job result count: {}", searchJob.getSearchHitList().size());
+      //Each alert can only be for one journal
+      if(journals.length != 1) {
+        throw new RuntimeException("Journal alert defined for multiple journals or journal filter not defined");
+      }
 
-        //We might filter the search hitlist based on publish and the last time the search was run for each user 
-        //here.  We track the last time a search was run in the user's savedSearch table, seemed like overkill to
-        //to me though.
+      Journal j = journalService.getJournal(journals[0]);
+      alertSubject = j.getTitle() + " Journal Alert";
+    }
 
-        //We might group email addresses and send batches of emails to java mail to send.  It's possible we'll
-        //get a performance gain there if needed.  Would take a bit of refactoring to do though... TBD
+    log.debug("Job result count: {}", searchJob.getSearchHitList().size());
 
-        if(searchJob.getSearchHitList().size() > 0) {
+    List<Long> sentIDs = new ArrayList<Long>(searchDetails.size());
+    Map<MailMessage, Long> messages = new LinkedHashMap<MailMessage, Long>(searchDetails.size());
 
-          log.debug("Sending mail: {}", toAddress);
+    for(Object[] details : searchDetails) {
+      Long savedSearchID = (Long)details[0];
+      String toAddress = (String)details[1];
+      String subject;
 
-          mail(toAddress, fromAddress, subject, context, content);
-        } else {
+      if(searchJob.getType().equals(SavedSearchType.USER_DEFINED)) {
+        //We might filter the search hitlist based on publish and the last time the search was run for each user
+        //here.  We track the last time a search was run in the user's savedSearch table, seemed like overkill to
+        //to me though.
+        if(searchJob.getSearchHitList().size() == 0) {
           log.debug("Not sending mail: {}", toAddress);
+          sentIDs.add(savedSearchID);
+          continue;
         }
+
+        subject = "Search Alert - " + details[2];
       } else {
-        String[] journals = searchJob.getSearchParams().getFilterJournals();
+        subject = alertSubject;
+      }
 
-        //Each alert can only be for one journal
-        if(journals.length != 1) {
-          throw new RuntimeException("Journal alert defined for multiple journals or journal filter not defined");
-        }
+      MailMessage message = createMessage(toAddress, subject);
+
+      if(message == null) {
+        sentIDs.add(savedSearchID);
+      } else {
+        messages.put(message, savedSearchID);
+      }
+    }
 
-        Journal j = journalService.getJournal(journals[0]);
-        subject = j.getTitle() + " Journal Alert";
+    Map<MailMessage, Exception> failures = deliver(new ArrayList<MailMessage>(messages.keySet()),
+      fromAddress, context, searchJob.getType());
 
-        log.debug("Job Result count: {}", searchJob.getSearchHitList().size());
-        log.debug("Sending mail: {}", toAddress);
+    for(Map.Entry<MailMessage, Long> entry : messages.entrySet()) {
+      if(!failures.containsKey(entry.getKey())) {
+        sentIDs.add(entry.getValue());
+      }
+    }
+
+    //When results are sent update the records to indicate
+    markSearchRun(sentIDs, searchJob.getFrequency(), searchJob.getEndDate());
+
+    int sent = messages.size() - failures.size();
+
+    if(ledger != null) {
+      ledger.recordJob(searchJob, sent, failures.size());
+    }
 
-        mail(toAddress, fromAddress, subject, context, content);
+    if(metrics != null) {
+      metrics.recordJob(sent, failures.size());
+    }
+
+    if(failures.size() > 0) {
+      for(Map.Entry<MailMessage, Exception> failure : failures.entrySet()) {
+        log.warn("Failed to send saved search ID: " + messages.get(failure.getKey()) + " to " +
+          failure.getKey().getToEmailAddress(), failure.getValue());
       }
 
-      //When results are sent update the records to indicate
-      markSearchRun((Long)searchDetails.get(a)[0], searchJob.getFrequency(), searchJob.getEndDate());
+      throw new RuntimeException(failures.size() + " of " + messages.size() + " mails for search ID: " +
+        searchJob.getSavedSearchQueryID() + " could not be sent", failures.values().iterator().next());
     }
 
     log.debug("Completed thread Name: {}", Thread.currentThread().getName());
     log.debug("Completed send request for search ID: {}. {}", searchJob.getSavedSearchQueryID(), searchJob.getFrequency());
   }
 
-  protected void mail(String toAddress, String fromAddress, String subject, Map<String, Object> context,
-    Multipart content) {
-
+  /**
+   * Address a message according to the send mode
+   *
+   * @return the message to send, or null if nothing should be sent
+   */
+  protected MailMessage createMessage(String toAddress, String subject) {
     //If sendMode empty, do nothing
     if(sendMode != null) {
       if(sendMode.toUpperCase().equals(PRODUCTION_MODE)) {
-        mailer.mail(toAddress, fromAddress, subject, context, content);
-        log.debug("Mail sent, mode: {}, address: {}", new Object[] { PRODUCTION_MODE, toAddress});
+        return new MailMessage(toAddress, subject);
       }
 
       if(sendMode.toUpperCase().equals(QA_MODE)) {
-        mailer.mail(sendModeQAEMail, fromAddress, "(" + toAddress + ")" + subject, context, content);
-        log.debug("Mail sent, mode: {}, address: {}", new Object[] { QA_MODE, sendModeQAEMail});
+        return new MailMessage(sendModeQAEMail, "(" + toAddress + ")" + subject);
       }
 
       //If sendMode does not match "production" or "QA", do nothing
     }
+
+    return null;
   }
 
-  @SuppressWarnings("unchecked")
-  protected void markSearchRun(Long savedSearchID, String frequency, Date endDate)
-  {
-    SavedSearch savedSearch = hibernateTemplate.get(SavedSearch.class, savedSearchID);
+  /**
+   * Send the messages in batches of {@link #setBatchSize(int)} on the sender pool, each batch over one connection to
+   * the mail server.  Messages that fail are tried again, up to {@link #setMaxAttempts(int)} times in all.
+   * <p/>
+   * Each batch renders its own message content: sending a message updates the headers and parent of its multipart,
+   * so one can't be shared between the sender threads.
+   *
+   * @return the messages that could not be sent, mapped to the last failure
+   */
+  protected Map<MailMessage, Exception> deliver(List<MailMessage> messages, String fromAddress,
+    Map<String, Object> context, SavedSearchType type) {
+    Map<MailMessage, Exception> failures = new LinkedHashMap<MailMessage, Exception>();
+    List<MailMessage> pending = messages;
+
+    for(int attempt = 1; attempt <= maxAttempts && pending.size() > 0; attempt++) {
+      failures = sendBatches(pending, fromAddress, context, type);
+      pending = new ArrayList<MailMessage>(failures.keySet());
+
+      if(pending.size() > 0) {
+        log.info("{} of {} mails failed on attempt {}", new Object[] { pending.size(), messages.size(), attempt });
+      }
+    }
+
+    return failures;
+  }
 
-    if(savedSearch == null) {
-      throw new RuntimeException("Could not find savedSearch: " + savedSearchID);
+  private Map<MailMessage, Exception> sendBatches(List<MailMessage> messages, final String fromAddress,
+    final Map<String, Object> context, final SavedSearchType type) {
+    List<List<MailMessage>> batches = new ArrayList<List<MailMessage>>();
+    List<Future<Map<MailMessage, Exception>>> results = new ArrayList<Future<Map<MailMessage, Exception>>>();
+
+    for(int i = 0; i < messages.size(); i += batchSize) {
+      final List<MailMessage> batch = messages.subList(i, Math.min(i + batchSize, messages.size()));
+
+      batches.add(batch);
+      results.add(getSenderPool().submit(new Callable<Map<MailMessage, Exception>>() {
+        @Override
+        public Map<MailMessage, Exception> call() {
+          long start = System.currentTimeMillis();
+          try {
+            return mailer.mail(batch, fromAddress, context, createContent(context, type));
+          } finally {
+            if(metrics != null) {
+              metrics.recordMailBatch(System.currentTimeMillis() - start);
+            }
+          }
+        }
+      }));
     }
 
-    if(frequency.equals(WEEKLY_FREQUENCY)) {
-      savedSearch.setLastWeeklySearchTime(endDate);
-    } else {
-      savedSearch.setLastMonthlySearchTime(endDate);
+    Map<MailMessage, Exception> failures = new LinkedHashMap<MailMessage, Exception>();
+
+    for(int i = 0; i < results.size(); i++) {
+      try {
+        failures.putAll(results.get(i).get());
+      } catch(ExecutionException ex) {
+        //The mailer blew up, count the whole batch as failed
+        Exception cause = ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex;
+        for(MailMessage message : batches.get(i)) {
+          failures.put(message, cause);
+        }
+      } catch(InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while sending mail", ex);
+      }
     }
 
-    hibernateTemplate.update(savedSearch);
+    return failures;
+  }
+
+  private synchronized ExecutorService getSenderPool() {
+    if(senderPool == null) {
+      //When the queue is full the consumer thread sends the batch itself
+      senderPool = DaemonExecutors.newBoundedPool("savedSearchSender", senderThreads, senderThreads * 2,
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    return senderPool;
+  }
+
+  public synchronized void destroy() {
+    if(senderPool != null) {
+      senderPool.shutdown();
+    }
+  }
+
+  /**
+   * Set the last run time of the given saved searches with one bulk update
+   */
+  protected void markSearchRun(final List<Long> savedSearchIDs, String frequency, final Date endDate)
+  {
+    if(savedSearchIDs.isEmpty()) {
+      return;
+    }
+
+    final String property = frequency.equals(WEEKLY_FREQUENCY) ? "lastWeeklySearchTime" : "lastMonthlySearchTime";
+
+    int updated = hibernateTemplate.execute(new HibernateCallback<Integer>() {
+      @Override
+      public Integer doInHibernate(Session session) throws HibernateException, SQLException {
+        Query query = session.createQuery("update versioned SavedSearch set " + property + " = :endDate " +
+          "where ID in (:ids)");
+        int count = 0;
+
+        //Keep the IN lists to a reasonable size
+        for(int i = 0; i < savedSearchIDs.size(); i += MAX_IDS_PER_UPDATE) {
+          count += query.setTimestamp("endDate", endDate)
+            .setParameterList("ids", savedSearchIDs.subList(i, Math.min(i + MAX_IDS_PER_UPDATE, savedSearchIDs.size())))
+            .executeUpdate();
+        }
+
+        return count;
+      }
+    });
 
-    log.debug("Updated Last {} saved Search time for Saved Search ID: {}", frequency, savedSearchID);
+    log.debug("Updated Last {} saved Search time for {} Saved Searches", frequency, updated);
   }
 
   protected Multipart createContent(Map<String, Object> context, SavedSearchType type) {
@@ -189,7 +345,7 @@ public class SavedSearchSenderImpl extends HibernateServiceImpl implements Saved
   }
 
   @SuppressWarnings("unchecked")
-  protected List<Object[]> getSavedSearchDetails(Long savedSearchQueryID, String type) {
+  protected List<Object[]> getSavedSearchDetails(Long savedSearchQueryID, String type, Date endDate) {
     SavedSearchRetriever.AlertType alertType = SavedSearchRetriever.AlertType.valueOf(type);
 
     DetachedCriteria criteria = DetachedCriteria.forClass(UserProfile.class)
@@ -201,12 +357,17 @@ public class SavedSearchSenderImpl extends HibernateServiceImpl implements Saved
       .createAlias("ss.searchQuery", "q")
       .add(Restrictions.eq("q.ID", savedSearchQueryID));
 
+    //The database may drop the milliseconds of the last run times
+    Date runUntil = new Date(endDate.getTime() - endDate.getTime() % 1000);
+
     if(alertType == SavedSearchRetriever.AlertType.WEEKLY) {
       criteria.add(Restrictions.eq("ss.weekly", true));
+      criteria.add(Restrictions.lt("ss.lastWeeklySearchTime", runUntil));
     }
 
     if(alertType == SavedSearchRetriever.AlertType.MONTHLY) {
       criteria.add(Restrictions.eq("ss.monthly", true));
+      criteria.add(Restrictions.lt("ss.lastMonthlySearchTime", runUntil));
     }
 
     return hibernateTemplate.findByCriteria(criteria);
@@ -262,6 +423,38 @@ public class SavedSearchSenderImpl extends HibernateServiceImpl implements Saved
     this.resultLimit = resultLimit;
   }
 
+  /**
+   * @param senderThreads the number of threads sending mail, each holding one connection to the mail server
+   */
+  public void setSenderThreads(int senderThreads) {
+    this.senderThreads = senderThreads;
+  }
+
+  /**
+   * @param batchSize the number of mails to send over one connection
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param maxAttempts the number of times to try sending a mail before giving up on it
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * @param ledger records the jobs that were sent, so an interrupted run can be resumed.  Optional.
+   */
+  public void setLedger(SavedSearchLedger ledger) {
+    this.ledger = ledger;
+  }
+
+  public void setMetrics(SavedSearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Required
   public void setJournalService(JournalService journalService) {
     this.journalService = journalService;
@@ -14,7 +14,6 @@
 package org.ambraproject.solr;
 
 import net.sf.saxon.TransformerFactoryImpl;
-import net.sf.saxon.lib.SaxonOutputKeys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -25,12 +24,16 @@ import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.Result;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -39,17 +42,28 @@ import java.util.Properties;
  * Class that transforms an NLM DTD journal article into the document that we send to
  * solr for indexing.
  * <p/>
+ * The compiled stylesheets are shared, and each thread gets its own {@link Transformer} for every DTD version, so
+ * instances of this class can safely be used by multiple threads at once.
+ * <p/>
  * This code is currently not used anywhere in the ambra project proper, but is used
  * by the (old) plos queue and the (new) indexer minion.
  */
 public class XmlTransformer {
   private static final Logger log = LoggerFactory.getLogger(XmlTransformer.class);
 
-  private Properties defaultProperties;
+  private final Properties defaultProperties;
 
-  private Map<String, Transformer> transformerMap;
+  private volatile Map<String, Templates> templatesMap;
 
-  public void init() {
+  //Transformers are not thread safe, so keep one per DTD version for every thread
+  private final ThreadLocal<Map<String, Transformer>> transformers = new ThreadLocal<Map<String, Transformer>>() {
+    @Override
+    protected Map<String, Transformer> initialValue() {
+      return new HashMap<String, Transformer>();
+    }
+  };
+
+  public XmlTransformer() {
     defaultProperties = new Properties();
     defaultProperties.put(OutputKeys.ENCODING, "UTF-8");
     defaultProperties.put(OutputKeys.OMIT_XML_DECLARATION, "yes");
@@ -58,50 +72,105 @@ public class XmlTransformer {
     defaultProperties.put(OutputKeys.MEDIA_TYPE, "text/xml");
   }
 
+  public void init() {
+    //Output properties are set up in the constructor since setXslTemplateMap() is called before init()
+  }
+
   /**
    * Transform the document to a format solr can understand.
    *
    * This supports multiple versions of the DTD.  This method detects the DTD
    * and uses the appropriate transformer.
+   *
+   * @deprecated the whole document is buffered in memory, use {@link #transform(Document, Writer)} or {@link
+   *             #transform(Document, OutputStream)} to stream it instead
    */
+  @Deprecated
   public String transform(Document article)
       throws TransformerException, ParserConfigurationException {
-    StreamResult dst = null;
-    ByteArrayOutputStream streamOut = new ByteArrayOutputStream();
-    try {
-      DOMSource src = new DOMSource(article);
-      dst = new StreamResult(streamOut);
-      Transformer transformer = getTranslet(article);
-      transformer.transform(src, dst);
-    } catch (TransformerException e ) {
-      log.error("Transformation error: " + e.getMessage());
-      e.printStackTrace();
-      throw e;
-    }
-    return streamOut.toString();
+    StringWriter writer = new StringWriter();
+    transform(article, new StreamResult(writer));
+    return writer.toString();
   }
 
   /**
-   * Get the XSL specific to the NLM DTD Version
+   * Transform the document to a format solr can understand, writing the output to the given writer
    *
-   * @param doc article XML
+   * @param article article XML
+   * @param out     where to write the solr document
+   * @throws TransformerException
+   */
+  public void transform(Document article, Writer out) throws TransformerException {
+    transform(article, new StreamResult(out));
+  }
+
+  /**
+   * Transform the document to a format solr can understand, writing the output to the given stream as UTF-8
    *
-   * @return an XSL transformer that can be used on doc
+   * @param article article XML
+   * @param out     where to write the solr document
    * @throws TransformerException
    */
-  private Transformer getTranslet(Document doc) throws TransformerException {
+  public void transform(Document article, OutputStream out) throws TransformerException {
+    transform(article, new StreamResult(out));
+  }
+
+  /**
+   * Transform the document to a format solr can understand.
+   *
+   * This supports multiple versions of the DTD.  This method detects the DTD
+   * and uses the appropriate transformer.
+   *
+   * @param article article XML
+   * @param result  where to write the solr document
+   * @throws TransformerException
+   */
+  public void transform(Document article, Result result) throws TransformerException {
+    String key = getDtdVersion(article);
+    Transformer transformer = getTranslet(key);
+    try {
+      transformer.transform(new DOMSource(article), result);
+    } catch (TransformerException e) {
+      log.error("Transformation error: " + e.getMessage(), e);
+      //Don't reuse a transformer that failed halfway through
+      transformers.get().remove(key);
+      throw e;
+    } catch (RuntimeException e) {
+      transformers.get().remove(key);
+      throw e;
+    }
+  }
+
+  private String getDtdVersion(Document doc) {
     String key = doc.getDocumentElement().getAttribute("dtd-version");
     log.debug("Got a dtd-version of: {}", key);
     if (key == null || key.length() == 0) {
       throw new IllegalArgumentException("Cannot identify DTD version of the article XML");
-    } else {
-      key = key.trim();
-      if (transformerMap.containsKey(key)) {
-        return transformerMap.get(key);
-      } else {
-        throw new IllegalArgumentException("DTD version " + key + " is not supported");
-      }
     }
+    key = key.trim();
+    if (!templatesMap.containsKey(key)) {
+      throw new IllegalArgumentException("DTD version " + key + " is not supported");
+    }
+    return key;
+  }
+
+  /**
+   * Get this thread's transformer for the NLM DTD Version, creating it from the compiled stylesheet if needed
+   *
+   * @param key the DTD version
+   *
+   * @return an XSL transformer that can be used on articles of the given version
+   * @throws TransformerException
+   */
+  private Transformer getTranslet(String key) throws TransformerException {
+    Map<String, Transformer> threadTransformers = transformers.get();
+    Transformer transformer = threadTransformers.get(key);
+    if (transformer == null) {
+      transformer = templatesMap.get(key).newTransformer();
+      transformer.setOutputProperties(defaultProperties);
+      threadTransformers.put(key, transformer);
+    }
+    return transformer;
   }
 
   /**
@@ -117,7 +186,7 @@ public class XmlTransformer {
     if (xslTemplateMap == null) {
       throw new IllegalArgumentException("transformerMap property not initialized");
     }
-    transformerMap = new HashMap<String, Transformer>(xslTemplateMap.size());
+    Map<String, Templates> compiled = new HashMap<String, Templates>(xslTemplateMap.size());
     for (String key : xslTemplateMap.keySet()) {
       String filename = xslTemplateMap.get(key);
 
@@ -127,10 +196,17 @@ public class XmlTransformer {
       if (is == null) {
         throw new IllegalArgumentException("Could not locate style sheet: " + filename);
       }
-      Templates translet = tFactory.newTemplates(new StreamSource(is));
-      Transformer transformer = translet.newTransformer();
-      transformer.setOutputProperties(defaultProperties);
-      transformerMap.put(key, transformer);
+      try {
+        compiled.put(key, tFactory.newTemplates(new StreamSource(is)));
+      } finally {
+        try {
+          is.close();
+        } catch (IOException e) {
+          log.warn("Error closing style sheet " + filename, e);
+        }
+      }
     }
+    //Templates are thread safe, publish them all at once
+    templatesMap = compiled;
   }
 }
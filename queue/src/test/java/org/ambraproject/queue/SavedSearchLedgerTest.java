@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science http://plos.org http://ambraproject.org
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.queue;
+
+import org.ambraproject.action.BaseTest;
+import org.ambraproject.models.SavedSearch;
+import org.ambraproject.models.SavedSearchQuery;
+import org.ambraproject.models.SavedSearchRun;
+import org.ambraproject.models.SavedSearchRunJob;
+import org.ambraproject.models.SavedSearchType;
+import org.ambraproject.models.UserProfile;
+import org.ambraproject.search.SavedSearchJob;
+import org.ambraproject.search.SavedSearchLedger;
+import org.ambraproject.search.SavedSearchMetrics;
+import org.ambraproject.search.SavedSearchRetriever;
+import org.ambraproject.util.TextUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for the SavedSearchLedger class
+ */
+@ContextConfiguration
+public class SavedSearchLedgerTest extends BaseTest {
+
+  @Autowired
+  protected SavedSearchLedger savedSearchLedger;
+
+  @Autowired
+  protected SavedSearchMetrics savedSearchMetrics;
+
+  @BeforeMethod
+  public void setupTestData() {
+    cleanup();
+    savedSearchMetrics.reset();
+
+    String query1 = "{\"query\":\"\",\"unformattedQuery\":\"everything:ledger\",\"volume\":\"\",\"eLocationId\":\"\",\"id\":\"\",\"filterSubjects\":[],\"filterKeyword\":\"\",\"filterArticleType\":[],\"filterJournals\":[\"PLoSOne\"],\"sort\":\"Relevance\",\"startPage\":0,\"pageSize\":10}";
+    String query2 = "{\"query\":\"\",\"unformattedQuery\":\"everything:run\",\"volume\":\"\",\"eLocationId\":\"\",\"id\":\"\",\"filterSubjects\":[],\"filterKeyword\":\"\",\"filterArticleType\":[],\"filterJournals\":[\"PLoSOne\"],\"sort\":\"Relevance\",\"startPage\":0,\"pageSize\":10}";
+
+    SavedSearchQuery ssq1 = new SavedSearchQuery(query1, TextUtils.createHash(query1));
+    dummyDataStore.store(ssq1);
+
+    SavedSearchQuery ssq2 = new SavedSearchQuery(query2, TextUtils.createHash(query2));
+    dummyDataStore.store(ssq2);
+
+    UserProfile user = new UserProfile("savedSearchLedgerTest@example.org", "savedSearchLedgerTest",
+      "savedSearchLedgerTest");
+
+    SavedSearch savedSearch1 = new SavedSearch("ledger", ssq1);
+    savedSearch1.setWeekly(true);
+    savedSearch1.setMonthly(false);
+    savedSearch1.setSearchType(SavedSearchType.USER_DEFINED);
+    savedSearch1.setLastWeeklySearchTime(new Date(0));
+    savedSearch1.setLastMonthlySearchTime(new Date(0));
+
+    SavedSearch savedSearch2 = new SavedSearch("run", ssq2);
+    savedSearch2.setWeekly(true);
+    savedSearch2.setMonthly(false);
+    savedSearch2.setSearchType(SavedSearchType.USER_DEFINED);
+    savedSearch2.setLastWeeklySearchTime(new Date(0));
+    savedSearch2.setLastMonthlySearchTime(new Date(0));
+
+    user.setSavedSearches(Arrays.asList(savedSearch1, savedSearch2));
+    dummyDataStore.store(user);
+  }
+
+  @Test
+  public void testResumeRun() {
+    List<SavedSearchJob> jobs = savedSearchLedger.startRun(SavedSearchRetriever.AlertType.WEEKLY, null, null);
+    assertEquals(jobs.size(), 2, "Wrong number of jobs in the run");
+
+    Long runID = jobs.get(0).getRunID();
+    SavedSearchRun run = dummyDataStore.get(SavedSearchRun.class, runID);
+    assertEquals(run.getStatus(), SavedSearchRun.RUNNING);
+    assertEquals(run.getJobCount(), 2);
+    assertEquals(run.getStartTime().getTime(), jobs.get(0).getStartDate().getTime(),
+      "Run should fix the start of the window");
+    assertEquals(run.getEndTime().getTime(), jobs.get(0).getEndDate().getTime(),
+      "Run should fix the end of the window");
+    assertEquals(jobs.get(1).getRunID(), runID);
+
+    //The node goes down after sending the first job
+    savedSearchLedger.recordJob(jobs.get(0), 3, 0);
+    assertEquals(savedSearchLedger.getUnfinishedRuns(), Arrays.asList(SavedSearchRetriever.AlertType.WEEKLY));
+
+    List<SavedSearchJob> resumed = savedSearchLedger.startRun(SavedSearchRetriever.AlertType.WEEKLY, null, null);
+    assertEquals(resumed.size(), 1, "Only the job that wasn't sent should be resumed");
+    assertEquals(resumed.get(0).getSavedSearchQueryID(), jobs.get(1).getSavedSearchQueryID());
+    assertEquals(resumed.get(0).getRunID(), runID);
+    assertEquals(resumed.get(0).getEndDate().getTime(), run.getEndTime().getTime(),
+      "Resumed run should keep its window");
+
+    savedSearchLedger.recordJob(resumed.get(0), 1, 0);
+
+    run = dummyDataStore.get(SavedSearchRun.class, runID);
+    assertEquals(run.getStatus(), SavedSearchRun.COMPLETE);
+    assertTrue(savedSearchLedger.getUnfinishedRuns().isEmpty(), "Run should be finished");
+
+    for (SavedSearchRunJob runJob : dummyDataStore.getAll(SavedSearchRunJob.class)) {
+      assertEquals(runJob.getRunID(), runID);
+      assertEquals(runJob.getStatus(), SavedSearchRunJob.SENT);
+    }
+
+    assertEquals(savedSearchMetrics.getRunsStarted(), 1);
+    assertEquals(savedSearchMetrics.getRunsResumed(), 1);
+
+    //With the run finished, the next one starts over
+    jobs = savedSearchLedger.startRun(SavedSearchRetriever.AlertType.WEEKLY, null, null);
+    assertEquals(jobs.size(), 2);
+    assertFalse(jobs.get(0).getRunID().equals(runID), "Expected a new run");
+  }
+
+  @Test
+  public void testNewWindowAbandonsRun() {
+    List<SavedSearchJob> jobs = savedSearchLedger.startRun(SavedSearchRetriever.AlertType.WEEKLY, null, null);
+    Long runID = jobs.get(0).getRunID();
+
+    savedSearchLedger.recordJob(jobs.get(0), 1, 1);
+
+    Date endTime = new Date(jobs.get(0).getEndDate().getTime() - 1000);
+    List<SavedSearchJob> newJobs = savedSearchLedger.startRun(SavedSearchRetriever.AlertType.WEEKLY,
+      new Date(0), endTime);
+
+    assertEquals(newJobs.size(), 2, "A run for another window should run every job");
+    assertFalse(newJobs.get(0).getRunID().equals(runID), "Expected a new run");
+    assertEquals(newJobs.get(0).getEndDate(), endTime);
+    assertEquals(dummyDataStore.get(SavedSearchRun.class, runID).getStatus(), SavedSearchRun.ABANDONED);
+  }
+
+  @Test
+  public void testJobsOutsideOfRuns() {
+    SavedSearchJob job = SavedSearchJob.builder()
+      .setSavedSearchQueryID(1L)
+      .setType(SavedSearchType.USER_DEFINED)
+      .setFrequency("WEEKLY")
+      .build();
+
+    //Not part of a run, so nothing to record
+    savedSearchLedger.recordJob(job, 1, 0);
+    assertTrue(dummyDataStore.getAll(SavedSearchRunJob.class).isEmpty());
+  }
+
+  @AfterClass
+  public void cleanup() {
+    dummyDataStore.deleteAll(SavedSearchRunJob.class);
+    dummyDataStore.deleteAll(SavedSearchRun.class);
+    dummyDataStore.deleteAll(SavedSearch.class);
+    dummyDataStore.deleteAll(UserProfile.class);
+    dummyDataStore.deleteAll(SavedSearchQuery.class);
+
+    restoreDefaultUsers();
+  }
+}
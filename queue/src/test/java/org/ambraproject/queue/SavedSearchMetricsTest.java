@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science http://plos.org http://ambraproject.org
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.queue;
+
+import org.ambraproject.search.SavedSearchMetrics;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class SavedSearchMetricsTest {
+
+  @Test
+  public void testMetrics() {
+    SavedSearchMetrics metrics = new SavedSearchMetrics();
+
+    metrics.recordSolrQuery(10);
+    metrics.recordSolrQuery(30);
+    metrics.recordMailBatch(100);
+    metrics.recordJob(5, 0);
+    metrics.recordJob(3, 2);
+    metrics.recordRun(false);
+
+    assertEquals(metrics.getSolrQueries(), 2);
+    assertEquals(metrics.getAverageSolrQueryMillis(), 20.0);
+    assertEquals(metrics.getMaxSolrQueryMillis(), 30);
+    assertEquals(metrics.getMailBatches(), 1);
+    assertEquals(metrics.getAverageMailBatchMillis(), 100.0);
+    assertEquals(metrics.getJobsCompleted(), 1);
+    assertEquals(metrics.getJobsFailed(), 1);
+    assertEquals(metrics.getMailsSent(), 8);
+    assertEquals(metrics.getMailsFailed(), 2);
+    assertEquals(metrics.getJobsPerMinute(), 2);
+    assertEquals(metrics.getRunsStarted(), 1);
+    assertEquals(metrics.getRunsResumed(), 0);
+
+    metrics.reset();
+
+    assertEquals(metrics.getSolrQueries(), 0);
+    assertEquals(metrics.getAverageSolrQueryMillis(), 0.0);
+    assertEquals(metrics.getJobsPerMinute(), 0);
+    assertEquals(metrics.getRunsStarted(), 0);
+  }
+}
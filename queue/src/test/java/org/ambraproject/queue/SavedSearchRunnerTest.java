@@ -26,8 +26,10 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -205,4 +207,95 @@ public class SavedSearchRunnerTest extends BaseTest {
     assertNotNull(resultsJob.getSearchHitList(), "No results for the query");
     assertEquals(resultsJob.getSearchHitList().size(), expectedHits , "Wrong number of search results returned");
   }
+
+  private static SavedSearchJob journalAlert(long id, String subjects, String frequency) {
+    return new SavedSearchJob(
+      id,
+      "{\"query\":\"*:*\",\"unformattedQuery\":\"\",\"volume\":\"\",\"eLocationId\":\"\",\"id\":\"\",\"filterSubjects\":[],\"filterSubjectsDisjunction\":[" + subjects + "],\"filterKeyword\":\"\",\"filterArticleType\":[],\"filterJournals\":[\"PLoSMedicine\"],\"sort\":\"Relevance\",\"startPage\":0,\"pageSize\":10}",
+      "hash" + id,
+      SavedSearchType.JOURNAL_ALERT,
+      frequency);
+  }
+
+  @Test
+  public void testPlanSavedSearches() {
+    List<SavedSearchJob> jobs = new ArrayList<SavedSearchJob>();
+    jobs.add(journalAlert(10, "\"" + CATEGORY_1 + "\"", "WEEKLY"));
+    jobs.add(journalAlert(11, "\"" + CATEGORY_2 + "\"", "WEEKLY"));
+    jobs.add(journalAlert(12, "\"" + CATEGORY_1 + "\",\"" + CATEGORY_2 + "\"", "WEEKLY"));
+    jobs.add(journalAlert(13, "\"" + CATEGORY_1 + "\"", "MONTHLY"));
+    jobs.add((SavedSearchJob) savedSearchViewData()[0][0]);
+
+    List<List<SavedSearchJob>> plan = savedSearchRunner.planSavedSearches(jobs);
+
+    assertEquals(plan.size(), 3, "Searches differing only in subjects weren't grouped");
+    int planned = 0;
+    for (List<SavedSearchJob> group : plan) {
+      planned += group.size();
+      if (group.size() > 1) {
+        assertEquals(group.size(), 3, "Weekly journal alerts weren't grouped together");
+        for (SavedSearchJob job : group) {
+          assertEquals(job.getFrequency(), "WEEKLY", "Alerts of different frequencies were grouped");
+        }
+      }
+    }
+    assertEquals(planned, jobs.size(), "Planned searches got lost");
+  }
+
+  @Test
+  public void testRunSavedSearches() throws ApplicationException {
+    String[] subjects = {
+      "\"" + CATEGORY_1 + "\"",
+      "\"" + CATEGORY_2 + "\"",
+      "\"" + CATEGORY_1 + "\",\"" + CATEGORY_2 + "\""
+    };
+
+    List<SavedSearchJob> group = new ArrayList<SavedSearchJob>();
+    for (int i = 0; i < subjects.length; i++) {
+      group.add(journalAlert(10 + i, subjects[i], "WEEKLY"));
+    }
+
+    List<SavedSearchJob> results = savedSearchRunner.runSavedSearches(group);
+
+    assertEquals(results.size(), 3);
+    assertEquals(results.get(0).getSearchHitList().size(), 1, "Wrong number of hits for the first subject");
+    assertEquals(results.get(0).getSearchHitList().get(0).getUri(), DOI_3);
+    assertEquals(results.get(1).getSearchHitList().size(), 1, "Wrong number of hits for the second subject");
+    assertEquals(results.get(1).getSearchHitList().get(0).getUri(), DOI_2);
+    assertEquals(results.get(2).getSearchHitList().size(), 2, "Wrong number of hits for both subjects");
+
+    //the same results as running them one at a time
+    for (int i = 0; i < subjects.length; i++) {
+      SavedSearchJob single = savedSearchRunner.runSavedSearch(journalAlert(20 + i, subjects[i], "WEEKLY"));
+      assertEquals(single.getSearchHitList().size(), results.get(i).getSearchHitList().size(),
+        "Shared query returned different hits than a single query");
+    }
+  }
+
+  @Test
+  public void testRunSavedSearchesIgnoresSubjectCase() throws ApplicationException {
+    //solr matches the subject field regardless of case and surrounding spaces, so the shared query has to as well
+    String[] subjects = {
+      "\" " + CATEGORY_1.toLowerCase() + " \"",
+      "\"" + CATEGORY_2.toUpperCase() + "\""
+    };
+
+    List<SavedSearchJob> group = new ArrayList<SavedSearchJob>();
+    for (int i = 0; i < subjects.length; i++) {
+      group.add(journalAlert(30 + i, subjects[i], "WEEKLY"));
+    }
+
+    List<SavedSearchJob> results = savedSearchRunner.runSavedSearches(group);
+
+    assertEquals(results.get(0).getSearchHitList().size(), 1, "Wrong number of hits for the first subject");
+    assertEquals(results.get(0).getSearchHitList().get(0).getUri(), DOI_3);
+    assertEquals(results.get(1).getSearchHitList().size(), 1, "Wrong number of hits for the second subject");
+    assertEquals(results.get(1).getSearchHitList().get(0).getUri(), DOI_2);
+
+    for (int i = 0; i < subjects.length; i++) {
+      SavedSearchJob single = savedSearchRunner.runSavedSearch(journalAlert(40 + i, subjects[i], "WEEKLY"));
+      assertEquals(single.getSearchHitList().size(), results.get(i).getSearchHitList().size(),
+        "Shared query returned different hits than a single query");
+    }
+  }
 }
@@ -22,7 +22,9 @@ import org.ambraproject.search.SavedSearchRunner;
 import org.ambraproject.search.SavedSearchSender;
 import org.ambraproject.testutils.EmbeddedSolrServerFactory;
 import org.ambraproject.util.TextUtils;
+import org.ambraproject.views.SavedSearchHit;
 import org.junit.AfterClass;
+import org.jvnet.mock_javamail.Mailbox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +41,7 @@ import java.util.Map;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  * Unit test for testing the mark sent functionality
@@ -319,6 +322,65 @@ public class SavedSearchSenderTest extends BaseTest {
     assertEquals(totalMonthly, 6);
   }
 
+  @Test
+  void testResendOnlyToFailedRecipients() throws ApplicationException
+  {
+    String failingAddress = "savedSearchSenderTest1@example.org";
+    Date endTime = Calendar.getInstance().getTime();
+
+    //There is one monthly search query, with two saved searches for each user
+    List<SavedSearchJob> savedSearchJobs = savedSearchRetriever.
+      retrieveSearchAlerts(SavedSearchRetriever.AlertType.MONTHLY, new Date(0), endTime);
+    assertEquals(savedSearchJobs.size(), 1);
+
+    SavedSearchJob savedSearchJob = savedSearchJobs.get(0);
+    savedSearchJob.setSearchHitList(Arrays.asList(SavedSearchHit.builder()
+      .setUri(DOI_1)
+      .setTitle("The First Title, with Spleen testing")
+      .setCreator("doc1 creator")
+      .build()));
+
+    Mailbox.clearAll();
+    Mailbox.get(failingAddress).setError(true);
+
+    try {
+      try {
+        savedSearchSender.sendSavedSearch(savedSearchJob);
+        fail("Failed sends should have been reported");
+      } catch(RuntimeException ex) {
+        log.debug("Expected failure", ex);
+      }
+
+      assertEquals(Mailbox.get("savedSearchSenderTest0@example.org").size(), 2);
+      assertEquals(Mailbox.get(failingAddress).size(), 0);
+      assertEquals(Mailbox.get("savedSearchSenderTest2@example.org").size(), 2);
+
+      int notRun = 0;
+      for(SavedSearch savedSearch : this.dummyDataStore.getAll(SavedSearch.class)) {
+        if(savedSearch.getMonthly() && savedSearch.getLastMonthlySearchTime().getTime() == 0) {
+          notRun++;
+        }
+      }
+      assertEquals(notRun, 2, "Only the searches of the failed user should be left to run");
+
+      //Sending the job again should only go to the user that was missed
+      Mailbox.get(failingAddress).setError(false);
+      savedSearchSender.sendSavedSearch(savedSearchJob);
+
+      assertEquals(Mailbox.get("savedSearchSenderTest0@example.org").size(), 2);
+      assertEquals(Mailbox.get(failingAddress).size(), 2);
+      assertEquals(Mailbox.get("savedSearchSenderTest2@example.org").size(), 2);
+
+      for(SavedSearch savedSearch : this.dummyDataStore.getAll(SavedSearch.class)) {
+        if(savedSearch.getMonthly()) {
+          assertTrue(savedSearch.getLastMonthlySearchTime().getTime() > 0, "Monthly search time not updated");
+        }
+      }
+    } finally {
+      Mailbox.clearAll();
+    }
+  }
+
   @AfterClass
   public void restoreUserData() {
     restoreDefaultUsers();
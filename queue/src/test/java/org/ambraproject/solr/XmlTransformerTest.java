@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science http://plos.org http://ambraproject.org
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ambraproject.solr;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertTrue;
+
+public class XmlTransformerTest {
+
+  private XmlTransformer xmlTransformer;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    Map<String, String> xslTemplateMap = new HashMap<String, String>();
+    xslTemplateMap.put("3.0", "org/ambraproject/solr/XmlTransformerTest.xsl");
+
+    xmlTransformer = new XmlTransformer();
+    xmlTransformer.setXslTemplateMap(xslTemplateMap);
+    xmlTransformer.init();
+  }
+
+  private static Document parse(String xml) throws Exception {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+  }
+
+  private static Document article(int i) throws Exception {
+    return parse("<article dtd-version=\"3.0\" id=\"article" + i + "\"><title>Title " + i + "</title></article>");
+  }
+
+  @Test
+  public void testTransform() throws Exception {
+    StringWriter writer = new StringWriter();
+    xmlTransformer.transform(article(1), writer);
+
+    String result = writer.toString();
+    assertTrue(result.contains("<field name=\"id\">article1</field>"), result);
+    assertTrue(result.contains("<field name=\"title\">Title 1</field>"), result);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsupportedVersion() throws Exception {
+    xmlTransformer.transform(parse("<article dtd-version=\"1.1\"/>"), new StringWriter());
+  }
+
+  @Test
+  public void testConcurrentTransforms() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      for (int i = 0; i < 200; i++) {
+        final int articleNumber = i;
+        results.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            StringWriter writer = new StringWriter();
+            xmlTransformer.transform(article(articleNumber), writer);
+            return writer.toString();
+          }
+        }));
+      }
+
+      for (int i = 0; i < results.size(); i++) {
+        String result = results.get(i).get();
+        assertTrue(result.contains("<field name=\"id\">article" + i + "</field>"), result);
+        assertTrue(result.contains("<field name=\"title\">Title " + i + "</field>"), result);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,11 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+  <xsl:template match="/">
+    <add>
+      <doc>
+        <field name="id"><xsl:value-of select="/article/@id"/></field>
+        <field name="title"><xsl:value-of select="/article/title"/></field>
+      </doc>
+    </add>
+  </xsl:template>
+</xsl:stylesheet>
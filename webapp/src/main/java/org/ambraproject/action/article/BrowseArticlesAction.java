@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2006-2013 by Public Library of Science
+ *
+ * http://plos.org
+ * http://ambraproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ambraproject.action.article;
+
+import org.ambraproject.action.BaseActionSupport;
+import org.ambraproject.service.article.BrowseParameters;
+import org.ambraproject.service.article.BrowseService;
+import org.ambraproject.views.BrowseResult;
+import org.ambraproject.views.SearchHit;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Browse the articles of the current journal by publication date or by subject, one page at a time.  The next page
+ * link carries the cursor returned with the current page, so deep pages are read with a cursor instead of an offset.
+ */
+public class BrowseArticlesAction extends BaseActionSupport {
+  private static final String PAGE_SIZE = "ambra.services.search.pageSize";
+  private static final String PAGE_SIZES = "ambra.services.search.pageSizes.size";
+
+  private BrowseService browseService;
+
+  private String subject;
+  private int year = -1;
+  private int month = -1;
+  private int day = -1;
+  private int startPage;
+  private int pageSize;
+  private String cursor;
+
+  private BrowseResult result;
+
+  /**
+   * Browse the articles published on the given year, month or day, or in the last week if no year is given
+   *
+   * @return the action status
+   */
+  public String browseByDate() {
+    Calendar startDate = Calendar.getInstance();
+    Calendar endDate = Calendar.getInstance();
+
+    if (year > -1) {
+      startDate.clear();
+      startDate.set(Calendar.YEAR, year);
+      endDate = (Calendar) startDate.clone();
+
+      if (month > -1) {
+        startDate.set(Calendar.MONTH, month);
+        endDate.set(Calendar.MONTH, month);
+
+        if (day > -1) {
+          startDate.set(Calendar.DAY_OF_MONTH, day);
+          endDate.set(Calendar.DAY_OF_MONTH, day);
+        } else {
+          endDate.set(Calendar.DAY_OF_MONTH, endDate.getActualMaximum(Calendar.DAY_OF_MONTH));
+        }
+      } else {
+        endDate.set(Calendar.MONTH, Calendar.DECEMBER);
+        endDate.set(Calendar.DAY_OF_MONTH, 31);
+      }
+    } else {
+      startDate.add(Calendar.DATE, -7);
+    }
+
+    BrowseParameters params = createBrowseParameters();
+    params.setStartDate(startDate);
+    params.setEndDate(endDate);
+
+    result = browseService.getArticlesByDate(params);
+
+    return SUCCESS;
+  }
+
+  /**
+   * Browse the articles in the given subject
+   *
+   * @return the action status
+   */
+  public String browseBySubject() {
+    if (subject == null || subject.trim().length() == 0) {
+      addFieldError("subject", "A subject is required");
+      return INPUT;
+    }
+
+    BrowseParameters params = createBrowseParameters();
+    params.setSubjects(new String[] { subject.trim() });
+
+    result = browseService.getArticlesBySubject(params);
+
+    return SUCCESS;
+  }
+
+  private BrowseParameters createBrowseParameters() {
+    //these pages are open to anyone, so only the page sizes offered for search are allowed
+    if (!configuration.getList(PAGE_SIZES).contains(String.valueOf(pageSize))) {
+      pageSize = configuration.getInt(PAGE_SIZE, 15);
+    }
+
+    BrowseParameters params = new BrowseParameters();
+    params.setJournalKey(getCurrentJournal());
+    params.setPageNum(startPage);
+    params.setPageSize(pageSize);
+    params.setCursor(cursor);
+
+    return params;
+  }
+
+  /**
+   * Called by Spring injection when this class is loaded...
+   *
+   * @param browseService The browseService to set.
+   */
+  @Required
+  public void setBrowseService(BrowseService browseService) {
+    this.browseService = browseService;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  public void setSubject(String subject) {
+    this.subject = subject;
+  }
+
+  public int getYear() {
+    return year;
+  }
+
+  public void setYear(int year) {
+    this.year = year;
+  }
+
+  /**
+   * @return the month, 0 based
+   */
+  public int getMonth() {
+    return month;
+  }
+
+  public void setMonth(int month) {
+    this.month = month;
+  }
+
+  public int getDay() {
+    return day;
+  }
+
+  public void setDay(int day) {
+    this.day = day;
+  }
+
+  /**
+   * @return the page being shown, 0 based
+   */
+  public int getStartPage() {
+    return startPage;
+  }
+
+  public void setStartPage(int startPage) {
+    this.startPage = startPage;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Set the page size.  Sizes other than the ones configured for search are ignored.
+   *
+   * @param pageSize the page size
+   */
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Set the cursor token returned with the previous page.  It's ignored if it doesn't match this browse.
+   *
+   * @param cursor the cursor token
+   */
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public List<SearchHit> getArticleList() {
+    if (result == null) {
+      return Collections.emptyList();
+    }
+    return result.getArticles();
+  }
+
+  public long getTotalArticles() {
+    return result == null ? 0 : result.getTotal();
+  }
+
+  public int getTotalPages() {
+    if (pageSize <= 0) {
+      return 0;
+    }
+    return (int) ((getTotalArticles() + pageSize - 1) / pageSize);
+  }
+
+  /**
+   * @return the cursor token for the next page link, or an empty string if there's no next page
+   */
+  public String getNextCursor() {
+    if (result == null || result.getNextCursor() == null) {
+      return "";
+    }
+    return result.getNextCursor();
+  }
+}
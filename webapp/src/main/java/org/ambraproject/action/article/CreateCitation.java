@@ -28,7 +28,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.ambraproject.action.BaseActionSupport;
 import org.ambraproject.service.article.ArticleService;
 import org.ambraproject.service.article.NoSuchArticleIdException;
-import org.ambraproject.models.Article;
 import org.ambraproject.util.UriUtil;
 
 /**
@@ -60,23 +59,8 @@ public class CreateCitation extends BaseActionSupport {
     }
 
     try {
-      Article article = articleService.getArticle(articleURI, getAuthId());
-      doi = article.getDoi();
-      citation =  CitationView.builder()
-              .setDoi(article.getDoi())
-              .seteLocationId(article.geteLocationId())
-              .setUrl(article.getUrl())
-              .setTitle(article.getTitle())
-              .setJournal(article.getJournal())
-              .setVolume(article.getVolume())
-              .setIssue(article.getIssue())
-              .setSummary(article.getDescription())
-              .setPublisherName(article.getPublisherName())
-              .setPublishedDate(article.getDate())
-              .setAuthorList(article.getAuthors())
-              .setCollaborativeAuthors(article.getCollaborativeAuthors())
-              .build();
-
+      citation = articleService.getArticleCitation(articleURI, getAuthId());
+      doi = citation.getDoi();
     } catch (NoSuchArticleIdException ex) {
       return ERROR;
     }
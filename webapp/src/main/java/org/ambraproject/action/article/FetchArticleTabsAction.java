@@ -21,7 +21,6 @@ package org.ambraproject.action.article;
 import com.opensymphony.xwork2.validator.annotations.RequiredStringValidator;
 import org.ambraproject.ApplicationException;
 import org.ambraproject.action.BaseSessionAwareActionSupport;
-import org.ambraproject.models.Article;
 import org.ambraproject.service.article.NoSuchObjectIdException;
 import org.ambraproject.views.CitationView;
 import org.ambraproject.service.captcha.CaptchaService;
@@ -46,6 +45,7 @@ import org.ambraproject.views.AuthorView;
 import org.ambraproject.views.CitationReference;
 import org.ambraproject.views.JournalView;
 import org.ambraproject.views.article.ArticleInfo;
+import org.ambraproject.views.article.ArticleMetadata;
 import org.ambraproject.views.article.ArticleType;
 import org.ambraproject.views.article.RelatedArticleInfo;
 import org.apache.commons.collections.CollectionUtils;
@@ -114,7 +114,7 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
   private boolean isResearchArticle;
   private String publishedJournal = "";
   private ArticleInfo articleInfoX;
-  private Document doc;
+  private ArticleMetadata articleMetadata;
   private ArticleType articleType;
   private List<List<String>> articleIssues;
   private int trackbackCount;
@@ -176,7 +176,6 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
           if ((relatedArticleInfo.getArticleTypes() != null)) {
             // currently, we don't have many related articles; therefore, these lines
             // shouldn't cause performance overhead.
-            Article article = articleService.getArticle(relatedArticleInfo.getDoi(), getAuthId());
             ArticleInfo articleInfo = articleService.getArticleInfo(relatedArticleInfo.getDoi(), getAuthId());
             Document document = this.fetchArticleService.getArticleDocument(articleInfo);
 
@@ -184,7 +183,7 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
                     articleService.isRetractionArticle(relatedArticleInfo)) {
 
               retraction = this.fetchArticleService.getAmendmentBody(document);
-              retractionCitation = buildCitationFromArticle(article);
+              retractionCitation = articleService.getArticleCitation(relatedArticleInfo.getDoi(), getAuthId());
 
               break;
             }
@@ -193,14 +192,14 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
                     articleService.isEocArticle(relatedArticleInfo)) {
 
               expressionOfConcern = this.fetchArticleService.getAmendmentBody(document);
-              eocCitation = buildCitationFromArticle(article);
+              eocCitation = articleService.getArticleCitation(relatedArticleInfo.getDoi(), getAuthId());
               break;
             }
 
             if (CORRECTION_RELATION.equalsIgnoreCase(relatedArticleInfo.getRelationType()) &&
                     articleService.isCorrectionArticle(relatedArticleInfo)) {
 
-              CitationView citation = buildCitationFromArticle(article);
+              CitationView citation = articleService.getArticleCitation(relatedArticleInfo.getDoi(), getAuthId());
               articleCorrection.add(citation);
 
             }
@@ -214,24 +213,6 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
     return SUCCESS;
   }
 
-  private CitationView buildCitationFromArticle(Article article)  {
-    CitationView citation =  CitationView.builder()
-            .setDoi(article.getDoi())
-            .seteLocationId(article.geteLocationId())
-            .setUrl(article.getUrl())
-            .setTitle(article.getTitle())
-            .setJournal(article.getJournal())
-            .setVolume(article.getVolume())
-            .setIssue(article.getIssue())
-            .setSummary(article.getDescription())
-            .setPublisherName(article.getPublisherName())
-            .setPublishedDate(article.getDate())
-            .setAuthorList(article.getAuthors())
-            .setCollaborativeAuthors(article.getCollaborativeAuthors())
-            .build();
-    return citation;
-  }
-
   /**
    * Fetch data for Comments Tab
    *
@@ -360,13 +341,9 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
     //TODO: Refactor this to not be spaghetti, all these properties should be made
     //to be part of articleInfo.  Rename articleInfo to articleView and populate articleView
     //In the service tier in whatever way is appropriate
-    doc = this.fetchArticleService.getArticleDocument(articleInfoX);
-    authors = this.fetchArticleService.getAuthors(doc);
-    correspondingAuthor = this.fetchArticleService.getCorrespondingAuthors(doc);
-    authorContributions = this.fetchArticleService.getAuthorContributions(doc);
-    competingInterest = this.fetchArticleService.getAuthorCompetingInterests(doc);
-    references = this.fetchArticleService.getReferences(doc);
-    journalAbbrev = this.fetchArticleService.getJournalAbbreviation(doc);
+    setArticleMetadata();
+    references = articleMetadata.getReferences();
+    journalAbbrev = articleMetadata.getJournalAbbreviation();
     commentary = this.annotationService.listAnnotations(articleInfoX.getId(),
         EnumSet.of(AnnotationType.COMMENT), 
         AnnotationOrder.MOST_RECENT_REPLY);
@@ -384,6 +361,17 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
     this.categories = Cookies.setAdditionalCategoryFlags(articleInfoX.getCategories(), articleInfoX.getId());
   }
 
+  /**
+   * Look up the (cached) metadata of the article and set the author properties from it
+   */
+  private void setArticleMetadata() throws ApplicationException, NoSuchArticleIdException {
+    articleMetadata = this.fetchArticleService.getArticleMetadata(articleInfoX);
+    authors = articleMetadata.getAuthors();
+    correspondingAuthor = articleMetadata.getCorrespondingAuthors();
+    authorContributions = articleMetadata.getAuthorContributions();
+    competingInterest = articleMetadata.getCompetingInterests();
+  }
+
   @Override
   public boolean getHasAboutAuthorContent() {
     return authors != null ? AuthorView.anyHasAffiliation(authors)
@@ -455,11 +443,7 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
     try {
       validateArticleURI();
       articleInfoX = articleService.getArticleInfo(articleURI, getAuthId());
-      doc = this.fetchArticleService.getArticleDocument(articleInfoX);
-      authors = this.fetchArticleService.getAuthors(doc);
-      correspondingAuthor = this.fetchArticleService.getCorrespondingAuthors(doc);
-      authorContributions = this.fetchArticleService.getAuthorContributions(doc);
-      competingInterest = this.fetchArticleService.getAuthorCompetingInterests(doc);
+      setArticleMetadata();
     } catch (Exception e) {
       populateErrorMessages(e);
       return ERROR;
@@ -882,7 +866,7 @@ public class FetchArticleTabsAction extends BaseSessionAwareActionSupport implem
    */
   public Set<Map.Entry<String, List<AuthorView>>> getAuthorsByAffiliation() throws RuntimeException{
 
-    return fetchArticleService.getAuthorsByAffiliation(doc, authors).entrySet();
+    return articleMetadata.getAuthorsByAffiliation().entrySet();
 
   }
 
@@ -324,6 +324,29 @@ public abstract class BaseSearchAction extends BaseSessionAwareActionSupport {
     return resultsSinglePage.getTotalNoOfResults();
   }
 
+  /**
+   * Set the cursor token for reading the requested page
+   *
+   * @param cursor the token returned with the previous page
+   */
+  public void setCursor(final String cursor) {
+    getSearchParameters().setCursor(cursor);
+  }
+
+  public String getCursor() {
+    return getSearchParameters().getCursor();
+  }
+
+  /**
+   * The cursor token for the page after this one
+   *
+   * @return the token, or an empty string if there isn't one
+   */
+  public String getNextCursor() {
+    String nextCursor = resultsSinglePage == null ? null : resultsSinglePage.getNextCursor();
+    return nextCursor == null ? "" : nextCursor;
+  }
+
   public List getPageSizes()
   {
     return searchService.getPageSizes();
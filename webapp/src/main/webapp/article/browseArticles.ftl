@@ -0,0 +1,89 @@
+<#--
+  Browse the journal's articles by date or by subject.
+
+  startPage is zero based.  The next page link carries the cursor token returned with this page, so deep pages can be
+  read without an offset.  Every other link pages by offset.
+-->
+<#if subject??>
+  <@s.url id="browseURL" action="subject" namespace="/article/browse" includeParams="none" subject="${subject}"
+    pageSize="${pageSize?c}"/>
+<#else>
+  <@s.url id="browseURL" action="date" namespace="/article/browse" includeParams="none"
+    year="${year?c}" month="${month?c}" day="${day?c}" pageSize="${pageSize?c}"/>
+</#if>
+
+<div id="pagebdy-wrap" class="bg-dk">
+  <div id="pagebdy">
+    <div id="browse-results-block" class="cf">
+      <div class="header hdr-results">
+        <h2>${totalArticles} articles<#if subject??> in <span>${subject?html}</span></#if></h2>
+      </div>
+
+      <div class="main">
+        <#if (totalArticles gt 0)>
+          <ul id="browse-results">
+            <#list articleList as hit>
+              <li data-doi="${hit.uri}">
+                <span class="article">
+                  <@s.url id="fetchArticleURL" action="fetchArticle" namespace="/article" articleURI="info:doi/${hit.uri}" includeParams="none"/>
+                  <@s.a href="${fetchArticleURL}" title="Read Open-Access Article"><@articleFormat>${hit.title}</@articleFormat></@s.a>
+                </span>
+                <span class="authors">${hit.creator!""}</span>
+                <#if hit.articleTypeForDisplay??>
+                  ${hit.articleTypeForDisplay} |
+                </#if>
+                <#if hit.date??>
+                  published ${hit.date?string("dd MMM yyyy")}
+                </#if>
+              </li>
+            </#list>
+          </ul>
+
+          <#assign currentPage = startPage + 1/>
+          <#if (totalPages gt 1)>
+            <div class="pagination">
+              <#if (currentPage gt 1)>
+                <a href="${browseURL}&amp;startPage=${(currentPage - 2)?c}" class="prev">&lt;</a>
+              <#else>
+                <span class="prev">&lt;</span>
+              </#if>
+
+              <#-- only the pages around the current one are listed, plus the first and last pages -->
+              <#assign firstListed = currentPage - 2/>
+              <#if (firstListed lt 1)><#assign firstListed = 1/></#if>
+              <#assign lastListed = currentPage + 2/>
+              <#if (lastListed gt totalPages)><#assign lastListed = totalPages/></#if>
+              <#if (firstListed gt lastListed)><#assign firstListed = lastListed/></#if>
+
+              <#if (firstListed gt 1)>
+                <a href="${browseURL}&amp;startPage=0">1</a>
+                <#if (firstListed gt 2)><span>...</span></#if>
+              </#if>
+              <#list firstListed..lastListed as pageNumber>
+                <#if pageNumber == currentPage>
+                  <strong>${pageNumber}</strong>
+                <#else>
+                  <a href="${browseURL}&amp;startPage=${(pageNumber - 1)?c}">${pageNumber}</a>
+                </#if>
+              </#list>
+              <#if (lastListed lt totalPages)>
+                <#if (lastListed lt totalPages - 1)><span>...</span></#if>
+                <a href="${browseURL}&amp;startPage=${(totalPages - 1)?c}">${totalPages}</a>
+              </#if>
+
+              <#if (currentPage lt totalPages)>
+                <a href="${browseURL}&amp;startPage=${currentPage?c}<#if nextCursor != "">&amp;cursor=${nextCursor?url}</#if>"
+                   class="next">&gt;</a>
+              <#else>
+                <span class="next">&gt;</span>
+              </#if>
+            </div>
+          </#if>
+        <#else>
+          <p>There are no articles to show.</p>
+        </#if>
+      </div>
+    </div>
+  </div>
+  <!-- pagebdy -->
+</div><!-- pagebdy-wrap -->
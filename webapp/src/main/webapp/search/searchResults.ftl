@@ -64,6 +64,9 @@ ERROR, searchType must be defined.
   Current Page is 8:
   < 1 ...7 8 9 10 >
   < 1 2 3 4 ... 10 >
+
+  The next page link carries the cursor token returned with this page, so deep pages can be read without an
+  offset.  Every other link pages by offset.
 -->
   <#assign currentPage = currentPageParam + 1/>
 
@@ -71,7 +74,7 @@ ERROR, searchType must be defined.
   <div class="pagination">
     <#if (totalPages lt 4) >
       <#if (currentPage gt 1) >
-        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[currentPage - 2] />"
+        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[currentPage - 2, ""] />"
            class="prev">&lt;</a>&nbsp;
       <#else>
         <span class="prev">&lt;</span>
@@ -81,12 +84,12 @@ ERROR, searchType must be defined.
         <#if pageNumber == currentPage>
           <strong>${currentPage}</strong>
         <#else>
-          <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[pageNumber - 1] />">${pageNumber}</a>
+          <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[pageNumber - 1, ""] />">${pageNumber}</a>
         </#if>
       </#list>
 
       <#if (currentPage lt totalPages)>
-        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[currentPage] />"
+        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[currentPage, nextCursor] />"
            class="next">
           &gt;</a>
       <#else>
@@ -94,9 +97,9 @@ ERROR, searchType must be defined.
       </#if>
     <#else>
       <#if (currentPage gt 1) >
-        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[currentPage - 2] />"
+        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[currentPage - 2, ""] />"
            class="prev">&lt;</a>
-        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[0] />">1</a>
+        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[0, ""] />">1</a>
       <#else>
         <span class="prev">&lt;</span><strong>1</strong>
       </#if>
@@ -114,7 +117,7 @@ ERROR, searchType must be defined.
           <#if (currentPage == pageNumber)>
             <strong>${pageNumber}</strong>
           <#else>
-            <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[pageNumber - 1] />">${pageNumber}</a>
+            <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[pageNumber - 1, ""] />">${pageNumber}</a>
           </#if>
         </#if>
       </#list>
@@ -122,8 +125,8 @@ ERROR, searchType must be defined.
         ...
       </#if>
       <#if (currentPage lt totalPages)>
-        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[totalPages - 1] />">${totalPages}</a>
-        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage" values=[currentPage] />"
+        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[totalPages - 1, ""] />">${totalPages}</a>
+        <a href="${url}?<@URLParameters parameters=searchParameters names="startPage,cursor" values=[currentPage, nextCursor] />"
            class="next">&gt;</a>
       <#else>
         <strong>${totalPages}</strong>